@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
 import org.forgerock.opendj.ldap.schema.CoreSchema;
@@ -81,6 +82,14 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
         }
     };
 
+    /**
+     * The process wide cache of parsed DNs shared by all the threads, or
+     * {@code null} if it is disabled, which is the default.
+     */
+    private static volatile DNCache sharedCache;
+    private static final LongAdder SHARED_CACHE_HITS = new LongAdder();
+    private static final LongAdder SHARED_CACHE_MISSES = new LongAdder();
+
     /**
      * Returns the LDAP string representation of the provided DN attribute value
      * in a form suitable for substitution directly into a DN string. This
@@ -188,6 +197,73 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
         return valueOf(dnString, schema);
     }
 
+    /**
+     * Sets the maximum number of DNs kept by the process wide DN cache, or
+     * disables it. The cache is shared by all the threads calling
+     * {@link #valueOf(String, Schema)}: it keeps fully normalized DNs keyed by
+     * their string representation and by the identity of the schema used to
+     * parse them, so a DN parsed with a schema is never returned for another
+     * schema. Changing the maximum size empties the cache.
+     *
+     * @param maxSize
+     *            The maximum number of DNs kept by the cache, or {@code 0} to
+     *            disable the cache.
+     * @throws IllegalArgumentException
+     *             If {@code maxSize} is negative.
+     */
+    public static void setSharedCacheSize(final int maxSize) {
+        Reject.ifTrue(maxSize < 0, "The DN cache size must not be negative");
+        final DNCache cache = sharedCache;
+        if (cache == null ? maxSize != 0 : cache.getMaxSize() != maxSize) {
+            sharedCache = maxSize > 0 ? new DNCache(maxSize) : null;
+        }
+    }
+
+    /**
+     * Removes all the DNs from the process wide DN cache. Applications should
+     * call this method when they replace a schema, so the DNs parsed with the
+     * old schema do not use space in the cache.
+     */
+    public static void clearSharedCache() {
+        final DNCache cache = sharedCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of DNs currently kept by the process wide DN cache.
+     *
+     * @return The number of DNs currently kept by the process wide DN cache,
+     *         {@code 0} if it is disabled.
+     */
+    public static int getSharedCacheSize() {
+        final DNCache cache = sharedCache;
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * Returns the number of DNs which have been found in the process wide DN
+     * cache since the JVM started.
+     *
+     * @return The number of DNs which have been found in the process wide DN
+     *         cache.
+     */
+    public static long getSharedCacheHits() {
+        return SHARED_CACHE_HITS.sum();
+    }
+
+    /**
+     * Returns the number of DNs which have been parsed because they were not in
+     * the process wide DN cache since the JVM started.
+     *
+     * @return The number of DNs which have been parsed because they were not
+     *         in the process wide DN cache.
+     */
+    public static long getSharedCacheMisses() {
+        return SHARED_CACHE_MISSES.sum();
+    }
+
     /**
      * Returns the Root DN. The Root DN does not contain and RDN components and
      * is superior to all other DNs.
@@ -241,8 +317,23 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
             return cachedDN;
         }
 
-        // Not in cache so decode.
-        return decode(new SubstringReader(dn), schema, cache);
+        final DNCache shared = sharedCache;
+        if (shared == null) {
+            // Not in cache so decode.
+            return decode(new SubstringReader(dn), schema, cache, null);
+        }
+        final DN sharedDN = shared.get(dn, schema);
+        if (sharedDN != null) {
+            SHARED_CACHE_HITS.increment();
+            return sharedDN;
+        }
+        SHARED_CACHE_MISSES.increment();
+
+        // Not in cache so decode. Computing the hash code normalizes the DN once for all the threads getting it.
+        final DN decodedDN = decode(new SubstringReader(dn), schema, cache, shared);
+        decodedDN.hashCode();
+        shared.put(dn, schema, decodedDN);
+        return decodedDN;
     }
 
     /**
@@ -261,7 +352,8 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
     }
 
     /** Decodes a DN using the provided reader and schema. */
-    private static DN decode(final SubstringReader reader, final Schema schema, final Map<String, DN> cache) {
+    private static DN decode(final SubstringReader reader, final Schema schema, final Map<String, DN> cache,
+            final DNCache shared) {
         reader.skipWhitespaces();
         if (reader.remaining() == 0) {
             return ROOT_DN;
@@ -285,6 +377,9 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
             reader.mark();
             final String parentString = reader.read(reader.remaining());
             parent = cache.get(parentString);
+            if (parent == null && shared != null) {
+                parent = shared.get(parentString, schema);
+            }
             if (parent != null) {
                 break;
             }
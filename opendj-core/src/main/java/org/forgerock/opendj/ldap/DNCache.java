@@ -0,0 +1,134 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.forgerock.opendj.ldap.schema.Schema;
+
+/**
+ * A size bounded cache of parsed DNs shared by all the threads, keyed by the
+ * DN string and the identity of the schema it was parsed with.
+ * <p>
+ * Reads never block. When the cache is full, a batch of arbitrary entries is
+ * evicted, which is cheaper than maintaining an access order and good enough
+ * for the search bases and ACI targets which are looked up over and over.
+ */
+final class DNCache {
+    /** A cache key: a DN string and the schema used to parse it, compared by identity. */
+    private static final class Key {
+        private final String dn;
+        private final Schema schema;
+        private final int hashCode;
+
+        private Key(final String dn, final Schema schema) {
+            this.dn = dn;
+            this.schema = schema;
+            this.hashCode = dn.hashCode() * 31 + System.identityHashCode(schema);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (obj instanceof Key) {
+                final Key other = (Key) obj;
+                return schema == other.schema && dn.equals(other.dn);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private final int maxSize;
+    private final int evictionBatchSize;
+    private final ConcurrentMap<Key, DN> dns;
+
+    /**
+     * Creates a new empty DN cache.
+     *
+     * @param maxSize
+     *            The maximum number of DNs kept by this cache.
+     */
+    DNCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.evictionBatchSize = Math.max(1, maxSize / 16);
+        this.dns = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * Returns the DN cached for the provided string and schema.
+     *
+     * @param dn
+     *            The LDAP string representation of the DN.
+     * @param schema
+     *            The schema used to parse the DN.
+     * @return The cached DN, or {@code null} if it is not in this cache.
+     */
+    DN get(final String dn, final Schema schema) {
+        return dns.get(new Key(dn, schema));
+    }
+
+    /**
+     * Adds a DN to this cache, evicting other DNs if this cache is full.
+     *
+     * @param dnString
+     *            The LDAP string representation of the DN.
+     * @param schema
+     *            The schema used to parse the DN.
+     * @param dn
+     *            The parsed DN, whose normalized form has already been computed.
+     */
+    void put(final String dnString, final Schema schema, final DN dn) {
+        if (dns.size() >= maxSize) {
+            final Iterator<Key> it = dns.keySet().iterator();
+            for (int i = 0; i < evictionBatchSize && it.hasNext(); i++) {
+                it.next();
+                it.remove();
+            }
+        }
+        dns.put(new Key(dnString, schema), dn);
+    }
+
+    /** Removes all the DNs from this cache. */
+    void clear() {
+        dns.clear();
+    }
+
+    /**
+     * Returns the maximum number of DNs kept by this cache.
+     *
+     * @return The maximum number of DNs kept by this cache.
+     */
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of DNs currently kept by this cache.
+     *
+     * @return The number of DNs currently kept by this cache.
+     */
+    int size() {
+        return dns.size();
+    }
+}
@@ -47,6 +47,16 @@ abstract class AbstractEqualityMatchingRuleImpl extends AbstractMatchingRuleImpl
         return Collections.singleton(indexer);
     }
 
+    /**
+     * Returns whether the assertions of this matching rule only depend on the
+     * assertion value, and can therefore be cached.
+     *
+     * @return {@code true} if the assertions of this matching rule can be cached.
+     */
+    boolean hasCacheableAssertions() {
+        return false;
+    }
+
     Assertion defaultAssertion(final ByteSequence normalizedAssertionValue) {
         return named(indexer.getIndexID(), normalizedAssertionValue);
     }
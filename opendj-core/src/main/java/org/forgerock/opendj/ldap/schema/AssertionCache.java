@@ -0,0 +1,105 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.forgerock.opendj.ldap.schema;
+
+import org.forgerock.opendj.ldap.Assertion;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+
+/**
+ * A small cache of the assertions created by a matching rule, keyed by their
+ * assertion value.
+ * <p>
+ * Filters are evaluated against each candidate entry of a search, and each
+ * evaluation used to normalize the same assertion value again. The cache is a
+ * direct mapped table: a slot only holds the most recent assertion whose value
+ * hashes to it, which is enough to keep the assertions of the operations in
+ * progress without any locking. It must only be used by matching rules whose
+ * assertions only depend on the assertion value.
+ * <p>
+ * There is one cache per matching rule, rather than one per attribute type:
+ * since an assertion only depends on its value, the attribute types sharing a
+ * matching rule, such as cn and sn, reuse the same assertions instead of each
+ * keeping a copy. The attribute types sharing a rule compete for its slots, so
+ * {@link SchemaOptions#ASSERTION_CACHE_SIZE} is sized for the distinct
+ * assertion values of the operations in progress across all of them. One
+ * cache per attribute type would multiply the memory used by the number of
+ * attribute types, most of which are never searched.
+ */
+final class AssertionCache {
+    /** An immutable, and therefore safely published, cache slot. */
+    private static final class CachedAssertion {
+        private final ByteString assertionValue;
+        private final Assertion assertion;
+
+        private CachedAssertion(final ByteString assertionValue, final Assertion assertion) {
+            this.assertionValue = assertionValue;
+            this.assertion = assertion;
+        }
+    }
+
+    private final CachedAssertion[] slots;
+
+    /**
+     * Creates a new empty assertion cache.
+     *
+     * @param size
+     *            The number of assertions kept by this cache, rounded up to a
+     *            power of two.
+     */
+    AssertionCache(final int size) {
+        slots = new CachedAssertion[Integer.highestOneBit(Math.max(size - 1, 1)) << 1];
+    }
+
+    /**
+     * Returns the assertion cached for the provided assertion value.
+     *
+     * @param assertionValue
+     *            The assertion value.
+     * @return The cached assertion, or {@code null} if it is not in this cache.
+     */
+    Assertion get(final ByteSequence assertionValue) {
+        final CachedAssertion cached = slots[slot(assertionValue)];
+        if (cached != null
+                && (cached.assertionValue == assertionValue || cached.assertionValue.equals(assertionValue))) {
+            return cached.assertion;
+        }
+        return null;
+    }
+
+    /**
+     * Adds an assertion to this cache, replacing the assertion using the same
+     * slot.
+     *
+     * @param assertionValue
+     *            The assertion value.
+     * @param assertion
+     *            The assertion created for this value.
+     */
+    void put(final ByteSequence assertionValue, final Assertion assertion) {
+        slots[slot(assertionValue)] = new CachedAssertion(assertionValue.toByteString(), assertion);
+    }
+
+    private int slot(final ByteSequence assertionValue) {
+        // ByteString.hashCode() sums the bytes, which is too weak for a direct mapped table
+        int hash = 0;
+        final int length = assertionValue.length();
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + assertionValue.byteAt(i);
+        }
+        return (hash ^ (hash >>> 16)) & (slots.length - 1);
+    }
+}
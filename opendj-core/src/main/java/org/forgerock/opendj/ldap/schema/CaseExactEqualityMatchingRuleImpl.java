@@ -37,6 +37,11 @@ final class CaseExactEqualityMatchingRuleImpl extends AbstractEqualityMatchingRu
         return SchemaUtils.normalizeStringAttributeValue(value, TRIM, NO_CASE_FOLD);
     }
 
+    @Override
+    boolean hasCacheableAssertions() {
+        return true;
+    }
+
     @Override
     public String keyToHumanReadableString(ByteSequence key) {
         return key.toString();
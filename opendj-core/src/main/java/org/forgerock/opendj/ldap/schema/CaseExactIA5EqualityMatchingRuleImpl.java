@@ -39,6 +39,11 @@ final class CaseExactIA5EqualityMatchingRuleImpl extends AbstractEqualityMatchin
         return SchemaUtils.normalizeIA5StringAttributeValue(value, TRIM, NO_CASE_FOLD);
     }
 
+    @Override
+    boolean hasCacheableAssertions() {
+        return true;
+    }
+
     @Override
     public String keyToHumanReadableString(ByteSequence key) {
         return key.toString();
@@ -37,6 +37,11 @@ final class CaseIgnoreEqualityMatchingRuleImpl extends AbstractEqualityMatchingR
         return SchemaUtils.normalizeStringAttributeValue(value, TRIM, CASE_FOLD);
     }
 
+    @Override
+    boolean hasCacheableAssertions() {
+        return true;
+    }
+
     @Override
     public String keyToHumanReadableString(ByteSequence key) {
         return key.toString();
@@ -39,6 +39,11 @@ final class CaseIgnoreIA5EqualityMatchingRuleImpl extends AbstractEqualityMatchi
         return SchemaUtils.normalizeIA5StringAttributeValue(value, TRIM, CASE_FOLD);
     }
 
+    @Override
+    boolean hasCacheableAssertions() {
+        return true;
+    }
+
     @Override
     public String keyToHumanReadableString(ByteSequence key) {
         return key.toString();
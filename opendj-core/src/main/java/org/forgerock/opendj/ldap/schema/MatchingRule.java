@@ -238,6 +238,11 @@ public final class MatchingRule extends AbstractSchemaElement {
     private MatchingRuleImpl impl;
     private Syntax syntax;
     private Schema schema;
+    /**
+     * The cache of the assertions of this matching rule, shared by all the
+     * attribute types using it, {@code null} if they are not cached.
+     */
+    private AssertionCache assertionCache;
 
     private MatchingRule(final Builder builder) {
         super(builder);
@@ -283,6 +288,10 @@ public final class MatchingRule extends AbstractSchemaElement {
      * best suited for efficiently performing matching operations on that value.
      * The assertion value is guaranteed to be valid against this matching
      * rule's assertion syntax.
+     * <p>
+     * When {@link SchemaOptions#ASSERTION_CACHE_SIZE} is set, the assertions
+     * of the string equality matching rules are cached by this matching rule,
+     * and shared by all the attribute types using it.
      *
      * @param value
      *            The syntax checked assertion value to be normalized.
@@ -291,7 +300,16 @@ public final class MatchingRule extends AbstractSchemaElement {
      *             if the syntax of the value is not valid.
      */
     public Assertion getAssertion(final ByteSequence value) throws DecodeException {
-        return impl.getAssertion(schema, value);
+        final AssertionCache cache = assertionCache;
+        if (cache == null) {
+            return impl.getAssertion(schema, value);
+        }
+        Assertion assertion = cache.get(value);
+        if (assertion == null) {
+            assertion = impl.getAssertion(schema, value);
+            cache.put(value, assertion);
+        }
+        return assertion;
     }
 
     /**
@@ -543,6 +561,11 @@ public final class MatchingRule extends AbstractSchemaElement {
             throw new SchemaException(message, e);
         }
 
+        final int assertionCacheSize = schema.getOption(SchemaOptions.ASSERTION_CACHE_SIZE);
+        final boolean hasCacheableAssertions = impl instanceof AbstractEqualityMatchingRuleImpl
+                && ((AbstractEqualityMatchingRuleImpl) impl).hasCacheableAssertions();
+        assertionCache =
+                assertionCacheSize > 0 && hasCacheableAssertions ? new AssertionCache(assertionCacheSize) : null;
         this.schema = schema;
     }
 
@@ -37,6 +37,11 @@ final class NumericStringEqualityMatchingRuleImpl extends AbstractEqualityMatchi
         return SchemaUtils.normalizeNumericStringAttributeValue(value);
     }
 
+    @Override
+    boolean hasCacheableAssertions() {
+        return true;
+    }
+
     @Override
     public String keyToHumanReadableString(ByteSequence key) {
         return key.toString();
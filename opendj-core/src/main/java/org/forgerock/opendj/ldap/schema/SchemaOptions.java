@@ -131,5 +131,18 @@ public final class SchemaOptions {
      */
     public static final Option<Boolean> STRIP_UPPER_BOUND_FOR_ATTRIBUTE_TYPE = Option.withDefault(false);
 
+    /**
+     * Specifies the number of assertions kept by each of the caseIgnore,
+     * caseExact, caseIgnoreIA5, caseExactIA5 and numericString equality
+     * matching rules, so that evaluating a filter against many entries does
+     * not normalize the same assertion value again and again. Each cache is
+     * shared by all the attribute types using its matching rule, so this size
+     * bounds the distinct assertion values cached across all of them. A value
+     * of {@code 0} disables these caches.
+     * <p>
+     * By default this option is set to {@code 0}.
+     */
+    public static final Option<Integer> ASSERTION_CACHE_SIZE = Option.withDefault(0);
+
     private SchemaOptions() { }
 }
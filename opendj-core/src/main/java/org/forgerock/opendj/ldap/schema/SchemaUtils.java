@@ -713,6 +713,10 @@ final class SchemaUtils {
 
     static ByteString normalizeStringAttributeValue(final ByteSequence value, final boolean trim,
             final boolean foldCase) {
+        final ByteString asciiValue = normalizePrintableAsciiValue(value, trim, foldCase);
+        if (asciiValue != null) {
+            return asciiValue;
+        }
         final StringBuilder buffer = new StringBuilder();
         prepareUnicode(buffer, value, trim, foldCase);
 
@@ -724,6 +728,10 @@ final class SchemaUtils {
 
     static ByteString normalizeIA5StringAttributeValue(final ByteSequence value, boolean trim, boolean foldCase)
             throws DecodeException {
+        final ByteString asciiValue = normalizePrintableAsciiValue(value, trim, foldCase);
+        if (asciiValue != null) {
+            return asciiValue;
+        }
         final StringBuilder buffer = new StringBuilder();
         prepareUnicode(buffer, value, trim, foldCase);
 
@@ -755,7 +763,61 @@ final class SchemaUtils {
         }
     }
 
+    /**
+     * Normalizes a value made of printable ASCII characters only, which is by far the most common case,
+     * without going through the string preparation: the value is case folded and its spaces are trimmed
+     * and collapsed exactly like {@link com.forgerock.opendj.util.StringPrepProfile#prepareUnicode} does.
+     * A value which is already normalized is returned without being copied.
+     *
+     * @return The normalized value, or {@code null} if the value contains other characters.
+     */
+    private static ByteString normalizePrintableAsciiValue(final ByteSequence value, final boolean trim,
+            final boolean foldCase) {
+        final int length = value.length();
+        boolean isNormalized = true;
+        // When trimming, a leading space is handled like a space following another one
+        byte previous = trim ? (byte) ' ' : 0;
+        for (int i = 0; i < length; i++) {
+            final byte b = value.byteAt(i);
+            if (b < ' ' || b > '~') {
+                return null;
+            }
+            isNormalized &= (b != ' ' || previous != ' ') && (!foldCase || b < 'A' || b > 'Z');
+            previous = b;
+        }
+        if (isNormalized && (!trim || previous != ' ' || length == 0)) {
+            return value.toByteString();
+        }
+
+        final byte[] normalizedBytes = new byte[length];
+        int normalizedLength = 0;
+        for (int i = 0; i < length; i++) {
+            final byte b = value.byteAt(i);
+            if (b == ' ') {
+                final boolean skipSpace = normalizedLength == 0 ? trim : normalizedBytes[normalizedLength - 1] == ' ';
+                if (!skipSpace) {
+                    normalizedBytes[normalizedLength++] = b;
+                }
+            } else if (foldCase && b >= 'A' && b <= 'Z') {
+                normalizedBytes[normalizedLength++] = (byte) (b + 32);
+            } else {
+                normalizedBytes[normalizedLength++] = b;
+            }
+        }
+        if (trim && normalizedLength > 0 && normalizedBytes[normalizedLength - 1] == ' ') {
+            normalizedLength--;
+        }
+        if (normalizedLength == 0) {
+            return singleSpaceOrEmpty(value);
+        }
+        return ByteString.wrap(normalizedBytes, 0, normalizedLength);
+    }
+
     static ByteString normalizeNumericStringAttributeValue(final ByteSequence value) {
+        final ByteString asciiValue = normalizePrintableAsciiNumericString(value);
+        if (asciiValue != null) {
+            return asciiValue;
+        }
         final StringBuilder buffer = new StringBuilder();
         prepareUnicode(buffer, value, TRIM, NO_CASE_FOLD);
 
@@ -773,4 +835,38 @@ final class SchemaUtils {
         return ByteString.valueOfUtf8(buffer);
     }
 
+    /**
+     * Normalizes a numeric string made of printable ASCII characters only by removing its spaces.
+     *
+     * @return The normalized value, or {@code null} if the value contains other characters.
+     */
+    private static ByteString normalizePrintableAsciiNumericString(final ByteSequence value) {
+        final int length = value.length();
+        int spaces = 0;
+        for (int i = 0; i < length; i++) {
+            final byte b = value.byteAt(i);
+            if (b < ' ' || b > '~') {
+                return null;
+            }
+            if (b == ' ') {
+                spaces++;
+            }
+        }
+        if (spaces == 0) {
+            return value.toByteString();
+        } else if (spaces == length) {
+            return ByteString.empty();
+        }
+
+        final byte[] normalizedBytes = new byte[length - spaces];
+        int normalizedLength = 0;
+        for (int i = 0; i < length; i++) {
+            final byte b = value.byteAt(i);
+            if (b != ' ') {
+                normalizedBytes[normalizedLength++] = b;
+            }
+        }
+        return ByteString.wrap(normalizedBytes);
+    }
+
 }
@@ -21,6 +21,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Collection;
@@ -31,6 +33,8 @@ import java.util.TreeMap;
 import java.util.UUID;
 
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.opendj.ldap.schema.Schema;
+import org.forgerock.opendj.ldap.schema.SchemaBuilder;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -1409,4 +1413,56 @@ public class DNTestCase extends SdkTestCase {
         assertEquals(longDN.toString(), builder.toString(),
             "String representation of a very long DN does not match the source DN");
     }
+
+    @Test
+    public void sharedCacheReturnsTheDNParsedWithTheSameSchema() {
+        final Schema schema = Schema.getDefaultSchema();
+        final Schema otherSchema = new SchemaBuilder(schema)
+                .addAttributeType("( 1.2.3.4 NAME 'x-dn-cache-test' )", false).toSchema();
+        assertNotSame(otherSchema, schema);
+        DN.setSharedCacheSize(16);
+        try {
+            final long hits = DN.getSharedCacheHits();
+            final long misses = DN.getSharedCacheMisses();
+
+            final DN dn = DN.valueOf("uid=user.0,ou=people,dc=example,dc=com");
+            assertSame(DN.valueOf("uid=user.0,ou=people,dc=example,dc=com"), dn);
+            assertEquals(DN.getSharedCacheHits() - hits, 1);
+            assertEquals(DN.getSharedCacheMisses() - misses, 1);
+
+            final DN otherDN = DN.valueOf("uid=user.0,ou=people,dc=example,dc=com", otherSchema);
+            assertNotSame(otherDN, dn);
+            assertEquals(otherDN, dn);
+            assertEquals(DN.getSharedCacheMisses() - misses, 2);
+
+            DN.clearSharedCache();
+            assertEquals(DN.getSharedCacheSize(), 0);
+            assertNotSame(DN.valueOf("uid=user.0,ou=people,dc=example,dc=com"), dn);
+        } finally {
+            DN.setSharedCacheSize(0);
+        }
+    }
+
+    @Test
+    public void sharedCacheIsBounded() {
+        DN.setSharedCacheSize(8);
+        try {
+            for (int i = 0; i < 100; i++) {
+                final DN dn = DN.valueOf("uid=user." + i + ",ou=people,dc=example,dc=com");
+                assertEquals(dn.parent(), DN.valueOf("ou=people,dc=example,dc=com"));
+                assertTrue(DN.getSharedCacheSize() <= 8, "Unexpected cache size " + DN.getSharedCacheSize());
+            }
+        } finally {
+            DN.setSharedCacheSize(0);
+        }
+    }
+
+    @Test
+    public void sharedCacheIsDisabledByDefault() {
+        final long misses = DN.getSharedCacheMisses();
+        final DN dn = DN.valueOf("uid=user.1,ou=people,dc=example,dc=com");
+        assertNotSame(DN.valueOf("uid=user.1,ou=people,dc=example,dc=com"), dn);
+        assertEquals(DN.getSharedCacheSize(), 0);
+        assertEquals(DN.getSharedCacheMisses(), misses);
+    }
 }
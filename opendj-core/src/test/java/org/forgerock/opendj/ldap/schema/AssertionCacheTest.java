@@ -0,0 +1,70 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.forgerock.opendj.ldap.schema;
+
+import static org.fest.assertions.Assertions.*;
+import static org.forgerock.opendj.ldap.schema.SchemaConstants.*;
+import static org.forgerock.opendj.ldap.schema.SchemaOptions.*;
+
+import org.forgerock.opendj.ldap.Assertion;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ConditionResult;
+import org.testng.annotations.Test;
+
+/** Tests the caching of the assertions created by matching rules. */
+@SuppressWarnings("javadoc")
+public class AssertionCacheTest extends AbstractSchemaTestCase {
+    private final Schema cachingSchema =
+            new SchemaBuilder(Schema.getCoreSchema()).setOption(ASSERTION_CACHE_SIZE, 16).toSchema();
+
+    @Test
+    public void testStringAssertionsAreCached() throws Exception {
+        final MatchingRule rule = cachingSchema.getMatchingRule(EMR_CASE_IGNORE_OID);
+        final Assertion assertion = rule.getAssertion(ByteString.valueOfUtf8("Babs Jensen"));
+
+        assertThat(rule.getAssertion(ByteString.valueOfUtf8("Babs Jensen"))).isSameAs(assertion);
+        assertThat(rule.getAssertion(ByteString.valueOfUtf8("Barbara Jensen"))).isNotSameAs(assertion);
+        assertThat(assertion.matches(rule.normalizeAttributeValue(ByteString.valueOfUtf8(" BABS  JENSEN "))))
+                .isEqualTo(ConditionResult.TRUE);
+        assertThat(assertion.matches(rule.normalizeAttributeValue(ByteString.valueOfUtf8("Barbara Jensen"))))
+                .isEqualTo(ConditionResult.FALSE);
+    }
+
+    @Test
+    public void testCacheKeepsTheLatestAssertionOfEachSlot() throws Exception {
+        final MatchingRule rule = cachingSchema.getMatchingRule(EMR_NUMERIC_STRING_OID);
+        for (int i = 0; i < 1000; i++) {
+            final ByteString value = ByteString.valueOfUtf8(String.valueOf(i));
+            final Assertion assertion = rule.getAssertion(value);
+            assertThat(rule.getAssertion(value)).isSameAs(assertion);
+            assertThat(assertion.matches(value)).isEqualTo(ConditionResult.TRUE);
+        }
+    }
+
+    @Test
+    public void testAssertionsAreNotCachedByDefault() throws Exception {
+        final MatchingRule rule = Schema.getCoreSchema().getMatchingRule(EMR_CASE_IGNORE_OID);
+        assertThat(rule.getAssertion(ByteString.valueOfUtf8("Babs Jensen")))
+                .isNotSameAs(rule.getAssertion(ByteString.valueOfUtf8("Babs Jensen")));
+    }
+
+    @Test
+    public void testOnlyStringAssertionsAreCached() throws Exception {
+        final MatchingRule rule = cachingSchema.getMatchingRule(EMR_GENERALIZED_TIME_OID);
+        assertThat(rule.getAssertion(ByteString.valueOfUtf8("20260101000000Z")))
+                .isNotSameAs(rule.getAssertion(ByteString.valueOfUtf8("20260101000000Z")));
+    }
+}
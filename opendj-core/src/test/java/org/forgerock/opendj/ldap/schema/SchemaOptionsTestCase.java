@@ -39,7 +39,8 @@ public class SchemaOptionsTestCase extends AbstractSchemaTestCase {
             { ALLOW_NON_STANDARD_TELEPHONE_NUMBERS },
             { ALLOW_ZERO_LENGTH_DIRECTORY_STRINGS },
             { STRICT_FORMAT_FOR_COUNTRY_STRINGS },
-            { STRIP_UPPER_BOUND_FOR_ATTRIBUTE_TYPE }};
+            { STRIP_UPPER_BOUND_FOR_ATTRIBUTE_TYPE },
+            { ASSERTION_CACHE_SIZE }};
     }
 
     @Test(dataProvider = "defaultSchemaOptions")
@@ -16,6 +16,10 @@
  */
 package org.forgerock.opendj.ldap.schema;
 
+import static com.forgerock.opendj.util.StringPrepProfile.*;
+
+import java.util.Random;
+
 import org.fest.assertions.Assertions;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.DecodeException;
@@ -253,4 +257,46 @@ public class SchemaUtilsTest extends AbstractSchemaTestCase {
         ByteString normValue = SchemaUtils.normalizeNumericStringAttributeValue(val);
         Assertions.assertThat(normValue.toString()).isEqualTo(expected);
     }
+
+    @Test
+    public void testNormalizeAsciiStringIsSameAsStringPreparation() throws Exception {
+        final Random random = new Random(0);
+        final String chars = " aZ09-. ";
+        for (int i = 0; i < 10000; i++) {
+            final StringBuilder builder = new StringBuilder();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                builder.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            final ByteString value = ByteString.valueOfUtf8(builder);
+            for (boolean trim : new boolean[] { false, true }) {
+                for (boolean foldCase : new boolean[] { false, true }) {
+                    final String expected = prepareString(value, trim, foldCase);
+                    Assertions.assertThat(SchemaUtils.normalizeStringAttributeValue(value, trim, foldCase).toString())
+                        .as("'" + value + "' trim=" + trim + " foldCase=" + foldCase).isEqualTo(expected);
+                    Assertions.assertThat(SchemaUtils.normalizeIA5StringAttributeValue(value, trim, foldCase)
+                        .toString()).isEqualTo(expected);
+                }
+            }
+            Assertions.assertThat(SchemaUtils.normalizeNumericStringAttributeValue(value).toString())
+                .isEqualTo(prepareString(value, TRIM, NO_CASE_FOLD).replace(" ", ""));
+        }
+    }
+
+    private String prepareString(ByteString value, boolean trim, boolean foldCase) {
+        final StringBuilder buffer = new StringBuilder();
+        prepareUnicode(buffer, value, trim, foldCase);
+        if (buffer.length() == 0 && value.length() > 0) {
+            return " ";
+        }
+        return buffer.toString();
+    }
+
+    @Test
+    public void testNormalizeAsciiStringDoesNotCopyNormalizedValues() throws Exception {
+        final ByteString value = ByteString.valueOfUtf8("this is a string");
+        Assert.assertSame(SchemaUtils.normalizeStringAttributeValue(value, TRIM, CASE_FOLD), value);
+        Assert.assertSame(SchemaUtils.normalizeIA5StringAttributeValue(value, TRIM, NO_CASE_FOLD), value);
+        final ByteString number = ByteString.valueOfUtf8("0123456789");
+        Assert.assertSame(SchemaUtils.normalizeNumericStringAttributeValue(number), number);
+    }
 }
@@ -805,7 +805,8 @@ public class ChangelogBackend extends LocalBackend<LocalBackendCfg>
     }
 
     final ReplicationDomainDB replicationDomainDB = getChangelogDB().getReplicationDomainDB();
-    CursorOptions options = new CursorOptions(GREATER_THAN_OR_EQUAL_TO_KEY, AFTER_MATCHING_KEY);
+    // read each domain ahead while the entries are being sent
+    CursorOptions options = new CursorOptions(GREATER_THAN_OR_EQUAL_TO_KEY, AFTER_MATCHING_KEY, null, true);
     try (final MultiDomainDBCursor cursor =
         replicationDomainDB.getCursorFrom(entrySender.cookie, options, entrySender.excludedBaseDNs);
         ECLMultiDomainDBCursor replicaUpdatesCursor = new ECLMultiDomainDBCursor(domainPredicate, cursor))
@@ -1072,8 +1073,9 @@ public class ChangelogBackend extends LocalBackend<LocalBackendCfg>
     state.update(cnIndexRecord.getBaseDN(), cnIndexRecord.getCSN());
 
     // No need for ECLMultiDomainDBCursor in this case
-    // as updateMsg will be matched with cnIndexRecord
-    CursorOptions options = new CursorOptions(GREATER_THAN_OR_EQUAL_TO_KEY, ON_MATCHING_KEY);
+    // as updateMsg will be matched with cnIndexRecord.
+    // Read each domain ahead while the entries are being sent
+    CursorOptions options = new CursorOptions(GREATER_THAN_OR_EQUAL_TO_KEY, ON_MATCHING_KEY, null, true);
     final MultiDomainDBCursor replicaUpdatesCursor =
         getChangelogDB().getReplicationDomainDB().getCursorFrom(state, options);
     replicaUpdatesCursor.next();
@@ -69,6 +69,7 @@ import org.opends.server.backends.pluggable.spi.StorageStatus;
 import org.opends.server.backends.pluggable.spi.StorageUtils;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteBatch;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
 import org.opends.server.core.DirectoryServer;
@@ -887,7 +888,7 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     try
     {
       operation.run(newWriteableTransaction(txn));
-      commit(txn);
+      commit(txn, WriteBatch.current());
     }
     catch (final StorageRuntimeException e)
     {
@@ -914,15 +915,34 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     return null;
   }
 
-  private void commit(final Transaction txn)
+  private void commit(final Transaction txn, final WriteBatch batch)
   {
     if (txn != null)
     {
-      txn.commit();
+      if (batch != null)
+      {
+        // The batch will force the log to disk once it is complete
+        txn.commit(Durability.COMMIT_NO_SYNC);
+        batch.addStorageToSync(this);
+      }
+      else
+      {
+        txn.commit();
+      }
       logger.trace("commit txnid=%d", txn.getId());
     }
   }
 
+  @Override
+  public void sync()
+  {
+    final Environment environment = env;
+    if (environment != null && envConfig.getTransactional())
+    {
+      environment.flushLog(true);
+    }
+  }
+
   private void abort(final Transaction txn)
   {
     if (txn != null)
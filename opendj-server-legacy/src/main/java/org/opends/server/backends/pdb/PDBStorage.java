@@ -67,6 +67,7 @@ import org.opends.server.backends.pluggable.spi.StorageStatus;
 import org.opends.server.backends.pluggable.spi.StorageUtils;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteBatch;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
 import org.opends.server.core.DirectoryServer;
@@ -627,6 +628,7 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     public void write(WriteOperation operation) throws Exception
     {
       final Transaction txn = db.getTransaction();
+      final WriteBatch batch = commitPolicy != SOFT ? WriteBatch.current() : null;
       for (;;)
       {
         txn.begin();
@@ -635,7 +637,16 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
           try
           {
             operation.run(this);
-            txn.commit(commitPolicy);
+            if (batch != null)
+            {
+              // The batch will force the journal to disk once it is complete
+              txn.commit(SOFT);
+              batch.addStorageToSync(PDBStorage.this);
+            }
+            else
+            {
+              txn.commit(commitPolicy);
+            }
             return;
           }
           catch (final StorageRuntimeException e)
@@ -1066,6 +1077,16 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     }
   }
 
+  @Override
+  public void sync() throws Exception
+  {
+    final Persistit persistit = db;
+    if (persistit != null)
+    {
+      persistit.force();
+    }
+  }
+
   private Exception unwrap(StorageRuntimeException e) throws Exception
   {
     if (e.getCause() != null)
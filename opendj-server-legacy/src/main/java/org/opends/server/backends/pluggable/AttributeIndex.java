@@ -765,7 +765,16 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
-  private static IndexQuery getIndexQuery(IndexQueryFactory<IndexQuery> indexQueryFactory,
+  /**
+   * Creates the index query matching a filter.
+   *
+   * @param indexQueryFactory the index query factory to use for creating the query
+   * @param indexFilterType the index type filter
+   * @param filter The filter.
+   * @return The index query returning the candidate entry IDs that might match the filter.
+   * @throws DecodeException If the assertion value of the filter cannot be decoded.
+   */
+  static IndexQuery getIndexQuery(IndexQueryFactory<IndexQuery> indexQueryFactory,
       IndexFilterType indexFilterType, SearchFilter filter) throws DecodeException
   {
     MatchingRule rule;
@@ -102,7 +102,7 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
   @Override
   public MonitorData getMonitorData()
   {
-    MonitorData monitorAttrs = new MonitorData(5);
+    MonitorData monitorAttrs = new MonitorData(8);
 
     Collection<String> needReindexValues = createNeedReindexValues();
     if (!needReindexValues.isEmpty())
@@ -118,6 +118,11 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
       monitorAttrs.add("filter-use-unindexed", unindexedSearchCount);
     }
 
+    final SearchResultSnapshotCache searchResultSnapshots = rootContainer.getSearchResultSnapshots();
+    monitorAttrs.add("search-snapshot-count", searchResultSnapshots.size());
+    monitorAttrs.add("search-snapshot-memory-used", searchResultSnapshots.getMemorySize());
+    monitorAttrs.add("search-snapshot-evictions", searchResultSnapshots.getNbEvictions());
+
     return monitorAttrs;
   }
 
@@ -0,0 +1,72 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.io.IOException;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+
+/**
+ * Compresses and decompresses the entries stored in the entry tree.
+ * <p>
+ * The codec used to compress an entry is identified by the format version byte of the entry, and by the ID of the
+ * shared dictionary if the codec uses one.
+ */
+interface CompressionCodec
+{
+  /**
+   * Returns the format version identifying the entries compressed with this codec.
+   *
+   * @return the format version identifying the entries compressed with this codec
+   */
+  byte getFormatVersion();
+
+  /**
+   * Returns the ID of the shared dictionary used by this codec.
+   *
+   * @return the ID of the shared dictionary used by this codec, or 0 if this codec does not use a dictionary
+   */
+  int getDictionaryID();
+
+  /**
+   * Compresses the provided bytes.
+   *
+   * @param input
+   *          the bytes to compress
+   * @param output
+   *          the buffer where the compressed bytes are appended
+   * @throws IOException
+   *           If an error occurs while compressing the bytes
+   */
+  void compress(ByteSequence input, ByteStringBuilder output) throws IOException;
+
+  /**
+   * Decompresses the bytes remaining in the provided reader.
+   *
+   * @param input
+   *          the compressed bytes
+   * @param output
+   *          the array receiving the decompressed bytes, whose length is the exact length of the decompressed bytes
+   * @throws DecodeException
+   *           If the compressed bytes are corrupted
+   * @throws IOException
+   *           If an error occurs while decompressing the bytes
+   */
+  void decompress(ByteSequenceReader input, byte[] output) throws DecodeException, IOException;
+}
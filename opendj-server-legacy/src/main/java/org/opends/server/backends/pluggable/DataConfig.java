@@ -16,6 +16,7 @@
  */
 package org.opends.server.backends.pluggable;
 
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntryCompressionCodec;
 import org.forgerock.util.Reject;
 import org.opends.server.api.CompressedSchema;
 import org.opends.server.crypto.CryptoSuite;
@@ -33,6 +34,8 @@ final class DataConfig
   static final class Builder
   {
     private boolean compressed;
+    private EntryCompressionCodec compressionCodec = EntryCompressionCodec.DEFLATE;
+    private PersistentCompressionDictionaries compressionDictionaries;
     private boolean encrypted;
     private boolean compactEncoding;
     private CompressedSchema compressedSchema;
@@ -55,6 +58,18 @@ final class DataConfig
       return this;
     }
 
+    public Builder compressionCodec(EntryCompressionCodec codec)
+    {
+      this.compressionCodec = codec;
+      return this;
+    }
+
+    public Builder compressionDictionaries(PersistentCompressionDictionaries dictionaries)
+    {
+      this.compressionDictionaries = dictionaries;
+      return this;
+    }
+
     public Builder encrypt(boolean enabled)
     {
       this.encrypted = enabled;
@@ -80,6 +95,10 @@ final class DataConfig
   }
   /** Indicates whether data should be compressed before writing to the storage. */
   private final boolean compressed;
+  /** The algorithm used to compress data. */
+  private final EntryCompressionCodec compressionCodec;
+  /** The dictionaries used to compress and decompress data, may be null. */
+  private final PersistentCompressionDictionaries compressionDictionaries;
 
   /** The configuration to use when encoding entries in the tree. */
   private final EntryEncodeConfig encodeConfig;
@@ -95,6 +114,8 @@ final class DataConfig
   private DataConfig(Builder builder)
   {
     this.compressed = builder.compressed;
+    this.compressionCodec = builder.compressionCodec;
+    this.compressionDictionaries = builder.compressionDictionaries;
     this.encrypted = builder.encrypted;
     this.cryptoSuite = builder.cryptoSuite;
 
@@ -115,6 +136,16 @@ final class DataConfig
     return compressed;
   }
 
+  EntryCompressionCodec getCompressionCodec()
+  {
+    return compressionCodec;
+  }
+
+  PersistentCompressionDictionaries getCompressionDictionaries()
+  {
+    return compressionDictionaries;
+  }
+
   boolean isEncrypted()
   {
     return encrypted;
@@ -136,6 +167,11 @@ final class DataConfig
     final StringBuilder builder = new StringBuilder();
     builder.append("DataConfig(compressed=");
     builder.append(compressed);
+    if (compressed)
+    {
+      builder.append(", compressionCodec=");
+      builder.append(compressionCodec);
+    }
     builder.append(", encrypted=");
     builder.append(encrypted);
     builder.append(", ");
@@ -96,7 +96,14 @@ class DefaultIndex extends AbstractTree implements Index
   final void afterOpen(WriteableTransaction txn, boolean createOnDemand)
   {
     final EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
-    codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    if (flags.contains(BITMAP))
+    {
+      codec = CODEC_V4;
+    }
+    else
+    {
+      codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    }
     if (cryptoSuite.isEncrypted())
     {
       codec = new EntryIDSet.EntryIDSetCodecV3(codec, cryptoSuite);
@@ -268,20 +275,26 @@ class DefaultIndex extends AbstractTree implements Index
 
   @Override
   public final EntryIDSet get(ReadableTransaction txn, ByteSequence key)
+  {
+    return getEncoded(txn, key).decode();
+  }
+
+  @Override
+  public final EncodedEntryIDSet getEncoded(ReadableTransaction txn, ByteSequence key)
   {
     try
     {
       ByteString value = txn.read(getName(), key);
       if (value != null)
       {
-        return decodeValue(key, value);
+        return new EncodedEntryIDSet(codec, key, value);
       }
-      return trusted ? newDefinedSet() : newUndefinedSet();
+      return EncodedEntryIDSet.wrap(trusted ? newDefinedSet() : newUndefinedSet());
     }
     catch (StorageRuntimeException e)
     {
       logger.traceException(e);
-      return newUndefinedSet();
+      return EncodedEntryIDSet.wrap(newUndefinedSet());
     }
   }
 
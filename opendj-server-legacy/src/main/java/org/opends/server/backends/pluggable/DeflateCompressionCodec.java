@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+
+/** Compresses the entries with the Deflate algorithm, as entries have always been compressed. */
+final class DeflateCompressionCodec implements CompressionCodec
+{
+  /** The format version of the entries compressed with this codec, which is also used by uncompressed entries. */
+  static final byte FORMAT_VERSION = 0x02;
+
+  static final DeflateCompressionCodec INSTANCE = new DeflateCompressionCodec();
+
+  private DeflateCompressionCodec()
+  {
+    // Use INSTANCE.
+  }
+
+  @Override
+  public byte getFormatVersion()
+  {
+    return FORMAT_VERSION;
+  }
+
+  @Override
+  public int getDictionaryID()
+  {
+    return 0;
+  }
+
+  @Override
+  public void compress(ByteSequence input, ByteStringBuilder output) throws IOException
+  {
+    try (OutputStream os = new DeflaterOutputStream(output.asOutputStream()))
+    {
+      input.copyTo(os);
+    }
+  }
+
+  @Override
+  public void decompress(ByteSequenceReader input, byte[] output) throws DecodeException, IOException
+  {
+    final InputStream is = new InflaterInputStream(input.asInputStream());
+    int position = 0;
+    while (position < output.length)
+    {
+      final int readBytes = is.read(output, position, output.length - position);
+      if (readBytes == -1)
+      {
+        throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+      }
+      position += readBytes;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Reject.*;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.EntryIDSet.EntryIDSetCodec;
+
+/**
+ * The raw value of an index record which is decoded on demand. The encoded size gives a cheap estimate of the cost
+ * of decoding the set, and the value can be decoded only for the IDs which are also contained in a set of
+ * candidates, without materializing the whole set.
+ */
+final class EncodedEntryIDSet
+{
+  private final EntryIDSetCodec codec;
+  private final ByteSequence key;
+  private final ByteString value;
+  private final EntryIDSet decoded;
+
+  /**
+   * Creates an encoded set which will be decoded on demand.
+   *
+   * @param codec
+   *          the codec used to encode the value
+   * @param key
+   *          the key of the index record
+   * @param value
+   *          the encoded value of the index record
+   */
+  EncodedEntryIDSet(EntryIDSetCodec codec, ByteSequence key, ByteString value)
+  {
+    this.codec = checkNotNull(codec, "codec must not be null");
+    this.key = checkNotNull(key, "key must not be null");
+    this.value = checkNotNull(value, "value must not be null");
+    this.decoded = null;
+  }
+
+  private EncodedEntryIDSet(EntryIDSet decoded)
+  {
+    this.codec = null;
+    this.key = null;
+    this.value = null;
+    this.decoded = decoded;
+  }
+
+  /**
+   * Wraps a set which is already decoded, e.g. because no record exists for the key.
+   *
+   * @param decoded
+   *          the decoded set
+   * @return the wrapping encoded set
+   */
+  static EncodedEntryIDSet wrap(EntryIDSet decoded)
+  {
+    return new EncodedEntryIDSet(checkNotNull(decoded, "decoded must not be null"));
+  }
+
+  /**
+   * Returns the size in bytes of the encoded value, which is proportional to the cost of decoding it.
+   *
+   * @return the size in bytes of the encoded value, or zero if this set is already decoded
+   */
+  int getEncodedSize()
+  {
+    return value != null ? value.length() : 0;
+  }
+
+  /**
+   * Decodes the whole set.
+   *
+   * @return the decoded set
+   */
+  EntryIDSet decode()
+  {
+    return decoded != null ? decoded : codec.decode(key, value);
+  }
+
+  /**
+   * Decodes the IDs of this set which are also contained in the provided candidates. This set is fully decoded when
+   * the candidates are undefined.
+   *
+   * @param candidates
+   *          the candidate IDs
+   * @return the IDs of this set which are contained in the candidates, or an undefined set if this set is undefined
+   */
+  EntryIDSet decode(EntryIDSet candidates)
+  {
+    if (decoded != null || !candidates.isDefined())
+    {
+      return decode();
+    }
+    return codec.decodeIntersection(key, value, candidates);
+  }
+}
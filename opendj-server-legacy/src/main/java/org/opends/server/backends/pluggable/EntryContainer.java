@@ -21,12 +21,17 @@ import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.DnKeyFormat.*;
 import static org.opends.server.backends.pluggable.IndexFilter.*;
+import static org.opends.server.backends.pluggable.SearchResultSnapshotCache.*;
 import static org.opends.server.backends.pluggable.VLVIndex.*;
 import static org.opends.server.core.DirectoryServer.*;
 import static org.opends.server.protocols.ldap.LDAPResultCode.*;
 import static org.opends.server.types.AdditionalLogItem.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,7 +41,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.TreeMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -66,6 +70,7 @@ import org.opends.server.api.EntryCache;
 import org.opends.server.api.VirtualAttributeProvider;
 import org.opends.server.api.plugin.PluginResult.SubordinateDelete;
 import org.opends.server.api.plugin.PluginResult.SubordinateModifyDN;
+import org.opends.server.backends.pluggable.SearchResultSnapshotCache.Snapshot;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -124,6 +129,8 @@ public class EntryContainer
   private static final String REFERRAL_TREE_NAME = REFERRAL_INDEX_NAME;
   /** The name of the state tree. */
   private static final String STATE_TREE_NAME = STATE_INDEX_NAME;
+  /** The directory where the search results which do not fit in memory are sorted. */
+  private static final String SORT_TMP_DIR = "sort-tmp";
 
   /** The attribute index configuration manager. */
   private final AttributeIndexCfgManager attributeIndexCfgManager;
@@ -158,6 +165,8 @@ public class EntryContainer
   private final Map<AttributeType, CryptoSuite> attrCryptoMap = new HashMap<>();
   /** The set of VLV (Virtual List View) indexes. */
   private final Map<String, VLVIndex> vlvIndexMap = new HashMap<>();
+  /** The candidate entry IDs of the paged results and VLV searches, kept for evaluating their next pages. */
+  private final SearchResultSnapshotCache searchResultSnapshots;
 
   /**
    * Prevents name clashes for common indexes (like id2entry) across multiple suffixes.
@@ -356,6 +365,7 @@ public class EntryContainer
     this.storage = storage;
     this.rootContainer = rootContainer;
     this.serverContext = serverContext;
+    this.searchResultSnapshots = rootContainer.getSearchResultSnapshots();
     this.treePrefix = baseDN.toNormalizedUrlSafeString();
     this.id2childrenCount = new ID2ChildrenCount(getIndexName(ID2CHILDREN_COUNT_TREE_NAME));
     this.dn2id = new DN2ID(getIndexName(DN2ID_TREE_NAME), baseDN);
@@ -388,6 +398,8 @@ public class EntryContainer
   {
     return new DataConfig.Builder()
         .compress(config.isEntriesCompressed())
+        .compressionCodec(config.getEntryCompressionCodec())
+        .compressionDictionaries(rootContainer.getCompressionDictionaries())
         .encode(config.isCompactEncoding())
         .encrypt(config.isConfidentialityEnabled())
         .cryptoSuite(serverContext.getCryptoManager().newCryptoSuite(config.getCipherTransformation(),
@@ -474,6 +486,7 @@ public class EntryContainer
   {
     closeSilently(attrIndexMap.values());
     closeSilently(vlvIndexMap.values());
+    searchResultSnapshots.clear(baseDN);
 
     // Deregister any listeners.
     config.removePluggableChangeListener(this);
@@ -706,6 +719,10 @@ public class EntryContainer
           {
             if (pageRequest.getSize() == 0)
             {
+              if (isSnapshotCookie(pageRequest.getCookie()))
+              {
+                searchResultSnapshots.remove(getSnapshotID(pageRequest.getCookie()), searchOperation);
+              }
               addPagedResultsControl(searchOperation, pageRequest, null);
               return null;
             }
@@ -732,6 +749,10 @@ public class EntryContainer
           {
             debugBuffer = new StringBuilder();
           }
+          else if (searchSnapshot(txn, searchOperation, sortRequest, pageRequest, vlvRequest))
+          {
+            return null;
+          }
 
           EntryIDSet candidateEntryIDs = null;
           boolean candidatesAreInScope = false;
@@ -798,7 +819,9 @@ public class EntryContainer
               try
               {
                 List<SortKey> sortKeys = sortRequest.getSortKeys();
-                reorderedCandidateEntryIDs = sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest);
+                int maxEntries = getMaxSortedEntries(searchOperation, pageRequest, vlvRequest);
+                reorderedCandidateEntryIDs =
+                    sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest, maxEntries);
               }
               catch (DirectoryException de)
               {
@@ -853,7 +876,8 @@ public class EntryContainer
           if (reorderedCandidateEntryIDs != null)
           {
             rootContainer.getMonitorProvider().incrementIndexedSearchCount();
-            searchIndexed(txn, reorderedCandidateEntryIDs, candidatesAreInScope, searchOperation, pageRequest);
+            searchIndexed(txn, LongBuffer.wrap(reorderedCandidateEntryIDs), candidatesAreInScope, searchOperation,
+                pageRequest, null);
           }
           else
           {
@@ -1271,11 +1295,13 @@ public class EntryContainer
    *          The search operation.
    * @param pageRequest
    *          A Paged Results control, or null if none.
+   * @param snapshot
+   *          The snapshot the candidate entry IDs come from, or null if they have just been evaluated.
    * @throws DirectoryException
    *           If an error prevented the search from being processed.
    */
-  private void searchIndexed(ReadableTransaction txn, long[] entryIDReorderedSet, boolean candidatesAreInScope,
-      SearchOperation searchOperation, PagedResultsControl pageRequest) throws DirectoryException,
+  private void searchIndexed(ReadableTransaction txn, LongBuffer entryIDReorderedSet, boolean candidatesAreInScope,
+      SearchOperation searchOperation, PagedResultsControl pageRequest, Snapshot snapshot) throws DirectoryException,
       CanceledOperationException
   {
     SearchScope searchScope = searchOperation.getScope();
@@ -1284,13 +1310,17 @@ public class EntryContainer
     boolean continueSearch = true;
 
     // Set the starting value.
-    Long beginEntryID = null;
+    int startIndex = 0;
     if (pageRequest != null && pageRequest.getCookie().length() != 0)
     {
       // The cookie contains the ID of the next entry to be returned.
       try
       {
-        beginEntryID = pageRequest.getCookie().toLong();
+        final ByteString cookie = pageRequest.getCookie();
+        final long beginEntryID = cookie.toLong();
+        startIndex = snapshot != null && isSnapshotCookie(cookie) && getSnapshotID(cookie) == snapshot.getID()
+            ? findStartIndex(beginEntryID, getPosition(cookie), entryIDReorderedSet)
+            : findStartIndex(beginEntryID, entryIDReorderedSet);
       }
       catch (Exception e)
       {
@@ -1307,7 +1337,7 @@ public class EntryContainer
     // Make sure the candidate list is smaller than the lookthrough limit
     int lookthroughLimit =
       searchOperation.getClientConnection().getLookthroughLimit();
-    if (lookthroughLimit > 0 && entryIDReorderedSet.length > lookthroughLimit)
+    if (lookthroughLimit > 0 && entryIDReorderedSet.limit() > lookthroughLimit)
     {
       //Lookthrough limit exceeded
       searchOperation.setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
@@ -1319,9 +1349,9 @@ public class EntryContainer
     if (continueSearch)
     {
       final SearchFilter filter = searchOperation.getFilter();
-      for (int i = findStartIndex(beginEntryID, entryIDReorderedSet); i < entryIDReorderedSet.length; i++)
+      for (int i = startIndex; i < entryIDReorderedSet.limit(); i++)
       {
-        EntryID entryID = new EntryID(entryIDReorderedSet[i]);
+        EntryID entryID = new EntryID(entryIDReorderedSet.get(i));
         Entry entry;
         try
         {
@@ -1342,7 +1372,14 @@ public class EntryContainer
             if (isPageFull(searchOperation, pageRequest))
             {
               // Set the cookie to remember where we were.
-              addPagedResultsControl(searchOperation, pageRequest, entryID.toByteString());
+              // Keep the candidates so that the next pages do not need to evaluate them again.
+              if (snapshot == null)
+              {
+                snapshot = searchResultSnapshots.put(searchOperation, entryIDReorderedSet, candidatesAreInScope,
+                    getServerSideSortResponseControls(searchOperation));
+              }
+              addPagedResultsControl(searchOperation, pageRequest,
+                  snapshot != null ? encodeCookie(snapshot, i) : entryID.toByteString());
               return;
             }
 
@@ -1374,16 +1411,11 @@ public class EntryContainer
     addPagedResultsControl(searchOperation, pageRequest, null);
   }
 
-  private int findStartIndex(Long beginEntryID, long[] entryIDReorderedSet)
+  private int findStartIndex(long beginEntryID, LongBuffer entryIDReorderedSet)
   {
-    if (beginEntryID == null)
-    {
-      return 0;
-    }
-    final long begin = beginEntryID.longValue();
-    for (int i = 0; i < entryIDReorderedSet.length; i++)
+    for (int i = 0; i < entryIDReorderedSet.limit(); i++)
     {
-      if (entryIDReorderedSet[i] == begin)
+      if (entryIDReorderedSet.get(i) == beginEntryID)
       {
         return i;
       }
@@ -1391,6 +1423,80 @@ public class EntryContainer
     return 0;
   }
 
+  private int findStartIndex(long beginEntryID, int position, LongBuffer entryIDReorderedSet)
+  {
+    if (0 <= position && position < entryIDReorderedSet.limit() && entryIDReorderedSet.get(position) == beginEntryID)
+    {
+      return position;
+    }
+    return findStartIndex(beginEntryID, entryIDReorderedSet);
+  }
+
+  /**
+   * Processes a paged results or VLV search from the snapshot of its candidate entry IDs kept by a previous page of
+   * the same search.
+   *
+   * @return true if the search was processed, false if there is no usable snapshot and the candidate entry IDs must
+   *         be evaluated
+   */
+  private boolean searchSnapshot(ReadableTransaction txn, SearchOperation searchOperation,
+      ServerSideSortRequestControl sortRequest, PagedResultsControl pageRequest, VLVRequestControl vlvRequest)
+      throws DirectoryException, CanceledOperationException
+  {
+    if (pageRequest != null && isSnapshotCookie(pageRequest.getCookie()))
+    {
+      final Snapshot snapshot = searchResultSnapshots.get(getSnapshotID(pageRequest.getCookie()), searchOperation);
+      if (snapshot == null)
+      {
+        return false;
+      }
+      addResponseControls(searchOperation, snapshot);
+      rootContainer.getMonitorProvider().incrementIndexedSearchCount();
+      searchIndexed(txn, snapshot.getEntryIDs(), snapshot.areCandidatesInScope(), searchOperation, pageRequest,
+          snapshot);
+      return true;
+    }
+
+    final Long snapshotID = vlvRequest != null ? getSnapshotIDFromContextID(vlvRequest.getContextID()) : null;
+    if (snapshotID != null && sortRequest != null
+        && vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
+    {
+      final Snapshot snapshot = searchResultSnapshots.get(snapshotID, searchOperation);
+      if (snapshot == null)
+      {
+        return false;
+      }
+      final LongBuffer sortedIDs = snapshot.getEntryIDs();
+      final long[] entryIDs = sortByOffset(searchOperation, vlvRequest, sortedIDs, sortedIDs.limit(), snapshot);
+      addResponseControls(searchOperation, snapshot);
+      rootContainer.getMonitorProvider().incrementIndexedSearchCount();
+      searchIndexed(txn, LongBuffer.wrap(entryIDs), snapshot.areCandidatesInScope(), searchOperation, null, null);
+      return true;
+    }
+    return false;
+  }
+
+  private static void addResponseControls(SearchOperation searchOperation, Snapshot snapshot)
+  {
+    for (Control control : snapshot.getResponseControls())
+    {
+      searchOperation.addResponseControl(control);
+    }
+  }
+
+  private static List<Control> getServerSideSortResponseControls(SearchOperation searchOperation)
+  {
+    final List<Control> controls = new ArrayList<>();
+    for (Control control : searchOperation.getResponseControls())
+    {
+      if (control instanceof ServerSideSortResponseControl)
+      {
+        controls.add(control);
+      }
+    }
+    return controls;
+  }
+
   private boolean isInScope(boolean candidatesAreInScope, SearchScope searchScope, DN aBaseDN, Entry entry)
   {
     DN entryDN = entry.getName();
@@ -2536,8 +2642,35 @@ public class EntryContainer
     return baseEntry;
   }
 
+  /**
+   * Returns the maximum number of sorted entries which can be returned to the client, so that only these first
+   * entries need to be kept while sorting.
+   */
+  private static int getMaxSortedEntries(SearchOperation searchOperation, PagedResultsControl pageRequest,
+      VLVRequestControl vlvRequest)
+  {
+    if (vlvRequest != null)
+    {
+      if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET && vlvRequest.getOffset() >= 0)
+      {
+        final long maxEntries = Math.max(vlvRequest.getOffset(), 1) + (long) vlvRequest.getAfterCount();
+        return (int) Math.min(maxEntries, Integer.MAX_VALUE);
+      }
+      return Integer.MAX_VALUE;
+    }
+    // Entries filtered out by access control do not count in the size limit
+    final int sizeLimit = searchOperation.getSizeLimit();
+    if (pageRequest == null && sizeLimit > 0 && sizeLimit < Integer.MAX_VALUE
+        && searchOperation.getClientConnection().hasPrivilege(Privilege.BYPASS_ACL, searchOperation))
+    {
+      // One more entry to detect that the size limit is exceeded
+      return sizeLimit + 1;
+    }
+    return Integer.MAX_VALUE;
+  }
+
   private long[] sort(ReadableTransaction txn, EntryIDSet entryIDSet, SearchOperation searchOperation,
-      List<SortKey> sortKeys, VLVRequestControl vlvRequest) throws DirectoryException
+      List<SortKey> sortKeys, VLVRequestControl vlvRequest, int maxEntries) throws DirectoryException
   {
     if (!entryIDSet.isDefined())
     {
@@ -2548,68 +2681,96 @@ public class EntryContainer
     final SearchScope scope = searchOperation.getScope();
     final SearchFilter filter = searchOperation.getFilter();
 
-    final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
-    for (EntryID id : entryIDSet)
+    // Referral entries are not returned by the search, so they must not take the place of entries counted in the
+    // size limit. VLV requests are not truncated by the size limit and keep them in their content count.
+    final boolean skipReferrals = vlvRequest == null && !isManageDsaITOperation(searchOperation);
+    final File tempDir = new File(getFileForPath(SORT_TMP_DIR), config.getBackendId());
+    final CryptoSuite cryptoSuite = config.isConfidentialityEnabled() ? newCryptoSuite(true) : null;
+    try (EntryIDSorter sorter = new EntryIDSorter(maxEntries, config.getSortMemoryLimit(), tempDir, cryptoSuite))
     {
-      try
+      for (EntryID id : entryIDSet)
       {
-        Entry e = getEntry(txn, id);
-        if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
+        final ByteString vlvKey;
+        try
+        {
+          Entry e = getEntry(txn, id);
+          if (!e.matchesBaseAndScope(baseDN, scope) || !filter.matchesEntry(e)
+              || (skipReferrals && e.getReferralURLs() != null))
+          {
+            continue;
+          }
+          vlvKey = encodeVLVKey(sortKeys, e, id.longValue());
+        }
+        catch (Exception e)
         {
-          sortMap.put(encodeVLVKey(sortKeys, e, id.longValue()), id);
+          LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
+          throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
         }
+        sorter.add(vlvKey, id.longValue());
       }
-      catch (Exception e)
+
+      final long[] sortedIDs = sort(searchOperation, sortKeys, vlvRequest, sorter);
+      searchOperation.addAdditionalLogItem(unquotedKeyValue(getClass(), "sortedEntries", sorter.getNbEntries()));
+      if (sorter.getSpilledBytes() > 0)
       {
-        LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
-        throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
+        searchOperation.addAdditionalLogItem(
+            unquotedKeyValue(getClass(), "sortSpilledBytes", sorter.getSpilledBytes()));
       }
+      return sortedIDs;
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+          ERR_ENTRYIDSORTER_CANNOT_SPILL.get(getExceptionMessage(e)), e);
     }
+  }
 
+  private long[] sort(SearchOperation searchOperation, List<SortKey> sortKeys, VLVRequestControl vlvRequest,
+      EntryIDSorter sorter) throws DirectoryException, IOException
+  {
     // See if there is a VLV request to further pare down the set of results, and if there is where it should be
     // processed by offset or assertion value.
     if (vlvRequest == null)
     {
-      return toArray(sortMap.values());
+      return sorter.toSortedEntryIDs();
     }
 
     if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
     {
-      return sortByOffset(searchOperation, vlvRequest, sortMap);
-    }
-    return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortMap);
-  }
-
-  private static final long[] toArray(Collection<EntryID> entryIDs)
-  {
-    final long[] array = new long[entryIDs.size()];
-    int i = 0;
-    for (EntryID entryID : entryIDs)
-    {
-      array[i++] = entryID.longValue();
+      final LongBuffer sortedIDs = LongBuffer.wrap(sorter.toSortedEntryIDs());
+      Snapshot snapshot = null;
+      if (!sorter.isTruncated())
+      {
+        // Keep the sorted entries so that the client can request other offsets with the returned context ID.
+        final List<Control> sortResponseControls = Collections.<Control> singletonList(
+            new ServerSideSortResponseControl(sortKeys.isEmpty() ? NO_SUCH_ATTRIBUTE : SUCCESS, null));
+        snapshot = searchResultSnapshots.put(searchOperation, sortedIDs, true, sortResponseControls);
+      }
+      return sortByOffset(searchOperation, vlvRequest, sortedIDs, sorter.getNbEntries(), snapshot);
     }
-    return array;
+    return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sorter);
   }
 
   private static final long[] sortByGreaterThanOrEqualAssertion(SearchOperation searchOperation,
-      VLVRequestControl vlvRequest, List<SortKey> sortKeys, final TreeMap<ByteString, EntryID> sortMap)
-      throws DirectoryException
+      VLVRequestControl vlvRequest, List<SortKey> sortKeys, EntryIDSorter sorter)
+      throws DirectoryException, IOException
   {
+    final int contentCount = sorter.getNbEntries();
     ByteString assertionValue = vlvRequest.getGreaterThanOrEqualAssertion();
     ByteSequence encodedTargetAssertion =
-        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, sortMap.size());
+        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, contentCount);
 
+    // Only keep the entries before the target which can be returned
+    final int beforeCount = vlvRequest.getBeforeCount();
+    final ArrayDeque<Long> window = new ArrayDeque<>();
     boolean targetFound = false;
-    int index = 0;
     int targetIndex = 0;
-    int startIndex = 0;
     int includedAfterCount = 0;
-    long[] idSet = new long[sortMap.size()];
-    for (Map.Entry<ByteString, EntryID> entry : sortMap.entrySet())
+    final EntryIDSorter.SortedCursor cursor = sorter.cursor();
+    while (cursor.next())
     {
-      ByteString vlvKey = entry.getKey();
-      EntryID id = entry.getValue();
-      idSet[index++] = id.longValue();
+      window.addLast(cursor.getEntryID());
 
       if (targetFound)
       {
@@ -2621,10 +2782,10 @@ public class EntryContainer
       }
       else
       {
-        targetFound = vlvKey.compareTo(encodedTargetAssertion) >= 0;
-        if (targetFound)
+        targetFound = cursor.getKey().compareTo(encodedTargetAssertion) >= 0;
+        if (!targetFound && window.size() > beforeCount)
         {
-          startIndex = Math.max(0, targetIndex - vlvRequest.getBeforeCount());
+          window.removeFirst();
         }
         targetIndex++;
       }
@@ -2633,9 +2794,12 @@ public class EntryContainer
     final long[] result;
     if (targetFound)
     {
-      final long[] array = new long[index - startIndex];
-      System.arraycopy(idSet, startIndex, array, 0, array.length);
-      result = array;
+      result = new long[window.size()];
+      int i = 0;
+      for (Long entryID : window)
+      {
+        result[i++] = entryID;
+      }
     }
     else
     {
@@ -2643,21 +2807,21 @@ public class EntryContainer
        * No entry was found to be greater than or equal to the sort key, so the target offset will
        * be one greater than the content count.
        */
-      targetIndex = sortMap.size() + 1;
+      targetIndex = contentCount + 1;
       result = new long[0];
     }
-    addVLVResponseControl(searchOperation, targetIndex, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetIndex, contentCount, SUCCESS, null);
     return result;
   }
 
   private static final long[] sortByOffset(SearchOperation searchOperation, VLVRequestControl vlvRequest,
-      TreeMap<ByteString, EntryID> sortMap) throws DirectoryException
+      LongBuffer sortedEntryIDs, int contentCount, Snapshot snapshot) throws DirectoryException
   {
     int targetOffset = vlvRequest.getOffset();
     if (targetOffset < 0)
     {
       // The client specified a negative target offset. This should never be allowed.
-      addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), OFFSET_RANGE_ERROR);
+      addVLVResponseControl(searchOperation, targetOffset, contentCount, OFFSET_RANGE_ERROR, null);
 
       LocalizableMessage message = ERR_ENTRYIDSORTER_NEGATIVE_START_POS.get();
       throw new DirectoryException(ResultCode.VIRTUAL_LIST_VIEW_ERROR, message);
@@ -2678,48 +2842,30 @@ public class EntryContainer
       startPos = 0;
       beforeCount = listOffset;
     }
-    else if (startPos >= sortMap.size())
+    else if (startPos >= contentCount)
     {
       // The start position is beyond the end of the list. In this case, we'll assume that the start position was
       // one greater than the size of the list and will only return the beforeCount entries.
-      targetOffset = sortMap.size() + 1;
-      listOffset = sortMap.size();
-      startPos = listOffset - beforeCount;
+      targetOffset = contentCount + 1;
+      listOffset = contentCount;
+      startPos = Math.max(listOffset - beforeCount, 0);
       afterCount = 0;
     }
 
-    int count = 1 + beforeCount + afterCount;
-    long[] sortedIDs = new long[count];
-    int treePos = 0;
-    int arrayPos = 0;
-    for (EntryID id : sortMap.values())
-    {
-      if (treePos++ < startPos)
-      {
-        continue;
-      }
-
-      sortedIDs[arrayPos++] = id.longValue();
-      if (arrayPos >= count)
-      {
-        break;
-      }
-    }
-
-    if (arrayPos < count)
-    {
-      // We don't have enough entries in the set to meet the requested page size, so we'll need to shorten the array.
-      sortedIDs = Arrays.copyOf(sortedIDs, arrayPos);
-    }
+    // We may not have enough entries in the set to meet the requested page size.
+    final int count = Math.min(1 + beforeCount + afterCount, sortedEntryIDs.limit() - startPos);
+    final long[] sortedIDs = new long[count];
+    sortedEntryIDs.position(startPos);
+    sortedEntryIDs.get(sortedIDs);
 
-    addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetOffset, contentCount, SUCCESS, encodeContextID(snapshot));
     return sortedIDs;
   }
 
   private static void addVLVResponseControl(SearchOperation searchOp, int targetPosition, int contentCount,
-      int vlvResultCode)
+      int vlvResultCode, ByteString contextID)
   {
-    searchOp.addResponseControl(new VLVResponseControl(targetPosition, contentCount, vlvResultCode));
+    searchOp.addResponseControl(new VLVResponseControl(false, targetPosition, contentCount, vlvResultCode, contextID));
   }
 
   /** Get the exclusive lock. */
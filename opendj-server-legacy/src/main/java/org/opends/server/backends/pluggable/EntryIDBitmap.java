@@ -0,0 +1,1535 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Reject.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.util.Reject;
+
+/**
+ * Compressed set of entry IDs. The IDs are partitioned on their high bits (all but the 16 lowest) and each partition
+ * is stored in a container whose representation depends on its density:
+ * <ul>
+ * <li>an <em>array</em> container holds up to {@value #ARRAY_MAX_SIZE} sorted 16 bits values,</li>
+ * <li>a <em>bitmap</em> container holds a fixed size 65536 bits bitmap,</li>
+ * <li>a <em>run</em> container holds a list of [start, length] intervals. Run containers are only produced when
+ * decoding an encoded bitmap and are converted to one of the other representation as soon as they get modified.</li>
+ * </ul>
+ * Boolean operations ({@link #and(EntryIDBitmap)}, {@link #or(EntryIDBitmap)} and {@link #andNot(EntryIDBitmap)})
+ * are performed in place: containers are modified rather than copied whenever their representation allows it.
+ * <p>
+ * This class is not thread safe.
+ */
+final class EntryIDBitmap
+{
+  /** Maximum number of values held by an array container. Above this threshold a bitmap is smaller. */
+  static final int ARRAY_MAX_SIZE = 4096;
+
+  private static final int BITMAP_NB_WORDS = 1024;
+  private static final int INITIAL_CAPACITY = 4;
+
+  private static final byte ARRAY_CONTAINER = 0;
+  private static final byte BITMAP_CONTAINER = 1;
+  private static final byte RUN_CONTAINER = 2;
+
+  /** Sorted high bits of the entry IDs held by the containers at the same position. */
+  private long[] keys;
+  private Container[] containers;
+  private int nbContainers;
+
+  /** Creates a new empty bitmap. */
+  EntryIDBitmap()
+  {
+    this(INITIAL_CAPACITY);
+  }
+
+  private EntryIDBitmap(int capacity)
+  {
+    keys = new long[capacity];
+    containers = new Container[capacity];
+  }
+
+  /**
+   * Creates a new bitmap containing the provided sorted entry IDs.
+   *
+   * @param sortedIDs
+   *          the entry IDs, sorted in ascending order
+   * @return a new bitmap containing the provided entry IDs
+   */
+  static EntryIDBitmap valueOf(long... sortedIDs)
+  {
+    checkNotNull(sortedIDs, "sortedIDs must not be null");
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    for (long id : sortedIDs)
+    {
+      bitmap.add(id);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Returns a deep copy of this bitmap.
+   *
+   * @return a deep copy of this bitmap
+   */
+  EntryIDBitmap copy()
+  {
+    final EntryIDBitmap copy = new EntryIDBitmap(Math.max(nbContainers, INITIAL_CAPACITY));
+    System.arraycopy(keys, 0, copy.keys, 0, nbContainers);
+    for (int i = 0; i < nbContainers; i++)
+    {
+      copy.containers[i] = containers[i].copy();
+    }
+    copy.nbContainers = nbContainers;
+    return copy;
+  }
+
+  long cardinality()
+  {
+    long cardinality = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      cardinality += containers[i].cardinality();
+    }
+    return cardinality;
+  }
+
+  boolean isEmpty()
+  {
+    return nbContainers == 0;
+  }
+
+  /**
+   * Returns the lowest entry ID of this bitmap.
+   *
+   * @return the lowest entry ID of this bitmap
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long first()
+  {
+    if (nbContainers == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return toID(keys[0], containers[0].first());
+  }
+
+  /**
+   * Returns the highest entry ID of this bitmap.
+   *
+   * @return the highest entry ID of this bitmap
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long last()
+  {
+    if (nbContainers == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return toID(keys[nbContainers - 1], containers[nbContainers - 1].last());
+  }
+
+  boolean contains(long id)
+  {
+    final int pos = indexOfKey(highBits(id));
+    return pos >= 0 && containers[pos].contains(lowBits(id));
+  }
+
+  boolean add(long id)
+  {
+    final long key = highBits(id);
+    int pos = indexOfKey(key);
+    if (pos < 0)
+    {
+      pos = -(pos + 1);
+      insertContainerAt(pos, key, new ArrayContainer());
+    }
+    final Container container = containers[pos];
+    final int cardinality = container.cardinality();
+    containers[pos] = container.add(lowBits(id));
+    return containers[pos].cardinality() != cardinality;
+  }
+
+  boolean remove(long id)
+  {
+    final int pos = indexOfKey(highBits(id));
+    if (pos < 0)
+    {
+      return false;
+    }
+    final Container container = containers[pos];
+    final int cardinality = container.cardinality();
+    final Container updated = container.remove(lowBits(id));
+    if (updated.cardinality() == 0)
+    {
+      removeContainerAt(pos);
+    }
+    else
+    {
+      containers[pos] = updated;
+    }
+    return updated.cardinality() != cardinality;
+  }
+
+  /**
+   * Retains in this bitmap only the entry IDs which are also contained in the provided bitmap.
+   *
+   * @param that
+   *          the bitmap to intersect with
+   */
+  void and(EntryIDBitmap that)
+  {
+    int target = 0;
+    for (int i = 0, j = 0; i < nbContainers && j < that.nbContainers;)
+    {
+      if (keys[i] < that.keys[j])
+      {
+        i++;
+      }
+      else if (keys[i] > that.keys[j])
+      {
+        j++;
+      }
+      else
+      {
+        final Container result = containers[i].and(that.containers[j]);
+        if (result.cardinality() > 0)
+        {
+          keys[target] = keys[i];
+          containers[target++] = result;
+        }
+        i++;
+        j++;
+      }
+    }
+    truncate(target);
+  }
+
+  /**
+   * Adds to this bitmap all the entry IDs contained in the provided bitmap.
+   *
+   * @param that
+   *          the bitmap to merge with
+   */
+  void or(EntryIDBitmap that)
+  {
+    final int nbMissingKeys = countMissingKeys(that);
+    if (nbMissingKeys > 0)
+    {
+      ensureCapacity(nbContainers + nbMissingKeys);
+      // Merge from the end so that containers can be moved in place.
+      int i = nbContainers - 1;
+      int j = that.nbContainers - 1;
+      int target = nbContainers + nbMissingKeys - 1;
+      while (j >= 0)
+      {
+        if (i >= 0 && keys[i] > that.keys[j])
+        {
+          keys[target] = keys[i];
+          containers[target--] = containers[i--];
+        }
+        else if (i >= 0 && keys[i] == that.keys[j])
+        {
+          keys[target] = keys[i];
+          containers[target--] = containers[i--].or(that.containers[j--]);
+        }
+        else
+        {
+          keys[target] = that.keys[j];
+          containers[target--] = that.containers[j--].copy();
+        }
+      }
+      nbContainers += nbMissingKeys;
+      return;
+    }
+
+    for (int i = 0, j = 0; i < nbContainers && j < that.nbContainers; i++)
+    {
+      if (keys[i] == that.keys[j])
+      {
+        containers[i] = containers[i].or(that.containers[j++]);
+      }
+    }
+  }
+
+  /**
+   * Removes from this bitmap all the entry IDs contained in the provided bitmap.
+   *
+   * @param that
+   *          the bitmap containing the entry IDs to remove
+   */
+  void andNot(EntryIDBitmap that)
+  {
+    int target = 0;
+    for (int i = 0, j = 0; i < nbContainers; i++)
+    {
+      while (j < that.nbContainers && that.keys[j] < keys[i])
+      {
+        j++;
+      }
+      Container result = containers[i];
+      if (j < that.nbContainers && that.keys[j] == keys[i])
+      {
+        result = result.andNot(that.containers[j++]);
+      }
+      if (result.cardinality() > 0)
+      {
+        keys[target] = keys[i];
+        containers[target++] = result;
+      }
+    }
+    truncate(target);
+  }
+
+  /**
+   * Returns the entry IDs of this bitmap as a sorted array.
+   *
+   * @return a new array containing the entry IDs of this bitmap in ascending order
+   */
+  long[] toArray()
+  {
+    final long cardinality = cardinality();
+    Reject.ifFalse(cardinality <= Integer.MAX_VALUE, "bitmap is too large to be converted to an array");
+    final long[] ids = new long[(int) cardinality];
+    copyTo(ids, 0);
+    return ids;
+  }
+
+  /**
+   * Copies the entry IDs of this bitmap in ascending order in the provided array.
+   *
+   * @param array
+   *          the array where to copy the entry IDs
+   * @param offset
+   *          the position of the first entry ID in the array
+   * @return the number of entry IDs copied
+   */
+  int copyTo(long[] array, int offset)
+  {
+    int pos = offset;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      pos = containers[i].copyTo(array, pos, keys[i] << 16);
+    }
+    return pos - offset;
+  }
+
+  Iterator<EntryID> iterator()
+  {
+    return new BitmapIterator();
+  }
+
+  /**
+   * Returns the number of bytes which would be written by {@link #encode(ByteStringBuilder)}.
+   *
+   * @return an upper bound of the encoded size of this bitmap
+   */
+  int getEstimatedEncodedSize()
+  {
+    int size = ByteStringBuilder.MAX_COMPACT_SIZE;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      size += ByteStringBuilder.MAX_COMPACT_SIZE + 1 + containers[i].getEncodedSize();
+    }
+    return size;
+  }
+
+  /**
+   * Encodes this bitmap. Each container is encoded with the smallest of the array, bitmap or run representations.
+   *
+   * @param builder
+   *          the builder where to append the encoded bitmap
+   * @return the provided builder
+   */
+  ByteStringBuilder encode(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(nbContainers);
+    long previousKey = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      builder.appendCompactUnsigned(keys[i] - previousKey);
+      previousKey = keys[i];
+      containers[i].encode(builder);
+    }
+    return builder;
+  }
+
+  /**
+   * Decodes a bitmap previously encoded with {@link #encode(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          the reader positioned on the encoded bitmap
+   * @return the decoded bitmap
+   */
+  static EntryIDBitmap decode(ByteSequenceReader reader)
+  {
+    final int nbContainers = reader.readCompactUnsignedInt();
+    final EntryIDBitmap bitmap = new EntryIDBitmap(Math.max(nbContainers, INITIAL_CAPACITY));
+    long key = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      key += reader.readCompactUnsignedLong();
+      bitmap.keys[i] = key;
+      bitmap.containers[i] = decodeContainer(reader);
+    }
+    bitmap.nbContainers = nbContainers;
+    return bitmap;
+  }
+
+  /**
+   * Decodes from an encoded bitmap only the entry IDs which are also contained in the provided candidates. Containers
+   * which cannot hold any of the candidates are skipped without being materialized, and bitmap containers are probed
+   * in place.
+   *
+   * @param reader
+   *          the reader positioned on the encoded bitmap
+   * @param sortedCandidates
+   *          the candidate entry IDs, sorted in ascending order. This array is overwritten.
+   * @return the sorted entry IDs contained in both the encoded bitmap and the candidates
+   */
+  static long[] decodeIntersection(ByteSequenceReader reader, long[] sortedCandidates)
+  {
+    int nbResults = 0;
+    int candidate = 0;
+    final int nbContainers = reader.readCompactUnsignedInt();
+    long key = 0;
+    for (int i = 0; i < nbContainers && candidate < sortedCandidates.length; i++)
+    {
+      key += reader.readCompactUnsignedLong();
+      final byte type = reader.readByte();
+      while (candidate < sortedCandidates.length && highBits(sortedCandidates[candidate]) < key)
+      {
+        candidate++;
+      }
+      int end = candidate;
+      while (end < sortedCandidates.length && highBits(sortedCandidates[end]) == key)
+      {
+        end++;
+      }
+      nbResults = intersectContainer(reader, type, sortedCandidates, candidate, end, nbResults);
+      candidate = end;
+    }
+    return Arrays.copyOf(sortedCandidates, nbResults);
+  }
+
+  /**
+   * Reads the container at the reader's position and moves the candidates it contains to the results, which are
+   * stored at the beginning of the candidates array.
+   */
+  private static int intersectContainer(ByteSequenceReader reader, byte type, long[] candidates, int from, int to,
+      int nbResults)
+  {
+    switch (type)
+    {
+    case BITMAP_CONTAINER:
+      final int start = reader.position();
+      for (int c = from; c < to; c++)
+      {
+        final int value = lowBits(candidates[c]);
+        reader.position(start + (value >>> 6) * 8);
+        if ((reader.readLong() & (1L << value)) != 0)
+        {
+          candidates[nbResults++] = candidates[c];
+        }
+      }
+      reader.position(start + 8 * BITMAP_NB_WORDS);
+      return nbResults;
+
+    case ARRAY_CONTAINER:
+      final int cardinality = reader.readCompactUnsignedInt() + 1;
+      int value = 0;
+      for (int i = 0, c = from; i < cardinality; i++)
+      {
+        value += reader.readCompactUnsignedInt();
+        while (c < to && lowBits(candidates[c]) < value)
+        {
+          c++;
+        }
+        if (c < to && lowBits(candidates[c]) == value)
+        {
+          candidates[nbResults++] = candidates[c++];
+        }
+      }
+      return nbResults;
+
+    case RUN_CONTAINER:
+      final int nbRuns = reader.readCompactUnsignedInt() + 1;
+      int previousEnd = 0;
+      for (int i = 0, c = from; i < nbRuns; i++)
+      {
+        final int runStart = previousEnd + reader.readCompactUnsignedInt();
+        final int runEnd = runStart + reader.readCompactUnsignedInt();
+        while (c < to && lowBits(candidates[c]) < runStart)
+        {
+          c++;
+        }
+        while (c < to && lowBits(candidates[c]) <= runEnd)
+        {
+          candidates[nbResults++] = candidates[c++];
+        }
+        previousEnd = runEnd;
+      }
+      return nbResults;
+
+    default:
+      throw new IllegalArgumentException("Unknown container type " + type);
+    }
+  }
+
+  private static Container decodeContainer(ByteSequenceReader reader)
+  {
+    final byte type = reader.readByte();
+    switch (type)
+    {
+    case ARRAY_CONTAINER:
+      return ArrayContainer.decode(reader);
+    case BITMAP_CONTAINER:
+      return BitmapContainer.decode(reader);
+    case RUN_CONTAINER:
+      return RunContainer.decode(reader);
+    default:
+      throw new IllegalArgumentException("Unknown container type " + type);
+    }
+  }
+
+  private int countMissingKeys(EntryIDBitmap that)
+  {
+    int missing = 0;
+    for (int i = 0, j = 0; j < that.nbContainers;)
+    {
+      if (i >= nbContainers || that.keys[j] < keys[i])
+      {
+        missing++;
+        j++;
+      }
+      else if (that.keys[j] == keys[i])
+      {
+        i++;
+        j++;
+      }
+      else
+      {
+        i++;
+      }
+    }
+    return missing;
+  }
+
+  private int indexOfKey(long key)
+  {
+    if (nbContainers > 0 && keys[nbContainers - 1] == key)
+    {
+      // Fast path for IDs added in ascending order.
+      return nbContainers - 1;
+    }
+    return Arrays.binarySearch(keys, 0, nbContainers, key);
+  }
+
+  private void insertContainerAt(int pos, long key, Container container)
+  {
+    ensureCapacity(nbContainers + 1);
+    System.arraycopy(keys, pos, keys, pos + 1, nbContainers - pos);
+    System.arraycopy(containers, pos, containers, pos + 1, nbContainers - pos);
+    keys[pos] = key;
+    containers[pos] = container;
+    nbContainers++;
+  }
+
+  private void removeContainerAt(int pos)
+  {
+    System.arraycopy(keys, pos + 1, keys, pos, nbContainers - pos - 1);
+    System.arraycopy(containers, pos + 1, containers, pos, nbContainers - pos - 1);
+    containers[--nbContainers] = null;
+  }
+
+  private void ensureCapacity(int capacity)
+  {
+    if (capacity > keys.length)
+    {
+      final int newCapacity = Math.max(capacity, keys.length + (keys.length >> 1));
+      keys = Arrays.copyOf(keys, newCapacity);
+      containers = Arrays.copyOf(containers, newCapacity);
+    }
+  }
+
+  private void truncate(int newNbContainers)
+  {
+    Arrays.fill(containers, newNbContainers, nbContainers, null);
+    nbContainers = newNbContainers;
+  }
+
+  private static long highBits(long id)
+  {
+    return id >>> 16;
+  }
+
+  private static char lowBits(long id)
+  {
+    return (char) id;
+  }
+
+  private static long toID(long key, int lowBits)
+  {
+    return key << 16 | lowBits;
+  }
+
+  /** Iterates over the entry IDs of the bitmap in ascending order. */
+  private final class BitmapIterator implements Iterator<EntryID>
+  {
+    private int containerIndex = -1;
+    private ContainerIterator current;
+
+    @Override
+    public boolean hasNext()
+    {
+      while (current == null || !current.hasNext())
+      {
+        if (++containerIndex >= nbContainers)
+        {
+          return false;
+        }
+        current = containers[containerIndex].iterator();
+      }
+      return true;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      return new EntryID(toID(keys[containerIndex], current.next()));
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** Iterator over the 16 bits values of a container. */
+  private interface ContainerIterator
+  {
+    boolean hasNext();
+
+    int next();
+  }
+
+  /**
+   * Holds the low 16 bits of the entry IDs sharing the same high bits. Mutating operations return the container
+   * holding the result, which is {@code this} whenever the operation could be performed in place.
+   */
+  private abstract static class Container
+  {
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    abstract int first();
+
+    abstract int last();
+
+    abstract Container add(char value);
+
+    abstract Container remove(char value);
+
+    abstract Container and(Container that);
+
+    abstract Container or(Container that);
+
+    abstract Container andNot(Container that);
+
+    abstract Container copy();
+
+    abstract ContainerIterator iterator();
+
+    abstract int copyTo(long[] array, int offset, long high);
+
+    /** Returns this container in the array or bitmap form suitable for in-place updates. */
+    abstract Container toMutable();
+
+    final int getEncodedSize()
+    {
+      return Math.min(Math.min(arrayEncodedSize(), 8 * BITMAP_NB_WORDS), runEncodedSize());
+    }
+
+    final void encode(ByteStringBuilder builder)
+    {
+      final int arraySize = arrayEncodedSize();
+      final int runSize = runEncodedSize();
+      if (runSize <= arraySize && runSize <= 8 * BITMAP_NB_WORDS)
+      {
+        builder.appendByte(RUN_CONTAINER);
+        encodeRuns(builder);
+      }
+      else if (arraySize <= 8 * BITMAP_NB_WORDS)
+      {
+        builder.appendByte(ARRAY_CONTAINER);
+        builder.appendCompactUnsigned(cardinality() - 1);
+        int previous = 0;
+        final ContainerIterator it = iterator();
+        while (it.hasNext())
+        {
+          final int value = it.next();
+          builder.appendCompactUnsigned(value - previous);
+          previous = value;
+        }
+      }
+      else
+      {
+        builder.appendByte(BITMAP_CONTAINER);
+        final long[] words = BitmapContainer.valueOf(this).words;
+        for (long word : words)
+        {
+          builder.appendLong(word);
+        }
+      }
+    }
+
+    private int arrayEncodedSize()
+    {
+      int size = compactSize(cardinality() - 1);
+      int previous = 0;
+      final ContainerIterator it = iterator();
+      while (it.hasNext())
+      {
+        final int value = it.next();
+        size += compactSize(value - previous);
+        previous = value;
+      }
+      return size;
+    }
+
+    private int runEncodedSize()
+    {
+      int size = 0;
+      int nbRuns = 0;
+      int previousEnd = 0;
+      final ContainerIterator it = iterator();
+      int start = -1;
+      int end = -2;
+      while (it.hasNext())
+      {
+        final int value = it.next();
+        if (value != end + 1)
+        {
+          if (start >= 0)
+          {
+            size += compactSize(start - previousEnd) + compactSize(end - start);
+            previousEnd = end;
+            nbRuns++;
+          }
+          start = value;
+        }
+        end = value;
+      }
+      size += compactSize(start - previousEnd) + compactSize(end - start);
+      return size + compactSize(nbRuns);
+    }
+
+    private void encodeRuns(ByteStringBuilder builder)
+    {
+      final RunContainer runs = RunContainer.valueOf(this);
+      builder.appendCompactUnsigned(runs.nbRuns - 1);
+      int previousEnd = 0;
+      for (int i = 0; i < runs.nbRuns; i++)
+      {
+        final int start = runs.runs[2 * i];
+        final int length = runs.runs[2 * i + 1];
+        builder.appendCompactUnsigned(start - previousEnd);
+        builder.appendCompactUnsigned(length);
+        previousEnd = start + length;
+      }
+    }
+
+    private static int compactSize(int value)
+    {
+      return value < 0x80 ? 1 : value < 0x4000 ? 2 : 3;
+    }
+  }
+
+  /** Container holding its values in a sorted array. */
+  private static final class ArrayContainer extends Container
+  {
+    private char[] values;
+    private int cardinality;
+
+    ArrayContainer()
+    {
+      this(new char[INITIAL_CAPACITY], 0);
+    }
+
+    ArrayContainer(char[] values, int cardinality)
+    {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    static Container decode(ByteSequenceReader reader)
+    {
+      final int cardinality = reader.readCompactUnsignedInt() + 1;
+      if (cardinality > ARRAY_MAX_SIZE)
+      {
+        final BitmapContainer bitmap = new BitmapContainer();
+        int value = 0;
+        for (int i = 0; i < cardinality; i++)
+        {
+          value += reader.readCompactUnsignedInt();
+          bitmap.set(value);
+        }
+        bitmap.cardinality = cardinality;
+        return bitmap;
+      }
+      final char[] values = new char[cardinality];
+      int value = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        value += reader.readCompactUnsignedInt();
+        values[i] = (char) value;
+      }
+      return new ArrayContainer(values, cardinality);
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value)
+    {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    int first()
+    {
+      return values[0];
+    }
+
+    @Override
+    int last()
+    {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    Container add(char value)
+    {
+      int pos;
+      if (cardinality == 0 || value > values[cardinality - 1])
+      {
+        pos = cardinality;
+      }
+      else
+      {
+        pos = Arrays.binarySearch(values, 0, cardinality, value);
+        if (pos >= 0)
+        {
+          return this;
+        }
+        pos = -(pos + 1);
+      }
+      if (cardinality == ARRAY_MAX_SIZE)
+      {
+        return BitmapContainer.valueOf(this).add(value);
+      }
+      if (cardinality == values.length)
+      {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, cardinality + (cardinality >> 1) + 1));
+      }
+      System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+      values[pos] = value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char value)
+    {
+      final int pos = Arrays.binarySearch(values, 0, cardinality, value);
+      if (pos >= 0)
+      {
+        System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container that)
+    {
+      if (that instanceof ArrayContainer)
+      {
+        final ArrayContainer other = (ArrayContainer) that;
+        int target = 0;
+        for (int i = 0, j = 0; i < cardinality && j < other.cardinality;)
+        {
+          if (values[i] < other.values[j])
+          {
+            i++;
+          }
+          else if (values[i] > other.values[j])
+          {
+            j++;
+          }
+          else
+          {
+            values[target++] = values[i++];
+            j++;
+          }
+        }
+        cardinality = target;
+        return this;
+      }
+      return retainIf(that, true);
+    }
+
+    @Override
+    Container or(Container that)
+    {
+      if (!(that instanceof ArrayContainer))
+      {
+        // Never update the other container in place: it belongs to another bitmap.
+        return that.copy().toMutable().or(this);
+      }
+      final ArrayContainer other = (ArrayContainer) that;
+      final int maxCardinality = cardinality + other.cardinality;
+      if (maxCardinality > ARRAY_MAX_SIZE)
+      {
+        return BitmapContainer.valueOf(this).or(other);
+      }
+      if (maxCardinality > values.length)
+      {
+        values = Arrays.copyOf(values, maxCardinality);
+      }
+      // Merge from the end, then close the gap left by duplicates.
+      int i = cardinality - 1;
+      int j = other.cardinality - 1;
+      int target = maxCardinality - 1;
+      while (j >= 0)
+      {
+        if (i >= 0 && values[i] > other.values[j])
+        {
+          values[target--] = values[i--];
+        }
+        else if (i >= 0 && values[i] == other.values[j])
+        {
+          values[target--] = values[i--];
+          j--;
+        }
+        else
+        {
+          values[target--] = other.values[j--];
+        }
+      }
+      final int gap = target - i;
+      if (gap > 0)
+      {
+        System.arraycopy(values, target + 1, values, i + 1, maxCardinality - target - 1);
+      }
+      cardinality = maxCardinality - gap;
+      return this;
+    }
+
+    @Override
+    Container andNot(Container that)
+    {
+      return retainIf(that, false);
+    }
+
+    private Container retainIf(Container that, boolean contained)
+    {
+      int target = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        if (that.contains(values[i]) == contained)
+        {
+          values[target++] = values[i];
+        }
+      }
+      cardinality = target;
+      return this;
+    }
+
+    @Override
+    Container copy()
+    {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+    }
+
+    @Override
+    ContainerIterator iterator()
+    {
+      return new ContainerIterator()
+      {
+        private int pos;
+
+        @Override
+        public boolean hasNext()
+        {
+          return pos < cardinality;
+        }
+
+        @Override
+        public int next()
+        {
+          return values[pos++];
+        }
+      };
+    }
+
+    @Override
+    int copyTo(long[] array, int offset, long high)
+    {
+      for (int i = 0; i < cardinality; i++)
+      {
+        array[offset++] = high | values[i];
+      }
+      return offset;
+    }
+
+    @Override
+    Container toMutable()
+    {
+      return this;
+    }
+  }
+
+  /** Container holding its values in a 65536 bits bitmap. */
+  private static final class BitmapContainer extends Container
+  {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer()
+    {
+      this(new long[BITMAP_NB_WORDS], 0);
+    }
+
+    private BitmapContainer(long[] words, int cardinality)
+    {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    static BitmapContainer valueOf(Container container)
+    {
+      if (container instanceof BitmapContainer)
+      {
+        return (BitmapContainer) container;
+      }
+      final BitmapContainer bitmap = new BitmapContainer();
+      final ContainerIterator it = container.iterator();
+      while (it.hasNext())
+      {
+        bitmap.set(it.next());
+      }
+      bitmap.cardinality = container.cardinality();
+      return bitmap;
+    }
+
+    static Container decode(ByteSequenceReader reader)
+    {
+      final BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < BITMAP_NB_WORDS; i++)
+      {
+        bitmap.words[i] = reader.readLong();
+      }
+      bitmap.cardinality = bitmap.computeCardinality();
+      return bitmap;
+    }
+
+    private void set(int value)
+    {
+      words[value >>> 6] |= 1L << value;
+    }
+
+    private int computeCardinality()
+    {
+      int count = 0;
+      for (long word : words)
+      {
+        count += Long.bitCount(word);
+      }
+      return count;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value)
+    {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int first()
+    {
+      for (int i = 0; i < BITMAP_NB_WORDS; i++)
+      {
+        if (words[i] != 0)
+        {
+          return i * 64 + Long.numberOfTrailingZeros(words[i]);
+        }
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    int last()
+    {
+      for (int i = BITMAP_NB_WORDS - 1; i >= 0; i--)
+      {
+        if (words[i] != 0)
+        {
+          return i * 64 + 63 - Long.numberOfLeadingZeros(words[i]);
+        }
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    Container add(char value)
+    {
+      final long before = words[value >>> 6];
+      final long after = before | (1L << value);
+      if (before != after)
+      {
+        words[value >>> 6] = after;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char value)
+    {
+      final long before = words[value >>> 6];
+      final long after = before & ~(1L << value);
+      if (before != after)
+      {
+        words[value >>> 6] = after;
+        cardinality--;
+      }
+      return shrinkIfSparse();
+    }
+
+    @Override
+    Container and(Container that)
+    {
+      if (that instanceof BitmapContainer)
+      {
+        final long[] otherWords = ((BitmapContainer) that).words;
+        for (int i = 0; i < BITMAP_NB_WORDS; i++)
+        {
+          words[i] &= otherWords[i];
+        }
+        cardinality = computeCardinality();
+        return shrinkIfSparse();
+      }
+      // The result cannot hold more values than the other (small) container.
+      final Container result = that.copy().toMutable();
+      return result.and(this);
+    }
+
+    @Override
+    Container or(Container that)
+    {
+      if (that instanceof BitmapContainer)
+      {
+        final long[] otherWords = ((BitmapContainer) that).words;
+        for (int i = 0; i < BITMAP_NB_WORDS; i++)
+        {
+          words[i] |= otherWords[i];
+        }
+        cardinality = computeCardinality();
+        return this;
+      }
+      final ContainerIterator it = that.iterator();
+      while (it.hasNext())
+      {
+        add((char) it.next());
+      }
+      return this;
+    }
+
+    @Override
+    Container andNot(Container that)
+    {
+      if (that instanceof BitmapContainer)
+      {
+        final long[] otherWords = ((BitmapContainer) that).words;
+        for (int i = 0; i < BITMAP_NB_WORDS; i++)
+        {
+          words[i] &= ~otherWords[i];
+        }
+        cardinality = computeCardinality();
+        return shrinkIfSparse();
+      }
+      final ContainerIterator it = that.iterator();
+      while (it.hasNext())
+      {
+        final int value = it.next();
+        final long before = words[value >>> 6];
+        final long after = before & ~(1L << value);
+        if (before != after)
+        {
+          words[value >>> 6] = after;
+          cardinality--;
+        }
+      }
+      return shrinkIfSparse();
+    }
+
+    private Container shrinkIfSparse()
+    {
+      if (cardinality > ARRAY_MAX_SIZE)
+      {
+        return this;
+      }
+      final char[] values = new char[Math.max(cardinality, 1)];
+      copyToChars(values);
+      return new ArrayContainer(values, cardinality);
+    }
+
+    private void copyToChars(char[] values)
+    {
+      int pos = 0;
+      for (int i = 0; i < BITMAP_NB_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          values[pos++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    Container copy()
+    {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    ContainerIterator iterator()
+    {
+      return new ContainerIterator()
+      {
+        private int wordIndex = -1;
+        private long word;
+
+        @Override
+        public boolean hasNext()
+        {
+          while (word == 0)
+          {
+            if (++wordIndex >= BITMAP_NB_WORDS)
+            {
+              return false;
+            }
+            word = words[wordIndex];
+          }
+          return true;
+        }
+
+        @Override
+        public int next()
+        {
+          if (!hasNext())
+          {
+            throw new NoSuchElementException();
+          }
+          final int value = wordIndex * 64 + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+          return value;
+        }
+      };
+    }
+
+    @Override
+    int copyTo(long[] array, int offset, long high)
+    {
+      for (int i = 0; i < BITMAP_NB_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          array[offset++] = high | (i * 64 + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return offset;
+    }
+
+    @Override
+    Container toMutable()
+    {
+      return this;
+    }
+  }
+
+  /**
+   * Container holding its values as a list of [start, length] runs, where a run contains the values start to
+   * start+length inclusive. Efficient for contiguous ranges of IDs, as produced by bulk imports. Run containers are
+   * immutable: updates are performed on a mutable copy.
+   */
+  private static final class RunContainer extends Container
+  {
+    private final char[] runs;
+    private final int nbRuns;
+    private final int cardinality;
+
+    private RunContainer(char[] runs, int nbRuns)
+    {
+      this.runs = runs;
+      this.nbRuns = nbRuns;
+      int count = 0;
+      for (int i = 0; i < nbRuns; i++)
+      {
+        count += runs[2 * i + 1] + 1;
+      }
+      this.cardinality = count;
+    }
+
+    static RunContainer valueOf(Container container)
+    {
+      if (container instanceof RunContainer)
+      {
+        return (RunContainer) container;
+      }
+      char[] runs = new char[8];
+      int nbRuns = 0;
+      int start = -1;
+      int end = -2;
+      final ContainerIterator it = container.iterator();
+      while (it.hasNext())
+      {
+        final int value = it.next();
+        if (value != end + 1)
+        {
+          if (start >= 0)
+          {
+            runs = appendRun(runs, nbRuns++, start, end);
+          }
+          start = value;
+        }
+        end = value;
+      }
+      if (start >= 0)
+      {
+        runs = appendRun(runs, nbRuns++, start, end);
+      }
+      return new RunContainer(runs, nbRuns);
+    }
+
+    private static char[] appendRun(char[] runs, int nbRuns, int start, int end)
+    {
+      final char[] result = 2 * nbRuns + 2 > runs.length ? Arrays.copyOf(runs, runs.length * 2) : runs;
+      result[2 * nbRuns] = (char) start;
+      result[2 * nbRuns + 1] = (char) (end - start);
+      return result;
+    }
+
+    static Container decode(ByteSequenceReader reader)
+    {
+      final int nbRuns = reader.readCompactUnsignedInt() + 1;
+      final char[] runs = new char[2 * nbRuns];
+      int previousEnd = 0;
+      for (int i = 0; i < nbRuns; i++)
+      {
+        final int start = previousEnd + reader.readCompactUnsignedInt();
+        final int length = reader.readCompactUnsignedInt();
+        runs[2 * i] = (char) start;
+        runs[2 * i + 1] = (char) length;
+        previousEnd = start + length;
+      }
+      return new RunContainer(runs, nbRuns);
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value)
+    {
+      int low = 0;
+      int high = nbRuns - 1;
+      while (low <= high)
+      {
+        final int mid = (low + high) >>> 1;
+        final int start = runs[2 * mid];
+        if (value < start)
+        {
+          high = mid - 1;
+        }
+        else if (value > start + runs[2 * mid + 1])
+        {
+          low = mid + 1;
+        }
+        else
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    int first()
+    {
+      return runs[0];
+    }
+
+    @Override
+    int last()
+    {
+      return runs[2 * nbRuns - 2] + runs[2 * nbRuns - 1];
+    }
+
+    @Override
+    Container add(char value)
+    {
+      return contains(value) ? this : toMutable().add(value);
+    }
+
+    @Override
+    Container remove(char value)
+    {
+      return contains(value) ? toMutable().remove(value) : this;
+    }
+
+    @Override
+    Container and(Container that)
+    {
+      return toMutable().and(that);
+    }
+
+    @Override
+    Container or(Container that)
+    {
+      return toMutable().or(that);
+    }
+
+    @Override
+    Container andNot(Container that)
+    {
+      return toMutable().andNot(that);
+    }
+
+    @Override
+    Container copy()
+    {
+      // Immutable.
+      return this;
+    }
+
+    @Override
+    Container toMutable()
+    {
+      if (cardinality > ARRAY_MAX_SIZE)
+      {
+        return BitmapContainer.valueOf(this);
+      }
+      final char[] values = new char[Math.max(cardinality, 1)];
+      int pos = 0;
+      for (int i = 0; i < nbRuns; i++)
+      {
+        final int start = runs[2 * i];
+        final int end = start + runs[2 * i + 1];
+        for (int value = start; value <= end; value++)
+        {
+          values[pos++] = (char) value;
+        }
+      }
+      return new ArrayContainer(values, cardinality);
+    }
+
+    @Override
+    ContainerIterator iterator()
+    {
+      return new ContainerIterator()
+      {
+        private int run;
+        private int next = nbRuns > 0 ? runs[0] : 0;
+
+        @Override
+        public boolean hasNext()
+        {
+          return run < nbRuns;
+        }
+
+        @Override
+        public int next()
+        {
+          if (!hasNext())
+          {
+            throw new NoSuchElementException();
+          }
+          final int value = next;
+          if (value == runs[2 * run] + runs[2 * run + 1])
+          {
+            if (++run < nbRuns)
+            {
+              next = runs[2 * run];
+            }
+          }
+          else
+          {
+            next++;
+          }
+          return value;
+        }
+      };
+    }
+
+    @Override
+    int copyTo(long[] array, int offset, long high)
+    {
+      for (int i = 0; i < nbRuns; i++)
+      {
+        final int start = runs[2 * i];
+        final int end = start + runs[2 * i + 1];
+        for (int value = start; value <= end; value++)
+        {
+          array[offset++] = high | value;
+        }
+      }
+      return offset;
+    }
+  }
+}
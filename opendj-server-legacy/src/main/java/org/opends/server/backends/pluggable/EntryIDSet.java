@@ -43,6 +43,7 @@ final class EntryIDSet implements Iterable<EntryID>
 {
   public static final EntryIDSetCodec CODEC_V1 = new EntryIDSetCodecV1();
   public static final EntryIDSetCodec CODEC_V2 = new EntryIDSetCodecV2();
+  public static final EntryIDSetCodec CODEC_V4 = new EntryIDSetCodecV4();
 
   private static final ByteSequence NO_KEY = ByteString.valueOfUtf8("<none>");
   private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -71,6 +72,11 @@ final class EntryIDSet implements Iterable<EntryID>
 
     void removeAll(EntryIDSet that);
 
+    /** Retains the IDs contained in the provided set, which MUST be defined. */
+    void retainAll(EntryIDSet that);
+
+    int copyTo(long[] array, int offset);
+
     @Override
     Iterator<EntryID> iterator();
   }
@@ -81,6 +87,21 @@ final class EntryIDSet implements Iterable<EntryID>
     ByteString encode(EntryIDSet idSet);
 
     EntryIDSet decode(ByteSequence key, ByteString value);
+
+    /**
+     * Decodes the IDs of the encoded set which are also contained in the provided candidates. Implementations probe
+     * the encoded value rather than materializing the whole set whenever the encoding allows it.
+     *
+     * @param key
+     *          the key of the encoded set
+     * @param value
+     *          the encoded set
+     * @param candidates
+     *          the defined set of IDs to intersect with the encoded set
+     * @return the IDs of the candidates contained in the encoded set, or an undefined set if the
+     *         encoded set is undefined
+     */
+    EntryIDSet decodeIntersection(ByteSequence key, ByteString value, EntryIDSet candidates);
   }
 
   /** Concrete implementation representing a set of EntryIDs, sorted in ascending order. */
@@ -210,7 +231,11 @@ final class EntryIDSet implements Iterable<EntryID>
     @Override
     public void removeAll(EntryIDSet that)
     {
-      if (compareForOverlap(getRange(), that.getRange()) == 0)
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        entryIDs = retainIf(entryIDs, ((BitmapImpl) that.concreteImpl).bitmap, false);
+      }
+      else if (compareForOverlap(getRange(), that.getRange()) == 0)
       {
         // Set overlaps
         final long[] newEntryIds = new long[entryIDs.length];
@@ -249,6 +274,30 @@ final class EntryIDSet implements Iterable<EntryID>
       }
     }
 
+    @Override
+    public void retainAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        entryIDs = retainIf(entryIDs, ((BitmapImpl) that.concreteImpl).bitmap, true);
+      }
+      else if (compareForOverlap(getRange(), that.getRange()) == 0)
+      {
+        entryIDs = intersection(entryIDs, that.getIDs());
+      }
+      else if (entryIDs.length != 0)
+      {
+        entryIDs = EMPTY_LONG_ARRAY;
+      }
+    }
+
+    @Override
+    public int copyTo(long[] array, int offset)
+    {
+      System.arraycopy(entryIDs, 0, array, offset, entryIDs.length);
+      return entryIDs.length;
+    }
+
     @Override
     public Iterator<EntryID> iterator()
     {
@@ -341,6 +390,18 @@ final class EntryIDSet implements Iterable<EntryID>
       // this has no effect
     }
 
+    @Override
+    public void retainAll(EntryIDSet that)
+    {
+      // handled by EntryIDSet.retainAll() which replaces this implementation
+    }
+
+    @Override
+    public int copyTo(long[] array, int offset)
+    {
+      return -1;
+    }
+
     @Override
     public Iterator<EntryID> iterator()
     {
@@ -360,6 +421,131 @@ final class EntryIDSet implements Iterable<EntryID>
     }
   }
 
+  /**
+   * Concrete implementation representing a set of EntryIDs as a compressed {@link EntryIDBitmap}. Unlike
+   * {@link DefinedImpl}, boolean operations with another bitmap backed set are performed in place.
+   */
+  private static final class BitmapImpl implements EntryIDSetImplementor
+  {
+    /** \@NotNull */
+    private final EntryIDBitmap bitmap;
+
+    BitmapImpl(EntryIDBitmap bitmap)
+    {
+      Reject.ifNull(bitmap, "bitmap must not be null");
+      this.bitmap = bitmap;
+    }
+
+    @Override
+    public long size()
+    {
+      return bitmap.cardinality();
+    }
+
+    @Override
+    public void toString(StringBuilder buffer)
+    {
+      buffer.append("[COUNT:").append(size()).append("]");
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean add(EntryID entryID)
+    {
+      return bitmap.add(entryID.longValue());
+    }
+
+    @Override
+    public boolean remove(EntryID entryID)
+    {
+      return bitmap.remove(entryID.longValue());
+    }
+
+    @Override
+    public boolean contains(EntryID entryID)
+    {
+      return bitmap.contains(entryID.longValue());
+    }
+
+    @Override
+    public void addAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        bitmap.or(((BitmapImpl) that.concreteImpl).bitmap);
+      }
+      else
+      {
+        for (long id : that.getIDs())
+        {
+          bitmap.add(id);
+        }
+      }
+    }
+
+    @Override
+    public void removeAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        bitmap.andNot(((BitmapImpl) that.concreteImpl).bitmap);
+      }
+      else
+      {
+        for (long id : that.getIDs())
+        {
+          bitmap.remove(id);
+        }
+      }
+    }
+
+    @Override
+    public void retainAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        bitmap.and(((BitmapImpl) that.concreteImpl).bitmap);
+      }
+      else
+      {
+        bitmap.and(EntryIDBitmap.valueOf(that.getIDs()));
+      }
+    }
+
+    @Override
+    public int copyTo(long[] array, int offset)
+    {
+      return bitmap.copyTo(array, offset);
+    }
+
+    @Override
+    public Iterator<EntryID> iterator()
+    {
+      return bitmap.iterator();
+    }
+
+    @Override
+    public long[] getRange()
+    {
+      if (!bitmap.isEmpty())
+      {
+        return new long[] { bitmap.first(), bitmap.last() };
+      }
+      return NO_ENTRY_IDS_RANGE;
+    }
+
+    @Override
+    public long[] getIDs()
+    {
+      return bitmap.toArray();
+    }
+  }
+
   /** Iterator for a set of Entry IDs. It must return values in order of ID. */
   private static final class IDSetIterator implements Iterator<EntryID>
   {
@@ -427,6 +613,66 @@ final class EntryIDSet implements Iterable<EntryID>
       }
     }
 
+    @Override
+    public EntryIDSet decodeIntersection(ByteSequence key, ByteString value, EntryIDSet candidates)
+    {
+      checkNotNull(value, "value must not be null");
+      if (value.isEmpty())
+      {
+        return newDefinedSet();
+      }
+      else if ((value.byteAt(0) & 0x80) == 0x80)
+      {
+        return newUndefinedSetWithKey(key);
+      }
+
+      // IDs are stored with a fixed size: binary search them in place.
+      final long[] ids = candidates.getIDs().clone();
+      final ByteSequenceReader reader = value.asReader();
+      int low = 0;
+      final int high = value.length() / LONG_SIZE - 1;
+      int nbResults = 0;
+      for (long id : ids)
+      {
+        final int pos = binarySearch(reader, low, high, id);
+        if (pos >= 0)
+        {
+          ids[nbResults++] = id;
+          low = pos + 1;
+        }
+        else
+        {
+          low = -(pos + 1);
+        }
+      }
+      return newDefinedSet(Arrays.copyOf(ids, nbResults));
+    }
+
+    private static int binarySearch(ByteSequenceReader reader, int fromIndex, int toIndex, long id)
+    {
+      int low = fromIndex;
+      int high = toIndex;
+      while (low <= high)
+      {
+        final int mid = (low + high) >>> 1;
+        reader.position(mid * LONG_SIZE);
+        final long midValue = reader.readLong();
+        if (midValue < id)
+        {
+          low = mid + 1;
+        }
+        else if (midValue > id)
+        {
+          high = mid - 1;
+        }
+        else
+        {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
     private static int getEstimatedSize(EntryIDSet idSet)
     {
       return idSet.isDefined() ? idSet.getIDs().length * LONG_SIZE : LONG_SIZE;
@@ -493,6 +739,37 @@ final class EntryIDSet implements Iterable<EntryID>
       return newDefinedSet(decodeRaw(reader, reader.readCompactUnsignedInt()));
     }
 
+    @Override
+    public EntryIDSet decodeIntersection(ByteSequence key, ByteString value, EntryIDSet candidates)
+    {
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == UNDEFINED_SET)
+      {
+        return newUndefinedSetWithKey(key);
+      }
+
+      // Delta encoded IDs must be read sequentially: leapfrog through both sorted lists without allocating the IDs.
+      final long[] ids = candidates.getIDs().clone();
+      final ByteSequenceReader reader = value.asReader();
+      final int nbEncodedIDs = reader.readCompactUnsignedInt();
+      int nbResults = 0;
+      long id = 0;
+      for (int i = 0, candidate = 0; i < nbEncodedIDs && candidate < ids.length; i++)
+      {
+        id += reader.readCompactUnsignedLong();
+        while (candidate < ids.length && ids[candidate] < id)
+        {
+          candidate++;
+        }
+        if (candidate < ids.length && ids[candidate] == id)
+        {
+          ids[nbResults++] = id;
+          candidate++;
+        }
+      }
+      return newDefinedSet(Arrays.copyOf(ids, nbResults));
+    }
+
     private static ByteStringBuilder append(ByteStringBuilder builder, EntryIDSet idSet)
     {
       checkNotNull(idSet, "idSet must not be null");
@@ -539,7 +816,56 @@ final class EntryIDSet implements Iterable<EntryID>
   }
 
   /**
-   * Decorate a V1 or V2 codec with encryption. When writing EntryIDSets to disk,
+   * Compressed bitmap EntryIDSet codec implementation. IDs are partitioned on their high bits, and each partition is
+   * stored using the smallest of a delta encoded array, a raw bitmap or a list of runs (see {@link EntryIDBitmap}).
+   * Decoded sets are backed by the bitmap itself so that {@link IndexFilter} evaluation is performed in place without
+   * expanding the IDs into arrays.
+   */
+  private static final class EntryIDSetCodecV4 implements EntryIDSetCodec
+  {
+    private static final byte UNDEFINED_SET = (byte) 0xFF;
+
+    @Override
+    public ByteString encode(EntryIDSet idSet)
+    {
+      checkNotNull(idSet, "idSet must not be null");
+      if (!idSet.isDefined())
+      {
+        return ByteString.valueOfBytes(new byte[] { UNDEFINED_SET });
+      }
+      final EntryIDBitmap bitmap = idSet.concreteImpl instanceof BitmapImpl
+          ? ((BitmapImpl) idSet.concreteImpl).bitmap
+          : EntryIDBitmap.valueOf(idSet.getIDs());
+      final ByteStringBuilder builder = new ByteStringBuilder(bitmap.getEstimatedEncodedSize());
+      return ByteString.wrap(bitmap.encode(builder).getBackingArray(), 0, builder.length());
+    }
+
+    @Override
+    public EntryIDSet decode(ByteSequence key, ByteString value)
+    {
+      checkNotNull(key, "key must not be null");
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == UNDEFINED_SET)
+      {
+        return newUndefinedSetWithKey(key);
+      }
+      return newBitmapSet(EntryIDBitmap.decode(value.asReader()));
+    }
+
+    @Override
+    public EntryIDSet decodeIntersection(ByteSequence key, ByteString value, EntryIDSet candidates)
+    {
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == UNDEFINED_SET)
+      {
+        return newUndefinedSetWithKey(key);
+      }
+      return newDefinedSet(EntryIDBitmap.decodeIntersection(value.asReader(), candidates.getIDs().clone()));
+    }
+  }
+
+  /**
+   * Decorate a V1, V2 or V4 codec with encryption. When writing EntryIDSets to disk,
    * prepend two bytes, {0, 1} to mark them as encrypted.
    * The first is tag zero (unused in other encodings), followed by a byte
    * indicating version 1 of encryption.
@@ -594,6 +920,26 @@ final class EntryIDSet implements Iterable<EntryID>
       }
       return delegate.decode(key, value);
     }
+
+    @Override
+    public EntryIDSet decodeIntersection(ByteSequence key, ByteString value, EntryIDSet candidates)
+    {
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == CODEC_V3_TAG)
+      {
+        try
+        {
+          return delegate.decodeIntersection(key,
+              ByteString.wrap(cryptoSuite.decrypt(value.subSequence(2, value.length()).toByteArray())), candidates);
+        }
+        catch (GeneralSecurityException | CryptoManagerException e)
+        {
+          // Only if data is completely corrupted.
+          throw new IllegalStateException();
+        }
+      }
+      return delegate.decodeIntersection(key, value, candidates);
+    }
   }
 
   static EntryIDSetCodec newEntryIDSetCodecV3(EntryIDSetCodec codec, CryptoSuite cs)
@@ -657,6 +1003,48 @@ final class EntryIDSet implements Iterable<EntryID>
     return target;
   }
 
+  /**
+   * Creates a new defined entry ID set backed by the provided bitmap. The bitmap is not copied and will be modified by
+   * further updates of the returned set.
+   *
+   * @param bitmap
+   *          The bitmap holding the Entry IDs contained in the set.
+   * @return A new defined {@link EntryIDSet} backed by the provided bitmap
+   * @throws NullPointerException
+   *           if bitmap is null
+   */
+  static EntryIDSet newBitmapSet(EntryIDBitmap bitmap)
+  {
+    checkNotNull(bitmap, "bitmap must not be null");
+    return new EntryIDSet(new BitmapImpl(bitmap));
+  }
+
+  private static long[] retainIf(long[] entryIDs, EntryIDBitmap bitmap, boolean contained)
+  {
+    int target = 0;
+    for (long id : entryIDs)
+    {
+      if (bitmap.contains(id) == contained)
+      {
+        target++;
+      }
+    }
+    if (target == entryIDs.length)
+    {
+      return entryIDs;
+    }
+    final long[] result = new long[target];
+    target = 0;
+    for (long id : entryIDs)
+    {
+      if (bitmap.contains(id) == contained)
+      {
+        result[target++] = id;
+      }
+    }
+    return result;
+  }
+
   /**
    * Creates a new set of entry IDs that is the union of several entry ID sets.
    *
@@ -689,6 +1077,14 @@ final class EntryIDSet implements Iterable<EntryID>
       return newUndefinedSet();
     }
 
+    for (EntryIDSet l : sets)
+    {
+      if (l.concreteImpl instanceof BitmapImpl)
+      {
+        return newBitmapSetFromUnion(sets, (BitmapImpl) l.concreteImpl);
+      }
+    }
+
     boolean needSort = false;
     long[] n = new long[count];
     int pos = 0;
@@ -723,6 +1119,19 @@ final class EntryIDSet implements Iterable<EntryID>
     return newDefinedSet(Arrays.copyOf(n1, j));
   }
 
+  private static EntryIDSet newBitmapSetFromUnion(List<EntryIDSet> sets, BitmapImpl first)
+  {
+    final EntryIDBitmap union = first.bitmap.copy();
+    for (EntryIDSet l : sets)
+    {
+      if (l.concreteImpl != first)
+      {
+        new BitmapImpl(union).addAll(l);
+      }
+    }
+    return newBitmapSet(union);
+  }
+
   private EntryIDSetImplementor concreteImpl;
 
   private EntryIDSet(EntryIDSetImplementor concreteImpl)
@@ -776,13 +1185,7 @@ final class EntryIDSet implements Iterable<EntryID>
    */
   public int copyTo(long[] array, int offset)
   {
-    if (isDefined())
-    {
-      final long[] ids = concreteImpl.getIDs();
-      System.arraycopy(ids, 0, array, offset, ids.length);
-      return ids.length;
-    }
-    return -1;
+    return concreteImpl.copyTo(array, offset);
   }
 
   /**
@@ -798,6 +1201,10 @@ final class EntryIDSet implements Iterable<EntryID>
     {
       return null;
     }
+    if (concreteImpl instanceof BitmapImpl)
+    {
+      return concreteImpl.getIDs();
+    }
     final long[] entryIDs = concreteImpl.getIDs();
     return Arrays.copyOf(entryIDs, entryIDs.length);
   }
@@ -873,6 +1280,14 @@ final class EntryIDSet implements Iterable<EntryID>
   {
     checkNotNull(that, "that must not be null");
     Reject.ifFalse(that.isDefined(), "that must be defined");
+    if (concreteImpl instanceof DefinedImpl && that.concreteImpl instanceof BitmapImpl)
+    {
+      // Switch to the compressed representation rather than expanding that set into an array.
+      final BitmapImpl union = new BitmapImpl(((BitmapImpl) that.concreteImpl).bitmap.copy());
+      union.addAll(this);
+      concreteImpl = union;
+      return;
+    }
     concreteImpl.addAll(that);
   }
 
@@ -889,7 +1304,11 @@ final class EntryIDSet implements Iterable<EntryID>
     checkNotNull(that, "that must not be null");
     if (!concreteImpl.isDefined())
     {
-      if ( that.isDefined() ) {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        // Bitmaps are updated in place: a copy is needed.
+        concreteImpl = new BitmapImpl(((BitmapImpl) that.concreteImpl).bitmap.copy());
+      } else if ( that.isDefined() ) {
         // NOTE: It's ok to share the same array instance here thanks to the copy-on-write
         // performed by the implementation.
         concreteImpl = new DefinedImpl(that.getIDs());
@@ -903,15 +1322,7 @@ final class EntryIDSet implements Iterable<EntryID>
       return;
     }
 
-    final boolean thatSetOverlap = compareForOverlap(getRange(), that.getRange()) == 0;
-    if (thatSetOverlap)
-    {
-      concreteImpl = new DefinedImpl(intersection(concreteImpl.getIDs(), that.getIDs()));
-    }
-    else if (size() != 0)
-    {
-      concreteImpl = new DefinedImpl();
-    }
+    concreteImpl.retainAll(that);
   }
 
   /**
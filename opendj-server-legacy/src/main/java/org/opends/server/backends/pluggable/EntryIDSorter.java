@@ -0,0 +1,529 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Utils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.crypto.CryptoSuite;
+import org.opends.server.types.CryptoManagerException;
+
+/**
+ * Sorts entry IDs by their sort key (e.g. a VLV key) using a bounded amount of heap memory.
+ * <p>
+ * The entries are kept in memory until the memory limit is reached. Then, when only the first entries are needed,
+ * e.g. for returning a VLV window, only these entries are kept in memory. Otherwise, or if the first entries do not
+ * fit in memory either, the entries are sorted and written to a temporary file. The sorted temporary files are
+ * finally merged with the entries left in memory. The sort keys hold attribute values, so the temporary files are
+ * encrypted when the backend is confidential.
+ */
+final class EntryIDSorter implements Closeable
+{
+  /** Estimated heap footprint of an entry, excluding the bytes of its key. */
+  private static final int ENTRY_OVERHEAD = 64;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** An entry ID with its sort key. */
+  private static final class SortEntry implements Comparable<SortEntry>
+  {
+    private final ByteString key;
+    private final long entryID;
+
+    private SortEntry(ByteString key, long entryID)
+    {
+      this.key = key;
+      this.entryID = entryID;
+    }
+
+    @Override
+    public int compareTo(SortEntry o)
+    {
+      return key.compareTo(o.key);
+    }
+
+    private long getMemorySize()
+    {
+      return ENTRY_OVERHEAD + key.length();
+    }
+  }
+
+  /** Iterates over the sorted entries. */
+  interface SortedCursor
+  {
+    /**
+     * Moves this cursor to the next entry.
+     *
+     * @return true if there is a next entry, false if all the entries have been read
+     * @throws IOException
+     *           If an error occurs while reading the temporary files
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Returns the sort key of the current entry.
+     *
+     * @return the sort key of the current entry
+     */
+    ByteString getKey();
+
+    /**
+     * Returns the entry ID of the current entry.
+     *
+     * @return the entry ID of the current entry
+     */
+    long getEntryID();
+  }
+
+  /** Sorted run written to a temporary file. */
+  private static final class Run implements SortedCursor
+  {
+    private final File file;
+    private final int size;
+    private final CryptoSuite cryptoSuite;
+    private DataInputStream in;
+    private int position;
+    private SortEntry current;
+
+    private Run(File file, int size, CryptoSuite cryptoSuite)
+    {
+      this.file = file;
+      this.size = size;
+      this.cryptoSuite = cryptoSuite;
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+      if (in == null)
+      {
+        in = new DataInputStream(new BufferedInputStream(decrypt(new FileInputStream(file)), BUFFER_SIZE));
+      }
+      if (position++ >= size)
+      {
+        current = null;
+        return false;
+      }
+      final byte[] key = new byte[in.readInt()];
+      in.readFully(key);
+      current = new SortEntry(ByteString.wrap(key), in.readLong());
+      return true;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return current.key;
+    }
+
+    @Override
+    public long getEntryID()
+    {
+      return current.entryID;
+    }
+
+    private InputStream decrypt(InputStream fileIn) throws IOException
+    {
+      if (cryptoSuite == null)
+      {
+        return fileIn;
+      }
+      try
+      {
+        return cryptoSuite.getCipherInputStream(new BufferedInputStream(fileIn));
+      }
+      catch (CryptoManagerException e)
+      {
+        closeSilently(fileIn);
+        throw new IOException(e);
+      }
+    }
+
+    private void close()
+    {
+      closeSilently(in);
+      file.delete();
+    }
+  }
+
+  /** Sorted entries left in memory. */
+  private static final class InMemoryRun implements SortedCursor
+  {
+    private final List<SortEntry> entries;
+    private int position = -1;
+
+    private InMemoryRun(List<SortEntry> sortedEntries)
+    {
+      this.entries = sortedEntries;
+    }
+
+    @Override
+    public boolean next()
+    {
+      return ++position < entries.size();
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return entries.get(position).key;
+    }
+
+    @Override
+    public long getEntryID()
+    {
+      return entries.get(position).entryID;
+    }
+  }
+
+  /** Merges the sorted runs, returning at most {@link EntryIDSorter#getNbSortedEntries()} entries. */
+  private final class MergingCursor implements SortedCursor
+  {
+    private final PriorityQueue<SortedCursor> cursors = new PriorityQueue<>(11, new Comparator<SortedCursor>()
+    {
+      @Override
+      public int compare(SortedCursor c1, SortedCursor c2)
+      {
+        return c1.getKey().compareTo(c2.getKey());
+      }
+    });
+    private final List<SortedCursor> sources;
+    private SortedCursor current;
+    private int nbReturned;
+
+    private MergingCursor(List<SortedCursor> sources)
+    {
+      this.sources = sources;
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+      if (current == null)
+      {
+        for (SortedCursor source : sources)
+        {
+          addIfNotExhausted(source);
+        }
+      }
+      else
+      {
+        addIfNotExhausted(current);
+      }
+      current = cursors.poll();
+      return current != null && nbReturned++ < getNbSortedEntries();
+    }
+
+    private void addIfNotExhausted(SortedCursor cursor) throws IOException
+    {
+      if (cursor.next())
+      {
+        cursors.add(cursor);
+      }
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return current.getKey();
+    }
+
+    @Override
+    public long getEntryID()
+    {
+      return current.getEntryID();
+    }
+  }
+
+  private final int maxEntries;
+  private final long memoryLimit;
+  private final File tempDir;
+  /** Encrypts the temporary files, {@code null} if they are written in clear. */
+  private final CryptoSuite cryptoSuite;
+
+  /** The entries in memory, until only the first entries are selected. */
+  private final List<SortEntry> entries = new ArrayList<>();
+  /**
+   * The first entries in memory, once the memory limit has been reached. This is a max-heap so that the biggest entry
+   * can be removed when a smaller one is added.
+   */
+  private PriorityQueue<SortEntry> firstEntries;
+  private long memorySize;
+  /** Entries whose key is greater or equal cannot be part of the first entries. */
+  private ByteString cutoffKey;
+
+  private final List<Run> runs = new ArrayList<>();
+  private int nbEntries;
+  private int nbDiscardedEntries;
+  private long spilledBytes;
+
+  /**
+   * Creates a new sorter.
+   *
+   * @param maxEntries
+   *          the strictly positive number of first entries needed by the caller, or {@link Integer#MAX_VALUE} if all
+   *          the entries are needed. More entries are returned if they all fit in memory
+   * @param memoryLimit
+   *          the amount of heap memory used for sorting entries before writing them to temporary files
+   * @param tempDir
+   *          the directory where temporary files are written
+   * @param cryptoSuite
+   *          the crypto suite encrypting the temporary files, or {@code null} to write them in clear
+   */
+  EntryIDSorter(int maxEntries, long memoryLimit, File tempDir, CryptoSuite cryptoSuite)
+  {
+    this.maxEntries = maxEntries;
+    this.memoryLimit = memoryLimit;
+    this.tempDir = tempDir;
+    this.cryptoSuite = cryptoSuite;
+  }
+
+  /**
+   * Adds an entry to sort.
+   *
+   * @param key
+   *          the sort key of the entry, unique among all the entries
+   * @param entryID
+   *          the entry ID
+   * @throws IOException
+   *           If an error occurs while writing a temporary file
+   */
+  void add(ByteString key, long entryID) throws IOException
+  {
+    nbEntries++;
+    if (cutoffKey != null && key.compareTo(cutoffKey) >= 0)
+    {
+      nbDiscardedEntries++;
+      return;
+    }
+
+    final SortEntry entry = new SortEntry(key, entryID);
+    if (firstEntries != null)
+    {
+      if (firstEntries.size() >= maxEntries)
+      {
+        nbDiscardedEntries++;
+        if (entry.compareTo(firstEntries.peek()) >= 0)
+        {
+          return;
+        }
+        memorySize -= firstEntries.poll().getMemorySize();
+      }
+      firstEntries.add(entry);
+    }
+    else
+    {
+      entries.add(entry);
+    }
+    memorySize += entry.getMemorySize();
+
+    if (memorySize > memoryLimit)
+    {
+      if (firstEntries == null && maxEntries < Integer.MAX_VALUE)
+      {
+        selectFirstEntries();
+      }
+      else
+      {
+        spill();
+      }
+    }
+  }
+
+  private void selectFirstEntries() throws IOException
+  {
+    Collections.sort(entries);
+    firstEntries = new PriorityQueue<>(11, Collections.<SortEntry> reverseOrder());
+    memorySize = 0;
+    for (SortEntry entry : entries.subList(0, Math.min(maxEntries, entries.size())))
+    {
+      firstEntries.add(entry);
+      memorySize += entry.getMemorySize();
+    }
+    nbDiscardedEntries += entries.size() - firstEntries.size();
+    entries.clear();
+    if (memorySize > memoryLimit)
+    {
+      spill();
+    }
+  }
+
+  private List<SortEntry> drainSortedEntries()
+  {
+    final List<SortEntry> sortedEntries;
+    if (firstEntries != null)
+    {
+      sortedEntries = new ArrayList<>(firstEntries);
+      firstEntries.clear();
+    }
+    else
+    {
+      sortedEntries = new ArrayList<>(entries);
+      entries.clear();
+    }
+    Collections.sort(sortedEntries);
+    memorySize = 0;
+    return sortedEntries;
+  }
+
+  private void spill() throws IOException
+  {
+    final List<SortEntry> sortedEntries = drainSortedEntries();
+    if (firstEntries != null && sortedEntries.size() >= maxEntries)
+    {
+      // The first entries are all in this run: the following runs only need the entries sorting before them.
+      cutoffKey = sortedEntries.get(maxEntries - 1).key;
+    }
+
+    if (!tempDir.exists() && !tempDir.mkdirs())
+    {
+      throw new IOException("Cannot create directory " + tempDir);
+    }
+    final File file = File.createTempFile("sort", ".run", tempDir);
+    runs.add(new Run(file, sortedEntries.size(), cryptoSuite));
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(encrypt(new FileOutputStream(file)), BUFFER_SIZE)))
+    {
+      for (SortEntry entry : sortedEntries)
+      {
+        out.writeInt(entry.key.length());
+        entry.key.copyTo(out);
+        out.writeLong(entry.entryID);
+      }
+      spilledBytes += out.size();
+    }
+  }
+
+  private OutputStream encrypt(OutputStream fileOut) throws IOException
+  {
+    if (cryptoSuite == null)
+    {
+      return fileOut;
+    }
+    try
+    {
+      return cryptoSuite.getCipherOutputStream(fileOut);
+    }
+    catch (CryptoManagerException e)
+    {
+      closeSilently(fileOut);
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Returns a cursor over the sorted entries. This method must be called only once, after all the entries have been
+   * added.
+   *
+   * @return a cursor over the sorted entries
+   */
+  SortedCursor cursor()
+  {
+    final InMemoryRun inMemoryRun = new InMemoryRun(drainSortedEntries());
+    if (runs.isEmpty())
+    {
+      return new MergingCursor(Collections.<SortedCursor> singletonList(inMemoryRun));
+    }
+    final List<SortedCursor> sources = new ArrayList<SortedCursor>(runs);
+    sources.add(inMemoryRun);
+    return new MergingCursor(sources);
+  }
+
+  /**
+   * Returns the sorted entry IDs. This method must be called only once, after all the entries have been added.
+   *
+   * @return the sorted entry IDs
+   * @throws IOException
+   *           If an error occurs while reading the temporary files
+   */
+  long[] toSortedEntryIDs() throws IOException
+  {
+    final long[] entryIDs = new long[getNbSortedEntries()];
+    final SortedCursor cursor = cursor();
+    for (int i = 0; cursor.next(); i++)
+    {
+      entryIDs[i] = cursor.getEntryID();
+    }
+    return entryIDs;
+  }
+
+  /**
+   * Returns the number of entries added to this sorter.
+   *
+   * @return the number of entries added to this sorter
+   */
+  int getNbEntries()
+  {
+    return nbEntries;
+  }
+
+  /**
+   * Returns the number of sorted entries which will be returned.
+   *
+   * @return the number of sorted entries which will be returned
+   */
+  int getNbSortedEntries()
+  {
+    return firstEntries != null ? Math.min(nbEntries - nbDiscardedEntries, maxEntries) : nbEntries;
+  }
+
+  /**
+   * Returns whether some added entries will not be returned because only the first entries are needed and all the
+   * entries did not fit in memory.
+   *
+   * @return true if some added entries will not be returned
+   */
+  boolean isTruncated()
+  {
+    return getNbSortedEntries() < nbEntries;
+  }
+
+  /**
+   * Returns the number of bytes written to temporary files.
+   *
+   * @return the number of bytes written to temporary files
+   */
+  long getSpilledBytes()
+  {
+    return spilledBytes;
+  }
+
+  @Override
+  public void close()
+  {
+    for (Run run : runs)
+    {
+      run.close();
+    }
+    runs.clear();
+  }
+}
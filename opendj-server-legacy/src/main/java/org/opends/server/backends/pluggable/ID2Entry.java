@@ -27,8 +27,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.DataFormatException;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 import java.util.zip.InflaterOutputStream;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -120,8 +118,11 @@ class ID2Entry extends AbstractTree
     private static final byte COMPRESS_ENTRY = 0x01;
     private static final byte ENCRYPT_ENTRY = 0x02;
 
-    /** The format version for entry encoding. */
-    static final byte FORMAT_VERSION_V2 = 0x02;
+    /**
+     * The format version for entry encoding. Compressed entries are encoded with the same format, but the format
+     * version identifies the {@link CompressionCodec} used to compress them.
+     */
+    static final byte FORMAT_VERSION_V2 = DeflateCompressionCodec.FORMAT_VERSION;
 
     private final ByteStringBuilder encodedBuffer = new ByteStringBuilder();
     private final ByteStringBuilder entryBuffer = new ByteStringBuilder();
@@ -140,7 +141,8 @@ class ID2Entry extends AbstractTree
       compressedEntryBuffer.clearAndTruncate(maxBufferSize, BUFFER_INIT_SIZE);
     }
 
-    private Entry decode(ByteString bytes, CompressedSchema compressedSchema)
+    private Entry decode(ByteString bytes, CompressedSchema compressedSchema,
+        PersistentCompressionDictionaries compressionDictionaries)
         throws DirectoryException, DecodeException, IOException
     {
       final byte formatVersion = bytes.byteAt(0);
@@ -149,7 +151,9 @@ class ID2Entry extends AbstractTree
       case FORMAT_VERSION:
         return decodeV1(bytes, compressedSchema);
       case FORMAT_VERSION_V2:
-        return decodeV2(bytes, compressedSchema);
+      case LZ4CompressionCodec.FORMAT_VERSION:
+      case LZ4CompressionCodec.FORMAT_VERSION_DICTIONARY:
+        return decodeV2(bytes, compressedSchema, compressionDictionaries);
       default:
         throw DecodeException.error(ERR_INCOMPATIBLE_ENTRY_VERSION.get(formatVersion));
       }
@@ -228,61 +232,63 @@ class ID2Entry extends AbstractTree
     /**
      * Decodes an entry in the new extensible format.
      * Enties are encoded according to the sequence
-     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH, ID2ENTRY_VALUE}
+     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH, [COMPACT_INTEGER_DICTIONARY_ID,] ID2ENTRY_VALUE}
      * where
      *
      * ID2ENTRY_VALUE = encoding of Entry as in decodeV1()
-     * VERSION_BYTE = 0x2
+     * VERSION_BYTE = 0x2, or the format version of the compression codec: 0x3 for LZ4, 0x4 for LZ4 with a
+     *     dictionary.
      * FLAG_BYTE = bit field of OR'ed values indicating post-encoding processing.
      *     possible meaningful flags are COMPRESS_ENTRY and ENCRYPT_ENTRY.
      * COMPACT_INTEGER_LENGTH = length of ID2ENTRY_VALUE
+     * COMPACT_INTEGER_DICTIONARY_ID = ID of the compression dictionary, only present for version 0x4.
      *
      * @param bytes A byte array containing the encoded tree value.
      * @param compressedSchema The compressed schema manager to use when decoding.
+     * @param compressionDictionaries The compression dictionaries to use when decoding, may be null.
      * @return The decoded entry.
      * @throws DecodeException If the data is not in the expected ASN.1 encoding
      * format or a decryption error occurs.
      * @throws DirectoryException If a Directory Server error occurs.
      * @throws IOException if an error occurs while reading the ASN1 sequence.
      */
-    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema)
+    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema,
+        PersistentCompressionDictionaries compressionDictionaries)
         throws DirectoryException, DecodeException, IOException
     {
       ByteSequenceReader reader = bytes.asReader();
-      // skip version byte
-      reader.position(1);
+      final byte formatVersion = reader.readByte();
       int format = reader.readByte();
       int encodedEntryLen = reader.readCompactUnsignedInt();
+      final CompressionCodec codec = getCompressionCodec(formatVersion, reader, compressionDictionaries);
       try
       {
         if (format == PLAIN_ENTRY)
         {
           return Entry.decode(reader, compressedSchema);
         }
-        InputStream is = reader.asInputStream();
+        ByteSequenceReader data = reader;
         if ((format & ENCRYPT_ENTRY) == ENCRYPT_ENTRY)
         {
-          is = getCryptoManager().getCipherInputStream(is);
+          // CipherInputStream does not read more than block size...
+          InputStream is = getCryptoManager().getCipherInputStream(reader.asInputStream());
+          while (compressedEntryBuffer.appendBytes(is, BUFFER_INIT_SIZE) != -1)
+          {
+            // Read until the end of the stream.
+          }
+          data = compressedEntryBuffer.asReader();
         }
         if ((format & COMPRESS_ENTRY) == COMPRESS_ENTRY)
         {
-          is = new InflaterInputStream(is);
+          byte[] decompressedData = new byte[encodedEntryLen];
+          codec.decompress(data, decompressedData);
+          data = ByteString.wrap(decompressedData).asReader();
         }
-        byte[] data = new byte[encodedEntryLen];
-        int readBytes;
-        int position = 0;
-        int leftToRead = encodedEntryLen;
-        // CipherInputStream does not read more than block size...
-        do
+        else if (data.remaining() < encodedEntryLen)
         {
-          if ((readBytes = is.read(data, position, leftToRead)) == -1 )
-          {
-            throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
-          }
-          position += readBytes;
-          leftToRead -= readBytes;
-        } while (leftToRead > 0 && readBytes > 0);
-        return Entry.decode(ByteString.wrap(data).asReader(), compressedSchema);
+          throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+        }
+        return Entry.decode(data, compressedSchema);
       }
       catch (CryptoManagerException cme)
       {
@@ -291,52 +297,94 @@ class ID2Entry extends AbstractTree
       }
     }
 
-    private ByteString encode(Entry entry, DataConfig dataConfig) throws DirectoryException
+    private static CompressionCodec getCompressionCodec(byte formatVersion, ByteSequenceReader reader,
+        PersistentCompressionDictionaries compressionDictionaries) throws DecodeException
+    {
+      switch (formatVersion)
+      {
+      case LZ4CompressionCodec.FORMAT_VERSION:
+        return LZ4CompressionCodec.WITHOUT_DICTIONARY;
+      case LZ4CompressionCodec.FORMAT_VERSION_DICTIONARY:
+        final int dictionaryID = reader.readCompactUnsignedInt();
+        final CompressionCodec codec =
+            compressionDictionaries != null ? compressionDictionaries.getCodec(dictionaryID) : null;
+        if (codec == null)
+        {
+          throw DecodeException.error(ERR_UNKNOWN_COMPRESSION_DICTIONARY.get(dictionaryID));
+        }
+        return codec;
+      default:
+        return DeflateCompressionCodec.INSTANCE;
+      }
+    }
+
+    private ByteString encode(Entry entry, DataConfig dataConfig, TreeName treeName) throws DirectoryException
     {
-      encodeVolatile(entry, dataConfig);
+      encodeVolatile(entry, dataConfig, treeName);
       return encodedBuffer.toByteString();
     }
 
-    private void encodeVolatile(Entry entry, DataConfig dataConfig) throws DirectoryException
+    private void encodeVolatile(Entry entry, DataConfig dataConfig, TreeName treeName) throws DirectoryException
     {
       entry.encode(entryBuffer, dataConfig.getEntryEncodeConfig());
 
-      OutputStream os = encodedBuffer.asOutputStream();
       try
       {
-        byte[] formatFlags = { FORMAT_VERSION_V2, 0};
-        os.write(formatFlags);
-        encodedBuffer.appendCompactUnsigned(entryBuffer.length());
+        byte formatVersion = FORMAT_VERSION_V2;
+        byte formatFlags = PLAIN_ENTRY;
+        ByteSequence data = entryBuffer;
+        CompressionCodec codec = null;
         if (dataConfig.isCompressed())
         {
-          os = new DeflaterOutputStream(os);
-          formatFlags[1] = COMPRESS_ENTRY;
+          codec = getCompressionCodec(dataConfig, treeName);
+          codec.compress(entryBuffer, compressedEntryBuffer);
+          data = compressedEntryBuffer;
+          formatVersion = codec.getFormatVersion();
+          formatFlags = COMPRESS_ENTRY;
         }
         if (dataConfig.isEncrypted())
         {
-          os = dataConfig.getCryptoSuite().getCipherOutputStream(os);
-          formatFlags[1] |= ENCRYPT_ENTRY;
+          formatFlags |= ENCRYPT_ENTRY;
         }
-        encodedBuffer.setByte(1, formatFlags[1]);
 
-        entryBuffer.copyTo(os);
-        os.flush();
+        encodedBuffer.appendByte(formatVersion);
+        encodedBuffer.appendByte(formatFlags);
+        encodedBuffer.appendCompactUnsigned(entryBuffer.length());
+        if (codec != null && codec.getDictionaryID() != 0)
+        {
+          encodedBuffer.appendCompactUnsigned(codec.getDictionaryID());
+        }
+        if (dataConfig.isEncrypted())
+        {
+          try (OutputStream os = dataConfig.getCryptoSuite().getCipherOutputStream(encodedBuffer.asOutputStream()))
+          {
+            data.copyTo(os);
+          }
+        }
+        else
+        {
+          encodedBuffer.appendBytes(data);
+        }
       }
       catch(CryptoManagerException | IOException e)
       {
         logger.traceException(e);
         throw new DirectoryException(UNWILLING_TO_PERFORM, ERR_CANNOT_ENCODE_ENTRY.get(e.getLocalizedMessage()));
       }
-      finally
+    }
+
+    private CompressionCodec getCompressionCodec(DataConfig dataConfig, TreeName treeName)
+    {
+      switch (dataConfig.getCompressionCodec())
       {
-        try
-        {
-          os.close();
-        }
-        catch (IOException ioe)
-        {
-          throw new DirectoryException(UNWILLING_TO_PERFORM, ERR_CANNOT_ENCODE_ENTRY.get(ioe.getLocalizedMessage()));
-        }
+      case LZ4:
+        return LZ4CompressionCodec.WITHOUT_DICTIONARY;
+      case LZ4_DICTIONARY:
+        final PersistentCompressionDictionaries dictionaries = dataConfig.getCompressionDictionaries();
+        final CompressionCodec codec = dictionaries != null ? dictionaries.getCodec(treeName, entryBuffer) : null;
+        return codec != null ? codec : LZ4CompressionCodec.WITHOUT_DICTIONARY;
+      default:
+        return DeflateCompressionCodec.INSTANCE;
       }
     }
   }
@@ -388,7 +436,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.decode(bytes, compressedSchema);
+      return codec.decode(bytes, compressedSchema, dataConfig.getCompressionDictionaries());
     }
     finally
     {
@@ -411,7 +459,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.encode(entry, dataConfig);
+      return codec.encode(entry, dataConfig, getName());
     }
     finally
     {
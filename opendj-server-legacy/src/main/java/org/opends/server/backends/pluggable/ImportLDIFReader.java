@@ -40,6 +40,7 @@ import org.opends.server.core.DirectoryServer;
 import org.opends.server.types.AttributeBuilder;
 import org.opends.server.types.Entry;
 import org.opends.server.types.LDIFImportConfig;
+import org.opends.server.types.LDIFImportConfig.EntrySource;
 import org.opends.server.util.LDIFException;
 import org.opends.server.util.LDIFReader;
 
@@ -117,41 +118,57 @@ final class ImportLDIFReader extends LDIFReader
   public final EntryInformation readEntry(Map<DN, EntryContainer> suffixesMap) throws IOException, LDIFException
   {
     final boolean checkSchema = importConfig.validateSchema();
+    final EntrySource entrySource = importConfig.getEntrySource();
     while (true)
     {
       LinkedList<StringBuilder> lines;
+      Entry decodedEntry = null;
       DN entryDN;
       EntryID entryID;
       final EntryContainer entryContainer;
       synchronized (this)
       {
-        // Read the set of lines that make up the next entry.
-        lines = readEntryLines();
-        if (lines == null)
+        if (entrySource != null)
         {
-          return null;
+          // Read the next entry, already decoded.
+          decodedEntry = entrySource.readEntry();
+          if (decodedEntry == null)
+          {
+            return null;
+          }
+          lines = null;
+          entryDN = decodedEntry.getName();
         }
-        lastEntryBodyLines = lines;
-        lastEntryHeaderLines = new LinkedList<>();
-
-        // Read the DN of the entry and see if it is one that should be included
-        // in the import.
-        try
-        {
-          entryDN = readDN(lines);
-        }
-        catch (LDIFException e)
+        else
         {
-          logger.traceException(e);
-          continue;
-        }
+          // Read the set of lines that make up the next entry.
+          lines = readEntryLines();
+          if (lines == null)
+          {
+            return null;
+          }
+          lastEntryBodyLines = lines;
+          lastEntryHeaderLines = new LinkedList<>();
 
-        if (entryDN == null)
-        {
-          // This should only happen if the LDIF starts with the "version:" line
-          // and has a blank line immediately after that. In that case, simply
-          // read and return the next entry.
-          continue;
+          // Read the DN of the entry and see if it is one that should be included
+          // in the import.
+          try
+          {
+            entryDN = readDN(lines);
+          }
+          catch (LDIFException e)
+          {
+            logger.traceException(e);
+            continue;
+          }
+
+          if (entryDN == null)
+          {
+            // This should only happen if the LDIF starts with the "version:" line
+            // and has a blank line immediately after that. In that case, simply
+            // read and return the next entry.
+            continue;
+          }
         }
 
         entriesRead.incrementAndGet();
@@ -159,7 +176,7 @@ final class ImportLDIFReader extends LDIFReader
         final Pair<Boolean, LocalizableMessage> includeResult = importConfig.includeEntry(entryDN);
         if (!includeResult.getFirst())
         {
-          logToSkipWriter(lines, includeResult.getSecond());
+          logToSkipWriter(linesOf(decodedEntry, lines), includeResult.getSecond());
           continue;
         }
         entryContainer = getEntryContainer(entryDN, suffixesMap);
@@ -167,7 +184,7 @@ final class ImportLDIFReader extends LDIFReader
         {
           logger.trace("Skipping entry %s because the DN is not one that "
               + "should be included based on a suffix match check.", entryDN);
-          logToSkipWriter(lines, ERR_LDIF_SKIP.get(entryDN));
+          logToSkipWriter(linesOf(decodedEntry, lines), ERR_LDIF_SKIP.get(entryDN));
           continue;
         }
         entryID = rootContainer.getNextEntryID();
@@ -175,13 +192,13 @@ final class ImportLDIFReader extends LDIFReader
         if (!addPending(entryDN))
         {
           logger.trace("Skipping entry %s because the DN already exists.", entryDN);
-          logToSkipWriter(lines, ERR_IMPORT_DUPLICATE_ENTRY.get(entryDN));
+          logToSkipWriter(linesOf(decodedEntry, lines), ERR_IMPORT_DUPLICATE_ENTRY.get(entryDN));
           continue;
         }
       }
 
       // Create the entry and see if it is one that should be included in the import
-      final Entry entry = createEntry(lines, entryDN, checkSchema);
+      final Entry entry = decodedEntry != null ? decodedEntry : createEntry(lines, entryDN, checkSchema);
       if (entry == null
           || !isIncludedInImport(entry, lines)
           || !invokeImportPlugins(entry, lines)
@@ -231,14 +248,14 @@ final class ImportLDIFReader extends LDIFReader
       final Pair<Boolean, LocalizableMessage> includeResult = importConfig.includeEntry(entry);
       if (!includeResult.getFirst())
       {
-        logToSkipWriter(entryLines, includeResult.getSecond());
+        logToSkipWriter(linesOf(entry, entryLines), includeResult.getSecond());
         return false;
       }
       return true;
     }
     catch (Exception e)
     {
-      logToSkipWriter(entryLines,
+      logToSkipWriter(linesOf(entry, entryLines),
           ERR_LDIF_COULD_NOT_EVALUATE_FILTERS_FOR_IMPORT.get(entryDN, lastEntryLineNumber, e));
       return false;
     }
@@ -263,7 +280,7 @@ final class ImportLDIFReader extends LDIFReader
           m = ERR_LDIF_REJECTED_BY_PLUGIN_NOMESSAGE.get(entryDN);
         }
 
-        logToRejectWriter(lines, m);
+        logToRejectWriter(linesOf(entry, lines), m);
         return false;
       }
     }
@@ -281,7 +298,7 @@ final class ImportLDIFReader extends LDIFReader
     if (!entry.conformsToSchema(null, false, true, false, invalidReason))
     {
       LocalizableMessage message = ERR_LDIF_SCHEMA_VIOLATION.get(entryDN, lastEntryLineNumber, invalidReason);
-      logToRejectWriter(lines, message);
+      logToRejectWriter(linesOf(entry, lines), message);
       return false;
     }
     return true;
@@ -31,6 +31,8 @@ interface Index extends Tree
 {
   EntryIDSet get(ReadableTransaction txn, ByteSequence key);
 
+  EncodedEntryIDSet getEncoded(ReadableTransaction txn, ByteSequence key);
+
   int getIndexEntryLimit();
 
   boolean isTrusted();
@@ -20,9 +20,13 @@ import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.EntryIDSet.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.DecodeException;
 import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.core.SearchOperation;
@@ -36,6 +40,8 @@ import org.opends.server.types.SearchFilter;
  */
 class IndexFilter
 {
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
   /**
    * Stop processing the filter against the indexes when the
    * number of candidates is smaller than this value.
@@ -207,7 +213,7 @@ class IndexFilter
 
     EntryIDSet results = newUndefinedSet();
     // First, process the fast components.
-    results = applyFiltersUntilThreshold(results, fastComps);
+    results = applyFastFiltersUntilThreshold(results, fastComps);
     // Next, process the other (non-range) components.
     results = applyFiltersUntilThreshold(results, otherComps);
 
@@ -270,6 +276,70 @@ class IndexFilter
     return results;
   }
 
+  /**
+   * Applies the equality, presence and approximate components of an AND filter, cheapest first. Each index record is
+   * only read to estimate its cost, then decoded only for the IDs which are still candidates once the cheaper
+   * components have been applied.
+   * <p>
+   * When diagnostics are requested, the components are evaluated fully and in filter order so that the reported
+   * results and statistics remain accurate.
+   */
+  private EntryIDSet applyFastFiltersUntilThreshold(EntryIDSet results, ArrayList<SearchFilter> filters)
+  {
+    if (buffer != null || monitor.isFilterUseEnabled())
+    {
+      return applyFiltersUntilThreshold(results, filters);
+    }
+
+    final List<IndexQuery> queries = new ArrayList<>(filters.size());
+    for (SearchFilter filter : filters)
+    {
+      final AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
+      if (attributeIndex == null)
+      {
+        // Unindexed component: its undefined result would not restrict the candidates.
+        continue;
+      }
+      try
+      {
+        final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
+        queries.add(AttributeIndex.getIndexQuery(indexQueryFactory, toIndexFilterType(filter), filter));
+      }
+      catch (DecodeException e)
+      {
+        // See OPENDJ-3034 for further information on why an empty set is returned here
+        logger.traceException(e);
+        return newDefinedSet();
+      }
+    }
+
+    Collections.sort(queries, IndexQueryFactoryImpl.BY_COST);
+    for (IndexQuery query : queries)
+    {
+      if (isBelowFilterThreshold(results))
+      {
+        return results;
+      }
+      results.retainAll(query.evaluate(null, null, results));
+    }
+    return results;
+  }
+
+  private static IndexFilterType toIndexFilterType(SearchFilter filter)
+  {
+    switch (filter.getFilterType())
+    {
+    case EQUALITY:
+      return IndexFilterType.EQUALITY;
+    case PRESENT:
+      return IndexFilterType.PRESENCE;
+    case APPROXIMATE_MATCH:
+      return IndexFilterType.APPROXIMATE;
+    default:
+      throw new IllegalArgumentException("Unexpected filter type " + filter.getFilterType());
+    }
+  }
+
   static boolean isBelowFilterThreshold(EntryIDSet set)
   {
     return set.isDefined() && set.size() <= FILTER_CANDIDATE_THRESHOLD;
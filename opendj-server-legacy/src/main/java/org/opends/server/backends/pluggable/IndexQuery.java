@@ -33,4 +33,27 @@ interface IndexQuery
    * @return The non null EntryIDSet as a result of evaluating this query
    */
   EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut);
+
+  /**
+   * Evaluates the index query knowing that its result will be intersected with the provided candidates. The query
+   * may take advantage of the candidates to avoid decoding the IDs which are not part of them, hence the returned
+   * EntryIDSet may only contain the IDs of the candidates.
+   *
+   * @param debugMessage If not null, diagnostic message will be written
+   *                      which will help to determine why the returned
+   *                      EntryIDSet is not defined.
+   * @param indexNameOut If not null, output parameter for the name of the index type actually used to return
+   *                      index results.
+   * @param candidates The IDs the result will be intersected with, or an undefined set if there are no candidates yet.
+   * @return The non null EntryIDSet as a result of evaluating this query
+   */
+  EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut, EntryIDSet candidates);
+
+  /**
+   * Returns an estimate of the cost of evaluating this query, used for evaluating the cheapest queries first.
+   * Queries backed by index records report the size of the encoded records, which is known without decoding them.
+   *
+   * @return an estimate of the cost of evaluating this query, or {@link Long#MAX_VALUE} if it cannot be estimated
+   */
+  long getCost();
 }
@@ -22,6 +22,8 @@ import static org.opends.server.backends.pluggable.IndexFilter.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.forgerock.i18n.LocalizableMessage;
@@ -45,13 +47,43 @@ import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
  */
 final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
 {
+  /** Orders index queries by ascending estimated cost. */
+  static final Comparator<IndexQuery> BY_COST = new Comparator<IndexQuery>()
+  {
+    @Override
+    public int compare(IndexQuery q1, IndexQuery q2)
+    {
+      return Long.compare(q1.getCost(), q2.getCost());
+    }
+  };
+
+  /**
+   * Base class for the IndexQuery objects which can neither estimate their cost nor take advantage of candidates to
+   * reduce the amount of decoded IDs.
+   */
+  private abstract static class AbstractIndexQuery implements IndexQuery
+  {
+    @Override
+    public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut,
+        EntryIDSet candidates)
+    {
+      return evaluate(debugMessage, indexNameOut);
+    }
+
+    @Override
+    public long getCost()
+    {
+      return Long.MAX_VALUE;
+    }
+  }
+
   /**
    * This class creates a Null IndexQuery. It is used when there is no
    * record in the index. It may also be used when the index contains
    * all the records but an empty EntryIDSet should be returned as part
    * of the optimization.
    */
-  private static final class NullIndexQuery implements IndexQuery
+  private static final class NullIndexQuery extends AbstractIndexQuery
   {
     @Override
     public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
@@ -86,10 +118,20 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
     @Override
     public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
     {
+      return evaluate(debugMessage, indexNameOut, newUndefinedSet());
+    }
+
+    @Override
+    public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut,
+        EntryIDSet candidates)
+    {
+      // Evaluate the cheapest queries first: the following ones only need to decode the IDs found so far.
+      final List<IndexQuery> orderedQueries = new ArrayList<>(subIndexQueries);
+      Collections.sort(orderedQueries, BY_COST);
       final EntryIDSet entryIDs = newUndefinedSet();
-      for (IndexQuery query : subIndexQueries)
+      for (IndexQuery query : orderedQueries)
       {
-        entryIDs.retainAll(query.evaluate(debugMessage, indexNameOut));
+        entryIDs.retainAll(query.evaluate(debugMessage, indexNameOut, entryIDs.isDefined() ? entryIDs : candidates));
         if (isBelowFilterThreshold(entryIDs))
         {
           break;
@@ -98,6 +140,17 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
       return entryIDs;
     }
 
+    @Override
+    public long getCost()
+    {
+      long cost = Long.MAX_VALUE;
+      for (IndexQuery query : subIndexQueries)
+      {
+        cost = Math.min(cost, query.getCost());
+      }
+      return cost;
+    }
+
     @Override
     public String toString()
     {
@@ -124,11 +177,18 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
 
     @Override
     public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
+    {
+      return evaluate(debugMessage, indexNameOut, newUndefinedSet());
+    }
+
+    @Override
+    public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut,
+        EntryIDSet candidates)
     {
       final List<EntryIDSet> candidateSets = new ArrayList<>(subIndexQueries.size());
       for (final IndexQuery query : subIndexQueries)
       {
-        final EntryIDSet set = query.evaluate(debugMessage, indexNameOut);
+        final EntryIDSet set = query.evaluate(debugMessage, indexNameOut, candidates);
         if (!set.isDefined())
         {
           // There is no point continuing.
@@ -139,6 +199,22 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
       return newSetFromUnion(candidateSets);
     }
 
+    @Override
+    public long getCost()
+    {
+      long cost = 0;
+      for (IndexQuery query : subIndexQueries)
+      {
+        cost += query.getCost();
+        if (cost < 0)
+        {
+          // Overflow
+          return Long.MAX_VALUE;
+        }
+      }
+      return cost;
+    }
+
     @Override
     public String toString()
     {
@@ -172,53 +248,14 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
   @Override
   public IndexQuery createExactMatchQuery(final String indexID, final ByteSequence key)
   {
-    return new IndexQuery()
-      {
-
-        @Override
-        public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
-        {
-          // Read the tree and get Record for the key.
-          // Select the right index to be used.
-          Index index = attributeIndex.getNameToIndexes().get(indexID);
-          ByteSequence indexKey = key;
-          if (index == null)
-          {
-            index = attributeIndex.getNameToIndexes().get(indexID + AttributeIndex.PROTECTED_INDEX_ID);
-            if (index == null)
-            {
-              appendDisabledIndexType(debugMessage, indexID, attributeIndex.getAttributeType());
-              return createMatchAllQuery().evaluate(debugMessage, indexNameOut);
-            }
-            try
-            {
-              indexKey = attributeIndex.getCryptoSuite().hash48(key);
-            }
-            catch (DecodeException de)
-            {
-              appendExceptionError(debugMessage, de.getMessageObject());
-              return createMatchAllQuery().evaluate(debugMessage, indexNameOut);
-            }
-          }
-
-          final EntryIDSet entrySet = index.get(txn, indexKey);
-          updateStatsForUndefinedResults(debugMessage, entrySet, index);
-          return entrySet;
-        }
-
-        @Override
-        public String toString()
-        {
-          return "ExactMatch(" + indexID + "=" + key + ")";
-        }
-      };
+    return new ExactMatchIndexQuery(indexID, key);
   }
 
   @Override
   public IndexQuery createRangeMatchQuery(final String indexID, final ByteSequence lowerBound,
       final ByteSequence upperBound, final boolean includeLowerBound, final boolean includeUpperBound)
   {
-    return new IndexQuery()
+    return new AbstractIndexQuery()
     {
       @Override
       public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
@@ -349,34 +386,153 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
   @Override
   public IndexQuery createMatchAllQuery()
   {
-    return new IndexQuery()
+    return new MatchAllIndexQuery();
+  }
+
+  /**
+   * This class creates an IndexQuery reading the index record of a single key. The record is read once, when either
+   * the cost or the result of the query is first needed, and only decoded when the query is evaluated.
+   */
+  private final class ExactMatchIndexQuery implements IndexQuery
+  {
+    private final String indexID;
+    private final ByteSequence key;
+    private Index index;
+    private EncodedEntryIDSet encodedIDs;
+
+    private ExactMatchIndexQuery(String indexID, ByteSequence key)
+    {
+      this.indexID = indexID;
+      this.key = key;
+    }
+
+    @Override
+    public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
+    {
+      return evaluate(debugMessage, indexNameOut, newUndefinedSet());
+    }
+
+    @Override
+    public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut,
+        EntryIDSet candidates)
+    {
+      if (!readRecord(debugMessage))
       {
-        @Override
-        public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
-        {
-          final String indexID = PRESENCE_INDEX_KEY;
-          final Index index = attributeIndex.getNameToIndexes().get(indexID);
-          if (index == null)
-          {
-            appendDisabledIndexType(debugMessage, indexID, attributeIndex.getAttributeType());
-            return newUndefinedSet();
-          }
+        return createMatchAllQuery().evaluate(debugMessage, indexNameOut, candidates);
+      }
+      final EntryIDSet entrySet = encodedIDs.decode(candidates);
+      updateStatsForUndefinedResults(debugMessage, entrySet, index);
+      return entrySet;
+    }
 
-          final EntryIDSet entrySet = index.get(txn, AttributeIndex.PRESENCE_KEY);
-          updateStatsForUndefinedResults(debugMessage, entrySet, index);
-          if (indexNameOut != null)
-          {
-            indexNameOut.append(IndexFilterType.PRESENCE);
-          }
-          return entrySet;
-        }
+    @Override
+    public long getCost()
+    {
+      return readRecord(null) ? encodedIDs.getEncodedSize() : Long.MAX_VALUE;
+    }
 
-        @Override
-        public String toString()
+    private boolean readRecord(LocalizableMessageBuilder debugMessage)
+    {
+      if (encodedIDs != null)
+      {
+        return true;
+      }
+
+      // Read the tree and get Record for the key.
+      // Select the right index to be used.
+      index = attributeIndex.getNameToIndexes().get(indexID);
+      ByteSequence indexKey = key;
+      if (index == null)
+      {
+        index = attributeIndex.getNameToIndexes().get(indexID + AttributeIndex.PROTECTED_INDEX_ID);
+        if (index == null)
         {
-          return "MatchAll(" + PRESENCE_INDEX_KEY + ")";
+          appendDisabledIndexType(debugMessage, indexID, attributeIndex.getAttributeType());
+          return false;
         }
-      };
+        try
+        {
+          indexKey = attributeIndex.getCryptoSuite().hash48(key);
+        }
+        catch (DecodeException de)
+        {
+          appendExceptionError(debugMessage, de.getMessageObject());
+          return false;
+        }
+      }
+      encodedIDs = index.getEncoded(txn, indexKey);
+      return true;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "ExactMatch(" + indexID + "=" + key + ")";
+    }
+  }
+
+  /**
+   * This class creates an IndexQuery returning all the entries having a value for the attribute, read from the
+   * presence index.
+   */
+  private final class MatchAllIndexQuery implements IndexQuery
+  {
+    private Index index;
+    private EncodedEntryIDSet encodedIDs;
+
+    @Override
+    public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
+    {
+      return evaluate(debugMessage, indexNameOut, newUndefinedSet());
+    }
+
+    @Override
+    public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut,
+        EntryIDSet candidates)
+    {
+      if (!readRecord(debugMessage))
+      {
+        return newUndefinedSet();
+      }
+
+      final EntryIDSet entrySet = encodedIDs.decode(candidates);
+      updateStatsForUndefinedResults(debugMessage, entrySet, index);
+      if (indexNameOut != null)
+      {
+        indexNameOut.append(IndexFilterType.PRESENCE);
+      }
+      return entrySet;
+    }
+
+    @Override
+    public long getCost()
+    {
+      return readRecord(null) ? encodedIDs.getEncodedSize() : Long.MAX_VALUE;
+    }
+
+    private boolean readRecord(LocalizableMessageBuilder debugMessage)
+    {
+      if (encodedIDs != null)
+      {
+        return true;
+      }
+
+      final String indexID = PRESENCE_INDEX_KEY;
+      index = attributeIndex.getNameToIndexes().get(indexID);
+      if (index == null)
+      {
+        appendDisabledIndexType(debugMessage, indexID, attributeIndex.getAttributeType());
+        return false;
+      }
+      encodedIDs = index.getEncoded(txn, AttributeIndex.PRESENCE_KEY);
+      return true;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "MatchAll(" + PRESENCE_INDEX_KEY + ")";
+    }
   }
 
   private static void appendExceptionError(LocalizableMessageBuilder debugMessage, LocalizableMessage msg)
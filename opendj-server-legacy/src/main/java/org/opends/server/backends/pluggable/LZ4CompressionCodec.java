@@ -0,0 +1,319 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.util.Arrays;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.util.Reject;
+
+/**
+ * Compresses the entries with the LZ4 block format, optionally using a shared dictionary.
+ * <p>
+ * LZ4 only replaces repeated sequences of bytes with back references, trading compression ratio for much faster
+ * compression and decompression than Deflate. With a shared dictionary, back references can also point to the
+ * dictionary, which is conceptually placed before the compressed bytes: the byte sequences common to all the entries
+ * (attribute names, object classes, DN components...) are then compressed even in the first occurrence within an
+ * entry.
+ */
+final class LZ4CompressionCodec implements CompressionCodec
+{
+  /** The format version of the entries compressed without dictionary. */
+  static final byte FORMAT_VERSION = 0x03;
+  /** The format version of the entries compressed with a dictionary. */
+  static final byte FORMAT_VERSION_DICTIONARY = 0x04;
+
+  /** The maximum size of a dictionary, as back references are limited to the previous 64KB. */
+  static final int MAX_DICTIONARY_SIZE = 0xFFFF;
+
+  static final LZ4CompressionCodec WITHOUT_DICTIONARY = new LZ4CompressionCodec(0, new byte[0]);
+
+  private static final int MIN_MATCH = 4;
+  /** The last bytes are always literals. */
+  private static final int LAST_LITERALS = 5;
+  /** A match cannot start within the last bytes. */
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_OFFSET = 0xFFFF;
+  private static final int RUN_MASK = 0x0F;
+  private static final int ML_MASK = 0x0F;
+  private static final int HASH_LOG = 12;
+  /** Incompressible data is skipped faster and faster. */
+  private static final int SKIP_STRENGTH = 6;
+
+  /** Per thread buffers holding the dictionary followed by the bytes to compress, and the hash table. */
+  private final class Compressor
+  {
+    private byte[] buffer = Arrays.copyOf(dictionary, dictionary.length + 1024);
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    private byte[] getBuffer(int length)
+    {
+      if (buffer.length < length)
+      {
+        buffer = Arrays.copyOf(buffer, Math.max(length, buffer.length * 2));
+      }
+      return buffer;
+    }
+  }
+
+  private final int dictionaryID;
+  private final byte[] dictionary;
+  /** The positions of the 4 bytes sequences in the dictionary, used to initialize the hash table. */
+  private final int[] dictionaryHashTable = new int[1 << HASH_LOG];
+  private final ThreadLocal<Compressor> compressors = new ThreadLocal<Compressor>()
+  {
+    @Override
+    protected Compressor initialValue()
+    {
+      return new Compressor();
+    }
+  };
+
+  /**
+   * Creates a new LZ4 codec using a dictionary.
+   *
+   * @param dictionaryID
+   *          the strictly positive ID of the dictionary, stored in the compressed entries
+   * @param dictionary
+   *          the dictionary
+   */
+  LZ4CompressionCodec(int dictionaryID, byte[] dictionary)
+  {
+    Reject.ifTrue(dictionary.length > MAX_DICTIONARY_SIZE, "dictionary is too big");
+    this.dictionaryID = dictionaryID;
+    this.dictionary = dictionary;
+    Arrays.fill(dictionaryHashTable, -1);
+    for (int i = 0; i + MIN_MATCH <= dictionary.length; i++)
+    {
+      dictionaryHashTable[hash(readInt(dictionary, i))] = i;
+    }
+  }
+
+  @Override
+  public byte getFormatVersion()
+  {
+    return dictionaryID != 0 ? FORMAT_VERSION_DICTIONARY : FORMAT_VERSION;
+  }
+
+  @Override
+  public int getDictionaryID()
+  {
+    return dictionaryID;
+  }
+
+  byte[] getDictionary()
+  {
+    return dictionary;
+  }
+
+  @Override
+  public void compress(ByteSequence input, ByteStringBuilder output)
+  {
+    final Compressor compressor = compressors.get();
+    final int start = dictionary.length;
+    final int end = start + input.length();
+    final byte[] buffer = compressor.getBuffer(end);
+    input.copyTo(buffer, start);
+    final int[] hashTable = compressor.hashTable;
+    System.arraycopy(dictionaryHashTable, 0, hashTable, 0, hashTable.length);
+
+    int anchor = start;
+    int ip = start;
+    final int mfLimit = end - MF_LIMIT;
+    final int matchLimit = end - LAST_LITERALS;
+    while (ip < mfLimit)
+    {
+      final int sequence = readInt(buffer, ip);
+      final int h = hash(sequence);
+      final int ref = hashTable[h];
+      hashTable[h] = ip;
+      if (ref < 0 || ip - ref > MAX_OFFSET || readInt(buffer, ref) != sequence)
+      {
+        ip += 1 + ((ip - anchor) >>> SKIP_STRENGTH);
+        continue;
+      }
+
+      int matchStart = ip;
+      int refStart = ref;
+      while (matchStart > anchor && refStart > 0 && buffer[matchStart - 1] == buffer[refStart - 1])
+      {
+        matchStart--;
+        refStart--;
+      }
+      int matchEnd = ip + MIN_MATCH;
+      for (int r = ref + MIN_MATCH; matchEnd < matchLimit && buffer[matchEnd] == buffer[r]; r++)
+      {
+        matchEnd++;
+      }
+      writeSequence(output, buffer, anchor, matchStart - anchor, matchStart - refStart, matchEnd - matchStart);
+
+      hashTable[hash(readInt(buffer, matchEnd - 2))] = matchEnd - 2;
+      ip = matchEnd;
+      anchor = ip;
+    }
+
+    final int literalsLength = end - anchor;
+    output.appendByte(Math.min(literalsLength, RUN_MASK) << 4);
+    if (literalsLength >= RUN_MASK)
+    {
+      writeLength(output, literalsLength - RUN_MASK);
+    }
+    output.appendBytes(buffer, anchor, literalsLength);
+  }
+
+  private static void writeSequence(ByteStringBuilder output, byte[] buffer, int literalsStart, int literalsLength,
+      int offset, int matchLength)
+  {
+    final int extraMatchLength = matchLength - MIN_MATCH;
+    output.appendByte((Math.min(literalsLength, RUN_MASK) << 4) | Math.min(extraMatchLength, ML_MASK));
+    if (literalsLength >= RUN_MASK)
+    {
+      writeLength(output, literalsLength - RUN_MASK);
+    }
+    output.appendBytes(buffer, literalsStart, literalsLength);
+    output.appendByte(offset);
+    output.appendByte(offset >>> 8);
+    if (extraMatchLength >= ML_MASK)
+    {
+      writeLength(output, extraMatchLength - ML_MASK);
+    }
+  }
+
+  private static void writeLength(ByteStringBuilder output, int length)
+  {
+    for (; length >= 0xFF; length -= 0xFF)
+    {
+      output.appendByte(0xFF);
+    }
+    output.appendByte(length);
+  }
+
+  @Override
+  public void decompress(ByteSequenceReader input, byte[] output) throws DecodeException
+  {
+    int op = 0;
+    while (true)
+    {
+      if (input.remaining() == 0)
+      {
+        throw corrupted();
+      }
+      final int token = input.readByte() & 0xFF;
+
+      int literalsLength = token >>> 4;
+      if (literalsLength == RUN_MASK)
+      {
+        literalsLength += readLength(input, output.length);
+      }
+      if (literalsLength > output.length - op || literalsLength > input.remaining())
+      {
+        throw corrupted();
+      }
+      input.readBytes(output, op, literalsLength);
+      op += literalsLength;
+      if (input.remaining() == 0)
+      {
+        // The last sequence only has literals.
+        break;
+      }
+
+      if (input.remaining() < 2)
+      {
+        throw corrupted();
+      }
+      final int offset = (input.readByte() & 0xFF) | ((input.readByte() & 0xFF) << 8);
+      int matchLength = token & ML_MASK;
+      if (matchLength == ML_MASK)
+      {
+        matchLength += readLength(input, output.length);
+      }
+      matchLength += MIN_MATCH;
+      if (offset == 0 || offset > op + dictionary.length || matchLength > output.length - op)
+      {
+        throw corrupted();
+      }
+
+      int ref = op - offset;
+      if (ref < 0)
+      {
+        // The match starts in the dictionary.
+        final int length = Math.min(-ref, matchLength);
+        System.arraycopy(dictionary, dictionary.length + ref, output, op, length);
+        op += length;
+        matchLength -= length;
+        ref = 0;
+      }
+      if (op - ref >= matchLength)
+      {
+        System.arraycopy(output, ref, output, op, matchLength);
+        op += matchLength;
+      }
+      else
+      {
+        // Overlapping match, repeating the last bytes.
+        for (int i = 0; i < matchLength; i++)
+        {
+          output[op++] = output[ref++];
+        }
+      }
+    }
+
+    if (op != output.length)
+    {
+      throw corrupted();
+    }
+  }
+
+  private static int readLength(ByteSequenceReader input, int maxLength) throws DecodeException
+  {
+    int length = 0;
+    int b;
+    do
+    {
+      if (input.remaining() == 0 || length > maxLength)
+      {
+        throw corrupted();
+      }
+      b = input.readByte() & 0xFF;
+      length += b;
+    }
+    while (b == 0xFF);
+    return length;
+  }
+
+  private static DecodeException corrupted()
+  {
+    return DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+  }
+
+  private static int readInt(byte[] buffer, int position)
+  {
+    return (buffer[position] & 0xFF) << 24
+        | (buffer[position + 1] & 0xFF) << 16
+        | (buffer[position + 2] & 0xFF) << 8
+        | (buffer[position + 3] & 0xFF);
+  }
+
+  private static int hash(int sequence)
+  {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+}
@@ -0,0 +1,400 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.io.ASN1;
+import org.forgerock.opendj.io.ASN1Reader;
+import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class provides the dictionaries used to compress entries, persisted in a tree like the compressed schema.
+ * <p>
+ * A dictionary is trained from the first entries written in an entry tree, which are compressed without dictionary.
+ * The training runs in the background, so that it never delays the write operations, and the dictionary is stored in
+ * its own transaction. All the entries written in this entry tree once the dictionary is stored are compressed with
+ * it. The dictionaries are never removed, as entries compressed with them may still exist.
+ */
+final class PersistentCompressionDictionaries
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The tree used to store the dictionaries, keyed by dictionary ID. */
+  private static final TreeName DICTIONARIES_TREE_NAME = new TreeName("compressed_schema", "compression_dictionaries");
+
+  /** The size of the sample entries used to train a dictionary. */
+  private static final int SAMPLES_SIZE = 256 * 1024;
+  /** The size of the trained dictionaries. */
+  private static final int DICTIONARY_SIZE = 16 * 1024;
+
+  /** The length of the byte sequences whose frequency is evaluated. */
+  private static final int KMER_LENGTH = 8;
+  /** The length of the segments of sample entries selected in the dictionary. */
+  private static final int SEGMENT_LENGTH = 64;
+
+  /** The storage in which the tree is held. */
+  private final Storage storage;
+  private final boolean isWriteable;
+
+  private final Map<Integer, LZ4CompressionCodec> codecsByID = new ConcurrentHashMap<>();
+  /** The latest dictionary trained for each entry tree. */
+  private final Map<String, LZ4CompressionCodec> codecsByTreeName = new ConcurrentHashMap<>();
+  /** The sample entries of the entry trees whose dictionary is not trained yet. */
+  private final Map<String, List<ByteString>> samplesByTreeName = new HashMap<>();
+  private final Map<String, Integer> samplesSizeByTreeName = new HashMap<>();
+  /** The entry trees whose dictionary is being trained. */
+  private final Set<String> treeNamesInTraining = new HashSet<>();
+  /** Trains the dictionaries in the background, null if the storage is read only. */
+  private final ExecutorService trainingExecutor;
+  private int lastDictionaryID;
+
+  /**
+   * Creates a new instance of this dictionaries manager.
+   *
+   * @param storage
+   *          A reference to the storage in which the tree will be held.
+   * @param txn
+   *          a non null transaction
+   * @param accessMode
+   *          specifies how the storage has been opened (read only or read/write)
+   * @throws StorageRuntimeException
+   *           If a problem occurs while loading the dictionaries from the tree.
+   * @throws InitializationException
+   *           If an error occurs while decoding the dictionaries.
+   */
+  PersistentCompressionDictionaries(Storage storage, WriteableTransaction txn, AccessMode accessMode)
+      throws StorageRuntimeException, InitializationException
+  {
+    this.storage = storage;
+    this.isWriteable = accessMode.isWriteable();
+    load(txn);
+    this.trainingExecutor = isWriteable
+        ? Executors.newSingleThreadExecutor(newThreadFactory(null, "Compression dictionary trainer", true))
+        : null;
+  }
+
+  /** Stops training dictionaries, this must be called before closing the storage. */
+  void close()
+  {
+    if (trainingExecutor != null)
+    {
+      trainingExecutor.shutdownNow();
+      try
+      {
+        trainingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void load(WriteableTransaction txn) throws StorageRuntimeException, InitializationException
+  {
+    txn.openTree(DICTIONARIES_TREE_NAME, isWriteable);
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(DICTIONARIES_TREE_NAME))
+    {
+      while (cursor.next())
+      {
+        final int dictionaryID = cursor.getKey().toInt();
+        try
+        {
+          final ASN1Reader reader = ASN1.getReader(cursor.getValue());
+          reader.readStartSequence();
+          final String treeName = reader.readOctetStringAsString();
+          final byte[] dictionary = reader.readOctetString().toByteArray();
+          reader.readEndSequence();
+
+          final LZ4CompressionCodec codec = new LZ4CompressionCodec(dictionaryID, dictionary);
+          codecsByID.put(dictionaryID, codec);
+          codecsByTreeName.put(treeName, codec);
+          lastDictionaryID = Math.max(lastDictionaryID, dictionaryID);
+        }
+        catch (IOException | RuntimeException e)
+        {
+          logger.traceException(e);
+          throw new InitializationException(
+              ERR_COMPRESSION_DICTIONARY_CANNOT_DECODE.get(dictionaryID, getExceptionMessage(e)), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the codec using the provided dictionary, for decompressing entries.
+   *
+   * @param dictionaryID
+   *          the ID of the dictionary
+   * @return the codec using the provided dictionary, or null if there is no such dictionary
+   */
+  LZ4CompressionCodec getCodec(int dictionaryID)
+  {
+    return codecsByID.get(dictionaryID);
+  }
+
+  /**
+   * Returns the codec to use for compressing an entry of the provided entry tree. If the dictionary of this entry tree
+   * is not trained yet, the entry is kept as a sample for training it, and the dictionary is trained in the background
+   * once enough samples have been collected.
+   *
+   * @param treeName
+   *          the name of the entry tree
+   * @param encodedEntry
+   *          the uncompressed encoded entry
+   * @return the codec to use for compressing the entry, or null if the entry must be compressed without dictionary
+   */
+  LZ4CompressionCodec getCodec(TreeName treeName, ByteSequence encodedEntry)
+  {
+    final String name = treeName.toString();
+    final LZ4CompressionCodec codec = codecsByTreeName.get(name);
+    if (codec != null || !isWriteable)
+    {
+      return codec;
+    }
+
+    final List<ByteString> samples;
+    synchronized (samplesByTreeName)
+    {
+      if (treeNamesInTraining.contains(name))
+      {
+        return null;
+      }
+      List<ByteString> treeSamples = samplesByTreeName.get(name);
+      if (treeSamples == null)
+      {
+        treeSamples = new ArrayList<>();
+        samplesByTreeName.put(name, treeSamples);
+        samplesSizeByTreeName.put(name, 0);
+      }
+      treeSamples.add(encodedEntry.toByteString());
+      final int samplesSize = samplesSizeByTreeName.get(name) + encodedEntry.length();
+      samplesSizeByTreeName.put(name, samplesSize);
+      if (samplesSize < SAMPLES_SIZE)
+      {
+        return null;
+      }
+      samples = samplesByTreeName.remove(name);
+      samplesSizeByTreeName.remove(name);
+      treeNamesInTraining.add(name);
+    }
+    try
+    {
+      trainingExecutor.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          trainAndStore(name, samples);
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The storage is being closed
+      logger.traceException(e);
+    }
+    return null;
+  }
+
+  /** Trains a dictionary, stores it, then makes it available for compressing the entries once it is stored. */
+  private void trainAndStore(String treeName, List<ByteString> samples)
+  {
+    try
+    {
+      final int dictionaryID = lastDictionaryID + 1;
+      final byte[] dictionary = trainDictionary(samples, DICTIONARY_SIZE);
+      final ByteStringBuilder value = new ByteStringBuilder();
+      final ASN1Writer writer = ASN1.getWriter(value);
+      writer.writeStartSequence();
+      writer.writeOctetString(treeName);
+      writer.writeOctetString(dictionary);
+      writer.writeEndSequence();
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.put(DICTIONARIES_TREE_NAME, ByteString.valueOfInt(dictionaryID), value);
+        }
+      });
+
+      lastDictionaryID = dictionaryID;
+      final LZ4CompressionCodec codec = new LZ4CompressionCodec(dictionaryID, dictionary);
+      codecsByID.put(dictionaryID, codec);
+      codecsByTreeName.put(treeName, codec);
+    }
+    catch (Exception e)
+    {
+      // Samples are collected again to train another dictionary later
+      logger.traceException(e);
+      logger.error(ERR_COMPRESSION_DICTIONARY_CANNOT_STORE, treeName, getExceptionMessage(e));
+    }
+    finally
+    {
+      synchronized (samplesByTreeName)
+      {
+        treeNamesInTraining.remove(treeName);
+      }
+    }
+  }
+
+  /**
+   * Trains a dictionary from sample entries.
+   * <p>
+   * The dictionary is made of the segments of the samples containing the most byte sequences shared by many samples.
+   * Once a segment is selected, the byte sequences it contains do not count anymore for selecting the next segments.
+   * The best segments are placed at the end of the dictionary, where back references are the cheapest.
+   *
+   * @param samples
+   *          the sample entries
+   * @param dictionarySize
+   *          the maximum size of the dictionary
+   * @return the trained dictionary
+   */
+  static byte[] trainDictionary(List<ByteString> samples, int dictionarySize)
+  {
+    // Identify each byte sequence of the samples, and count in how many samples it appears
+    final Map<Long, Integer> kmerIndexes = new HashMap<>();
+    final byte[][] sampleBytes = new byte[samples.size()][];
+    final int[][] sampleKmers = new int[samples.size()][];
+    int[] kmerCounts = new int[1024];
+    int[] kmerLastSamples = new int[1024];
+    for (int s = 0; s < samples.size(); s++)
+    {
+      final byte[] bytes = samples.get(s).toByteArray();
+      sampleBytes[s] = bytes;
+      final int[] kmers = new int[Math.max(bytes.length - KMER_LENGTH + 1, 0)];
+      sampleKmers[s] = kmers;
+      long kmer = 0;
+      for (int i = 0; i < bytes.length; i++)
+      {
+        kmer = (kmer << 8) | (bytes[i] & 0xFF);
+        if (i + 1 < KMER_LENGTH)
+        {
+          continue;
+        }
+        Integer index = kmerIndexes.get(kmer);
+        if (index == null)
+        {
+          index = kmerIndexes.size();
+          kmerIndexes.put(kmer, index);
+          if (index == kmerCounts.length)
+          {
+            kmerCounts = Arrays.copyOf(kmerCounts, index * 2);
+            kmerLastSamples = Arrays.copyOf(kmerLastSamples, index * 2);
+          }
+          kmerLastSamples[index] = -1;
+        }
+        if (kmerLastSamples[index] != s)
+        {
+          kmerLastSamples[index] = s;
+          kmerCounts[index]++;
+        }
+        kmers[i + 1 - KMER_LENGTH] = index;
+      }
+    }
+    // Byte sequences appearing in a single sample are not worth it
+    for (int i = 0; i < kmerIndexes.size(); i++)
+    {
+      if (kmerCounts[i] < 2)
+      {
+        kmerCounts[i] = 0;
+      }
+    }
+
+    final List<byte[]> segments = new ArrayList<>();
+    int size = 0;
+    final int kmersPerSegment = SEGMENT_LENGTH - KMER_LENGTH + 1;
+    while (size < dictionarySize)
+    {
+      long bestScore = 0;
+      int bestSample = -1;
+      int bestStart = 0;
+      for (int s = 0; s < sampleKmers.length; s++)
+      {
+        final int[] kmers = sampleKmers[s];
+        long score = 0;
+        for (int i = 0; i < kmers.length; i++)
+        {
+          score += kmerCounts[kmers[i]];
+          if (i >= kmersPerSegment)
+          {
+            score -= kmerCounts[kmers[i - kmersPerSegment]];
+          }
+          if (score > bestScore)
+          {
+            bestScore = score;
+            bestSample = s;
+            bestStart = Math.max(i + 1 - kmersPerSegment, 0);
+          }
+        }
+      }
+      if (bestSample == -1)
+      {
+        break;
+      }
+
+      final int[] kmers = sampleKmers[bestSample];
+      final int kmersEnd = Math.min(bestStart + kmersPerSegment, kmers.length);
+      for (int i = bestStart; i < kmersEnd; i++)
+      {
+        kmerCounts[kmers[i]] = 0;
+      }
+      final int length = Math.min(kmersEnd - bestStart + KMER_LENGTH - 1, dictionarySize - size);
+      segments.add(Arrays.copyOfRange(sampleBytes[bestSample], bestStart, bestStart + length));
+      size += length;
+    }
+
+    final byte[] dictionary = new byte[size];
+    int position = size;
+    for (byte[] segment : segments)
+    {
+      position -= segment.length;
+      System.arraycopy(segment, 0, dictionary, position, segment.length);
+    }
+    return dictionary;
+  }
+}
@@ -79,6 +79,10 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 
   /** The compressed schema manager for this backend. */
   private PersistentCompressedSchema compressedSchema;
+  /** The compression dictionaries manager for this backend. */
+  private PersistentCompressionDictionaries compressionDictionaries;
+  /** The candidate entry IDs of the paged results and VLV searches of all the base DNs. */
+  private final SearchResultSnapshotCache searchResultSnapshots;
 
   private final ServerContext serverContext;
 
@@ -99,6 +103,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     this.serverContext = serverContext;
     this.storage = storage;
     this.config = config;
+    this.searchResultSnapshots = new SearchResultSnapshotCache(config);
 
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
@@ -137,6 +142,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
         public void run(WriteableTransaction txn) throws Exception
         {
           compressedSchema = new PersistentCompressedSchema(serverContext, storage, txn, accessMode);
+          compressionDictionaries = new PersistentCompressionDictionaries(storage, txn, accessMode);
           openAndRegisterEntryContainers(txn, config.getBaseDN(), accessMode);
         }
       });
@@ -255,6 +261,26 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     return compressedSchema;
   }
 
+  /**
+   * Retrieves the compression dictionaries manager for this backend.
+   *
+   * @return The compression dictionaries manager for this backend.
+   */
+  PersistentCompressionDictionaries getCompressionDictionaries()
+  {
+    return compressionDictionaries;
+  }
+
+  /**
+   * Returns the cache of the candidate entry IDs of the paged results and VLV searches, shared by all the base DNs.
+   *
+   * @return the cache of the candidate entry IDs of the paged results and VLV searches
+   */
+  SearchResultSnapshotCache getSearchResultSnapshots()
+  {
+    return searchResultSnapshots;
+  }
+
   /**
    * Get the BackendMonitor object used by this root container.
    *
@@ -333,6 +359,10 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
       }
     }
     config.removePluggableChangeListener(this);
+    if (compressionDictionaries != null)
+    {
+      compressionDictionaries.close();
+    }
     if (storage != null)
     {
       storage.close();
@@ -452,6 +482,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     config = configuration;
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    searchResultSnapshots.setLimits(config);
 
     return new ConfigChangeResult();
   }
@@ -0,0 +1,486 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Reject.*;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
+import org.opends.server.controls.ServerSideSortRequestControl;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.Control;
+
+/**
+ * Bounded and expiring cache of the evaluated candidate entry IDs of indexed searches, so that the following pages
+ * of a paged results or VLV search do not need to evaluate the indexes, filter the scope and sort the candidates
+ * again.
+ * <p>
+ * Snapshots are identified by an opaque ID, returned to the client in the paged results cookie or the VLV context
+ * ID. They are only returned to searches having the same base DN, scope, filter, sort order and authorization DN as
+ * the search which created them. Entry IDs are stored off-heap, and the least recently used snapshots are discarded
+ * when either the maximum number of snapshots or the maximum number of stored entry IDs is reached.
+ * <p>
+ * A single cache is shared by all the base DNs of a backend, so that its limits, set by the backend configuration,
+ * bound the direct memory used by the backend whatever its number of base DNs.
+ */
+final class SearchResultSnapshotCache
+{
+  /** Size in bytes of an entry ID stored in a snapshot. */
+  private static final int ENTRY_ID_SIZE = 8;
+
+  /**
+   * Length of the paged results cookies referencing a snapshot: the ID of the next entry to return, the ID of the
+   * snapshot and the position of the next entry in the snapshot.
+   */
+  private static final int COOKIE_LENGTH = 8 + 8 + 4;
+
+  /** The evaluated candidate entry IDs of a search. */
+  static final class Snapshot
+  {
+    private final long id;
+    private final DN searchBaseDN;
+    private final String searchKey;
+    private final LongBuffer entryIDs;
+    private final boolean candidatesAreInScope;
+    private final List<Control> responseControls;
+    private volatile long lastAccessTime;
+
+    private Snapshot(long id, DN searchBaseDN, String searchKey, LongBuffer entryIDs, boolean candidatesAreInScope,
+        List<Control> responseControls, long now)
+    {
+      this.id = id;
+      this.searchBaseDN = searchBaseDN;
+      this.searchKey = searchKey;
+      this.entryIDs = ByteBuffer.allocateDirect(entryIDs.remaining() * ENTRY_ID_SIZE).asLongBuffer()
+          .put(entryIDs.duplicate());
+      this.candidatesAreInScope = candidatesAreInScope;
+      this.responseControls = responseControls;
+      this.lastAccessTime = now;
+    }
+
+    /**
+     * Returns the ID of this snapshot.
+     *
+     * @return the ID of this snapshot
+     */
+    long getID()
+    {
+      return id;
+    }
+
+    /**
+     * Returns a new read-only view of the candidate entry IDs, ordered as they must be returned to the client.
+     *
+     * @return a new read-only view of the candidate entry IDs
+     */
+    LongBuffer getEntryIDs()
+    {
+      final LongBuffer view = entryIDs.asReadOnlyBuffer();
+      view.clear();
+      return view;
+    }
+
+    /**
+     * Returns whether the candidate entries are known to be in the scope of the search.
+     *
+     * @return true if the candidate entries are known to be in the scope of the search
+     */
+    boolean areCandidatesInScope()
+    {
+      return candidatesAreInScope;
+    }
+
+    /**
+     * Returns the response controls added to the search when the candidates were evaluated, which must be added
+     * again to every search using this snapshot.
+     *
+     * @return the response controls added to the search when the candidates were evaluated
+     */
+    List<Control> getResponseControls()
+    {
+      return responseControls;
+    }
+
+    private int size()
+    {
+      return entryIDs.capacity();
+    }
+  }
+
+  private long expirationTimeMs;
+  private int maxSnapshots;
+  private long maxEntryIDs;
+  /** Snapshots by ID, in access order. */
+  private final Map<Long, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+  /** Generates snapshot IDs which cannot be easily guessed. */
+  private final AtomicLong nextID = new AtomicLong(new SecureRandom().nextLong());
+  private long nbEntryIDs;
+  /** Number of snapshots discarded to honor the limits of the cache, expired snapshots excluded. */
+  private long nbEvictions;
+
+  /**
+   * Creates a cache with the limits of the provided backend configuration.
+   *
+   * @param config
+   *          the backend configuration
+   */
+  SearchResultSnapshotCache(PluggableBackendCfg config)
+  {
+    this(config.getSearchSnapshotExpirationTime(), config.getSearchSnapshotMaxCount(),
+        config.getSearchSnapshotCacheSize() / ENTRY_ID_SIZE);
+  }
+
+  /**
+   * Creates a cache with the provided limits.
+   *
+   * @param expirationTimeMs
+   *          the duration in milliseconds after which unused snapshots are discarded
+   * @param maxSnapshots
+   *          the maximum number of snapshots
+   * @param maxEntryIDs
+   *          the maximum number of entry IDs stored by all the snapshots
+   */
+  SearchResultSnapshotCache(long expirationTimeMs, int maxSnapshots, long maxEntryIDs)
+  {
+    setLimits(expirationTimeMs, maxSnapshots, maxEntryIDs);
+  }
+
+  /**
+   * Applies the limits of the provided backend configuration, discarding the snapshots exceeding them.
+   *
+   * @param config
+   *          the new backend configuration
+   */
+  void setLimits(PluggableBackendCfg config)
+  {
+    setLimits(config.getSearchSnapshotExpirationTime(), config.getSearchSnapshotMaxCount(),
+        config.getSearchSnapshotCacheSize() / ENTRY_ID_SIZE);
+  }
+
+  private void setLimits(long expirationTimeMs, int maxSnapshots, long maxEntryIDs)
+  {
+    synchronized (snapshots)
+    {
+      this.expirationTimeMs = expirationTimeMs;
+      this.maxSnapshots = maxSnapshots;
+      this.maxEntryIDs = maxEntryIDs;
+      evictExpired(System.currentTimeMillis());
+      evictLeastRecentlyUsed(0, 0);
+    }
+  }
+
+  /**
+   * Stores the candidate entry IDs of a search.
+   *
+   * @param searchOperation
+   *          the search which evaluated the candidates
+   * @param entryIDs
+   *          the remaining candidate entry IDs of the buffer, ordered as they must be returned to the client
+   * @param candidatesAreInScope
+   *          true if the candidate entries are known to be in the scope of the search
+   * @param responseControls
+   *          the response controls to add to every search using the snapshot
+   * @return the new snapshot, or null if the candidates are too big to be stored
+   */
+  Snapshot put(SearchOperation searchOperation, LongBuffer entryIDs, boolean candidatesAreInScope,
+      List<Control> responseControls)
+  {
+    final int nbNewEntryIDs = entryIDs.remaining();
+    synchronized (snapshots)
+    {
+      if (nbNewEntryIDs > maxEntryIDs || maxSnapshots <= 0)
+      {
+        return null;
+      }
+    }
+
+    final long now = System.currentTimeMillis();
+    final Snapshot snapshot = new Snapshot(nextID.getAndIncrement(), searchOperation.getBaseDN(),
+        getSearchKey(searchOperation), entryIDs, candidatesAreInScope, Collections.unmodifiableList(responseControls),
+        now);
+    synchronized (snapshots)
+    {
+      if (nbNewEntryIDs > maxEntryIDs || maxSnapshots <= 0)
+      {
+        // The limits were lowered meanwhile
+        return null;
+      }
+      evictExpired(now);
+      evictLeastRecentlyUsed(1, nbNewEntryIDs);
+      snapshots.put(snapshot.getID(), snapshot);
+      nbEntryIDs += snapshot.size();
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the snapshot having the provided ID, if it was created by an equivalent search.
+   *
+   * @param snapshotID
+   *          the ID of the snapshot
+   * @param searchOperation
+   *          the search requesting the snapshot
+   * @return the snapshot, or null if it does not exist, has expired or was created by a different search
+   */
+  Snapshot get(long snapshotID, SearchOperation searchOperation)
+  {
+    final long now = System.currentTimeMillis();
+    final Snapshot snapshot;
+    synchronized (snapshots)
+    {
+      evictExpired(now);
+      snapshot = snapshots.get(snapshotID);
+    }
+    if (snapshot == null || !snapshot.searchKey.equals(getSearchKey(searchOperation)))
+    {
+      return null;
+    }
+    snapshot.lastAccessTime = now;
+    return snapshot;
+  }
+
+  /**
+   * Discards the snapshot having the provided ID, if it was created by an equivalent search.
+   *
+   * @param snapshotID
+   *          the ID of the snapshot
+   * @param searchOperation
+   *          the search abandoning the snapshot
+   */
+  void remove(long snapshotID, SearchOperation searchOperation)
+  {
+    final String searchKey = getSearchKey(searchOperation);
+    synchronized (snapshots)
+    {
+      final Snapshot snapshot = snapshots.get(snapshotID);
+      if (snapshot != null && snapshot.searchKey.equals(searchKey))
+      {
+        nbEntryIDs -= snapshot.size();
+        snapshots.remove(snapshotID);
+      }
+    }
+  }
+
+  /**
+   * Discards all the snapshots of the searches below the provided base DN, e.g. when its entry container is closed.
+   *
+   * @param baseDN
+   *          the base DN of the entry container
+   */
+  void clear(DN baseDN)
+  {
+    synchronized (snapshots)
+    {
+      final Iterator<Snapshot> it = snapshots.values().iterator();
+      while (it.hasNext())
+      {
+        final Snapshot snapshot = it.next();
+        if (snapshot.searchBaseDN.isSubordinateOrEqualTo(baseDN))
+        {
+          nbEntryIDs -= snapshot.size();
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of snapshots currently stored.
+   *
+   * @return the number of snapshots currently stored
+   */
+  int size()
+  {
+    synchronized (snapshots)
+    {
+      return snapshots.size();
+    }
+  }
+
+  /**
+   * Returns the amount of direct memory in bytes used by the snapshots currently stored.
+   *
+   * @return the amount of direct memory in bytes used by the snapshots currently stored
+   */
+  long getMemorySize()
+  {
+    synchronized (snapshots)
+    {
+      return nbEntryIDs * ENTRY_ID_SIZE;
+    }
+  }
+
+  /**
+   * Returns the number of snapshots discarded to honor the limits of this cache, expired snapshots excluded.
+   *
+   * @return the number of snapshots discarded to honor the limits of this cache
+   */
+  long getNbEvictions()
+  {
+    synchronized (snapshots)
+    {
+      return nbEvictions;
+    }
+  }
+
+  /** Discards the least recently used snapshots until the provided snapshots and entry IDs can be added. */
+  private void evictLeastRecentlyUsed(int nbNewSnapshots, long nbNewEntryIDs)
+  {
+    final Iterator<Snapshot> lruSnapshots = snapshots.values().iterator();
+    while (lruSnapshots.hasNext()
+        && (snapshots.size() + nbNewSnapshots > maxSnapshots || nbEntryIDs + nbNewEntryIDs > maxEntryIDs))
+    {
+      nbEntryIDs -= lruSnapshots.next().size();
+      lruSnapshots.remove();
+      nbEvictions++;
+    }
+  }
+
+  private void evictExpired(long now)
+  {
+    // Snapshots are in access order: stop at the first one which is not expired.
+    final Iterator<Snapshot> lruSnapshots = snapshots.values().iterator();
+    while (lruSnapshots.hasNext())
+    {
+      final Snapshot snapshot = lruSnapshots.next();
+      if (now - snapshot.lastAccessTime <= expirationTimeMs)
+      {
+        return;
+      }
+      nbEntryIDs -= snapshot.size();
+      lruSnapshots.remove();
+    }
+  }
+
+  private static String getSearchKey(SearchOperation searchOperation)
+  {
+    final StringBuilder key = new StringBuilder();
+    key.append(searchOperation.getBaseDN()).append('\u0000');
+    key.append(searchOperation.getScope()).append('\u0000');
+    key.append(searchOperation.getFilter()).append('\u0000');
+    key.append(searchOperation.getAuthorizationDN()).append('\u0000');
+    final ServerSideSortRequestControl sortRequest = getSortRequest(searchOperation);
+    if (sortRequest != null)
+    {
+      sortRequest.toString(key);
+    }
+    return key.toString();
+  }
+
+  private static ServerSideSortRequestControl getSortRequest(SearchOperation searchOperation)
+  {
+    try
+    {
+      return searchOperation.getRequestControl(ServerSideSortRequestControl.DECODER);
+    }
+    catch (Exception e)
+    {
+      // Already decoded successfully by the search.
+      return null;
+    }
+  }
+
+  /**
+   * Encodes a paged results cookie referencing the next entry to return from a snapshot.
+   *
+   * @param snapshot
+   *          the snapshot
+   * @param position
+   *          the position of the next entry to return in the snapshot
+   * @return the paged results cookie
+   */
+  static ByteString encodeCookie(Snapshot snapshot, int position)
+  {
+    return new ByteStringBuilder(COOKIE_LENGTH)
+        .appendLong(snapshot.getEntryIDs().get(position))
+        .appendLong(snapshot.getID())
+        .appendInt(position)
+        .toByteString();
+  }
+
+  /**
+   * Returns whether the provided paged results cookie references a snapshot.
+   *
+   * @param cookie
+   *          the paged results cookie
+   * @return true if the cookie references a snapshot, false if it only contains the ID of the next entry to return
+   */
+  static boolean isSnapshotCookie(ByteString cookie)
+  {
+    return cookie.length() == COOKIE_LENGTH;
+  }
+
+  /**
+   * Returns the ID of the snapshot referenced by a paged results cookie.
+   *
+   * @param cookie
+   *          a paged results cookie referencing a snapshot
+   * @return the ID of the snapshot
+   */
+  static long getSnapshotID(ByteString cookie)
+  {
+    checkNotNull(cookie, "cookie must not be null");
+    return cookie.subSequence(8, 16).toLong();
+  }
+
+  /**
+   * Returns the position in its snapshot of the next entry to return, as referenced by a paged results cookie.
+   *
+   * @param cookie
+   *          a paged results cookie referencing a snapshot
+   * @return the position of the next entry to return in the snapshot
+   */
+  static int getPosition(ByteString cookie)
+  {
+    return cookie.subSequence(16, COOKIE_LENGTH).toInt();
+  }
+
+  /**
+   * Encodes the VLV context ID referencing a snapshot.
+   *
+   * @param snapshot
+   *          the snapshot, may be null
+   * @return the VLV context ID, or null if the snapshot is null
+   */
+  static ByteString encodeContextID(Snapshot snapshot)
+  {
+    return snapshot != null ? ByteString.valueOfLong(snapshot.getID()) : null;
+  }
+
+  /**
+   * Returns the ID of the snapshot referenced by a VLV context ID.
+   *
+   * @param contextID
+   *          the VLV context ID, may be null
+   * @return the ID of the snapshot, or null if the context ID does not reference a snapshot
+   */
+  static Long getSnapshotIDFromContextID(ByteString contextID)
+  {
+    return contextID != null && contextID.length() == 8 ? contextID.toLong() : null;
+  }
+}
@@ -537,6 +537,14 @@ final class TracedStorage implements Storage
     storage.write(op);
   }
 
+  @Override
+  public void sync() throws Exception
+  {
+    traceEnter("sync");
+    storage.sync();
+    traceLeave("sync");
+  }
+
   @Override
   public void createBackup(BackupConfig backupConfig) throws DirectoryException
   {
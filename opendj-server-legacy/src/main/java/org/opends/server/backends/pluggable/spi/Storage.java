@@ -80,6 +80,15 @@ public interface Storage extends Closeable
    */
   void write(WriteOperation writeOperation) throws Exception;
 
+  /**
+   * Forces to disk the write operations which have been committed without waiting for them to be
+   * durable, because they were executed as part of a {@link WriteBatch}.
+   *
+   * @throws Exception
+   *           if a problem occurs with the underlying storage engine
+   */
+  void sync() throws Exception;
+
   /**
    * Remove all files for a backend of this storage.
    *
@@ -0,0 +1,123 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable.spi;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Groups the durability of the write operations executed by the current thread.
+ * <p>
+ * While a write batch is active, each write operation still runs in its own transaction, which is
+ * committed and becomes visible as usual, but storages do not wait for the commit to be written to
+ * disk. Instead, they register with the batch, and the committed transactions are forced to disk
+ * all at once by {@link #commit()}. This trades the durability of individual write operations for
+ * throughput when the caller can replay them after a crash, e.g. replicated updates.
+ */
+public final class WriteBatch
+{
+  private static final ThreadLocal<WriteBatch> CURRENT = new ThreadLocal<>();
+
+  /** The storages which committed write operations without forcing them to disk. */
+  private final Set<Storage> storagesToSync = Collections.newSetFromMap(new IdentityHashMap<Storage, Boolean>());
+
+  private WriteBatch()
+  {
+    // Use begin()
+  }
+
+  /**
+   * Starts a new write batch for the current thread.
+   *
+   * @return the new write batch
+   * @throws IllegalStateException
+   *           if a write batch is already active for the current thread
+   */
+  public static WriteBatch begin()
+  {
+    if (CURRENT.get() != null)
+    {
+      throw new IllegalStateException("A write batch is already active for the current thread");
+    }
+    final WriteBatch batch = new WriteBatch();
+    CURRENT.set(batch);
+    return batch;
+  }
+
+  /**
+   * Returns the write batch active for the current thread.
+   *
+   * @return the write batch active for the current thread, or {@code null} if there is none
+   */
+  public static WriteBatch current()
+  {
+    return CURRENT.get();
+  }
+
+  /**
+   * Registers a storage which committed a write operation without forcing it to disk.
+   *
+   * @param storage
+   *          the storage to sync when this batch is committed
+   */
+  public void addStorageToSync(Storage storage)
+  {
+    storagesToSync.add(storage);
+  }
+
+  /**
+   * Ends this write batch and forces to disk the write operations committed while it was active.
+   * <p>
+   * The storages which could not be synced remain registered with this batch, so that this method
+   * can be called again to retry forcing their write operations to disk.
+   *
+   * @throws Exception
+   *           if a problem occurs with the underlying storage engines
+   */
+  public void commit() throws Exception
+  {
+    if (CURRENT.get() == this)
+    {
+      CURRENT.remove();
+    }
+    Exception error = null;
+    for (Iterator<Storage> it = storagesToSync.iterator(); it.hasNext();)
+    {
+      try
+      {
+        it.next().sync();
+        it.remove();
+      }
+      catch (Exception e)
+      {
+        if (error == null)
+        {
+          error = e;
+        }
+        else
+        {
+          error.addSuppressed(e);
+        }
+      }
+    }
+    if (error != null)
+    {
+      throw error;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package org.opends.server.backends.task;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
@@ -572,6 +573,29 @@ public abstract class Task implements Comparable<Task>
    */
   protected void replaceAttributeValue(String name, String value)
   throws DirectoryException
+  {
+    replaceAttribute(Attributes.create(name, value));
+  }
+
+  /**
+   * Replaces all the values of an attribute of the task entry.
+   *
+   * @param  name   The name of the attribute that must be replaced.
+   *
+   * @param  values The values that must replace the previous values of the
+   *                attribute.
+   *
+   * @throws DirectoryException When an error occurs.
+   */
+  protected void replaceAttributeValues(String name, Collection<?> values)
+  throws DirectoryException
+  {
+    AttributeBuilder builder = new AttributeBuilder(name);
+    builder.addAllStrings(values);
+    replaceAttribute(builder.toAttribute());
+  }
+
+  private void replaceAttribute(Attribute attribute) throws DirectoryException
   {
     // We only need to grab the entry-level lock if we don't already hold the
     // broader scheduler lock.
@@ -585,7 +609,7 @@ public abstract class Task implements Comparable<Task>
       Entry taskEntry = getTaskEntry();
 
       List<Modification> modifications = newArrayList(
-          new Modification(ModificationType.REPLACE, Attributes.create(name, value)));
+          new Modification(ModificationType.REPLACE, attribute));
 
       taskEntry.applyModifications(modifications);
     }
@@ -293,6 +293,19 @@ public final class AdministrationConnector implements
       return ADMIN_WRITE_BUFFER_SIZE;
     }
 
+    @Override
+    public int getMaxConcurrentOpsPerConnection()
+    {
+      // Administration tools must not be throttled
+      return 0;
+    }
+
+    @Override
+    public long getMaxPendingResponseSize()
+    {
+      return 0;
+    }
+
     @Override
     public Integer getNumRequestHandlers()
     {
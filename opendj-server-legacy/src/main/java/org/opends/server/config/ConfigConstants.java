@@ -4421,5 +4421,23 @@ public final class ConfigConstants
 
   /** The name of the attribute in a reset change number task that specifies the basedn where the csn applies. */
   public static final String ATTR_TASK_RESET_CHANGE_NUMBER_BASE_DN = NAME_PREFIX_TASK + "reset-change-number-base-dn";
-}
 
+  /** The name of the objectclass that will be used for a Directory Server compare replicas task definition. */
+  public static final String OC_COMPARE_REPLICAS_TASK = NAME_PREFIX_TASK + "compare-replicas";
+
+  /** The name of the attribute in a compare replicas task that specifies the base dn of the replication domain. */
+  public static final String ATTR_TASK_COMPARE_REPLICAS_DOMAIN_DN = OC_COMPARE_REPLICAS_TASK + "-domain-dn";
+
+  /** The name of the attribute in a compare replicas task that provides the entry hash tree of the remote replica. */
+  public static final String ATTR_TASK_COMPARE_REPLICAS_REMOTE_TREE = OC_COMPARE_REPLICAS_TASK + "-remote-tree";
+
+  /** The name of the attribute in a compare replicas task that reports the entry hash tree of the local replica. */
+  public static final String ATTR_TASK_COMPARE_REPLICAS_LOCAL_TREE = OC_COMPARE_REPLICAS_TASK + "-local-tree";
+
+  /** The name of the attribute in a compare replicas task that reports the ranges of divergent buckets. */
+  public static final String ATTR_TASK_COMPARE_REPLICAS_DIVERGENT_BUCKET =
+       OC_COMPARE_REPLICAS_TASK + "-divergent-bucket";
+
+  /** The name of the attribute in a compare replicas task that reports the local entries of the divergent buckets. */
+  public static final String ATTR_TASK_COMPARE_REPLICAS_DIVERGENT_ENTRY = OC_COMPARE_REPLICAS_TASK + "-divergent-entry";
+}
@@ -219,6 +219,7 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
     core.maxAllowedConnections = (maxAllowedConnections > 0) ? maxAllowedConnections : -1;
     core.maxPSearches = globalConfig.getMaxPsearches();
     core.maxInternalBufferSize = (int) globalConfig.getMaxInternalBufferSize();
+    DN.setSharedCacheSize(globalConfig.getDNCacheSize());
 
     // For tools, common audit may not be available
     CommonAudit commonAudit = serverContext.getCommonAudit();
@@ -232,6 +233,7 @@ public class CoreConfigManager implements ConfigurationChangeListener<GlobalCfg>
     {
       final boolean allowMalformedNames = globalConfig.isAllowAttributeNameExceptions();
       serverContext.getSchemaHandler().updateSchemaOption(ALLOW_MALFORMED_NAMES_AND_OPTIONS, allowMalformedNames);
+      serverContext.getSchemaHandler().updateSchemaOption(ASSERTION_CACHE_SIZE, globalConfig.getAssertionCacheSize());
     }
     catch (DirectoryException e)
     {
@@ -130,6 +130,8 @@ import org.opends.server.loggers.RotationPolicy;
 import org.opends.server.loggers.TextErrorLogPublisher;
 import org.opends.server.loggers.TextWriter;
 import org.opends.server.monitors.ConnectionHandlerMonitor;
+import org.opends.server.monitors.DNCacheMonitor;
+import org.opends.server.monitors.LockManagerMonitor;
 import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalConnectionHandler;
 import org.opends.server.schema.SchemaHandler;
@@ -1485,6 +1487,8 @@ public final class DirectoryServer
 
       monitorConfigManager = new MonitorConfigManager(serverContext);
       monitorConfigManager.initializeMonitorProviders();
+      registerMonitorProvider(new LockManagerMonitor(lockManager));
+      registerMonitorProvider(new DNCacheMonitor());
 
       pluginConfigManager.initializeUserPlugins(null);
 
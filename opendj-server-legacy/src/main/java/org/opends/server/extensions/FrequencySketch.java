@@ -0,0 +1,164 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.extensions;
+
+import java.util.Arrays;
+
+/**
+ * A probabilistic estimate of the access frequency of cached items, used by the TinyLFU admission
+ * policy.
+ * <p>
+ * This is a count-min sketch made of 4-bit counters: each item is mapped to four counters packed
+ * in 64-bit words and its frequency is the minimum of these counters, saturating at 15. Once the
+ * number of recorded accesses reaches ten times the sketch width, all counters are halved so that
+ * the sketch follows changes of the access pattern over time.
+ * <p>
+ * This class is not thread safe: callers must provide their own synchronization.
+ */
+final class FrequencySketch
+{
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAX_TABLE_SIZE = 1 << 24;
+
+  private long[] table = new long[0];
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  /**
+   * Grows the sketch, if needed, so that it can accurately track the frequencies of the provided
+   * number of items. Growing the sketch discards the frequencies recorded so far.
+   *
+   * @param maximumSize
+   *          the expected maximum number of items to track
+   */
+  void ensureCapacity(long maximumSize)
+  {
+    final int tableSize = (int) Math.min(ceilingPowerOfTwo(Math.max(maximumSize, 16)), MAX_TABLE_SIZE);
+    if (table.length >= tableSize)
+    {
+      return;
+    }
+    table = new long[tableSize];
+    tableMask = tableSize - 1;
+    sampleSize = 10 * tableSize;
+    size = 0;
+  }
+
+  /**
+   * Returns the estimated number of accesses to the provided item, up to 15.
+   *
+   * @param hashCode
+   *          the hash code of the item
+   * @return the estimated access frequency of the item
+   */
+  int frequency(int hashCode)
+  {
+    if (table.length == 0)
+    {
+      return 0;
+    }
+    final int hash = spread(hashCode);
+    final int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++)
+    {
+      final int offset = (start + i) << 2;
+      final int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an access to the provided item.
+   *
+   * @param hashCode
+   *          the hash code of the item
+   */
+  void increment(int hashCode)
+  {
+    if (table.length == 0)
+    {
+      return;
+    }
+    final int hash = spread(hashCode);
+    final int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++)
+    {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size == sampleSize)
+    {
+      reset();
+    }
+  }
+
+  /** Discards all the recorded frequencies. */
+  void clear()
+  {
+    Arrays.fill(table, 0L);
+    size = 0;
+  }
+
+  private boolean incrementAt(int index, int counter)
+  {
+    final int offset = counter << 2;
+    final long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask)
+    {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves all the counters, taking into account the truncation of odd counters. */
+  private void reset()
+  {
+    int oddCounters = 0;
+    for (int i = 0; i < table.length; i++)
+    {
+      oddCounters += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size - (oddCounters >>> 2)) >>> 1;
+  }
+
+  private int indexOf(int hash, int i)
+  {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & tableMask;
+  }
+
+  /** Protects against poor quality hash codes by applying a supplemental hash function. */
+  private static int spread(int hashCode)
+  {
+    int h = hashCode * 0x31848bab;
+    h ^= h >>> 14;
+    return h;
+  }
+
+  private static long ceilingPowerOfTwo(long value)
+  {
+    return 1L << (64 - Long.numberOfLeadingZeros(value - 1));
+  }
+}
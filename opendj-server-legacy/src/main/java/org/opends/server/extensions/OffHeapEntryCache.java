@@ -0,0 +1,1074 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.OffHeapEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache storing serialized entries outside of the JVM
+ * heap, so that its size is not constrained by the heap size or the garbage collector.
+ * <BR><BR>
+ * Entries are encoded with the compact entry encoding used by the backends, then appended to
+ * fixed size memory slabs. The slabs are either allocated in the JVM direct memory or
+ * memory-mapped from files created in the configured cache directory. Each record holds the
+ * backend and entry ID of the entry, a hash and the normalized value of its DN, then the encoded
+ * entry. Two open addressing tables map the entry IDs and the DN hashes to the record locations:
+ * besides the slabs, the cache only uses a few dozen bytes of heap per cached entry and no object
+ * graph at all.
+ * <BR><BR>
+ * Slabs are filled in a circular order. When all the slabs are full, the oldest slab is recycled
+ * and the entries it still holds are evicted. To approximate an LRU policy, an entry read from
+ * the older half of the slabs is moved to the newest slab.
+ * <BR><BR>
+ * Changing the maximum memory size or the filters does not discard the cached entries, unless
+ * the cache shrinks.
+ */
+public class OffHeapEntryCache
+       extends EntryCache<OffHeapEntryCacheCfg>
+       implements ConfigurationChangeListener<OffHeapEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum size of a memory slab, which also bounds the size of a cached entry. */
+  private static final int MAX_SLAB_SIZE = 64 * 1024 * 1024;
+  /** The number of slabs the maximum memory size is split into, unless slabs would be too large. */
+  private static final int MIN_SLABS = 8;
+
+  /** Record header: record length, ID key, DN key and normalized DN length. */
+  private static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+  private static final int ID_KEY_OFFSET = 4;
+  private static final int DN_KEY_OFFSET = 12;
+  private static final int DN_LENGTH_OFFSET = 20;
+
+  /** The number of low order bits of the ID keys holding the entry ID, the others hold the backend index. */
+  private static final int ENTRY_ID_BITS = 48;
+  private static final long ENTRY_ID_MASK = (1L << ENTRY_ID_BITS) - 1;
+  private static final int MAX_BACKENDS = 1 << (63 - ENTRY_ID_BITS);
+
+  /** The lock guarding the slabs and the location tables. */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  /** The record locations by backend index and entry ID. */
+  private final LocationTable idTable = new LocationTable();
+  /** The record locations by hash of the normalized entry DN. */
+  private final LocationTable dnTable = new LocationTable();
+
+  /** The backends which have cached entries, by their index in the ID keys. */
+  private final List<String> backendIDs = new CopyOnWriteArrayList<>();
+  private final ConcurrentMap<String, Integer> backendIndexes = new ConcurrentHashMap<>();
+
+  private ByteBuffer[] slabs = new ByteBuffer[0];
+  /** The number of bytes written in each slab. */
+  private int[] slabUsedBytes = new int[0];
+  private int slabSize;
+  private int writeSlab = -1;
+  private int writeOffset;
+  /** The number of bytes used by the live records. */
+  private long usedBytes;
+
+  /** The number of entries evicted when recycling slabs. */
+  private final AtomicLong evictions = new AtomicLong();
+  /** The number of entries moved to the newest slab after being accessed. */
+  private final AtomicLong promotions = new AtomicLong();
+
+  /** The maximum amount of memory in bytes used by the slabs. */
+  private volatile long maxMemorySize;
+
+  /** The directory holding the memory-mapped slab files, or null if slabs use direct memory. */
+  private File cacheDirectory;
+
+  /** The encoding used for the cached entries. */
+  private EntryEncodeConfig encodeConfig;
+
+  /** Currently registered configuration object. */
+  private OffHeapEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this off-heap entry cache. */
+  public OffHeapEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, OffHeapEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addOffHeapChangeListener(this);
+    encodeConfig = new EntryEncodeConfig(false, true, true);
+
+    if (configuration.getCacheDirectory() != null)
+    {
+      cacheDirectory = getFileForPath(configuration.getCacheDirectory());
+      if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs())
+      {
+        throw new ConfigException(ERR_OFFHEAPCACHE_CANNOT_CREATE_DIRECTORY.get(cacheDirectory));
+      }
+    }
+    // The slab size is fixed for the lifetime of the cache so that resizing does not discard entries.
+    slabSize = (int) Math.min(configuration.getMaxMemorySize() / MIN_SLABS, MAX_SLAB_SIZE);
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages);
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler))
+    {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_OFFHEAPCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    lock.writeLock().lock();
+    try
+    {
+      registeredConfiguration.removeOffHeapChangeListener(this);
+
+      // Release all memory currently in use by this cache.
+      clear();
+      slabs = new ByteBuffer[0];
+      slabUsedBytes = new int[0];
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    if (entryDN == null)
+    {
+      return false;
+    }
+    final ByteString ndn = entryDN.toNormalizedByteString();
+    lock.readLock().lock();
+    try
+    {
+      return findByDN(ndn, dnKey(ndn)) != 0;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    final ByteString ndn = entryDN.toNormalizedByteString();
+    final long location;
+    final byte[] record;
+    final boolean promote;
+    lock.readLock().lock();
+    try
+    {
+      location = findByDN(ndn, dnKey(ndn));
+      if (location == 0)
+      {
+        // Indicate cache miss.
+        cacheMisses.getAndIncrement();
+        return null;
+      }
+      record = readRecord(location);
+      promote = isOld(location);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+    return decodeCachedEntry(location, record, promote);
+  }
+
+  @Override
+  public Entry getEntry(String backendID, long entryID)
+  {
+    final Integer backendIndex = backendIndexes.get(backendID);
+    final long location;
+    final byte[] record;
+    final boolean promote;
+    lock.readLock().lock();
+    try
+    {
+      location = backendIndex != null ? idTable.get(idKey(backendIndex, entryID)) : 0;
+      if (location == 0)
+      {
+        // Indicate cache miss.
+        cacheMisses.getAndIncrement();
+        return null;
+      }
+      record = readRecord(location);
+      promote = isOld(location);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+    return decodeCachedEntry(location, record, promote);
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    final ByteString ndn = entryDN.toNormalizedByteString();
+    lock.readLock().lock();
+    try
+    {
+      final long location = findByDN(ndn, dnKey(ndn));
+      return location != 0 ? slabOf(location).getLong(offsetOf(location) + ID_KEY_OFFSET) & ENTRY_ID_MASK : -1;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    final Integer backendIndex = backendIndexes.get(backendID);
+    if (backendIndex == null)
+    {
+      return null;
+    }
+    final byte[] record;
+    lock.readLock().lock();
+    try
+    {
+      final long location = idTable.get(idKey(backendIndex, entryID));
+      if (location == 0)
+      {
+        return null;
+      }
+      record = readRecord(location);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+    try
+    {
+      return decodeEntry(record).getName();
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+      return null;
+    }
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    put(entry, backendID, entryID, false);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    return put(entry, backendID, entryID, true);
+  }
+
+  private boolean put(Entry entry, String backendID, long entryID, boolean onlyIfAbsent)
+  {
+    final Integer backendIndex = getBackendIndex(backendID);
+    if (backendIndex == null || entryID < 0 || entryID > ENTRY_ID_MASK)
+    {
+      // This entry cannot be cached, but there is no conflict.
+      return true;
+    }
+    final long idKey = idKey(backendIndex, entryID);
+    final ByteString ndn = entry.getName().toNormalizedByteString();
+    final long dnKey = dnKey(ndn);
+    if (onlyIfAbsent && containsEntry(entry.getName()))
+    {
+      return false;
+    }
+
+    // Encode the entry before acquiring the lock.
+    final ByteStringBuilder record;
+    try
+    {
+      record = encodeRecord(entry, idKey, dnKey, ndn);
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+
+      // We can't be sure there wasn't a conflict, so return false.
+      return false;
+    }
+
+    lock.writeLock().lock();
+    try
+    {
+      final long existing = findByDN(ndn, dnKey);
+      if (existing != 0)
+      {
+        if (onlyIfAbsent)
+        {
+          return false;
+        }
+        removeRecord(existing);
+      }
+      // The entry may have been cached under another DN before being renamed.
+      final long renamed = idTable.get(idKey);
+      if (renamed != 0)
+      {
+        removeRecord(renamed);
+      }
+      if (record.length() <= slabSize)
+      {
+        appendRecord(record.getBackingArray(), record.length(), idKey, dnKey);
+      }
+      // We'll always return true in this case, even if we didn't actually add
+      // the entry due to memory constraints.
+      return true;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    final ByteString ndn = entryDN.toNormalizedByteString();
+    lock.writeLock().lock();
+    try
+    {
+      final long location = findByDN(ndn, dnKey(ndn));
+      if (location != 0)
+      {
+        removeRecord(location);
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    lock.writeLock().lock();
+    try
+    {
+      idTable.clear();
+      dnTable.clear();
+      Arrays.fill(slabUsedBytes, 0);
+      writeSlab = -1;
+      writeOffset = 0;
+      usedBytes = 0;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    final Integer backendIndex = backendIndexes.get(backendID);
+    if (backendIndex == null)
+    {
+      // No entries were ever cached for this backend.
+      return;
+    }
+    lock.writeLock().lock();
+    try
+    {
+      for (long location : idTable.getLocations(backendIndex, ENTRY_ID_BITS))
+      {
+        removeRecord(location);
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // The cached entries do not use the JVM heap: dropping them would not help.
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    OffHeapEntryCacheCfg config = (OffHeapEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(OffHeapEntryCacheCfg configuration,
+                                                 List<LocalizableMessage> unacceptableReasons)
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE, unacceptableReasons, null);
+    processEntryCacheConfig(configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(OffHeapEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages);
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled())
+    {
+      processEntryCacheConfig(configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      OffHeapEntryCacheCfg                configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler)
+  {
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    long newMaxMemorySize = configuration.getMaxMemorySize();
+
+    // Get include and exclude filters.
+    Set<SearchFilter> newIncludeFilters = EntryCacheCommon.getFilters(
+        configuration.getIncludeFilter(), ERR_CACHE_INVALID_INCLUDE_FILTER, errorHandler, newConfigEntryDN);
+    Set<SearchFilter> newExcludeFilters = EntryCacheCommon.getFilters(
+        configuration.getExcludeFilter(), ERR_CACHE_INVALID_EXCLUDE_FILTER, errorHandler, newConfigEntryDN);
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      maxMemorySize = newMaxMemorySize;
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+
+      lock.writeLock().lock();
+      try
+      {
+        resize((int) Math.min(Math.max(newMaxMemorySize / slabSize, 2), Integer.MAX_VALUE));
+      }
+      finally
+      {
+        lock.writeLock().unlock();
+      }
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try {
+      final long cacheSize;
+      final int nbSlabs;
+      lock.readLock().lock();
+      try
+      {
+        cacheSize = usedBytes;
+        int allocated = 0;
+        for (ByteBuffer slab : slabs)
+        {
+          if (slab != null)
+          {
+            allocated++;
+          }
+        }
+        nbSlabs = allocated;
+      }
+      finally
+      {
+        lock.readLock().unlock();
+      }
+      MonitorData attrs = EntryCacheCommon.getGenericMonitorData(
+        cacheHits.longValue(),
+        // If cache misses is maintained by default cache
+        // get it from there and if not point to itself.
+        DirectoryServer.getEntryCache().getCacheMisses(),
+        cacheSize,
+        maxMemorySize,
+        getCacheCount(),
+        null
+        );
+      attrs.add("entryCacheEvictions", evictions.get());
+      attrs.add("entryCachePromotions", promotions.get());
+      attrs.add("entryCacheAllocatedSlabs", nbSlabs);
+      return attrs;
+    } catch (Exception e) {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return Long.valueOf(idTable.size());
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+    lock.readLock().lock();
+    try
+    {
+      for (int i = 0; i < backendIDs.size(); i++)
+      {
+        for (long location : idTable.getLocations(i, ENTRY_ID_BITS))
+        {
+          final byte[] record = readRecord(location);
+          sb.append(decodeEntry(record).getName());
+          sb.append(":");
+          sb.append(slabOf(location).getLong(offsetOf(location) + ID_KEY_OFFSET) & ENTRY_ID_MASK);
+          sb.append(":");
+          sb.append(backendIDs.get(i));
+          sb.append(ServerConstants.EOL);
+        }
+      }
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+
+  private Integer getBackendIndex(String backendID)
+  {
+    Integer backendIndex = backendIndexes.get(backendID);
+    if (backendIndex == null)
+    {
+      synchronized (backendIDs)
+      {
+        backendIndex = backendIndexes.get(backendID);
+        if (backendIndex == null && backendIDs.size() < MAX_BACKENDS)
+        {
+          backendIndex = backendIDs.size();
+          backendIDs.add(backendID);
+          backendIndexes.put(backendID, backendIndex);
+        }
+      }
+    }
+    return backendIndex;
+  }
+
+  private ByteStringBuilder encodeRecord(Entry entry, long idKey, long dnKey, ByteString ndn)
+      throws DirectoryException
+  {
+    final ByteStringBuilder record = new ByteStringBuilder();
+    record.appendInt(0);
+    record.appendLong(idKey);
+    record.appendLong(dnKey);
+    record.appendInt(ndn.length());
+    record.appendBytes(ndn);
+    entry.encode(record, encodeConfig);
+
+    // Now that the length is known, write it at the start of the record.
+    final int length = record.length();
+    final byte[] bytes = record.getBackingArray();
+    bytes[0] = (byte) (length >>> 24);
+    bytes[1] = (byte) (length >>> 16);
+    bytes[2] = (byte) (length >>> 8);
+    bytes[3] = (byte) length;
+    return record;
+  }
+
+  private Entry decodeCachedEntry(long location, byte[] record, boolean promote)
+  {
+    final Entry entry;
+    try
+    {
+      entry = decodeEntry(record);
+    }
+    catch (DirectoryException e)
+    {
+      // The entry will be fetched from the backend.
+      logger.traceException(e);
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+    if (promote)
+    {
+      promote(location, record);
+    }
+    // Indicate cache hit.
+    cacheHits.getAndIncrement();
+    return entry;
+  }
+
+  private static Entry decodeEntry(byte[] record) throws DirectoryException
+  {
+    final ByteSequenceReader reader = ByteString.wrap(record).asReader();
+    reader.skip(DN_LENGTH_OFFSET);
+    reader.skip(reader.readInt());
+    return Entry.decode(reader);
+  }
+
+  /** Moves an entry read from one of the oldest slabs to the newest one, unless the lock is contended. */
+  private void promote(long location, byte[] record)
+  {
+    if (!lock.writeLock().tryLock())
+    {
+      return;
+    }
+    try
+    {
+      final ByteSequenceReader reader = ByteString.wrap(record).asReader();
+      reader.skip(ID_KEY_OFFSET);
+      final long idKey = reader.readLong();
+      final long dnKey = reader.readLong();
+      if (idTable.get(idKey) == location)
+      {
+        removeRecord(location);
+        appendRecord(record, record.length, idKey, dnKey);
+        promotions.getAndIncrement();
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns the location of the record for the provided normalized DN, or 0 if it is not cached. */
+  private long findByDN(ByteString ndn, long dnKey)
+  {
+    final long location = dnTable.get(dnKey);
+    if (location == 0)
+    {
+      return 0;
+    }
+    // Check this is not a hash collision.
+    final ByteBuffer slab = slabOf(location);
+    final int offset = offsetOf(location);
+    if (slab.getInt(offset + DN_LENGTH_OFFSET) != ndn.length())
+    {
+      return 0;
+    }
+    for (int i = 0; i < ndn.length(); i++)
+    {
+      if (slab.get(offset + HEADER_SIZE + i) != ndn.byteAt(i))
+      {
+        return 0;
+      }
+    }
+    return location;
+  }
+
+  private byte[] readRecord(long location)
+  {
+    final ByteBuffer slab = slabOf(location).duplicate();
+    final int offset = offsetOf(location);
+    final byte[] record = new byte[slab.getInt(offset)];
+    slab.position(offset);
+    slab.get(record);
+    return record;
+  }
+
+  private void appendRecord(byte[] record, int length, long idKey, long dnKey)
+  {
+    final long location = allocate(length);
+    if (location == 0)
+    {
+      return;
+    }
+    final ByteBuffer slab = slabOf(location).duplicate();
+    slab.position(offsetOf(location));
+    slab.put(record, 0, length);
+    idTable.put(idKey, location);
+    dnTable.put(dnKey, location);
+    usedBytes += length;
+  }
+
+  private void removeRecord(long location)
+  {
+    final ByteBuffer slab = slabOf(location);
+    final int offset = offsetOf(location);
+    idTable.remove(slab.getLong(offset + ID_KEY_OFFSET), location);
+    dnTable.remove(slab.getLong(offset + DN_KEY_OFFSET), location);
+    usedBytes -= slab.getInt(offset);
+  }
+
+  /**
+   * Reserves the provided number of bytes at the end of the newest slab, moving to the next slab
+   * if there is not enough room left.
+   *
+   * @return the location of the reserved bytes, or 0 if no slab could be allocated
+   */
+  private long allocate(int length)
+  {
+    if (slabs.length == 0)
+    {
+      return 0;
+    }
+    if (writeSlab < 0 || writeOffset + length > slabSize)
+    {
+      final int nextSlab = (writeSlab + 1) % slabs.length;
+      if (slabs[nextSlab] == null)
+      {
+        try
+        {
+          slabs[nextSlab] = newSlab();
+        }
+        catch (IOException | OutOfMemoryError e)
+        {
+          logger.traceException(e);
+          logger.error(ERR_OFFHEAPCACHE_CANNOT_ALLOCATE_SLAB.get(nextSlab, stackTraceToSingleLineString(e)));
+          resize(nextSlab);
+          return allocate(length);
+        }
+      }
+      else
+      {
+        recycle(nextSlab);
+      }
+      writeSlab = nextSlab;
+      writeOffset = 0;
+    }
+    final long location = location(writeSlab, writeOffset);
+    writeOffset += length;
+    slabUsedBytes[writeSlab] = writeOffset;
+    return location;
+  }
+
+  private ByteBuffer newSlab() throws IOException
+  {
+    if (cacheDirectory == null)
+    {
+      return ByteBuffer.allocateDirect(slabSize);
+    }
+    final File file = File.createTempFile("slab", ".cache", cacheDirectory);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+    {
+      // The mapping remains valid after the file is closed and deleted.
+      return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, slabSize);
+    }
+    finally
+    {
+      if (!file.delete())
+      {
+        file.deleteOnExit();
+      }
+    }
+  }
+
+  /** Evicts the entries still held by the provided slab so that it can be reused. */
+  private void recycle(int slabIndex)
+  {
+    final ByteBuffer slab = slabs[slabIndex];
+    int offset = 0;
+    while (offset < slabUsedBytes[slabIndex])
+    {
+      final long location = location(slabIndex, offset);
+      final int length = slab.getInt(offset);
+      if (idTable.get(slab.getLong(offset + ID_KEY_OFFSET)) == location)
+      {
+        removeRecord(location);
+        evictions.getAndIncrement();
+      }
+      offset += length;
+    }
+    slabUsedBytes[slabIndex] = 0;
+  }
+
+  /** Changes the number of slabs, evicting the entries of the slabs which are released. */
+  private void resize(int nbSlabs)
+  {
+    if (nbSlabs < slabs.length)
+    {
+      for (int i = nbSlabs; i < slabs.length; i++)
+      {
+        if (slabs[i] != null)
+        {
+          recycle(i);
+        }
+      }
+      if (writeSlab >= nbSlabs)
+      {
+        // Continue with the first slab.
+        writeSlab = nbSlabs - 1;
+        writeOffset = slabSize;
+      }
+    }
+    slabs = Arrays.copyOf(slabs, nbSlabs);
+    slabUsedBytes = Arrays.copyOf(slabUsedBytes, nbSlabs);
+  }
+
+  /** Returns whether the provided location is in the older half of the slabs. */
+  private boolean isOld(long location)
+  {
+    final int slabIndex = (int) (location >>> 32) - 1;
+    return (writeSlab - slabIndex + slabs.length) % slabs.length >= slabs.length / 2;
+  }
+
+  private ByteBuffer slabOf(long location)
+  {
+    return slabs[(int) (location >>> 32) - 1];
+  }
+
+  private static int offsetOf(long location)
+  {
+    return (int) location;
+  }
+
+  private static long location(int slabIndex, int offset)
+  {
+    return ((long) (slabIndex + 1) << 32) | offset;
+  }
+
+  private static long idKey(int backendIndex, long entryID)
+  {
+    return ((long) backendIndex << ENTRY_ID_BITS) | entryID;
+  }
+
+  /** Returns a 64-bit FNV-1a hash of the provided normalized DN. */
+  private static long dnKey(ByteString ndn)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < ndn.length(); i++)
+    {
+      hash ^= ndn.byteAt(i) & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * An open addressing hash table from 64-bit keys to record locations, using linear probing.
+   * A location of 0 marks a free slot.
+   */
+  private static final class LocationTable
+  {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] locations = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private long get(long key)
+    {
+      final int mask = keys.length - 1;
+      for (int i = slot(key, mask); locations[i] != 0; i = (i + 1) & mask)
+      {
+        if (keys[i] == key)
+        {
+          return locations[i];
+        }
+      }
+      return 0;
+    }
+
+    private void put(long key, long location)
+    {
+      if (4L * (size + 1) > 3L * keys.length)
+      {
+        grow();
+      }
+      final int mask = keys.length - 1;
+      int i = slot(key, mask);
+      for (; locations[i] != 0; i = (i + 1) & mask)
+      {
+        if (keys[i] == key)
+        {
+          locations[i] = location;
+          return;
+        }
+      }
+      keys[i] = key;
+      locations[i] = location;
+      size++;
+    }
+
+    /** Removes the provided key, only if it is still mapped to the provided location. */
+    private void remove(long key, long location)
+    {
+      final int mask = keys.length - 1;
+      for (int i = slot(key, mask); locations[i] != 0; i = (i + 1) & mask)
+      {
+        if (keys[i] == key)
+        {
+          if (locations[i] == location)
+          {
+            delete(i);
+          }
+          return;
+        }
+      }
+    }
+
+    /** Returns the locations of the keys whose high order bits match the provided prefix. */
+    private long[] getLocations(long prefix, int shift)
+    {
+      long[] result = new long[16];
+      int count = 0;
+      for (int i = 0; i < keys.length; i++)
+      {
+        if (locations[i] != 0 && keys[i] >>> shift == prefix)
+        {
+          if (count == result.length)
+          {
+            result = Arrays.copyOf(result, count * 2);
+          }
+          result[count++] = locations[i];
+        }
+      }
+      return Arrays.copyOf(result, count);
+    }
+
+    private int size()
+    {
+      return size;
+    }
+
+    private void clear()
+    {
+      keys = new long[INITIAL_CAPACITY];
+      locations = new long[INITIAL_CAPACITY];
+      size = 0;
+    }
+
+    /** Frees the provided slot, shifting back the following entries of the probe sequence. */
+    private void delete(int hole)
+    {
+      final int mask = keys.length - 1;
+      for (int j = (hole + 1) & mask; locations[j] != 0; j = (j + 1) & mask)
+      {
+        // The entry can fill the hole if its home slot is not between the hole and itself.
+        if (((j - slot(keys[j], mask)) & mask) >= ((j - hole) & mask))
+        {
+          keys[hole] = keys[j];
+          locations[hole] = locations[j];
+          hole = j;
+        }
+      }
+      locations[hole] = 0;
+      size--;
+    }
+
+    private void grow()
+    {
+      final long[] oldKeys = keys;
+      final long[] oldLocations = locations;
+      keys = new long[oldKeys.length * 2];
+      locations = new long[oldLocations.length * 2];
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++)
+      {
+        if (oldLocations[i] != 0)
+        {
+          put(oldKeys[i], oldLocations[i]);
+        }
+      }
+    }
+
+    private static int slot(long key, int mask)
+    {
+      final long h = key * 0x9e3779b97f4a7c15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+  }
+}
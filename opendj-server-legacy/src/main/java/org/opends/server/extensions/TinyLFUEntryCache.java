@@ -0,0 +1,949 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.TinyLFUEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache using the W-TinyLFU admission and eviction
+ * policy.
+ * <BR><BR>
+ * The cache is split into segments, each one guarded by its own lock and holding its share of the
+ * configured capacity. Lookups never block: they read a concurrent map, then record the access in
+ * a small lossy buffer which is replayed against the eviction policy by whichever thread next
+ * acquires the segment lock.
+ * <BR><BR>
+ * Within a segment, newly cached entries first enter an admission window which is kept in LRU
+ * order. Entries leaving the window are candidates for the main space, split between a probation
+ * and a protected LRU queue. When the segment is full, each candidate is compared with the least
+ * recently used probation entry using a {@link FrequencySketch} of the recent accesses: the one
+ * which has been accessed the least often is evicted. This protects frequently accessed entries
+ * from being flushed by large searches reading each entry once.
+ * <BR><BR>
+ * Cache sizing is based on the estimated memory footprint of the cached entries. Entries may also
+ * be stored serialized in direct buffers outside of the JVM heap, in which case their footprint is
+ * the size of their serialized form.
+ */
+public class TinyLFUEntryCache
+       extends EntryCache<TinyLFUEntryCacheCfg>
+       implements ConfigurationChangeListener<TinyLFUEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The percentage of the capacity of each segment allocated to the admission window. */
+  private static final int WINDOW_PERCENT = 1;
+  /** The percentage of the main space of each segment allocated to the protected queue. */
+  private static final int PROTECTED_PERCENT = 80;
+  /** The number of accesses buffered by each segment before they are applied to its queues. */
+  private static final int READ_BUFFER_SIZE = 16;
+
+  /** The typical weight of an entry, used to size the frequency sketches. */
+  private static final int EXPECTED_ENTRY_WEIGHT = 2048;
+  /** Estimated heap footprint of an entry, excluding its attributes, and of its cache node. */
+  private static final int ENTRY_OVERHEAD = 256;
+  /** Estimated heap footprint of an attribute, excluding its values. */
+  private static final int ATTRIBUTE_OVERHEAD = 96;
+  /** Estimated heap footprint of an attribute value, excluding its bytes. */
+  private static final int VALUE_OVERHEAD = 48;
+  /** Estimated heap footprint of the cache node and direct buffer of an entry stored off-heap. */
+  private static final int OFF_HEAP_OVERHEAD = 160;
+
+  /** The queues a cached entry may be linked into. */
+  private static final byte WINDOW = 0;
+  private static final byte PROBATION = 1;
+  private static final byte PROTECTED = 2;
+  private static final byte EVICTED = 3;
+
+  /** The cache segments, selected by the hash code of the entry DN. */
+  private final Segment[] segments;
+
+  /** The mapping between entry backends/IDs and cached entries, shared by all the segments. */
+  private final ConcurrentMap<String, ConcurrentMap<Long, Node>> idMap = new ConcurrentHashMap<>();
+
+  /** The number of candidate entries which were not admitted in the main space. */
+  private final AtomicLong admissionRejects = new AtomicLong();
+  /** The number of entries evicted to make room for more frequently accessed entries. */
+  private final AtomicLong evictions = new AtomicLong();
+
+  /** The maximum amount of memory in bytes that may be used by the cached entries. */
+  private volatile long maxMemorySize;
+
+  /** The maximum number of entries that may be held in the cache. */
+  private volatile long maxEntries;
+
+  /** Whether entries are stored serialized outside of the JVM heap. */
+  private volatile boolean offHeapStorage;
+
+  /** The encoding used for the entries stored off-heap. */
+  private EntryEncodeConfig encodeConfig;
+
+  /** Currently registered configuration object. */
+  private TinyLFUEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this TinyLFU entry cache. */
+  public TinyLFUEntryCache()
+  {
+    this(defaultSegmentCount());
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  /**
+   * Creates a new instance of this TinyLFU entry cache with the provided number of segments.
+   *
+   * @param nbSegments
+   *          the number of segments, which must be a power of two
+   */
+  TinyLFUEntryCache(int nbSegments)
+  {
+    super();
+    segments = new Segment[nbSegments];
+    for (int i = 0; i < nbSegments; i++)
+    {
+      segments[i] = new Segment();
+    }
+  }
+
+  private static int defaultSegmentCount()
+  {
+    final int nbSegments = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+    return Math.min(nbSegments, 64);
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, TinyLFUEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addTinyLFUChangeListener(this);
+    encodeConfig = new EntryEncodeConfig(false, true, true);
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages);
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler))
+    {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_TINYLFUCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    registeredConfiguration.removeTinyLFUChangeListener(this);
+
+    // Release all memory currently in use by this cache.
+    clear();
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    return entryDN != null && segmentFor(entryDN).dnMap.containsKey(entryDN);
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    final Segment segment = segmentFor(entryDN);
+    final Node node = segment.dnMap.get(entryDN);
+    if (node != null)
+    {
+      try
+      {
+        final Entry entry = node.getEntry();
+        segment.recordAccess(node);
+        cacheHits.getAndIncrement();
+        return entry;
+      }
+      catch (DirectoryException e)
+      {
+        // The serialized entry cannot be decoded, it will be fetched from the backend.
+        logger.traceException(e);
+      }
+    }
+    cacheMisses.getAndIncrement();
+    return null;
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    final Node node = segmentFor(entryDN).dnMap.get(entryDN);
+    return node != null ? node.entryID : -1;
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    final Map<Long, Node> backendMap = idMap.get(backendID);
+    if (backendMap != null)
+    {
+      final Node node = backendMap.get(entryID);
+      if (node != null)
+      {
+        return node.dn;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    put(entry, backendID, entryID, false);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    return put(entry, backendID, entryID, true);
+  }
+
+  private boolean put(Entry entry, String backendID, long entryID, boolean onlyIfAbsent)
+  {
+    final DN dn = entry.getName();
+    final Segment segment = segmentFor(dn);
+    if (onlyIfAbsent && segment.dnMap.containsKey(dn))
+    {
+      return false;
+    }
+
+    // Serialize the entry before acquiring the segment lock.
+    final Node node;
+    try
+    {
+      node = offHeapStorage ? newOffHeapNode(entry, backendID, entryID)
+                            : new Node(dn, backendID, entryID, entry, weigh(entry));
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // We can't be sure there wasn't a conflict, so return false.
+      return false;
+    }
+
+    final Node replaced;
+    segment.lock.lock();
+    try
+    {
+      final Node existing = segment.dnMap.get(dn);
+      if (existing != null)
+      {
+        if (onlyIfAbsent)
+        {
+          return false;
+        }
+        segment.remove(existing);
+      }
+      replaced = segment.add(node);
+    }
+    finally
+    {
+      segment.lock.unlock();
+    }
+
+    if (replaced != null)
+    {
+      // The entry has been renamed: its former DN is cached by another segment.
+      segmentFor(replaced.dn).removeNode(replaced);
+    }
+    return true;
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    final Segment segment = segmentFor(entryDN);
+    segment.lock.lock();
+    try
+    {
+      final Node node = segment.dnMap.get(entryDN);
+      if (node != null)
+      {
+        segment.remove(node);
+      }
+    }
+    finally
+    {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    for (Segment segment : segments)
+    {
+      segment.clear();
+    }
+    idMap.clear();
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    // Remove all references to entries for this backend from the ID cache.
+    final Map<Long, Node> backendMap = idMap.remove(backendID);
+    if (backendMap == null)
+    {
+      // No entries were in the cache for this backend, so we can return
+      // without doing anything.
+      return;
+    }
+
+    // Locks are acquired per entry so this does not become a stop-the-world
+    // event as far as the cache is concerned.
+    for (Node node : backendMap.values())
+    {
+      segmentFor(node.dn).removeNode(node);
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // Drop 10% of the entries of each segment, starting with the least valuable ones.
+    for (Segment segment : segments)
+    {
+      segment.lock.lock();
+      try
+      {
+        int numToDrop = Math.max(segment.dnMap.size() / 10, 1);
+        Node victim;
+        while (numToDrop-- > 0 && (victim = segment.nextVictim()) != null)
+        {
+          segment.remove(victim);
+          evictions.getAndIncrement();
+        }
+      }
+      finally
+      {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    TinyLFUEntryCacheCfg config = (TinyLFUEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(TinyLFUEntryCacheCfg configuration,
+                                                 List<LocalizableMessage> unacceptableReasons)
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE, unacceptableReasons, null);
+    processEntryCacheConfig(configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(TinyLFUEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler(
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages);
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled())
+    {
+      processEntryCacheConfig(configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      TinyLFUEntryCacheCfg                configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler)
+  {
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    long newMaxMemorySize = configuration.getMaxMemorySize();
+    long newMaxEntries = configuration.getMaxEntries();
+
+    // Get include and exclude filters.
+    Set<SearchFilter> newIncludeFilters = EntryCacheCommon.getFilters(
+        configuration.getIncludeFilter(), ERR_CACHE_INVALID_INCLUDE_FILTER, errorHandler, newConfigEntryDN);
+    Set<SearchFilter> newExcludeFilters = EntryCacheCommon.getFilters(
+        configuration.getExcludeFilter(), ERR_CACHE_INVALID_EXCLUDE_FILTER, errorHandler, newConfigEntryDN);
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      maxMemorySize = newMaxMemorySize;
+      maxEntries = newMaxEntries;
+      offHeapStorage = configuration.isOffHeapStorage();
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+
+      // Zero means no limit on the number of entries.
+      final long maxSegmentEntries =
+          newMaxEntries > 0 ? (newMaxEntries + segments.length - 1) / segments.length : Long.MAX_VALUE;
+      for (Segment segment : segments)
+      {
+        segment.setCapacity(newMaxMemorySize / segments.length, maxSegmentEntries);
+      }
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try {
+      long cacheSize = 0;
+      for (Segment segment : segments)
+      {
+        cacheSize += segment.weightedSize;
+      }
+      MonitorData attrs = EntryCacheCommon.getGenericMonitorData(
+        cacheHits.longValue(),
+        // If cache misses is maintained by default cache
+        // get it from there and if not point to itself.
+        DirectoryServer.getEntryCache().getCacheMisses(),
+        cacheSize,
+        maxMemorySize,
+        getCacheCount(),
+        (maxEntries != Integer.MAX_VALUE && maxEntries != Long.MAX_VALUE) ? maxEntries : 0
+        );
+      attrs.add("entryCacheAdmissionRejects", admissionRejects.get());
+      attrs.add("entryCacheEvictions", evictions.get());
+      return attrs;
+    } catch (Exception e) {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    long count = 0;
+    for (Segment segment : segments)
+    {
+      count += segment.dnMap.size();
+    }
+    return count;
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for (Segment segment : segments)
+    {
+      for (Node node : segment.dnMap.values())
+      {
+        sb.append(node.dn);
+        sb.append(":");
+        sb.append(node.entryID);
+        sb.append(":");
+        sb.append(node.backendID);
+        sb.append(ServerConstants.EOL);
+      }
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+
+  private Segment segmentFor(DN dn)
+  {
+    int h = dn.hashCode();
+    h ^= h >>> 16;
+    return segments[h & (segments.length - 1)];
+  }
+
+  private Node newOffHeapNode(Entry entry, String backendID, long entryID) throws DirectoryException
+  {
+    final ByteStringBuilder builder = new ByteStringBuilder();
+    entry.encode(builder, encodeConfig);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(builder.length());
+    buffer.put(builder.getBackingArray(), 0, builder.length());
+    buffer.flip();
+    return new Node(entry.getName(), backendID, entryID, buffer, OFF_HEAP_OVERHEAD + builder.length());
+  }
+
+  /**
+   * Returns the estimated heap footprint of the provided entry.
+   *
+   * @param entry
+   *          the entry to weigh
+   * @return the estimated number of bytes used by the entry
+   */
+  static int weigh(Entry entry)
+  {
+    long weight = ENTRY_OVERHEAD + 2L * entry.getName().toString().length();
+    weight += entry.getObjectClasses().size() * (long) VALUE_OVERHEAD;
+    for (Attribute attribute : entry.getAllAttributes())
+    {
+      weight += ATTRIBUTE_OVERHEAD;
+      for (ByteString value : attribute)
+      {
+        weight += VALUE_OVERHEAD + value.length();
+      }
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  /** A cached entry, linked in one of the queues of its segment. */
+  private static final class Node
+  {
+    private final DN dn;
+    private final String backendID;
+    private final long entryID;
+    /** Either the cached entry, or its serialized form in a direct buffer. */
+    private final Object value;
+    private final int weight;
+
+    /** The queue this node is linked into, guarded by the segment lock. */
+    private byte queue = WINDOW;
+    private Node prev;
+    private Node next;
+
+    private Node(DN dn, String backendID, long entryID, Object value, int weight)
+    {
+      this.dn = dn;
+      this.backendID = backendID;
+      this.entryID = entryID;
+      this.value = value;
+      this.weight = weight;
+    }
+
+    private Entry getEntry() throws DirectoryException
+    {
+      if (value instanceof Entry)
+      {
+        return (Entry) value;
+      }
+      final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return Entry.decode(ByteString.wrap(bytes).asReader());
+    }
+  }
+
+  /** A doubly linked list of nodes kept in access order, least recently used first. */
+  private static final class AccessOrderQueue
+  {
+    private Node head;
+    private Node tail;
+    private long weight;
+    private long size;
+
+    private void add(Node node, byte queue)
+    {
+      node.queue = queue;
+      node.prev = tail;
+      node.next = null;
+      if (tail == null)
+      {
+        head = node;
+      }
+      else
+      {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.weight;
+      size++;
+    }
+
+    private void remove(Node node)
+    {
+      if (node.prev == null)
+      {
+        head = node.next;
+      }
+      else
+      {
+        node.prev.next = node.next;
+      }
+      if (node.next == null)
+      {
+        tail = node.prev;
+      }
+      else
+      {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      weight -= node.weight;
+      size--;
+    }
+
+    private void moveToTail(Node node)
+    {
+      if (node != tail)
+      {
+        remove(node);
+        add(node, node.queue);
+      }
+    }
+
+    private void clear()
+    {
+      head = null;
+      tail = null;
+      weight = 0;
+      size = 0;
+    }
+  }
+
+  /** An independently locked part of the cache, with its own queues and frequency sketch. */
+  private final class Segment
+  {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentMap<DN, Node> dnMap = new ConcurrentHashMap<>();
+
+    /** The accesses not yet applied to the queues, dropped when the lock is contended. */
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicInteger readBufferCount = new AtomicInteger();
+
+    // The fields below are guarded by the lock.
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final AccessOrderQueue window = new AccessOrderQueue();
+    private final AccessOrderQueue probation = new AccessOrderQueue();
+    private final AccessOrderQueue protectedQueue = new AccessOrderQueue();
+    private long maxWeight;
+    private long maxSize;
+    private long maxWindowWeight;
+    private long maxWindowSize;
+    private long maxProtectedWeight;
+    private long maxProtectedSize;
+    /** The total weight of the cached entries, only written while holding the lock. */
+    private volatile long weightedSize;
+
+    private void setCapacity(long maxWeight, long maxSize)
+    {
+      lock.lock();
+      try
+      {
+        this.maxWeight = maxWeight;
+        this.maxSize = maxSize;
+        maxWindowWeight = maxWeight * WINDOW_PERCENT / 100;
+        maxWindowSize = maxSize != Long.MAX_VALUE ? Math.max(maxSize * WINDOW_PERCENT / 100, 1) : Long.MAX_VALUE;
+        maxProtectedWeight = (maxWeight - maxWindowWeight) * PROTECTED_PERCENT / 100;
+        maxProtectedSize = maxSize != Long.MAX_VALUE ? (maxSize - maxWindowSize) * PROTECTED_PERCENT / 100
+                                                     : Long.MAX_VALUE;
+        sketch.ensureCapacity(Math.min(maxSize, maxWeight / EXPECTED_ENTRY_WEIGHT));
+        evict();
+      }
+      finally
+      {
+        lock.unlock();
+      }
+    }
+
+    private void recordAccess(Node node)
+    {
+      final int index = readBufferCount.getAndIncrement();
+      if (index < READ_BUFFER_SIZE)
+      {
+        readBuffer.lazySet(index, node);
+        if (index < READ_BUFFER_SIZE - 1)
+        {
+          return;
+        }
+      }
+      // The buffer is full: apply it unless another thread is already doing so.
+      if (lock.tryLock())
+      {
+        try
+        {
+          drainReadBuffer();
+        }
+        finally
+        {
+          lock.unlock();
+        }
+      }
+    }
+
+    private void drainReadBuffer()
+    {
+      final int count = Math.min(readBufferCount.get(), READ_BUFFER_SIZE);
+      for (int i = 0; i < count; i++)
+      {
+        final Node node = readBuffer.getAndSet(i, null);
+        if (node != null)
+        {
+          onAccess(node);
+        }
+      }
+      readBufferCount.set(0);
+    }
+
+    private void onAccess(Node node)
+    {
+      switch (node.queue)
+      {
+      case WINDOW:
+        window.moveToTail(node);
+        break;
+      case PROBATION:
+        // The entry proved useful: promote it, demoting the least recently used protected entries.
+        probation.remove(node);
+        protectedQueue.add(node, PROTECTED);
+        while (protectedQueue.weight > maxProtectedWeight || protectedQueue.size > maxProtectedSize)
+        {
+          final Node demoted = protectedQueue.head;
+          protectedQueue.remove(demoted);
+          probation.add(demoted, PROBATION);
+        }
+        break;
+      case PROTECTED:
+        protectedQueue.moveToTail(node);
+        break;
+      default:
+        // Evicted since the access was recorded.
+        return;
+      }
+      sketch.increment(node.dn.hashCode());
+    }
+
+    /**
+     * Adds the provided node to this segment, evicting entries as needed.
+     *
+     * @return the node which was cached for the same entry ID under another DN, if any
+     */
+    private Node add(Node node)
+    {
+      drainReadBuffer();
+      sketch.ensureCapacity(dnMap.size() + 1);
+      sketch.increment(node.dn.hashCode());
+      if (node.weight > maxWeight)
+      {
+        admissionRejects.getAndIncrement();
+        return null;
+      }
+
+      dnMap.put(node.dn, node);
+      ConcurrentMap<Long, Node> backendMap = idMap.get(node.backendID);
+      if (backendMap == null)
+      {
+        final ConcurrentMap<Long, Node> newMap = new ConcurrentHashMap<>();
+        backendMap = idMap.putIfAbsent(node.backendID, newMap);
+        if (backendMap == null)
+        {
+          backendMap = newMap;
+        }
+      }
+      final Node replaced = backendMap.put(node.entryID, node);
+      window.add(node, WINDOW);
+      weightedSize += node.weight;
+      evict();
+      return replaced != null && !replaced.dn.equals(node.dn) ? replaced : null;
+    }
+
+    private void evict()
+    {
+      // Entries overflowing the window become candidates for the main space.
+      Node candidate = null;
+      while (window.head != null && (window.weight > maxWindowWeight || window.size > maxWindowSize))
+      {
+        final Node node = window.head;
+        window.remove(node);
+        probation.add(node, PROBATION);
+        if (candidate == null)
+        {
+          candidate = node;
+        }
+      }
+
+      while (weightedSize > maxWeight || dnMap.size() > maxSize)
+      {
+        final Node victim = probation.head;
+        if (candidate == null || victim == candidate)
+        {
+          // No admission contest: evict the least recently used entry.
+          final Node node = victim != null ? victim : nextVictim();
+          if (node == null)
+          {
+            return;
+          }
+          if (node == candidate)
+          {
+            candidate = candidate.next;
+          }
+          remove(node);
+          evictions.getAndIncrement();
+          continue;
+        }
+
+        final Node nextCandidate = candidate.next;
+        if (sketch.frequency(candidate.dn.hashCode()) > sketch.frequency(victim.dn.hashCode()))
+        {
+          remove(victim);
+          evictions.getAndIncrement();
+        }
+        else
+        {
+          remove(candidate);
+          admissionRejects.getAndIncrement();
+        }
+        candidate = nextCandidate;
+      }
+    }
+
+    /** Returns the least valuable cached entry, or {@code null} if the segment is empty. */
+    private Node nextVictim()
+    {
+      if (probation.head != null)
+      {
+        return probation.head;
+      }
+      return protectedQueue.head != null ? protectedQueue.head : window.head;
+    }
+
+    /** Removes the provided node, which must belong to this segment, while holding the lock. */
+    private void remove(Node node)
+    {
+      switch (node.queue)
+      {
+      case WINDOW:
+        window.remove(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        break;
+      case PROTECTED:
+        protectedQueue.remove(node);
+        break;
+      default:
+        return;
+      }
+      node.queue = EVICTED;
+      weightedSize -= node.weight;
+      dnMap.remove(node.dn, node);
+      final Map<Long, Node> backendMap = idMap.get(node.backendID);
+      if (backendMap != null)
+      {
+        backendMap.remove(node.entryID, node);
+      }
+    }
+
+    /** Removes the provided node if it still belongs to this segment. */
+    private void removeNode(Node node)
+    {
+      lock.lock();
+      try
+      {
+        if (dnMap.get(node.dn) == node)
+        {
+          remove(node);
+        }
+      }
+      finally
+      {
+        lock.unlock();
+      }
+    }
+
+    private void clear()
+    {
+      lock.lock();
+      try
+      {
+        for (Node node : dnMap.values())
+        {
+          node.queue = EVICTED;
+        }
+        dnMap.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        weightedSize = 0;
+        for (int i = 0; i < READ_BUFFER_SIZE; i++)
+        {
+          readBuffer.set(i, null);
+        }
+        readBufferCount.set(0);
+      }
+      finally
+      {
+        lock.unlock();
+      }
+    }
+  }
+}
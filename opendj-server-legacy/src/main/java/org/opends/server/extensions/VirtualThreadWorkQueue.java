@@ -0,0 +1,568 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.messages.ExtensionMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.VirtualThreadWorkQueueCfg;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.VirtualThreadWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.DisconnectReason;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * This class defines a Directory Server work queue which processes each
+ * operation on its own virtual thread, so that operations blocking on I/O do
+ * not hold one of a fixed number of worker threads. A semaphore limits the
+ * number of operations processed concurrently: when all the permits are in use,
+ * submitting an operation blocks or is rejected as if the queue was full.
+ * <p>
+ * Virtual threads are created through reflection since the server must also
+ * run on Java runtimes which do not support them. On such runtimes, operations
+ * are processed by a pool of platform threads growing up to the maximum number
+ * of concurrent operations.
+ */
+public class VirtualThreadWorkQueue extends WorkQueue<VirtualThreadWorkQueueCfg>
+    implements ConfigurationChangeListener<VirtualThreadWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The name prefix of the threads processing the operations. */
+  private static final String THREAD_NAME_PREFIX = "Worker Thread";
+
+  /** The operations currently being processed. */
+  private final Set<Operation> activeOperations = ConcurrentHashMap.newKeySet();
+
+  /** The permits for processing operations, limiting the number of concurrent operations. */
+  private ConcurrencySemaphore permits;
+
+  /** The executor starting the operation threads. */
+  private Executor executor;
+
+  /** Indicates whether the operations are processed on virtual threads. */
+  private boolean virtualThreads;
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final LongAdder opsSubmitted = new LongAdder();
+
+  /**
+   * The number of times that an attempt to submit a new request has been
+   * rejected because the maximum number of concurrent operations was reached.
+   */
+  private final LongAdder queueFullRejects = new LongAdder();
+
+  /** The maximum number of operations observed being processed concurrently. */
+  private final AtomicInteger maxActiveOperations = new AtomicInteger();
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The maximum number of operations that can be processed concurrently. */
+  private volatile int maxConcurrentOperations;
+
+  /**
+   * The queue overflow policy: true indicates that operations will be blocked
+   * until an operation completes, otherwise operations will be rejected.
+   */
+  private final boolean isBlocking = true;
+
+  /** The monitor provider registered for this work queue. */
+  private VirtualThreadWorkQueueMonitor monitor;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public VirtualThreadWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(VirtualThreadWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    shutdownRequested = false;
+
+    // Register to be notified of any configuration changes.
+    configuration.addVirtualThreadChangeListener(this);
+
+    maxConcurrentOperations = configuration.getMaxConcurrentOperations();
+    permits = new ConcurrencySemaphore(maxConcurrentOperations);
+
+    final ThreadFactory virtualThreadFactory = newVirtualThreadFactory();
+    if (virtualThreadFactory != null)
+    {
+      virtualThreads = true;
+      executor = new Executor()
+      {
+        @Override
+        public void execute(Runnable command)
+        {
+          virtualThreadFactory.newThread(command).start();
+        }
+      };
+    }
+    else
+    {
+      logger.info(INFO_WORK_QUEUE_VIRTUAL_THREADS_NOT_SUPPORTED.get());
+      virtualThreads = false;
+      // The semaphore bounds the number of threads.
+      executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(), new DirectoryThread.Factory(THREAD_NAME_PREFIX));
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      monitor = new VirtualThreadWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, VirtualThreadWorkQueueMonitor.class, e);
+    }
+  }
+
+  /**
+   * Returns a factory of virtual threads, or {@code null} if the Java runtime
+   * does not support them.
+   */
+  private static ThreadFactory newVirtualThreadFactory()
+  {
+    try
+    {
+      final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      Object builder = ofVirtual.invoke(null);
+      final Method name = ofVirtual.getReturnType().getMethod("name", String.class, long.class);
+      builder = name.invoke(builder, THREAD_NAME_PREFIX + " ", 0L);
+      final Method factory = ofVirtual.getReturnType().getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    }
+    catch (ReflectiveOperationException | RuntimeException e)
+    {
+      logger.traceException(e);
+      return null;
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    shutdownRequested = true;
+
+    // From now on no more operations can be submitted. Operations which have
+    // not started yet will be cancelled by their thread. Request the
+    // cancellation of all the operations in progress before waiting for them.
+    CancelRequest cancelRequest = new CancelRequest(true, INFO_CANCELED_BY_SHUTDOWN.get());
+    List<Operation> operations = new ArrayList<>(activeOperations);
+    for (Operation operation : operations)
+    {
+      operation.abort(cancelRequest);
+    }
+    for (Operation operation : operations)
+    {
+      try
+      {
+        operation.cancel(cancelRequest);
+      }
+      catch (Exception e)
+      {
+        if (logger.isTraceEnabled())
+        {
+          logger.trace(
+            "Caught an exception while trying to abandon the " +
+                "operation in progress %s: %s", operation, e);
+          logger.traceException(e);
+        }
+      }
+    }
+
+    if (executor instanceof ExecutorService)
+    {
+      ((ExecutorService) executor).shutdown();
+    }
+
+    if (monitor != null)
+    {
+      DirectoryServer.deregisterMonitorProvider(monitor);
+      monitor.finalizeMonitorProvider();
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return <CODE>true</CODE> if the work queue has recieved a request to shut
+   *         down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  /**
+   * Submits an operation to be processed on its own thread.
+   *
+   * @param operation
+   *          The operation to be processed.
+   * @throws DirectoryException
+   *           If the provided operation is not accepted for some reason (e.g.,
+   *           if the server is shutting down or the maximum number of
+   *           concurrent operations is reached).
+   */
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, isBlocking);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation)
+      throws DirectoryException
+  {
+    try
+    {
+      submitOperation(operation, false);
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      if (ResultCode.BUSY == e.getResultCode())
+      {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void submitOperation(Operation operation,
+      boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    checkNotShutdown();
+    try
+    {
+      if (blockEnqueuingWhenFull)
+      {
+        // Periodically wake up: once shutdown is requested, operations may
+        // no longer complete.
+        while (!permits.tryAcquire(1, TimeUnit.SECONDS))
+        {
+          checkNotShutdown();
+        }
+      }
+      else if (!permits.tryAcquire())
+      {
+        queueFullRejects.increment();
+
+        LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxConcurrentOperations);
+        throw new DirectoryException(ResultCode.BUSY, message);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // We cannot handle the interruption here. Reject the request and
+      // re-interrupt this thread.
+      Thread.currentThread().interrupt();
+
+      queueFullRejects.increment();
+
+      LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get();
+      throw new DirectoryException(ResultCode.BUSY, message);
+    }
+
+    try
+    {
+      executor.execute(new OperationTask(operation));
+    }
+    catch (RejectedExecutionException | OutOfMemoryError e)
+    {
+      // The executor is shut down, or no more threads can be created.
+      logger.traceException(e);
+      permits.release();
+      checkNotShutdown();
+
+      queueFullRejects.increment();
+
+      LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxConcurrentOperations);
+      throw new DirectoryException(ResultCode.BUSY, message);
+    }
+    opsSubmitted.increment();
+  }
+
+  private void checkNotShutdown() throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      LocalizableMessage message = WARN_OP_REJECTED_BY_SHUTDOWN.get();
+      throw new DirectoryException(ResultCode.UNAVAILABLE, message);
+    }
+  }
+
+  /** Processes an operation, with the same error handling as the traditional worker threads. */
+  private final class OperationTask implements Runnable
+  {
+    private final Operation operation;
+
+    private OperationTask(Operation operation)
+    {
+      this.operation = operation;
+    }
+
+    @Override
+    public void run()
+    {
+      activeOperations.add(operation);
+      updateMaxActiveOperations();
+      try
+      {
+        if (shutdownRequested)
+        {
+          // The operation has no chance of responding to the cancel
+          // request so avoid waiting for a cancel response.
+          if (operation.getCancelResult() == null)
+          {
+            operation.abort(new CancelRequest(true, WARN_OP_REJECTED_BY_SHUTDOWN.get()));
+          }
+          return;
+        }
+
+        operation.run();
+        operation.operationCompleted();
+      }
+      catch (Throwable t)
+      {
+        handleUncaughtException(t);
+      }
+      finally
+      {
+        activeOperations.remove(operation);
+        permits.release();
+      }
+    }
+
+    private void handleUncaughtException(Throwable t)
+    {
+      final String threadName = Thread.currentThread().getName();
+      if (logger.isTraceEnabled())
+      {
+        logger.trace(
+          "Uncaught exception in worker thread while processing " +
+              "operation %s: %s", operation, t);
+        logger.traceException(t);
+      }
+
+      try
+      {
+        LocalizableMessage message =
+            ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(threadName, operation, stackTraceToSingleLineString(t));
+        logger.error(message);
+
+        // Ensure that the client receives some kind of result so that it does
+        // not hang.
+        operation.setResultCode(DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+        operation.appendErrorMessage(message);
+        operation.getClientConnection().sendResponse(operation);
+      }
+      catch (Throwable t2)
+      {
+        if (logger.isTraceEnabled())
+        {
+          logger.trace(
+            "Exception in worker thread while trying to log a " +
+                "message about an uncaught exception %s: %s", t, t2);
+
+          logger.traceException(t2);
+        }
+      }
+
+      try
+      {
+        LocalizableMessage message = ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(
+            threadName, operation, stackTraceToSingleLineString(t));
+
+        operation.disconnectClient(DisconnectReason.SERVER_ERROR, true, message);
+      }
+      catch (Throwable t2)
+      {
+        logger.traceException(t2);
+      }
+    }
+  }
+
+  private void updateMaxActiveOperations()
+  {
+    final int active = activeOperations.size();
+    int max = maxActiveOperations.get();
+    while (active > max && !maxActiveOperations.compareAndSet(max, active))
+    {
+      max = maxActiveOperations.get();
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.
+   *
+   * @return The total number of operations that have been successfully
+   *         submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.sum();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the maximum number of concurrent operations was reached.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         maximum number of concurrent operations was reached.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.sum();
+  }
+
+  /**
+   * Retrieves the number of operations currently being processed.
+   *
+   * @return The number of operations currently being processed.
+   */
+  public int getActiveOperations()
+  {
+    return activeOperations.size();
+  }
+
+  /**
+   * Retrieves the maximum number of operations observed being processed
+   * concurrently since server startup.
+   *
+   * @return The maximum number of operations observed being processed
+   *         concurrently.
+   */
+  public int getMaxActiveOperations()
+  {
+    return maxActiveOperations.get();
+  }
+
+  /**
+   * Indicates whether the operations are processed on virtual threads.
+   *
+   * @return {@code true} if the operations are processed on virtual threads, or
+   *         {@code false} if they are processed on platform threads.
+   */
+  public boolean isUsingVirtualThreads()
+  {
+    return virtualThreads;
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      VirtualThreadWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(
+      VirtualThreadWorkQueueCfg configuration)
+  {
+    synchronized (permits)
+    {
+      int newMaxConcurrentOperations = configuration.getMaxConcurrentOperations();
+      if (newMaxConcurrentOperations > maxConcurrentOperations)
+      {
+        permits.release(newMaxConcurrentOperations - maxConcurrentOperations);
+      }
+      else if (newMaxConcurrentOperations < maxConcurrentOperations)
+      {
+        // Operations in progress are allowed to complete.
+        permits.reducePermits(maxConcurrentOperations - newMaxConcurrentOperations);
+      }
+      maxConcurrentOperations = newMaxConcurrentOperations;
+    }
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    return activeOperations.isEmpty() && permits.availablePermits() >= maxConcurrentOperations;
+  }
+
+  /**
+   * Return the maximum number of operations processed concurrently by this
+   * WorkQueue, each on its own thread.
+   *
+   * @return the maximum number of operations processed concurrently by this
+   *         WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return maxConcurrentOperations;
+  }
+
+  /** A semaphore whose number of permits can be reduced. */
+  private static final class ConcurrencySemaphore extends Semaphore
+  {
+    private static final long serialVersionUID = 1L;
+
+    private ConcurrencySemaphore(int permits)
+    {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction)
+    {
+      super.reducePermits(reduction);
+    }
+  }
+}
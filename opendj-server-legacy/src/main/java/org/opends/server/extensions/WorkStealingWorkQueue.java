@@ -0,0 +1,885 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.WorkStealingWorkQueueCfg;
+import org.opends.server.api.ClientConnection;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.WorkStealingWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * This class defines a Directory Server work queue where each worker thread
+ * owns a bounded queue of pending operations, and idle worker threads steal
+ * the operations pending in the queues of the other worker threads.
+ * <p>
+ * The pending operations are held in lock-free ring buffers, so that neither
+ * submitting nor picking up an operation contends on a lock shared by all the
+ * worker threads. Operations received on a client connection are queued for the
+ * same worker thread. The maximum capacity of the work queue applies to all the
+ * pending operations, with the same blocking and rejection behavior as the
+ * {@link TraditionalWorkQueue}.
+ * <p>
+ * Changing the number of worker threads or the capacity of the work queue
+ * replaces the ring buffers: operations pending in the previous ring buffers
+ * are handed over to the new ones.
+ */
+public class WorkStealingWorkQueue extends WorkQueue<WorkStealingWorkQueueCfg>
+    implements ConfigurationChangeListener<WorkStealingWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The minimum number of operations that each ring buffer can hold. */
+  private static final int MIN_RING_CAPACITY = 16;
+  /** The maximum number of operations that each ring buffer can hold. */
+  private static final int MAX_RING_CAPACITY = 1 << 16;
+  /** The maximum length of time in nanoseconds that an idle worker thread parks before checking for changes. */
+  private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  /** The lock serializing configuration changes and the exit of worker threads. */
+  private final Object configLock = new Object();
+
+  /**
+   * The worker threads, indexed by the ring buffer they own. Threads are null while they are not
+   * started or after they exit.
+   */
+  private volatile WorkStealingWorkerThread[] workerThreads = new WorkStealingWorkerThread[0];
+
+  /** The ring buffers holding the pending operations, one per worker thread. */
+  private volatile Ring[] rings = new Ring[0];
+
+  /** The permits for queuing operations, enforcing the maximum capacity of the work queue. */
+  private CapacitySemaphore capacity;
+
+  /** The number of worker threads currently parked waiting for operations. */
+  private final AtomicInteger parkedThreads = new AtomicInteger();
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final LongAdder opsSubmitted = new LongAdder();
+
+  /**
+   * The number of times that an attempt to submit a new request has been
+   * rejected because the work queue is already at its maximum capacity.
+   */
+  private final LongAdder queueFullRejects = new LongAdder();
+
+  /** The number of operations picked up from the queue of another worker thread. */
+  private final LongAdder opsStolen = new LongAdder();
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+
+  /**
+   * The maximum number of pending requests that this work queue will allow
+   * before it will start rejecting them.
+   */
+  private volatile int maxCapacity;
+
+  /** The number of worker threads that should be active. */
+  private volatile int numWorkerThreads;
+
+  /**
+   * The queue overflow policy: true indicates that operations will be blocked
+   * until the queue has available capacity, otherwise operations will be
+   * rejected.
+   */
+  private final boolean isBlocking = true;
+
+  /** The monitor provider registered for this work queue. */
+  private WorkStealingWorkQueueMonitor monitor;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public WorkStealingWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(WorkStealingWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    synchronized (configLock)
+    {
+      shutdownRequested = false;
+
+      // Register to be notified of any configuration changes.
+      configuration.addWorkStealingChangeListener(this);
+
+      // Get the necessary configuration from the provided entry.
+      numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+      maxCapacity = configuration.getMaxWorkQueueCapacity();
+      capacity = new CapacitySemaphore(maxCapacity);
+      rings = newRings(numWorkerThreads, maxCapacity);
+
+      // Create the set of worker threads that should be used to service the
+      // work queue.
+      startWorkerThreads();
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      monitor = new WorkStealingWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, WorkStealingWorkQueueMonitor.class, e);
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    shutdownRequested = true;
+
+    // From now on no more operations can be enqueued or dequeued. Send
+    // responses to any operations in the pending queues to indicate that they
+    // won't be processed because the server is shutting down.
+    for (Ring ring : rings)
+    {
+      ring.closed = true;
+      handOver(ring);
+    }
+
+    if (monitor != null)
+    {
+      DirectoryServer.deregisterMonitorProvider(monitor);
+      monitor.finalizeMonitorProvider();
+    }
+
+    // Notify all the worker threads of the shutdown.
+    for (WorkStealingWorkerThread t : workerThreads)
+    {
+      if (t == null)
+      {
+        continue;
+      }
+      try
+      {
+        t.shutDown();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_NOTIFY_THREAD, t.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return <CODE>true</CODE> if the work queue has recieved a request to shut
+   *         down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  /**
+   * Submits an operation to be processed by one of the worker threads
+   * associated with this work queue.
+   *
+   * @param operation
+   *          The operation to be processed.
+   * @throws DirectoryException
+   *           If the provided operation is not accepted for some reason (e.g.,
+   *           if the server is shutting down or the pending operation queue is
+   *           already at its maximum capacity).
+   */
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, isBlocking);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation)
+      throws DirectoryException
+  {
+    try
+    {
+      submitOperation(operation, false);
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      if (ResultCode.BUSY == e.getResultCode())
+      {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void submitOperation(Operation operation,
+      boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    checkNotShutdown();
+    try
+    {
+      while (true)
+      {
+        if (blockEnqueuingWhenFull)
+        {
+          // Periodically wake up: once shutdown is requested, the worker
+          // threads no longer free any capacity.
+          while (!capacity.tryAcquire(1, TimeUnit.SECONDS))
+          {
+            checkNotShutdown();
+          }
+        }
+        else if (!capacity.tryAcquire())
+        {
+          throw rejectQueueFull();
+        }
+
+        if (offer(operation))
+        {
+          break;
+        }
+
+        // All the ring buffers are full, which can only happen if the maximum
+        // capacity exceeds what the ring buffers can hold.
+        capacity.release();
+        if (!blockEnqueuingWhenFull)
+        {
+          throw rejectQueueFull();
+        }
+        Thread.yield();
+        checkNotShutdown();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // We cannot handle the interruption here. Reject the request and
+      // re-interrupt this thread.
+      Thread.currentThread().interrupt();
+
+      queueFullRejects.increment();
+
+      LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get();
+      throw new DirectoryException(ResultCode.BUSY, message);
+    }
+
+    opsSubmitted.increment();
+  }
+
+  private void checkNotShutdown() throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      LocalizableMessage message = WARN_OP_REJECTED_BY_SHUTDOWN.get();
+      throw new DirectoryException(ResultCode.UNAVAILABLE, message);
+    }
+  }
+
+  private DirectoryException rejectQueueFull()
+  {
+    queueFullRejects.increment();
+
+    LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxCapacity);
+    return new DirectoryException(ResultCode.BUSY, message);
+  }
+
+  /**
+   * Adds the provided operation to the ring buffer of the worker thread
+   * associated with its client connection, or to the next ring buffer having
+   * available capacity, and wakes up a worker thread if needed.
+   *
+   * @return {@code true} if the operation was queued, or {@code false} if all
+   *         the ring buffers are full
+   */
+  private boolean offer(Operation operation)
+  {
+    final Ring[] current = rings;
+    final int home = homeRing(operation, current.length);
+    for (int i = 0; i < current.length; i++)
+    {
+      final int index = (home + i) % current.length;
+      final Ring ring = current[index];
+      if (ring.offer(operation))
+      {
+        if (ring.closed)
+        {
+          // The ring buffer was replaced or the server is shutting down while
+          // the operation was queued: the operation may have been missed.
+          handOver(ring);
+        }
+        else
+        {
+          signalWorkerThread(index);
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int homeRing(Operation operation, int nbRings)
+  {
+    final ClientConnection clientConnection = operation.getClientConnection();
+    long id = clientConnection != null ? clientConnection.getConnectionID() : -1;
+    if (id < 0)
+    {
+      // Spread the operations of internal connections.
+      id = operation.getOperationID();
+    }
+    return (int) ((id ^ (id >>> 32)) & Integer.MAX_VALUE) % nbRings;
+  }
+
+  /**
+   * Wakes up the owner of the provided ring buffer if it is parked, otherwise
+   * another parked worker thread so that it steals the operation.
+   */
+  private void signalWorkerThread(int index)
+  {
+    final WorkStealingWorkerThread[] current = workerThreads;
+    if (index < current.length)
+    {
+      final WorkStealingWorkerThread owner = current[index];
+      if (owner != null && owner.parked)
+      {
+        LockSupport.unpark(owner);
+        return;
+      }
+    }
+    if (parkedThreads.get() > 0)
+    {
+      for (int i = 1; i <= current.length; i++)
+      {
+        final WorkStealingWorkerThread t = current[(index + i) % current.length];
+        if (t != null && t.parked)
+        {
+          LockSupport.unpark(t);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Moves the operations pending in a closed ring buffer to the current ring
+   * buffers, or cancels them if the server is shutting down.
+   */
+  private void handOver(Ring ring)
+  {
+    Operation operation;
+    while ((operation = ring.poll()) != null)
+    {
+      if (shutdownRequested)
+      {
+        capacity.release();
+        cancel(operation);
+      }
+      else
+      {
+        while (!offer(operation))
+        {
+          Thread.yield();
+        }
+      }
+    }
+  }
+
+  private void cancel(Operation operation)
+  {
+    CancelRequest cancelRequest = new CancelRequest(true, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+    try
+    {
+      // The operation has no chance of responding to the cancel
+      // request so avoid waiting for a cancel response.
+      if (operation.getCancelResult() == null)
+      {
+        operation.abort(cancelRequest);
+      }
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, operation, e);
+    }
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives. This method
+   * should only be called by a worker thread associated with this work queue.
+   *
+   * @param workerThread
+   *          The worker thread that is requesting the operation.
+   * @return The next operation that should be processed, or <CODE>null</CODE>
+   *         if the server is shutting down or if the worker thread is no longer
+   *         needed.
+   */
+  public Operation nextOperation(WorkStealingWorkerThread workerThread)
+  {
+    while (true)
+    {
+      if (shutdownRequested)
+      {
+        return null;
+      }
+
+      // See if we should kill off this thread. This could be necessary if the
+      // number of worker threads has been decreased with the server online.
+      if (workerThread.getSlot() >= rings.length && tryKillThisWorkerThread(workerThread))
+      {
+        return null;
+      }
+
+      Operation operation = poll(workerThread);
+      if (operation != null)
+      {
+        return operation;
+      }
+
+      // Check the ring buffers again once parked so that a concurrently
+      // submitted operation either is found now or wakes up this thread.
+      workerThread.parked = true;
+      parkedThreads.incrementAndGet();
+      try
+      {
+        operation = poll(workerThread);
+        if (operation != null)
+        {
+          return operation;
+        }
+        if (!shutdownRequested)
+        {
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+      }
+      finally
+      {
+        workerThread.parked = false;
+        parkedThreads.decrementAndGet();
+      }
+
+      // Worker threads are only interrupted when the server is shutting down,
+      // which is checked at the start of the loop.
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Picks up an operation from the ring buffer owned by the provided worker
+   * thread, or steals one from the other ring buffers.
+   */
+  private Operation poll(WorkStealingWorkerThread workerThread)
+  {
+    final Ring[] current = rings;
+    final int slot = workerThread.getSlot();
+    if (slot < current.length)
+    {
+      final Operation operation = current[slot].poll();
+      if (operation != null)
+      {
+        capacity.release();
+        return operation;
+      }
+    }
+    for (int i = 1; i <= current.length; i++)
+    {
+      final int index = (slot + i) % current.length;
+      if (index == slot)
+      {
+        continue;
+      }
+      final Operation operation = current[index].poll();
+      if (operation != null)
+      {
+        opsStolen.increment();
+        capacity.release();
+        return operation;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Kills this worker thread if it is no longer needed.
+   *
+   * @param workerThread
+   *          The worker thread associated with this thread.
+   * @return {@code true} if this thread was killed.
+   */
+  private boolean tryKillThisWorkerThread(WorkStealingWorkerThread workerThread)
+  {
+    synchronized (configLock)
+    {
+      final int slot = workerThread.getSlot();
+      if (slot < rings.length)
+      {
+        // The number of worker threads has been increased again in the meantime.
+        return false;
+      }
+
+      if (workerThreads[slot] == workerThread)
+      {
+        WorkStealingWorkerThread[] newWorkerThreads = workerThreads.clone();
+        newWorkerThreads[slot] = null;
+        int length = newWorkerThreads.length;
+        while (length > 0 && newWorkerThreads[length - 1] == null)
+        {
+          length--;
+        }
+        workerThreads = Arrays.copyOf(newWorkerThreads, length);
+      }
+      workerThread.setStoppedByReducedThreadNumber();
+      return true;
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup. This does
+   * not include operations that have been rejected for some reason like the
+   * queue already at its maximum capacity.
+   *
+   * @return The total number of operations that have been successfully
+   *         submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.sum();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.sum();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been processed by
+   * another worker thread than the one they were queued for.
+   *
+   * @return The total number of operations that have been stolen by idle
+   *         worker threads since startup.
+   */
+  public long getOpsStolen()
+  {
+    return opsStolen.sum();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the queue that have not yet
+   * been picked up for processing.
+   *
+   * @return The number of pending operations in the queue that have not yet
+   *         been picked up for processing.
+   */
+  public int size()
+  {
+    int size = 0;
+    for (Ring ring : rings)
+    {
+      size += ring.size();
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      WorkStealingWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(
+      WorkStealingWorkQueueCfg configuration)
+  {
+    int newNumThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+    int newMaxCapacity = configuration.getMaxWorkQueueCapacity();
+
+    synchronized (configLock)
+    {
+      if (newMaxCapacity > maxCapacity)
+      {
+        capacity.release(newMaxCapacity - maxCapacity);
+      }
+      else if (newMaxCapacity < maxCapacity)
+      {
+        // Operations already queued beyond the new capacity are kept.
+        capacity.reducePermits(maxCapacity - newMaxCapacity);
+      }
+
+      final Ring[] oldRings = rings;
+      if (newNumThreads != numWorkerThreads
+          || ringCapacity(newNumThreads, newMaxCapacity) != ringCapacity(numWorkerThreads, maxCapacity))
+      {
+        rings = newRings(newNumThreads, newMaxCapacity);
+      }
+      numWorkerThreads = newNumThreads;
+      maxCapacity = newMaxCapacity;
+
+      if (rings != oldRings)
+      {
+        startWorkerThreads();
+
+        // Wake up the worker threads which are no longer needed so that they exit.
+        final WorkStealingWorkerThread[] current = workerThreads;
+        for (int slot = newNumThreads; slot < current.length; slot++)
+        {
+          if (current[slot] != null)
+          {
+            LockSupport.unpark(current[slot]);
+          }
+        }
+
+        for (Ring ring : oldRings)
+        {
+          ring.closed = true;
+          handOver(ring);
+        }
+      }
+    }
+
+    return new ConfigChangeResult();
+  }
+
+  /** Starts a worker thread for each ring buffer which does not have one. */
+  private void startWorkerThreads()
+  {
+    final int nbRings = rings.length;
+    WorkStealingWorkerThread[] newWorkerThreads =
+        Arrays.copyOf(workerThreads, Math.max(workerThreads.length, nbRings));
+    for (int slot = 0; slot < nbRings; slot++)
+    {
+      if (newWorkerThreads[slot] == null)
+      {
+        newWorkerThreads[slot] = new WorkStealingWorkerThread(this, lastThreadNumber++, slot);
+      }
+    }
+    final WorkStealingWorkerThread[] oldWorkerThreads = workerThreads;
+    workerThreads = newWorkerThreads;
+    for (int slot = 0; slot < nbRings; slot++)
+    {
+      if (slot >= oldWorkerThreads.length || oldWorkerThreads[slot] == null)
+      {
+        newWorkerThreads[slot].start();
+      }
+    }
+  }
+
+  private static Ring[] newRings(int nbRings, int maxCapacity)
+  {
+    final int ringCapacity = ringCapacity(nbRings, maxCapacity);
+    final Ring[] newRings = new Ring[nbRings];
+    for (int i = 0; i < nbRings; i++)
+    {
+      newRings[i] = new Ring(ringCapacity);
+    }
+    return newRings;
+  }
+
+  /**
+   * Returns the capacity of each ring buffer: twice an even share of the
+   * maximum capacity, so that the operations of busy connections do not
+   * overflow to other ring buffers too often.
+   */
+  private static int ringCapacity(int nbRings, int maxCapacity)
+  {
+    final long share = 2L * ((maxCapacity + nbRings - 1) / nbRings);
+    final long bounded = Math.min(Math.max(share, MIN_RING_CAPACITY), MAX_RING_CAPACITY);
+    return Integer.highestOneBit((int) bounded - 1) << 1;
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    if (size() > 0)
+    {
+      return false;
+    }
+
+    for (WorkStealingWorkerThread t : workerThreads)
+    {
+      if (t != null && t.isActive())
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return this.numWorkerThreads;
+  }
+
+  /** A semaphore whose number of permits can be reduced. */
+  private static final class CapacitySemaphore extends Semaphore
+  {
+    private static final long serialVersionUID = 1L;
+
+    private CapacitySemaphore(int permits)
+    {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction)
+    {
+      super.reducePermits(reduction);
+    }
+  }
+
+  /**
+   * A bounded lock-free ring buffer supporting multiple producers and multiple
+   * consumers. Each slot has a sequence number telling whether it is free for
+   * the producer of a given position, or holds the operation for the consumer
+   * of this position.
+   */
+  private static final class Ring
+  {
+    private final AtomicReferenceArray<Operation> operations;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Indicates whether this ring buffer has been replaced and should no longer receive operations. */
+    private volatile boolean closed;
+
+    private Ring(int capacity)
+    {
+      operations = new AtomicReferenceArray<>(capacity);
+      sequences = new AtomicLongArray(capacity);
+      mask = capacity - 1;
+      for (int i = 0; i < capacity; i++)
+      {
+        sequences.set(i, i);
+      }
+    }
+
+    private boolean offer(Operation operation)
+    {
+      long position = tail.get();
+      while (true)
+      {
+        final long difference = sequences.get((int) position & mask) - position;
+        if (difference == 0)
+        {
+          if (tail.compareAndSet(position, position + 1))
+          {
+            break;
+          }
+          position = tail.get();
+        }
+        else if (difference < 0)
+        {
+          // The slot still holds the operation of the previous lap.
+          return false;
+        }
+        else
+        {
+          position = tail.get();
+        }
+      }
+      final int index = (int) position & mask;
+      operations.lazySet(index, operation);
+      // Volatile write so that parked worker threads are reliably checked afterwards.
+      sequences.set(index, position + 1);
+      return true;
+    }
+
+    private Operation poll()
+    {
+      long position = head.get();
+      while (true)
+      {
+        final long difference = sequences.get((int) position & mask) - (position + 1);
+        if (difference == 0)
+        {
+          if (head.compareAndSet(position, position + 1))
+          {
+            break;
+          }
+          position = head.get();
+        }
+        else if (difference < 0)
+        {
+          // Empty.
+          return null;
+        }
+        else
+        {
+          position = head.get();
+        }
+      }
+      final int index = (int) position & mask;
+      final Operation operation = operations.get(index);
+      operations.lazySet(index, null);
+      sequences.lazySet(index, position + mask + 1);
+      return operation;
+    }
+
+    private int size()
+    {
+      return (int) Math.max(tail.get() - head.get(), 0);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.monitors;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the cache of parsed DNs shared by all the threads.
+ */
+public class DNCacheMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name to use for the monitor attribute that provides the number of DNs found in the cache. */
+  public static final String ATTR_DN_CACHE_HITS = "dnCacheHits";
+  /** The name to use for the monitor attribute that provides the number of DNs parsed because not in the cache. */
+  public static final String ATTR_DN_CACHE_MISSES = "dnCacheMisses";
+  /** The name to use for the monitor attribute that provides the number of DNs in the cache. */
+  public static final String ATTR_DN_CACHE_SIZE = "dnCacheSize";
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "DN Cache";
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    final MonitorData monitorAttrs = new MonitorData(3);
+    monitorAttrs.add(ATTR_DN_CACHE_HITS, DN.getSharedCacheHits());
+    monitorAttrs.add(ATTR_DN_CACHE_MISSES, DN.getSharedCacheMisses());
+    monitorAttrs.add(ATTR_DN_CACHE_SIZE, DN.getSharedCacheSize());
+    return monitorAttrs;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.monitors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.LockManager;
+import org.opends.server.types.LockManager.LockContention;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the contention on the locks of the lock manager.
+ */
+public class LockManagerMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name to use for the monitor attribute that provides the number of lock attempts which had to wait. */
+  public static final String ATTR_CONTENDED_LOCKS = "contendedLockRequests";
+  /** The name to use for the monitor attribute that provides the number of lock attempts which timed out. */
+  public static final String ATTR_TIMED_OUT_LOCKS = "timedOutLockRequests";
+  /** The name to use for the monitor attribute that provides the distribution of the lock wait times. */
+  public static final String ATTR_WAIT_TIME_HISTOGRAM = "lockWaitTimeHistogram";
+  /** The name to use for the monitor attribute that provides the most contended DNs. */
+  public static final String ATTR_MOST_CONTENDED_DNS = "mostContendedDN";
+
+  /** The maximum number of contended DNs to report. */
+  private static final int MAX_CONTENDED_DNS = 10;
+
+  /** The lock manager with which this monitor is associated. */
+  private final LockManager lockManager;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  lockManager  The lock manager with which this monitor is associated.
+   */
+  public LockManagerMonitor(LockManager lockManager)
+  {
+    this.lockManager = lockManager;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Lock Manager";
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    final List<String> histogram = new ArrayList<>();
+    final long[] waitTimes = lockManager.getWaitTimeHistogram();
+    for (int i = 0; i < waitTimes.length; i++)
+    {
+      if (waitTimes[i] > 0)
+      {
+        final String bound = i < waitTimes.length - 1 ? "<" + (1L << i) : ">=" + (1L << (i - 1));
+        histogram.add(bound + "us: " + waitTimes[i]);
+      }
+    }
+
+    final List<String> contendedDNs = new ArrayList<>();
+    for (LockContention contention : lockManager.getMostContendedDNs(MAX_CONTENDED_DNS))
+    {
+      contendedDNs.add(contention.getContendedCount() + " waits, "
+          + contention.getWaitTime(TimeUnit.MILLISECONDS) + " ms: " + contention.getDN());
+    }
+
+    final MonitorData monitorAttrs = new MonitorData(4);
+    monitorAttrs.add(ATTR_CONTENDED_LOCKS, lockManager.getContendedLockCount());
+    monitorAttrs.add(ATTR_TIMED_OUT_LOCKS, lockManager.getTimedOutLockCount());
+    if (!histogram.isEmpty())
+    {
+      monitorAttrs.add(ATTR_WAIT_TIME_HISTOGRAM, histogram);
+    }
+    if (!contendedDNs.isEmpty())
+    {
+      monitorAttrs.add(ATTR_MOST_CONTENDED_DNS, contendedDNs);
+    }
+    return monitorAttrs;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.monitors.TraditionalWorkQueueMonitor.*;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.VirtualThreadWorkQueue;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the virtual thread work queue.
+ */
+public class VirtualThreadWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name to use for the monitor attribute that provides the number of operations in progress. */
+  public static final String ATTR_ACTIVE_OPERATIONS = "activeRequests";
+  /** The name to use for the monitor attribute that provides the maximum observed number of operations in progress. */
+  public static final String ATTR_MAX_ACTIVE_OPERATIONS = "maxActiveRequests";
+  /** The name to use for the monitor attribute that tells whether operations are processed on virtual threads. */
+  public static final String ATTR_VIRTUAL_THREADS = "virtualThreads";
+
+  /** The virtual thread work queue instance with which this monitor is associated. */
+  private final VirtualThreadWorkQueue workQueue;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public VirtualThreadWorkQueueMonitor(VirtualThreadWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    final MonitorData monitorAttrs = new MonitorData(5);
+    monitorAttrs.add(ATTR_ACTIVE_OPERATIONS, workQueue.getActiveOperations());
+    monitorAttrs.add(ATTR_MAX_ACTIVE_OPERATIONS, workQueue.getMaxActiveOperations());
+    monitorAttrs.add(ATTR_VIRTUAL_THREADS, workQueue.isUsingVirtualThreads());
+    monitorAttrs.add(ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(ATTR_OPS_REJECTED_QUEUE_FULL, workQueue.getOpsRejectedDueToQueueFull());
+    return monitorAttrs;
+  }
+}
@@ -16,6 +16,8 @@
  */
 package org.opends.server.protocols.ldap;
 
+import static com.forgerock.opendj.ldap.CoreMessages.*;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -56,6 +58,13 @@ import org.forgerock.opendj.ldap.DecodeException;
  * available, the client should call {@link #processChannelData()}
  * again to read more data (if available).
  * <p>
+ * Data is read off the channel into a direct buffer taken from a
+ * {@link DirectBufferPool}, and the buffer is returned to the pool as soon
+ * as all its data has been read. Once a complete top level element (an LDAP
+ * message) has been read, it is copied in a single byte array and decoded
+ * from there: the octet strings returned while reading the element share
+ * this array instead of being copied one by one.
+ * <p>
  * <b>NOTE:</b> Since this reader is non blocking, reading ASN.1
  * elements before making sure they are ready could result in
  * {@link IllegalBlockingModeException}s being thrown while reading
@@ -64,14 +73,44 @@ import org.forgerock.opendj.ldap.DecodeException;
  */
 final class ASN1ByteChannelReader implements ASN1Reader
 {
+  /** The buffer used when this reader does not hold a buffer of the pool. */
+  private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
   /** The byte channel to read from. */
   private final ReadableByteChannel byteChannel;
 
-  /** The wrapped ASN.1 reader. */
-  private final ASN1Reader reader;
+  /** The pool providing the buffers used to read from the channel. */
+  private final DirectBufferPool bufferPool;
+
+  /** The size of the buffers used to read from the channel. */
+  private final int bufferSize;
+
+  /** The max ASN.1 element size this reader will read. */
+  private final int maxElementSize;
+
+  /**
+   * The ASN.1 reader reading the save buffer and the NIO byte buffer as a
+   * stream, used when elements are read before being complete.
+   */
+  private final ASN1Reader streamReader;
+
+  /** The reader of the last complete top level element, or {@code null}. */
+  private ASN1Reader elementReader;
+
+  /** The number of sequences started and not ended in the current element. */
+  private int depth;
+
+  /**
+   * Whether an element has been read from the stream reader, which then holds
+   * a part of the data: all the next elements are then read from it.
+   */
+  private boolean streaming;
 
-  /** The NIO ByteStringBuilder that stores any immediate data read off the channel. */
-  private final ByteBuffer byteBuffer;
+  /**
+   * The NIO byte buffer that stores any immediate data read off the channel,
+   * or {@link #EMPTY_BUFFER} when there is no such data.
+   */
+  private ByteBuffer byteBuffer = EMPTY_BUFFER;
 
   /**
    * The save buffer used to store any unprocessed data waiting to be read as
@@ -272,15 +311,37 @@ final class ASN1ByteChannelReader implements ASN1Reader
    */
   ASN1ByteChannelReader(ReadableByteChannel channel, int bufferSize,
       int maxElementSize)
+  {
+    this(channel, new DirectBufferPool(1), bufferSize, maxElementSize);
+  }
+
+  /**
+   * Creates a new ASN.1 byte channel reader whose source is the
+   * provided readable byte channel, reading from the channel into
+   * the buffers of the provided pool, and having a user defined
+   * maximum BER element size.
+   *
+   * @param channel
+   *          The readable byte channel to use.
+   * @param bufferPool
+   *          The pool providing the buffers used to read from the channel.
+   * @param bufferSize
+   *          The buffer size to use when reading from the channel.
+   * @param maxElementSize
+   *          The max ASN.1 element size this reader will read.
+   */
+  ASN1ByteChannelReader(ReadableByteChannel channel, DirectBufferPool bufferPool,
+      int bufferSize, int maxElementSize)
   {
     this.byteChannel = channel;
-    this.byteBuffer = ByteBuffer.allocate(bufferSize);
-    this.byteBuffer.flip();
+    this.bufferPool = bufferPool;
+    this.bufferSize = bufferSize;
+    this.maxElementSize = maxElementSize;
     this.saveBuffer = new ByteStringBuilder();
     this.saveBufferReader = saveBuffer.asReader();
 
     CombinedBufferInputStream bufferStream = new CombinedBufferInputStream();
-    this.reader = ASN1.getReader(bufferStream, maxElementSize);
+    this.streamReader = ASN1.getReader(bufferStream, maxElementSize);
   }
 
   /**
@@ -317,6 +378,10 @@ final class ASN1ByteChannelReader implements ASN1Reader
       saveBuffer.appendBytes(byteBuffer, byteBuffer.remaining());
     }
 
+    if (byteBuffer == EMPTY_BUFFER)
+    {
+      byteBuffer = bufferPool.acquire(bufferSize);
+    }
     byteBuffer.clear();
     try
     {
@@ -328,9 +393,126 @@ final class ASN1ByteChannelReader implements ASN1Reader
       // ensure that subsequent calls which query the remaining data return
       // valid results.
       byteBuffer.flip();
+      if (byteBuffer.remaining() == 0)
+      {
+        // Do not hold a buffer while waiting for the client
+        releaseBuffer();
+      }
+    }
+  }
+
+  /** Returns the NIO byte buffer to the pool if this reader holds one. */
+  private void releaseBuffer()
+  {
+    if (byteBuffer != EMPTY_BUFFER)
+    {
+      bufferPool.release(byteBuffer);
+      byteBuffer = EMPTY_BUFFER;
     }
   }
 
+  /**
+   * Returns the reader to read the next ASN.1 element from. This is the
+   * reader of the current top level element if it has not been fully read,
+   * or the reader of the next top level element if it is complete. Otherwise
+   * the element is read as a stream, like all the next elements.
+   */
+  private ASN1Reader reader() throws IOException
+  {
+    if (!streaming)
+    {
+      if (isReadingElement() || nextElement())
+      {
+        return elementReader;
+      }
+      streaming = true;
+    }
+    return streamReader;
+  }
+
+  /** Returns whether the current top level element has not been fully read. */
+  private boolean isReadingElement() throws IOException
+  {
+    if (elementReader != null && (depth > 0 || elementReader.hasNextElement()))
+    {
+      return true;
+    }
+    elementReader = null;
+    return false;
+  }
+
+  /**
+   * Copies the next top level element out of the buffers if it is complete,
+   * without consuming any data otherwise.
+   *
+   * @return {@code true} if the next top level element is complete and can
+   *         be read from {@link #elementReader}.
+   * @throws DecodeException
+   *           If the length of the element is invalid or larger than the max
+   *           ASN.1 element size.
+   */
+  private boolean nextElement() throws DecodeException
+  {
+    final int available = saveBufferReader.remaining() + byteBuffer.remaining();
+    if (available < 2)
+    {
+      return false;
+    }
+
+    int headerLength = 2;
+    int length = bufferedByteAt(1) & 0xFF;
+    if ((length & 0x80) != 0)
+    {
+      final int lengthBytes = length & 0x7F;
+      if (lengthBytes > 4)
+      {
+        throw DecodeException.fatalError(ERR_ASN1_INVALID_NUM_LENGTH_BYTES.get(lengthBytes));
+      }
+      if (available < headerLength + lengthBytes)
+      {
+        return false;
+      }
+      length = 0;
+      for (int i = 0; i < lengthBytes; i++)
+      {
+        length = (length << 8) | (bufferedByteAt(headerLength++) & 0xFF);
+      }
+    }
+    if (length < 0 || (maxElementSize > 0 && length > maxElementSize))
+    {
+      throw DecodeException.fatalError(
+          ERR_LDAP_CLIENT_DECODE_MAX_REQUEST_SIZE_EXCEEDED.get(length & 0xFFFFFFFFL, maxElementSize));
+    }
+    if (available - headerLength < length)
+    {
+      return false;
+    }
+
+    final byte[] element = new byte[headerLength + length];
+    int copied = Math.min(saveBufferReader.remaining(), element.length);
+    saveBufferReader.readBytes(element, 0, copied);
+    byteBuffer.get(element, copied, element.length - copied);
+    if (byteBuffer.remaining() == 0)
+    {
+      releaseBuffer();
+    }
+
+    elementReader = ASN1.getReader(ByteString.wrap(element), maxElementSize);
+    depth = 0;
+    return true;
+  }
+
+  /** Returns the unread byte at the provided index in the save buffer followed by the NIO byte buffer. */
+  private byte bufferedByteAt(int index)
+  {
+    final int saved = saveBufferReader.remaining();
+    if (index < saved)
+    {
+      return saveBuffer.byteAt(saveBufferReader.position() + index);
+    }
+    return byteBuffer.get(byteBuffer.position() + index - saved);
+  }
+
   /**
    * Determines if a complete ASN.1 element is ready to be read from
    * channel.
@@ -343,7 +525,11 @@ final class ASN1ByteChannelReader implements ASN1Reader
   @Override
   public boolean elementAvailable() throws IOException
   {
-    return reader.elementAvailable();
+    if (streaming)
+    {
+      return streamReader.elementAvailable();
+    }
+    return isReadingElement() ? elementReader.elementAvailable() : nextElement();
   }
 
   /**
@@ -356,7 +542,15 @@ final class ASN1ByteChannelReader implements ASN1Reader
    */
   @Override
   public boolean hasNextElement() throws IOException {
-    return reader.hasNextElement();
+    if (streaming)
+    {
+      return streamReader.hasNextElement();
+    }
+    if (isReadingElement())
+    {
+      return elementReader.hasNextElement();
+    }
+    return nextElement() || hasRemainingData();
   }
 
   /**
@@ -371,145 +565,158 @@ final class ASN1ByteChannelReader implements ASN1Reader
 
   @Override
   public int peekLength() throws IOException {
-    return reader.peekLength();
+    return reader().peekLength();
   }
 
   @Override
   public byte peekType() throws IOException {
-    return reader.peekType();
+    return reader().peekType();
   }
 
   @Override
   public boolean readBoolean() throws IOException {
-    return reader.readBoolean();
+    return reader().readBoolean();
   }
 
   @Override
   public boolean readBoolean(byte type) throws IOException {
-    return reader.readBoolean(type);
+    return reader().readBoolean(type);
   }
 
   @Override
   public void readEndExplicitTag() throws IOException {
-    reader.readEndExplicitTag();
+    reader().readEndExplicitTag();
+    depth--;
   }
 
   @Override
   public void readEndSequence() throws IOException {
-    reader.readEndSequence();
+    reader().readEndSequence();
+    depth--;
   }
 
   @Override
   public void readEndSet() throws IOException {
-    reader.readEndSet();
+    reader().readEndSet();
+    depth--;
   }
 
   @Override
   public int readEnumerated() throws IOException {
-    return reader.readEnumerated();
+    return reader().readEnumerated();
   }
 
   @Override
   public int readEnumerated(byte type) throws IOException {
-    return reader.readEnumerated(type);
+    return reader().readEnumerated(type);
   }
 
   @Override
   public long readInteger() throws IOException {
-    return reader.readInteger();
+    return reader().readInteger();
   }
 
   @Override
   public long readInteger(byte type) throws IOException {
-    return reader.readInteger(type);
+    return reader().readInteger(type);
   }
 
   @Override
   public void readNull() throws IOException {
-    reader.readNull();
+    reader().readNull();
   }
 
   @Override
   public void readNull(byte type) throws IOException {
-    reader.readNull(type);
+    reader().readNull(type);
   }
 
   @Override
   public ByteString readOctetString() throws IOException {
-    return reader.readOctetString();
+    return reader().readOctetString();
   }
 
   @Override
   public ByteString readOctetString(byte type) throws IOException {
-    return readOctetString(type);
+    return reader().readOctetString(type);
   }
 
   @Override
   public ByteStringBuilder readOctetString(ByteStringBuilder buffer) throws IOException {
-    return reader.readOctetString(buffer);
+    return reader().readOctetString(buffer);
   }
 
   @Override
   public ByteStringBuilder readOctetString(byte type, ByteStringBuilder builder) throws IOException {
-    return readOctetString(type, builder);
+    return reader().readOctetString(type, builder);
   }
 
   @Override
   public String readOctetStringAsString() throws IOException {
-    return reader.readOctetStringAsString();
+    return reader().readOctetStringAsString();
   }
 
   @Override
   public String readOctetStringAsString(byte type) throws IOException {
-    return readOctetStringAsString(type);
+    return reader().readOctetStringAsString(type);
   }
 
   @Override
   public void readStartExplicitTag() throws IOException {
-    reader.readStartExplicitTag();
+    reader().readStartExplicitTag();
+    depth++;
   }
 
   @Override
   public void readStartExplicitTag(byte type) throws IOException {
-    reader.readStartExplicitTag(type);
+    reader().readStartExplicitTag(type);
+    depth++;
   }
 
   @Override
   public void readStartSequence() throws IOException {
-    reader.readStartSequence();
+    reader().readStartSequence();
+    depth++;
   }
 
   @Override
   public void readStartSequence(byte type) throws IOException {
-    reader.readStartSequence(type);
+    reader().readStartSequence(type);
+    depth++;
   }
 
   @Override
   public void readStartSet() throws IOException {
-    reader.readStartSet();
+    reader().readStartSet();
+    depth++;
   }
 
   @Override
   public void readStartSet(byte type) throws IOException {
-    reader.readStartSet(type);
+    reader().readStartSet(type);
+    depth++;
   }
 
   @Override
   public void close() throws IOException {
-    reader.close();
+    streamReader.close();
+    elementReader = null;
+    // The buffer is not returned to the pool: the connection may be closed
+    // while a request handler is still reading from it.
+    byteBuffer = EMPTY_BUFFER;
     byteChannel.close();
   }
 
   @Override
   public ASN1Reader skipElement() throws IOException {
-    reader.skipElement();
+    reader().skipElement();
     return this;
   }
 
   @Override
   public ASN1Reader skipElement(byte type) throws DecodeException, IOException
   {
-    reader.skipElement(type);
+    reader().skipElement(type);
     return this;
   }
 }
@@ -0,0 +1,103 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.protocols.ldap;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of direct byte buffers, shared by the client connections of a
+ * connection handler to read the requests off their channel.
+ * <p>
+ * A connection only holds a buffer while it has unread data, so the number of
+ * buffers in use is close to the number of request handlers rather than the
+ * number of connections. Reading from a socket into a direct buffer also
+ * avoids the temporary direct buffer the JDK copies from when reading into a
+ * heap buffer.
+ */
+final class DirectBufferPool
+{
+  /** The maximum number of free buffers kept by this pool. */
+  private final int maxPooledBuffers;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+  /**
+   * Creates a new pool of direct byte buffers.
+   *
+   * @param maxPooledBuffers
+   *          The maximum number of free buffers kept by this pool.
+   */
+  DirectBufferPool(int maxPooledBuffers)
+  {
+    this.maxPooledBuffers = maxPooledBuffers;
+  }
+
+  /**
+   * Returns a cleared direct buffer of the provided capacity, taken from this
+   * pool if possible.
+   *
+   * @param bufferSize
+   *          The capacity of the returned buffer.
+   * @return A cleared direct buffer of the provided capacity.
+   */
+  ByteBuffer acquire(int bufferSize)
+  {
+    ByteBuffer buffer;
+    while ((buffer = buffers.poll()) != null)
+    {
+      pooledBuffers.decrementAndGet();
+      if (buffer.capacity() == bufferSize)
+      {
+        buffer.clear();
+        return buffer;
+      }
+      // The buffer size has been reconfigured: drop the buffer.
+    }
+    return ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  /**
+   * Returns a buffer to this pool. The buffer must no longer be used by the
+   * caller.
+   *
+   * @param buffer
+   *          The buffer to return to this pool.
+   */
+  void release(ByteBuffer buffer)
+  {
+    if (pooledBuffers.incrementAndGet() <= maxPooledBuffers)
+    {
+      buffers.offer(buffer);
+    }
+    else
+    {
+      pooledBuffers.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the number of free buffers currently kept by this pool.
+   *
+   * @return The number of free buffers currently kept by this pool.
+   */
+  int size()
+  {
+    return pooledBuffers.get();
+  }
+}
@@ -31,15 +31,20 @@ import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.security.cert.Certificate;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -76,6 +81,7 @@ import org.opends.server.extensions.ConnectionSecurityProvider;
 import org.opends.server.extensions.RedirectingByteChannel;
 import org.opends.server.extensions.TLSByteChannel;
 import org.opends.server.extensions.TLSCapableConnection;
+import org.opends.server.protocols.ldap.LDAPStatistics.FlushReason;
 import org.opends.server.types.AuthenticationType;
 import org.opends.server.types.CancelRequest;
 import org.opends.server.types.CancelResult;
@@ -159,7 +165,7 @@ public final class LDAPClientConnection extends ClientConnection implements
    * record them before calling this method and restore them after it
    * returns.
    */
-  private class TimeoutWriteByteChannel implements ByteChannel
+  private class TimeoutWriteByteChannel implements ByteChannel, GatheringByteChannel
   {
     /** Synchronize concurrent writes to the same connection. */
     private final Lock writeLock = new ReentrantLock();
@@ -190,16 +196,61 @@ public final class LDAPClientConnection extends ClientConnection implements
     @Override
     public int write(ByteBuffer byteBuffer) throws IOException
     {
-      writeLock.lock();
+      return (int) write(new ByteBuffer[] { byteBuffer }, 0, 1);
+    }
+
+    @Override
+    public long write(ByteBuffer[] byteBuffers) throws IOException
+    {
+      return write(byteBuffers, 0, byteBuffers.length);
+    }
+
+    /**
+     * Writes as many bytes of the provided buffer as the client channel
+     * accepts without blocking, unless another thread is already writing to
+     * the client.
+     *
+     * @return the number of bytes written
+     */
+    int writeNonBlocking(ByteBuffer byteBuffer) throws IOException
+    {
+      if (!writeLock.tryLock())
+      {
+        return 0;
+      }
       try
       {
-        int bytesToWrite = byteBuffer.remaining();
         int bytesWritten = clientChannel.write(byteBuffer);
+        if (bytesWritten < 0)
+        {
+          // The client connection has been closed.
+          throw new ClosedChannelException();
+        }
+        if (bytesWritten > 0 && keepStats)
+        {
+          statTracker.updateBytesWritten(bytesWritten);
+        }
+        return bytesWritten;
+      }
+      finally
+      {
+        writeLock.unlock();
+      }
+    }
+
+    @Override
+    public long write(ByteBuffer[] byteBuffers, int offset, int length) throws IOException
+    {
+      writeLock.lock();
+      try
+      {
+        long bytesToWrite = remaining(byteBuffers, offset, length);
+        long bytesWritten = clientChannel.write(byteBuffers, offset, length);
         if (bytesWritten > 0 && keepStats)
         {
           statTracker.updateBytesWritten(bytesWritten);
         }
-        if (!byteBuffer.hasRemaining())
+        if (remaining(byteBuffers, offset, length) == 0)
         {
           return bytesToWrite;
         }
@@ -221,10 +272,10 @@ public final class LDAPClientConnection extends ClientConnection implements
           // The client connection does not provide a selector, so we'll
           // fall back to a more inefficient way that will work without a
           // selector.
-          while (byteBuffer.hasRemaining()
+          while (remaining(byteBuffers, offset, length) > 0
               && System.currentTimeMillis() < stopTime)
           {
-            bytesWritten = clientChannel.write(byteBuffer);
+            bytesWritten = clientChannel.write(byteBuffers, offset, length);
             if (bytesWritten < 0)
             {
               // The client connection has been closed.
@@ -236,7 +287,7 @@ public final class LDAPClientConnection extends ClientConnection implements
             }
           }
 
-          if (byteBuffer.hasRemaining())
+          if (remaining(byteBuffers, offset, length) > 0)
           {
             // If we've gotten here, then the write timed out.
             throw new ClosedChannelException();
@@ -251,7 +302,7 @@ public final class LDAPClientConnection extends ClientConnection implements
         try
         {
           selector.select(waitTime);
-          while (byteBuffer.hasRemaining())
+          while (remaining(byteBuffers, offset, length) > 0)
           {
             long currentTime = System.currentTimeMillis();
             if (currentTime >= stopTime)
@@ -267,7 +318,7 @@ public final class LDAPClientConnection extends ClientConnection implements
               SelectionKey k = iterator.next();
               if (k.isWritable())
               {
-                bytesWritten = clientChannel.write(byteBuffer);
+                bytesWritten = clientChannel.write(byteBuffers, offset, length);
                 if (bytesWritten < 0)
                 {
                   // The client connection has been closed.
@@ -282,7 +333,7 @@ public final class LDAPClientConnection extends ClientConnection implements
               }
             }
 
-            if (byteBuffer.hasRemaining())
+            if (remaining(byteBuffers, offset, length) > 0)
             {
               selector.select(waitTime);
             }
@@ -304,6 +355,16 @@ public final class LDAPClientConnection extends ClientConnection implements
         writeLock.unlock();
       }
     }
+
+    private long remaining(ByteBuffer[] byteBuffers, int offset, int length)
+    {
+      long remaining = 0;
+      for (int i = offset; i < offset + length; i++)
+      {
+        remaining += byteBuffers[i].remaining();
+      }
+      return remaining;
+    }
   }
 
   /** The tracer object for the debug logger. */
@@ -331,6 +392,18 @@ public final class LDAPClientConnection extends ClientConnection implements
     }
   }
 
+  /**
+   * The number of bytes of search result entries and references which can be
+   * held in the outbound buffer of a connection.
+   */
+  private static final int MAX_OUTBOUND_BUFFER_SIZE = 16 * 1024;
+  /**
+   * The maximum time a search result entry or reference is held in the
+   * outbound buffer, in nanoseconds. The connection handler flushes the buffer
+   * after this delay if no other message has been written meanwhile.
+   */
+  private static final long MAX_OUTBOUND_BUFFER_DELAY = TimeUnit.MILLISECONDS.toNanos(10);
+
   /** Cached ASN1 writer: a thread can only write to one connection at a time. */
   private static final ThreadLocal<ASN1WriterHolder> ASN1_WRITER_CACHE =
       new ThreadLocal<ASN1WriterHolder>()
@@ -410,7 +483,34 @@ public final class LDAPClientConnection extends ClientConnection implements
   /** The socket channel with which this client connection is associated. */
   private final SocketChannel clientChannel;
   /** The byte channel used for blocking writes with time out. */
-  private final ByteChannel timeoutClientChannel;
+  private final TimeoutWriteByteChannel timeoutClientChannel;
+
+  /**
+   * The search result entries and references waiting to be written to the
+   * client with the next responses, guarded by {@link #outboundLock}.
+   */
+  private final ByteStringBuilder outboundBuffer = new ByteStringBuilder();
+  /** The time at which the oldest response of the outbound buffer was added to it, in nanoseconds. */
+  private long outboundBufferStartTime;
+  /** Incremented by each flush, so that a scheduled flush only writes the responses it was scheduled for. */
+  private long outboundBufferFlushes;
+  /** Orders the responses written to the client and protects the outbound buffer. */
+  private final Lock outboundLock = new ReentrantLock();
+
+  /**
+   * The size of the responses waiting to be written to the client, including
+   * the outbound buffer and the responses being written.
+   */
+  private final AtomicLong pendingResponseBytes = new AtomicLong();
+  /** The request handler reading the requests of this connection. */
+  private volatile LDAPRequestHandler requestHandler;
+  /**
+   * The requests read while the in-flight window was full, in the order they
+   * were read. Only accessed by the request handler thread.
+   */
+  private final Queue<LDAPMessage> deferredRequests = new ArrayDeque<>();
+  /** Whether the request handler waits for the in-flight window to have room to process the deferred requests. */
+  private final AtomicBoolean waitingForInFlightWindow = new AtomicBoolean();
 
   /** The string representation of the address of the client. */
   private final String clientAddress;
@@ -478,7 +578,8 @@ public final class LDAPClientConnection extends ClientConnection implements
 
     tlsChannel = RedirectingByteChannel.getRedirectingByteChannel(timeoutClientChannel);
     saslChannel = RedirectingByteChannel.getRedirectingByteChannel(tlsChannel);
-    this.asn1Reader = new ASN1ByteChannelReader(saslChannel, bufferSize, connectionHandler.getMaxRequestSize());
+    this.asn1Reader = new ASN1ByteChannelReader(saslChannel, connectionHandler.getReadBufferPool(), bufferSize,
+        connectionHandler.getMaxRequestSize());
 
     if (connectionHandler.useSSL())
     {
@@ -841,7 +942,7 @@ public final class LDAPClientConnection extends ClientConnection implements
         new SearchResultEntryProtocolOp(searchEntry, ldapVersion);
 
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchEntry.getControls()));
+        protocolOp, searchEntry.getControls()), canDelayResponses(searchOperation));
   }
 
   /**
@@ -876,7 +977,24 @@ public final class LDAPClientConnection extends ClientConnection implements
         new SearchResultReferenceProtocolOp(searchReference);
 
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchReference.getControls()));
+        protocolOp, searchReference.getControls()), canDelayResponses(searchOperation));
+    return true;
+  }
+
+  /**
+   * Returns whether the entries and references returned by the provided search
+   * can be held in the outbound buffer: the search result done response will
+   * write them, unlike the changes returned by persistent searches.
+   */
+  private boolean canDelayResponses(SearchOperation searchOperation)
+  {
+    for (Control control : searchOperation.getRequestControls())
+    {
+      if (OID_PERSISTENT_SEARCH.equals(control.getOID()))
+      {
+        return false;
+      }
+    }
     return true;
   }
 
@@ -915,13 +1033,27 @@ public final class LDAPClientConnection extends ClientConnection implements
    *          The LDAP message to send to the client.
    */
   private void sendLDAPMessage(LDAPMessage message)
+  {
+    sendLDAPMessage(message, false);
+  }
+
+  /**
+   * Sends the provided LDAP message to the client.
+   *
+   * @param message
+   *          The LDAP message to send to the client.
+   * @param canBeDelayed
+   *          Whether the message can be held in the outbound buffer, to be
+   *          written to the client with the next messages.
+   */
+  private void sendLDAPMessage(LDAPMessage message, boolean canBeDelayed)
   {
     // Use a thread local writer.
     final ASN1WriterHolder holder = getASN1Writer();
     try
     {
       message.write(holder.writer);
-      holder.buffer.copyTo(saslChannel);
+      write(holder.buffer, canBeDelayed);
 
       if (logger.isTraceEnabled())
       {
@@ -956,6 +1088,209 @@ public final class LDAPClientConnection extends ClientConnection implements
     }
  }
 
+  /**
+   * Writes the provided encoded message to the client, after the messages held
+   * in the outbound buffer, or adds it to the outbound buffer.
+   */
+  private void write(ByteStringBuilder message, boolean canBeDelayed) throws IOException
+  {
+    pendingResponseBytes.addAndGet(message.length());
+    outboundLock.lock();
+    try
+    {
+      final int bufferedBytes = outboundBuffer.length();
+      final boolean bufferIsFull = bufferedBytes + message.length() > MAX_OUTBOUND_BUFFER_SIZE;
+      if (canBeDelayed)
+      {
+        final long now = System.nanoTime();
+        if (bufferedBytes == 0)
+        {
+          if (!bufferIsFull && scheduleDelayedFlush())
+          {
+            outboundBufferStartTime = now;
+            outboundBuffer.appendBytes(message);
+            return;
+          }
+        }
+        else if (now - outboundBufferStartTime >= MAX_OUTBOUND_BUFFER_DELAY)
+        {
+          flush(message, FlushReason.DELAY);
+          return;
+        }
+        else if (!bufferIsFull)
+        {
+          outboundBuffer.appendBytes(message);
+          return;
+        }
+      }
+      flush(message, canBeDelayed ? FlushReason.FULL_BUFFER : FlushReason.RESPONSE);
+    }
+    finally
+    {
+      outboundLock.unlock();
+      resumeReadsIfPossible();
+    }
+  }
+
+  /**
+   * Schedules the flush of the responses about to be added to the empty
+   * outbound buffer, so that they are not held longer than
+   * {@link #MAX_OUTBOUND_BUFFER_DELAY} when no other message follows them.
+   * <p>
+   * The responses of a connection using a security layer are never held: the
+   * security providers block until the whole buffer is written, which the
+   * connection handler thread shared by all the connections cannot afford.
+   *
+   * @return {@code false} if the flush cannot be scheduled, in which case the
+   *         responses must not be held in the outbound buffer
+   */
+  private boolean scheduleDelayedFlush()
+  {
+    return tlsActiveProvider == null && saslActiveProvider == null
+        && scheduleDelayedFlush(outboundBufferFlushes);
+  }
+
+  private boolean scheduleDelayedFlush(final long flushes)
+  {
+    return connectionHandler.scheduleOutboundBufferFlush(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        flushDelayedResponses(flushes);
+      }
+    }, MAX_OUTBOUND_BUFFER_DELAY);
+  }
+
+  /**
+   * Writes the responses held in the outbound buffer, unless they have
+   * already been written by another flush.
+   * <p>
+   * This runs on a connection handler thread shared by many connections, so
+   * it never blocks: if a worker thread is writing to this connection, or if
+   * the client does not accept all the responses, the flush of the remaining
+   * responses is scheduled again. Meanwhile the next message written to this
+   * connection by a worker thread flushes them.
+   *
+   * @param flushes
+   *          The number of flushes when the flush was scheduled.
+   */
+  private void flushDelayedResponses(long flushes)
+  {
+    if (!outboundLock.tryLock())
+    {
+      scheduleDelayedFlush(flushes);
+      return;
+    }
+    try
+    {
+      try
+      {
+        if (connectionValid && flushes == outboundBufferFlushes && outboundBuffer.length() > 0
+            && !writeOutboundBufferNonBlocking())
+        {
+          scheduleDelayedFlush(flushes);
+        }
+      }
+      finally
+      {
+        outboundLock.unlock();
+        resumeReadsIfPossible();
+      }
+    }
+    catch (ClosedChannelException e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.IO_ERROR, false,
+          ERR_IO_ERROR_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.SERVER_ERROR, false,
+          ERR_UNEXPECTED_EXCEPTION_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+  }
+
+  /**
+   * Writes as much of the outbound buffer as the client channel accepts
+   * without blocking, and keeps the rest of the buffer for a later flush.
+   *
+   * @return {@code true} if the whole outbound buffer has been written
+   */
+  private boolean writeOutboundBufferNonBlocking() throws IOException
+  {
+    final int bufferedBytes = outboundBuffer.length();
+    final int bytesWritten = timeoutClientChannel.writeNonBlocking(asByteBuffer(outboundBuffer));
+    if (bytesWritten == 0)
+    {
+      return false;
+    }
+    pendingResponseBytes.addAndGet(-bytesWritten);
+    if (keepStats)
+    {
+      statTracker.updateWrite(bytesWritten, FlushReason.DELAY);
+    }
+    if (bytesWritten == bufferedBytes)
+    {
+      outboundBufferFlushes++;
+      outboundBuffer.clear();
+      return true;
+    }
+    final byte[] bytes = outboundBuffer.getBackingArray();
+    System.arraycopy(bytes, bytesWritten, bytes, 0, bufferedBytes - bytesWritten);
+    outboundBuffer.setLength(bufferedBytes - bytesWritten);
+    return false;
+  }
+
+  /** Writes the outbound buffer followed by the provided message to the client. */
+  private void flush(ByteStringBuilder message, FlushReason reason) throws IOException
+  {
+    final int bytesToWrite = outboundBuffer.length() + message.length();
+    outboundBufferFlushes++;
+    try
+    {
+      if (outboundBuffer.length() == 0)
+      {
+        message.copyTo(saslChannel);
+      }
+      else if (tlsActiveProvider == null && saslActiveProvider == null)
+      {
+        // gathering write, saving the copy of the message to the outbound buffer
+        timeoutClientChannel.write(new ByteBuffer[] { asByteBuffer(outboundBuffer), asByteBuffer(message) });
+      }
+      else
+      {
+        // the security providers wrap one buffer at a time
+        outboundBuffer.appendBytes(message);
+        outboundBuffer.copyTo(saslChannel);
+      }
+    }
+    finally
+    {
+      pendingResponseBytes.addAndGet(-bytesToWrite);
+      if (reason == FlushReason.RESPONSE)
+      {
+        // the responses are complete: release the memory used by a large batch
+        outboundBuffer.clearAndTruncate(bufferSize, bufferSize);
+      }
+      else
+      {
+        outboundBuffer.clear();
+      }
+    }
+
+    if (keepStats)
+    {
+      statTracker.updateWrite(bytesToWrite, reason);
+    }
+  }
+
+  private static ByteBuffer asByteBuffer(ByteStringBuilder builder)
+  {
+    return ByteBuffer.wrap(builder.getBackingArray(), 0, builder.length());
+  }
+
   /**
    * Closes the connection to the client, optionally sending it a
    * message indicating the reason for the closure. Note that the
@@ -1223,9 +1558,119 @@ public final class LDAPClientConnection extends ClientConnection implements
     }
 
     lastCompletionTime.set(TimeThread.getTime());
+    resumeReadsIfPossible();
     return true;
   }
 
+  /**
+   * Sets the request handler reading the requests of this connection.
+   *
+   * @param requestHandler
+   *          The request handler reading the requests of this connection.
+   */
+  void setRequestHandler(LDAPRequestHandler requestHandler)
+  {
+    this.requestHandler = requestHandler;
+  }
+
+  /**
+   * Indicates whether the in-flight window of this connection is full, in
+   * which case its new requests should be deferred: either too many operations
+   * are in progress, or too many response bytes are waiting to be written to
+   * the client. Persistent searches are not counted as operations in progress.
+   *
+   * @return {@code true} if the new requests of this connection should be
+   *         deferred.
+   */
+  boolean isInFlightWindowFull()
+  {
+    final int maxOperations = connectionHandler.getMaxConcurrentOpsPerConnection();
+    if (maxOperations > 0
+        && operationsInProgress.size() - getPersistentSearches().size() >= maxOperations)
+    {
+      return true;
+    }
+    final long maxPendingResponseBytes = connectionHandler.getMaxPendingResponseSize();
+    return maxPendingResponseBytes > 0 && pendingResponseBytes.get() >= maxPendingResponseBytes;
+  }
+
+  /**
+   * Defers a request read while the in-flight window of this connection is
+   * full. The deferred requests are processed in the order they were read,
+   * once operations complete or responses are written.
+   *
+   * @param message
+   *          The LDAP message containing the request to defer.
+   * @return The number of requests of this connection currently deferred.
+   */
+  int deferRequest(LDAPMessage message)
+  {
+    if (keepStats)
+    {
+      statTracker.updateRequestsDeferred();
+    }
+    deferredRequests.add(message);
+    waitForInFlightWindow();
+    return deferredRequests.size();
+  }
+
+  /**
+   * Indicates whether some requests of this connection have been deferred.
+   *
+   * @return {@code true} if some requests of this connection have been
+   *         deferred.
+   */
+  boolean hasDeferredRequests()
+  {
+    return !deferredRequests.isEmpty();
+  }
+
+  /**
+   * Retrieves and removes the oldest deferred request of this connection.
+   *
+   * @return The oldest deferred request, or {@code null} if no request was
+   *         deferred.
+   */
+  LDAPMessage pollDeferredRequest()
+  {
+    return deferredRequests.poll();
+  }
+
+  /**
+   * Asks the request handler to be notified once the in-flight window of this
+   * connection has room for its deferred requests.
+   */
+  void waitForInFlightWindow()
+  {
+    waitingForInFlightWindow.set(true);
+    // Operations may have completed since the window was checked
+    resumeReadsIfPossible();
+  }
+
+  /**
+   * Notifies this connection that the request handler stopped reading its
+   * requests because too many of them are deferred. The request handler
+   * resumes reading once operations complete or responses are written.
+   */
+  void suspendReads()
+  {
+    if (keepStats)
+    {
+      statTracker.updateReadsSuspended();
+    }
+  }
+
+  /** Notifies the request handler if it waits for the in-flight window, and the window is no longer full. */
+  private void resumeReadsIfPossible()
+  {
+    if (waitingForInFlightWindow.get()
+        && !isInFlightWindowFull()
+        && waitingForInFlightWindow.compareAndSet(true, false))
+    {
+      requestHandler.resumeReads(this);
+    }
+  }
+
   /**
    * Attempts to cancel the specified operation.
    *
@@ -1628,6 +2073,8 @@ public final class LDAPClientConnection extends ClientConnection implements
     // Create the abandon operation and add it into the work queue.
     AbandonRequestProtocolOp protocolOp =
         message.getAbandonRequestProtocolOp();
+    // The operation to abandon may have been deferred and not started yet
+    removeDeferredRequest(protocolOp.getIDToAbandon());
     AbandonOperationBasis abandonOp =
         new AbandonOperationBasis(this, nextOperationID
             .getAndIncrement(), message.getMessageID(), controls,
@@ -1648,6 +2095,19 @@ public final class LDAPClientConnection extends ClientConnection implements
     return connectionValid;
   }
 
+  /** Removes the deferred request with the provided message ID, which has not been started yet. */
+  private void removeDeferredRequest(int messageID)
+  {
+    for (Iterator<LDAPMessage> it = deferredRequests.iterator(); it.hasNext();)
+    {
+      if (it.next().getMessageID() == messageID)
+      {
+        it.remove();
+        return;
+      }
+    }
+  }
+
   /**
    * Processes the provided LDAP message as an add request.
    *
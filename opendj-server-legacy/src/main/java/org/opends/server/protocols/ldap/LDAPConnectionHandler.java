@@ -27,6 +27,7 @@ import java.net.SocketException;
 import java.nio.channels.*;
 import java.util.*;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -129,6 +130,9 @@ public final class LDAPConnectionHandler extends
   /** The number of request handlers that should be used for this connection handler. */
   private int numRequestHandlers;
 
+  /** The pool of buffers used by the client connections to read their requests. */
+  private DirectBufferPool readBufferPool;
+
   /** Indicates whether the Directory Server is in the process of shutting down. */
   private volatile boolean shutdownRequested;
 
@@ -205,6 +209,8 @@ public final class LDAPConnectionHandler extends
    */
   private final Object connectionFinalizerLock = new Object();
   private ScheduledExecutorService connectionFinalizer;
+  /** Writes the responses held for too long in the outbound buffers of the client connections. */
+  private volatile ScheduledExecutorService outboundBufferFlusher;
   private List<Runnable> connectionFinalizerActiveJobQueue;
   private List<Runnable> connectionFinalizerPendingJobQueue;
 
@@ -365,6 +371,8 @@ public final class LDAPConnectionHandler extends
       requestHandler.processServerShutdown(finalizeReason);
     }
 
+    outboundBufferFlusher.shutdown();
+
     // Shutdown the connection finalizer and ensure that any pending
     // unclosed connections are closed.
     synchronized (connectionFinalizerLock)
@@ -504,6 +512,31 @@ public final class LDAPConnectionHandler extends
     return currentConfig.getMaxBlockedWriteTimeLimit();
   }
 
+  /**
+   * Retrieves the maximum number of operations that each client connection can
+   * have in progress before its requests stop being read.
+   *
+   * @return The maximum number of operations that each client connection can
+   *         have in progress, or zero if there should not be any limit imposed.
+   */
+  public int getMaxConcurrentOpsPerConnection()
+  {
+    return currentConfig.getMaxConcurrentOpsPerConnection();
+  }
+
+  /**
+   * Retrieves the maximum size in bytes of the responses waiting to be written
+   * to each client connection before its requests stop being read.
+   *
+   * @return The maximum size in bytes of the responses waiting to be written to
+   *         each client connection, or zero if there should not be any limit
+   *         imposed.
+   */
+  public long getMaxPendingResponseSize()
+  {
+    return currentConfig.getMaxPendingResponseSize();
+  }
+
   /**
    * Retrieves the maximum ASN.1 element value length that will be allowed by
    * this connection handler.
@@ -527,6 +560,18 @@ public final class LDAPConnectionHandler extends
     return (int) currentConfig.getBufferSize();
   }
 
+  /**
+   * Retrieves the pool of buffers used by the client connections of this
+   * connection handler to read their requests.
+   *
+   * @return The pool of buffers used by the client connections to read their
+   *         requests.
+   */
+  DirectBufferPool getReadBufferPool()
+  {
+    return readBufferPool;
+  }
+
   @Override
   public String getProtocol()
   {
@@ -608,6 +653,7 @@ public final class LDAPConnectionHandler extends
     listenPort = config.getListenPort();
     numRequestHandlers =
         getNumRequestHandlers(config.getNumRequestHandlers(), friendlyName);
+    readBufferPool = new DirectBufferPool(4 * numRequestHandlers);
 
     // Construct a unique name for this connection handler, and put
     // together the set of listeners.
@@ -651,6 +697,11 @@ public final class LDAPConnectionHandler extends
     connectionFinalizer.scheduleWithFixedDelay(
         new ConnectionFinalizerRunnable(), 100, 100, TimeUnit.MILLISECONDS);
 
+    // Flushes never block: the threads are shared by all the connections, one
+    // per request handler like the reads.
+    outboundBufferFlusher = Executors.newScheduledThreadPool(numRequestHandlers,
+        new DirectoryThread.Factory("LDAP Outbound Buffer Flusher for connection handler " + toString()));
+
     // Create and start the request handlers.
     requestHandlers = new LDAPRequestHandler[numRequestHandlers];
     for (int i = 0; i < numRequestHandlers; i++)
@@ -1369,4 +1420,30 @@ public final class LDAPConnectionHandler extends
       }
     }
   }
+  /**
+   * Schedules the flush of the responses held in the outbound buffer of a
+   * client connection.
+   *
+   * @param flush
+   *          The flush of the outbound buffer, which must not block: the thread
+   *          running it is shared by many connections.
+   * @param delay
+   *          The delay after which the outbound buffer must be flushed, in
+   *          nanoseconds.
+   * @return {@code true} if the flush has been scheduled, {@code false} if
+   *         this connection handler is stopped.
+   */
+  boolean scheduleOutboundBufferFlush(Runnable flush, long delay)
+  {
+    final ScheduledExecutorService flusher = outboundBufferFlusher;
+    try
+    {
+      return flusher != null && flusher.schedule(flush, delay, TimeUnit.NANOSECONDS) != null;
+    }
+    catch (RejectedExecutionException e)
+    {
+      return false;
+    }
+  }
+
 }
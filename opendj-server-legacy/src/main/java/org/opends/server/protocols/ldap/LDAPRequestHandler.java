@@ -18,6 +18,7 @@ package org.opends.server.protocols.ldap;
 
 import static org.opends.messages.ProtocolMessages.*;
 import static org.opends.server.loggers.AccessLogger.logConnect;
+import static org.opends.server.protocols.ldap.LDAPConstants.*;
 import static org.opends.server.util.StaticUtils.*;
 
 import java.io.IOException;
@@ -30,6 +31,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -54,6 +57,12 @@ public class LDAPRequestHandler
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /**
+   * The maximum number of requests deferred for a connection whose in-flight
+   * window is full, before its requests stop being read.
+   */
+  private static final int MAX_DEFERRED_REQUESTS = 1024;
+
   /** Indicates whether the Directory Server is in the process of shutting down. */
   private volatile boolean shutdownRequested;
   /** The current set of selection keys. */
@@ -70,6 +79,11 @@ public class LDAPRequestHandler
   private final Object pendingConnectionsLock = new Object();
   /** The list of connections ready for request processing. */
   private final LinkedList<LDAPClientConnection> readyConnections = new LinkedList<>();
+  /**
+   * The connections whose in-flight window is no longer full, added by the
+   * threads completing their operations or writing their responses.
+   */
+  private final Queue<LDAPClientConnection> resumedConnections = new ConcurrentLinkedQueue<>();
   /** The selector that will be used to monitor the client connections. */
   private final Selector selector;
   /** The name to use for this request handler. */
@@ -148,6 +162,12 @@ public class LDAPRequestHandler
     // loop, check for new requests, then check for new connections.
     while (!shutdownRequested)
     {
+      LDAPClientConnection resumedConnection;
+      while ((resumedConnection = resumedConnections.poll()) != null)
+      {
+        restartReads(resumedConnection);
+      }
+
       LDAPClientConnection readyConnection = null;
       while ((readyConnection = readyConnections.poll()) != null)
       {
@@ -157,12 +177,28 @@ public class LDAPRequestHandler
           boolean ldapMessageProcessed = false;
           while (true)
           {
-            if (asn1Reader.elementAvailable())
+            final boolean inFlightWindowFull = readyConnection.isInFlightWindowFull();
+            final boolean deferredRequestReady = !inFlightWindowFull && readyConnection.hasDeferredRequests();
+            if (inFlightWindowFull && readyConnection.hasDeferredRequests())
+            {
+              readyConnection.waitForInFlightWindow();
+            }
+            if (deferredRequestReady || asn1Reader.elementAvailable())
             {
               if (!ldapMessageProcessed)
               {
-                if (readyConnection.processLDAPMessage(
-                    LDAPReader.readMessage(asn1Reader)))
+                LDAPMessage message = deferredRequestReady
+                    ? readyConnection.pollDeferredRequest()
+                    : LDAPReader.readMessage(asn1Reader);
+                if (inFlightWindowFull && !bypassesInFlightWindow(message))
+                {
+                  // keep reading the requests, the client may abandon operations or unbind
+                  if (!deferRequest(readyConnection, message))
+                  {
+                    break;
+                  }
+                }
+                else if (readyConnection.processLDAPMessage(message))
                 {
                   ldapMessageProcessed = true;
                 }
@@ -390,6 +426,85 @@ public class LDAPRequestHandler
 
 
 
+  /**
+   * Indicates whether the provided request is processed even when the
+   * in-flight window of its connection is full, so that a client can always
+   * abandon its operations or close its connection.
+   */
+  private static boolean bypassesInFlightWindow(LDAPMessage message)
+  {
+    final byte type = message.getProtocolOpType();
+    return type == OP_TYPE_ABANDON_REQUEST || type == OP_TYPE_UNBIND_REQUEST;
+  }
+
+  /**
+   * Defers a request of the provided connection read while its in-flight
+   * window is full, and stops reading its requests if too many of them are
+   * deferred, until it asks for them to be read again.
+   *
+   * @return {@code true} if more requests of the connection can be read
+   */
+  private boolean deferRequest(LDAPClientConnection clientConnection, LDAPMessage message)
+  {
+    if (clientConnection.deferRequest(message) < MAX_DEFERRED_REQUESTS)
+    {
+      return true;
+    }
+    if (setInterestOps(clientConnection, 0))
+    {
+      clientConnection.suspendReads();
+    }
+    return false;
+  }
+
+  /**
+   * Processes the deferred requests of the provided connection, and reads its
+   * requests again if they were suspended.
+   */
+  private void restartReads(LDAPClientConnection clientConnection)
+  {
+    if (setInterestOps(clientConnection, SelectionKey.OP_READ))
+    {
+      readyConnections.add(clientConnection);
+    }
+  }
+
+  /** Returns whether the interest set of the key of the provided connection could be set. */
+  private boolean setInterestOps(LDAPClientConnection clientConnection, int ops)
+  {
+    SelectionKey key = clientConnection.getSocketChannel().keyFor(selector);
+    try
+    {
+      if (key != null && key.isValid())
+      {
+        key.interestOps(ops);
+        return true;
+      }
+    }
+    catch (CancelledKeyException cke)
+    {
+      // The connection was closed in the meantime.
+      logger.traceException(cke);
+    }
+    return false;
+  }
+
+  /**
+   * Asks this request handler to process the requests of the provided client
+   * connection again, after they have been deferred because its in-flight
+   * window was full.
+   *
+   * @param clientConnection
+   *          The client connection whose requests should be processed again.
+   */
+  void resumeReads(LDAPClientConnection clientConnection)
+  {
+    resumedConnections.add(clientConnection);
+    selector.wakeup();
+  }
+
+
+
   /**
    * Registers the provided client connection with this request
    * handler so that any requests received from that client will be
@@ -419,6 +534,7 @@ public class LDAPRequestHandler
     // Try to add the new connection to the queue.  If it succeeds, then wake
     // up the selector so it will be picked up right away.  Otherwise,
     // disconnect the client.
+    clientConnection.setRequestHandler(this);
     synchronized (pendingConnectionsLock)
     {
       pendingConnections.add(clientConnection);
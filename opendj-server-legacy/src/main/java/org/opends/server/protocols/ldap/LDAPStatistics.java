@@ -46,6 +46,8 @@ import org.opends.server.types.OperationType;
  * broken down by message type.</LI>
  * <LI>The total number of bytes read from LDAP clients.</LI>
  * <LI>The total number of bytes written to LDAP clients.</LI>
+ * <LI>The total number of writes of LDAP messages to clients, broken
+ * down by the reason of the write.</LI>
  * </UL>
  * <BR>
  * <BR>
@@ -56,6 +58,16 @@ import org.opends.server.types.OperationType;
  */
 public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
 {
+  /** The reasons for writing the LDAP messages held by a client connection. */
+  public enum FlushReason
+  {
+    /** A message which cannot be held, such as a search result done, must be written. */
+    RESPONSE,
+    /** The messages held do not leave room for the next message. */
+    FULL_BUFFER,
+    /** The oldest message held has been held for too long. */
+    DELAY
+  }
 
   // The statistics maintained by this class.
   private AtomicLong abandonRequests = new AtomicLong(0);
@@ -89,6 +101,13 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
   private AtomicLong searchResultReferences = new AtomicLong(0);
   private AtomicLong searchResultsDone = new AtomicLong(0);
   private AtomicLong unbindRequests = new AtomicLong(0);
+  private AtomicLong writes = new AtomicLong(0);
+  private AtomicLong bytesInWrites = new AtomicLong(0);
+  private AtomicLong writesOnResponse = new AtomicLong(0);
+  private AtomicLong writesOnFullBuffer = new AtomicLong(0);
+  private AtomicLong writesOnDelay = new AtomicLong(0);
+  private AtomicLong requestsDeferred = new AtomicLong(0);
+  private AtomicLong readsSuspended = new AtomicLong(0);
 
 
   /** The instance name for this monitor provider instance. */
@@ -167,7 +186,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
      *        and associated with their objectclass
      *        OC_MONITOR_CONNHANDLERSTATS
      */
-    final MonitorData attrs = new MonitorData(31 + 10 * 2);
+    final MonitorData attrs = new MonitorData(38 + 10 * 2);
     attrs.add("connectionsEstablished", connectionsEstablished);
     attrs.add("connectionsClosed", connectionsClosed);
     attrs.add("bytesRead", bytesRead);
@@ -199,6 +218,13 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
     attrs.add("searchResultReferences", searchResultReferences);
     attrs.add("searchResultsDone", searchResultsDone);
     attrs.add("unbindRequests", unbindRequests);
+    attrs.add("ldapMessageWrites", writes);
+    attrs.add("ldapMessageBytesPerWrite", getBytesPerWrite());
+    attrs.add("ldapMessageWritesOnResponse", writesOnResponse);
+    attrs.add("ldapMessageWritesOnFullBuffer", writesOnFullBuffer);
+    attrs.add("ldapMessageWritesOnDelay", writesOnDelay);
+    attrs.add("ldapRequestsDeferred", requestsDeferred);
+    attrs.add("ldapReadsSuspended", readsSuspended);
 
     // adds
     attrs.add("ds-mon-add-operations-total-count", addOperationCount);
@@ -277,6 +303,13 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
       searchResultReferences.set(0);
       searchResultsDone.set(0);
       unbindRequests.set(0);
+      writes.set(0);
+      bytesInWrites.set(0);
+      writesOnResponse.set(0);
+      writesOnFullBuffer.set(0);
+      writesOnDelay.set(0);
+      requestsDeferred.set(0);
+      readsSuspended.set(0);
 
       addOperationCount.set(0);
       addOperationTime.set(0);
@@ -334,11 +367,57 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
    * @param bytesWritten
    *          The number of bytes written to the client.
    */
-  public void updateBytesWritten(int bytesWritten)
+  public void updateBytesWritten(long bytesWritten)
   {
      this.bytesWritten.getAndAdd(bytesWritten);
   }
 
+  /**
+   * Updates the appropriate set of counters to indicate that LDAP
+   * messages have been written to the client in one write.
+   *
+   * @param bytes
+   *          The number of bytes of the LDAP messages written.
+   * @param reason
+   *          The reason why the messages were written.
+   */
+  public void updateWrite(int bytes, FlushReason reason)
+  {
+    writes.getAndIncrement();
+    bytesInWrites.getAndAdd(bytes);
+    switch (reason)
+    {
+    case FULL_BUFFER:
+      writesOnFullBuffer.getAndIncrement();
+      break;
+    case DELAY:
+      writesOnDelay.getAndIncrement();
+      break;
+    default:
+      writesOnResponse.getAndIncrement();
+      break;
+    }
+  }
+
+  /**
+   * Updates the appropriate set of counters to indicate that a request was
+   * deferred because the in-flight window of its client connection was full.
+   */
+  public void updateRequestsDeferred()
+  {
+    requestsDeferred.getAndIncrement();
+  }
+
+  /**
+   * Updates the appropriate set of counters to indicate that the requests
+   * of a client connection stopped being read because too many of them were
+   * deferred.
+   */
+  public void updateReadsSuspended()
+  {
+    readsSuspended.getAndIncrement();
+  }
+
   /**
    * Updates the appropriate set of counters based on the provided
    * message that has been read from the client.
@@ -809,6 +888,72 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
       return unbindRequests.get();
   }
 
+  /**
+   * Retrieves the number of writes of LDAP messages to clients. A
+   * write can contain several messages.
+   *
+   * @return The number of writes of LDAP messages to clients.
+   */
+  public long getWrites()
+  {
+    return writes.get();
+  }
+
+  /**
+   * Retrieves the average number of bytes of LDAP messages per write.
+   *
+   * @return The average number of bytes of LDAP messages per write.
+   */
+  public long getBytesPerWrite()
+  {
+    final long nbWrites = writes.get();
+    return nbWrites != 0 ? bytesInWrites.get() / nbWrites : 0;
+  }
+
+  /**
+   * Retrieves the number of writes of LDAP messages to clients for the
+   * provided reason.
+   *
+   * @param reason
+   *          The reason why the messages were written.
+   * @return The number of writes for the provided reason.
+   */
+  public long getWrites(FlushReason reason)
+  {
+    switch (reason)
+    {
+    case FULL_BUFFER:
+      return writesOnFullBuffer.get();
+    case DELAY:
+      return writesOnDelay.get();
+    default:
+      return writesOnResponse.get();
+    }
+  }
+
+  /**
+   * Retrieves the number of requests deferred because the in-flight window of
+   * their client connection was full.
+   *
+   * @return The number of requests deferred.
+   */
+  public long getRequestsDeferred()
+  {
+    return requestsDeferred.get();
+  }
+
+  /**
+   * Retrieves the number of times the requests of a client connection
+   * stopped being read because too many of them were deferred.
+   *
+   * @return The number of times the requests of a client connection
+   *         stopped being read.
+   */
+  public long getReadsSuspended()
+  {
+    return readsSuspended.get();
+  }
+
   /**
    * Update the operation counters and times depending on the OperationType.
    * @param type of the operation.
@@ -0,0 +1,74 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.replication.protocol.EntryMsg;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.LDIFImportConfig;
+
+/**
+ * Reads the entries received to initialize this replica when they are sent in
+ * binary form, as described in {@link EntryMsg}. The entries are decoded
+ * without going through LDIF.
+ */
+final class BinaryEntryReader implements LDIFImportConfig.EntrySource
+{
+  private final DataInputStream input;
+
+  /**
+   * Creates a reader of entries in binary form.
+   *
+   * @param input
+   *          the input stream containing the chunks of entries
+   */
+  BinaryEntryReader(InputStream input)
+  {
+    this.input = new DataInputStream(input);
+  }
+
+  @Override
+  public Entry readEntry() throws IOException
+  {
+    int b = input.read();
+    while (b == (EntryMsg.BINARY_ENTRIES & 0xFF))
+    {
+      // beginning of the next chunk
+      b = input.read();
+    }
+    if (b < 0)
+    {
+      return null;
+    }
+
+    final int length = b << 24 | input.readUnsignedByte() << 16 | input.readUnsignedShort();
+    final byte[] entryBytes = new byte[length];
+    input.readFully(entryBytes);
+    try
+    {
+      return Entry.decode(ByteString.wrap(entryBytes).asReader());
+    }
+    catch (DirectoryException e)
+    {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.replication.protocol.EntryMsg;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
+import org.opends.server.types.LDIFExportConfig;
+
+/**
+ * Writes the entries exported to initialize remote replicas in binary form, as
+ * described in {@link EntryMsg}.
+ * <p>
+ * The entries are gathered in chunks of at least {@link #CHUNK_SIZE} bytes.
+ * Each chunk is written at once to the output stream, which is then flushed,
+ * so that each chunk is sent in its own EntryMsg and only contains whole
+ * entries.
+ */
+final class BinaryEntryWriter implements LDIFExportConfig.EntrySink
+{
+  /** The size above which a chunk of entries is written to the output stream. */
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private final OutputStream output;
+  private final ByteStringBuilder chunk = new ByteStringBuilder(CHUNK_SIZE);
+  private final ByteStringBuilder entryBytes = new ByteStringBuilder();
+
+  /**
+   * Creates a writer of entries in binary form.
+   *
+   * @param output
+   *          the output stream where to write the chunks of entries
+   */
+  BinaryEntryWriter(OutputStream output)
+  {
+    this.output = output;
+  }
+
+  @Override
+  public void writeEntry(Entry entry) throws IOException
+  {
+    entryBytes.clear();
+    try
+    {
+      entry.encode(entryBytes, EntryEncodeConfig.DEFAULT_CONFIG);
+    }
+    catch (DirectoryException e)
+    {
+      throw new IOException(e.getMessage(), e);
+    }
+
+    if (chunk.length() == 0)
+    {
+      chunk.appendByte(EntryMsg.BINARY_ENTRIES);
+    }
+    chunk.appendInt(entryBytes.length());
+    chunk.appendBytes(entryBytes);
+    if (chunk.length() >= CHUNK_SIZE)
+    {
+      flush();
+    }
+  }
+
+  /**
+   * Writes the chunk of entries in progress, if any.
+   *
+   * @throws IOException
+   *           if the chunk could not be written
+   */
+  void flush() throws IOException
+  {
+    if (chunk.length() > 0)
+    {
+      chunk.copyTo(output);
+      output.flush();
+      chunk.clear();
+    }
+  }
+}
@@ -0,0 +1,487 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.opendj.io.ASN1;
+import org.forgerock.opendj.io.ASN1Reader;
+import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.AttributeDescription;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.forgerock.opendj.ldap.schema.ObjectClass;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.Entry;
+
+import static org.forgerock.i18n.LocalizableMessage.*;
+import static org.opends.server.util.StaticUtils.*;
+
+/**
+ * A hash tree (Merkle tree) of the entries of a replica.
+ * <p>
+ * Each entry is hashed from its DN, its entryUUID, its object classes and the
+ * normalized values of its real user attributes, so that operational
+ * attributes which legitimately differ between replicas (replication
+ * historical, modifiersName, ...) do not make two replicas diverge. Each entry
+ * is assigned to one of the {@link #NB_BUCKETS} leaves of the tree according to
+ * its entryUUID, which does not change when the entry is renamed. A leaf holds
+ * the sum of the hashes of the entries assigned to it: a sum does not depend
+ * on the order in which the entries are added, so the tree can be updated
+ * incrementally as each change is applied, and replicas having applied the
+ * same changes in a different order end up with the same tree.
+ * <p>
+ * The inner nodes of the tree are computed from their children when needed.
+ * Comparing the trees of two replicas starts from their roots and only
+ * descends into the subtrees whose hashes differ, down to the divergent
+ * leaves.
+ * <p>
+ * This class is thread safe.
+ */
+final class EntryHashTree
+{
+  /** The depth of the tree, the root being at depth 0. */
+  static final int DEPTH = 12;
+  /** The number of leaves of the tree. */
+  static final int NB_BUCKETS = 1 << DEPTH;
+
+  /** Version of the encoded form of the tree. */
+  private static final byte ENCODING_VERSION = 1;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final long GOLDEN_RATIO = 0x9e3779b97f4a7c15L;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(NB_BUCKETS);
+  private final AtomicLong nbEntries = new AtomicLong();
+
+  /**
+   * Adds an entry to this tree.
+   *
+   * @param entry
+   *          the entry to add
+   */
+  void add(Entry entry)
+  {
+    add(entry.getName(), entry);
+  }
+
+  /**
+   * Adds an entry to this tree, as if it was named with the provided DN.
+   *
+   * @param dn
+   *          the DN of the entry
+   * @param entry
+   *          the entry to add
+   */
+  void add(DN dn, Entry entry)
+  {
+    buckets.addAndGet(getBucket(entry), hashEntry(dn, entry));
+    nbEntries.incrementAndGet();
+  }
+
+  /**
+   * Removes an entry from this tree.
+   *
+   * @param entry
+   *          the entry to remove, as it was when it was added
+   */
+  void remove(Entry entry)
+  {
+    remove(entry.getName(), entry);
+  }
+
+  /**
+   * Removes an entry from this tree, as if it was named with the provided DN.
+   *
+   * @param dn
+   *          the DN of the entry when it was added
+   * @param entry
+   *          the entry to remove, as it was when it was added
+   */
+  void remove(DN dn, Entry entry)
+  {
+    buckets.addAndGet(getBucket(entry), -hashEntry(dn, entry));
+    nbEntries.decrementAndGet();
+  }
+
+  /**
+   * Replaces an entry of this tree with its new version.
+   *
+   * @param oldEntry
+   *          the entry as it was before the change
+   * @param newEntry
+   *          the entry as it is after the change
+   */
+  void replace(Entry oldEntry, Entry newEntry)
+  {
+    remove(oldEntry);
+    add(newEntry);
+  }
+
+  /**
+   * Adds an entry to this tree from its hash.
+   *
+   * @param bucket
+   *          the bucket of the entry, as returned by {@link #getBucket(Entry)}
+   * @param entryHash
+   *          the hash of the entry, as returned by {@link #hash(Entry)}
+   */
+  void add(int bucket, long entryHash)
+  {
+    buckets.addAndGet(bucket, entryHash);
+    nbEntries.incrementAndGet();
+  }
+
+  /**
+   * Adds all the entries of another tree to this tree. The other tree may
+   * hold removed entries, which are then removed from this tree.
+   *
+   * @param other
+   *          the tree whose entries are added
+   */
+  void addAll(EntryHashTree other)
+  {
+    for (int i = 0; i < NB_BUCKETS; i++)
+    {
+      buckets.addAndGet(i, other.buckets.get(i));
+    }
+    nbEntries.addAndGet(other.nbEntries.get());
+  }
+
+  /**
+   * Removes all the entries assigned to a bucket of this tree.
+   *
+   * @param bucket
+   *          the bucket
+   * @param nbEntriesInBucket
+   *          the number of entries assigned to the bucket
+   */
+  void clearBucket(int bucket, long nbEntriesInBucket)
+  {
+    buckets.set(bucket, 0);
+    nbEntries.addAndGet(-nbEntriesInBucket);
+  }
+
+  /**
+   * Returns the number of entries in this tree.
+   *
+   * @return the number of entries in this tree
+   */
+  long getNbEntries()
+  {
+    return nbEntries.get();
+  }
+
+  /**
+   * Returns the hash of the root of this tree, which is equal for replicas
+   * holding the same entries.
+   *
+   * @return the hash of the root of this tree
+   */
+  long getRootHash()
+  {
+    return computeLevels()[0][0];
+  }
+
+  /**
+   * Returns the bucket to which the provided entry is assigned.
+   *
+   * @param entry
+   *          the entry
+   * @return the bucket of the entry, between 0 and {@link #NB_BUCKETS} excluded
+   */
+  static int getBucket(Entry entry)
+  {
+    final String entryUUID = EntryHistorical.getEntryUUID(entry);
+    final long hash = entryUUID != null
+        ? hash(FNV_OFFSET_BASIS, entryUUID.getBytes(StandardCharsets.UTF_8))
+        : hash(FNV_OFFSET_BASIS, entry.getName().toNormalizedByteString());
+    return (int) (mix(hash) >>> (Long.SIZE - DEPTH));
+  }
+
+  /**
+   * Returns the hash of an entry, as added to its bucket.
+   *
+   * @param entry
+   *          the entry
+   * @return the hash of the entry
+   */
+  static long hash(Entry entry)
+  {
+    return hashEntry(entry.getName(), entry);
+  }
+
+  /**
+   * Returns the ranges of buckets whose hashes differ between this tree and
+   * the provided one, by descending both trees from their roots.
+   *
+   * @param other
+   *          the tree to compare this tree with
+   * @return the ranges of divergent buckets, in ascending order, each range
+   *         being an array holding the first and the last bucket of the range
+   */
+  List<int[]> getDivergentBuckets(EntryHashTree other)
+  {
+    final long[][] levels = computeLevels();
+    final long[][] otherLevels = other.computeLevels();
+    final List<int[]> ranges = new ArrayList<>();
+    collectDivergentBuckets(levels, otherLevels, 0, 0, ranges);
+    return ranges;
+  }
+
+  private static void collectDivergentBuckets(long[][] levels, long[][] otherLevels, int depth, int index,
+      List<int[]> ranges)
+  {
+    if (levels[depth][index] == otherLevels[depth][index])
+    {
+      return;
+    }
+    if (depth == DEPTH)
+    {
+      final int[] last = !ranges.isEmpty() ? ranges.get(ranges.size() - 1) : null;
+      if (last != null && last[1] == index - 1)
+      {
+        last[1] = index;
+      }
+      else
+      {
+        ranges.add(new int[] { index, index });
+      }
+      return;
+    }
+    collectDivergentBuckets(levels, otherLevels, depth + 1, 2 * index, ranges);
+    collectDivergentBuckets(levels, otherLevels, depth + 1, 2 * index + 1, ranges);
+  }
+
+  /** Computes all the levels of the tree, the leaves being the last level. */
+  private long[][] computeLevels()
+  {
+    final long[][] levels = new long[DEPTH + 1][];
+    final long[] leaves = new long[NB_BUCKETS];
+    for (int i = 0; i < NB_BUCKETS; i++)
+    {
+      leaves[i] = buckets.get(i);
+    }
+    levels[DEPTH] = leaves;
+    for (int depth = DEPTH - 1; depth >= 0; depth--)
+    {
+      final long[] children = levels[depth + 1];
+      final long[] nodes = new long[children.length / 2];
+      for (int i = 0; i < nodes.length; i++)
+      {
+        nodes[i] = mix(children[2 * i] * GOLDEN_RATIO + children[2 * i + 1]);
+      }
+      levels[depth] = nodes;
+    }
+    return levels;
+  }
+
+  /**
+   * Encodes this tree into a string which can be exchanged with other
+   * replicas.
+   *
+   * @return the encoded tree
+   */
+  String encode()
+  {
+    final ByteStringBuilder builder = new ByteStringBuilder(NB_BUCKETS * 9 + 32);
+    final ASN1Writer writer = ASN1.getWriter(builder);
+    try
+    {
+      writer.writeStartSequence();
+      writer.writeInteger(ENCODING_VERSION);
+      writer.writeInteger(DEPTH);
+      writer.writeInteger(nbEntries.get());
+      for (int i = 0; i < NB_BUCKETS; i++)
+      {
+        writer.writeInteger(buckets.get(i));
+      }
+      writer.writeEndSequence();
+    }
+    catch (IOException e)
+    {
+      // cannot happen when writing to a ByteStringBuilder
+      throw new IllegalStateException(e);
+    }
+    return builder.toByteString().toBase64String();
+  }
+
+  /**
+   * Decodes a tree encoded with {@link #encode()}.
+   *
+   * @param encodedTree
+   *          the encoded tree
+   * @return the decoded tree
+   * @throws DecodeException
+   *           If the provided string is not a valid encoded tree.
+   */
+  static EntryHashTree decode(String encodedTree) throws DecodeException
+  {
+    final ByteString bytes;
+    try
+    {
+      bytes = ByteString.valueOfBase64(encodedTree);
+    }
+    catch (LocalizedIllegalArgumentException e)
+    {
+      throw DecodeException.error(e.getMessageObject());
+    }
+
+    final ASN1Reader reader = ASN1.getReader(bytes);
+    try
+    {
+      reader.readStartSequence();
+      final long version = reader.readInteger();
+      final long depth = reader.readInteger();
+      if (version != ENCODING_VERSION || depth != DEPTH)
+      {
+        throw DecodeException.error(raw("Unsupported entry hash tree version %d with depth %d", version, depth));
+      }
+      final EntryHashTree tree = new EntryHashTree();
+      tree.nbEntries.set(reader.readInteger());
+      for (int i = 0; i < NB_BUCKETS; i++)
+      {
+        tree.buckets.set(i, reader.readInteger());
+      }
+      reader.readEndSequence();
+      return tree;
+    }
+    catch (DecodeException e)
+    {
+      throw e;
+    }
+    catch (IOException e)
+    {
+      throw DecodeException.error(raw("Invalid entry hash tree: %s", e.getMessage()), e);
+    }
+  }
+
+  /** Hashes the content of an entry, as if it was named with the provided DN. */
+  private static long hashEntry(DN dn, Entry entry)
+  {
+    long sum = hash(FNV_OFFSET_BASIS, dn.toNormalizedByteString());
+    final String entryUUID = EntryHistorical.getEntryUUID(entry);
+    if (entryUUID != null)
+    {
+      sum += hash(hash(FNV_OFFSET_BASIS, "entryuuid"), entryUUID.getBytes(StandardCharsets.UTF_8));
+    }
+    for (ObjectClass objectClass : entry.getObjectClasses().keySet())
+    {
+      sum += hash(hash(FNV_OFFSET_BASIS, "objectclass"), objectClass.getOID().getBytes(StandardCharsets.UTF_8));
+    }
+    for (Map.Entry<AttributeType, List<Attribute>> mapEntry : entry.getUserAttributes().entrySet())
+    {
+      final AttributeType attributeType = mapEntry.getKey();
+      if (attributeType.isObjectClass())
+      {
+        // already hashed above, and only present in the user attributes of some entries
+        continue;
+      }
+      final MatchingRule equalityRule = attributeType.getEqualityMatchingRule();
+      for (Attribute attribute : mapEntry.getValue())
+      {
+        if (attribute.isVirtual())
+        {
+          continue;
+        }
+        final long attributeHash = hashAttributeDescription(attributeType, attribute.getAttributeDescription());
+        for (ByteString value : attribute)
+        {
+          sum += hash(attributeHash, normalize(equalityRule, value));
+        }
+      }
+    }
+    // sums are order independent, mixing the total spreads small differences over all the bits
+    return mix(sum);
+  }
+
+  /** Hashes an attribute description independently of the name used for its type and of the order of its options. */
+  private static long hashAttributeDescription(AttributeType attributeType, AttributeDescription attributeDescription)
+  {
+    long hash = hash(FNV_OFFSET_BASIS, attributeType.getOID());
+    for (String option : attributeDescription.getOptions())
+    {
+      hash += hash(hash(FNV_OFFSET_BASIS, "option"), toLowerCase(option));
+    }
+    return mix(hash);
+  }
+
+  private static ByteString normalize(MatchingRule equalityRule, ByteString value)
+  {
+    if (equalityRule != null)
+    {
+      try
+      {
+        return equalityRule.normalizeAttributeValue(value);
+      }
+      catch (DecodeException e)
+      {
+        // hash the raw value
+      }
+    }
+    return value;
+  }
+
+  private static long hash(long seed, String value)
+  {
+    return hash(seed, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static long hash(long seed, ByteString value)
+  {
+    long hash = seed;
+    for (int i = 0; i < value.length(); i++)
+    {
+      hash = (hash ^ (value.byteAt(i) & 0xff)) * FNV_PRIME;
+    }
+    return mix(hash);
+  }
+
+  /** FNV-1a hash of the provided bytes, finalized by {@link #mix(long)}. */
+  private static long hash(long seed, byte[] bytes)
+  {
+    long hash = seed;
+    for (byte b : bytes)
+    {
+      hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+    }
+    return mix(hash);
+  }
+
+  /** The finalizer of MurmurHash3, spreading each input bit over all the output bits. */
+  private static long mix(long value)
+  {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -28,11 +28,13 @@ import static org.opends.server.util.CollectionUtils.*;
 import static org.opends.server.util.ServerConstants.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -116,6 +118,7 @@ import org.opends.server.replication.protocol.AddContext;
 import org.opends.server.replication.protocol.AddMsg;
 import org.opends.server.replication.protocol.DeleteContext;
 import org.opends.server.replication.protocol.DeleteMsg;
+import org.opends.server.replication.protocol.EntryMsg;
 import org.opends.server.replication.protocol.LDAPUpdateMsg;
 import org.opends.server.replication.protocol.ModifyContext;
 import org.opends.server.replication.protocol.ModifyDNMsg;
@@ -349,6 +352,9 @@ public final class LDAPReplicationDomain extends ReplicationDomain
 
   private final ServerStateFlush flushThread;
 
+  /** The hash tree of the entries of this domain, {@code null} when it is not enabled. */
+  private volatile PersistentEntryHashTree entryHashTree;
+
   /** The attribute name used to store the generation id in the backend. */
   private static final String REPLICATION_GENERATION_ID = "ds-sync-generation-id";
   /** The attribute name used to store the fractional include configuration in the backend. */
@@ -1995,6 +2001,8 @@ public final class LDAPReplicationDomain extends ReplicationDomain
           "replicationCSN", curCSN));
     }
 
+    updateEntryHashTree(op);
+
     if (result == ResultCode.SUCCESS)
     {
       if (op.isSynchronizationOperation())
@@ -2215,6 +2223,113 @@ public final class LDAPReplicationDomain extends ReplicationDomain
     op.run();
   }
 
+  private void startEntryHashTree()
+  {
+    final PersistentEntryHashTree hashTree = new PersistentEntryHashTree(getBaseDN(), getServerContext());
+    hashTree.start(generationId, getServerState());
+    entryHashTree = hashTree;
+  }
+
+  /**
+   * Tells the hash tree of the entries of this domain, if it is enabled, that
+   * a change is about to be applied to this domain.
+   *
+   * @param op
+   *          the operation about to apply the change
+   */
+  void startEntryHashTreeChange(PluginOperation op)
+  {
+    final PersistentEntryHashTree hashTree = entryHashTree;
+    if (hashTree != null)
+    {
+      hashTree.startChange(op);
+    }
+  }
+
+  /**
+   * Updates the hash tree of the entries of this domain with a change applied
+   * to this domain, if the tree is enabled. This must be called whatever the
+   * result of the change.
+   *
+   * @param op
+   *          the operation which applied the change
+   */
+  void updateEntryHashTree(PostOperationOperation op)
+  {
+    final PersistentEntryHashTree hashTree = entryHashTree;
+    if (hashTree != null)
+    {
+      hashTree.update(op);
+    }
+  }
+
+  private EntryHashTree getEntryHashTree()
+  {
+    final PersistentEntryHashTree hashTree = entryHashTree;
+    return hashTree != null ? hashTree.getTree() : null;
+  }
+
+  /**
+   * Returns the hash tree of the entries of this domain, encoded so that it can
+   * be compared with the tree of another replica of this domain.
+   *
+   * @return the encoded tree, or {@code null} if the tree is not enabled or is
+   *         being built
+   */
+  public String getEncodedEntryHashTree()
+  {
+    final EntryHashTree hashTree = getEntryHashTree();
+    return hashTree != null ? hashTree.encode() : null;
+  }
+
+  /**
+   * Compares the hash tree of the entries of this domain with the tree of
+   * another replica of this domain, and lists the local entries which can
+   * differ from the entries of the other replica. An entry missing from this
+   * replica is only listed when comparing the trees the other way around, on
+   * the other replica.
+   *
+   * @param encodedRemoteTree
+   *          the tree of the other replica, as returned by
+   *          {@link #getEncodedEntryHashTree()} on that replica
+   * @param divergentBuckets
+   *          filled with the ranges of the buckets of the trees which differ,
+   *          formatted as {@code first-last}
+   * @param divergentEntries
+   *          filled with the DNs of the local entries of the buckets which differ
+   * @param maxEntries
+   *          the maximum number of entries to list
+   * @return {@code false} if the tree of this domain is not enabled or is
+   *         being built, {@code true} otherwise
+   * @throws DecodeException
+   *           If the tree of the other replica cannot be decoded.
+   * @throws DirectoryException
+   *           If the entries of this domain cannot be read.
+   */
+  public boolean compareEntryHashTrees(String encodedRemoteTree, List<String> divergentBuckets,
+      List<DN> divergentEntries, int maxEntries) throws DecodeException, DirectoryException
+  {
+    final PersistentEntryHashTree hashTree = entryHashTree;
+    final EntryHashTree localTree = hashTree != null ? hashTree.getTree() : null;
+    if (localTree == null)
+    {
+      return false;
+    }
+    final EntryHashTree remoteTree = EntryHashTree.decode(encodedRemoteTree);
+
+    final BitSet buckets = new BitSet(EntryHashTree.NB_BUCKETS);
+    for (int[] range : localTree.getDivergentBuckets(remoteTree))
+    {
+      divergentBuckets.add(range[0] + "-" + range[1]);
+      buckets.set(range[0], range[1] + 1);
+    }
+    if (!buckets.isEmpty())
+    {
+      divergentEntries.addAll(hashTree.findEntries(buckets, maxEntries));
+    }
+    return true;
+  }
+
   /** Delete this ReplicationDomain. */
   void delete()
   {
@@ -2250,6 +2365,12 @@ public final class LDAPReplicationDomain extends ReplicationDomain
 
       // stop the ReplicationDomain
       disableService();
+
+      final PersistentEntryHashTree hashTree = entryHashTree;
+      if (hashTree != null)
+      {
+        hashTree.shutdown(generationId, getServerState());
+      }
     }
 
     // wait for completion of the ServerStateFlush thread.
@@ -2265,15 +2386,6 @@ public final class LDAPReplicationDomain extends ReplicationDomain
     }
   }
 
-  /**
-   * Marks the specified message as the one currently processed by a replay thread.
-   * @param msg the message being processed
-   */
-  void markInProgress(LDAPUpdateMsg msg)
-  {
-    remotePendingChanges.markInProgress(msg);
-  }
-
   /**
    * Create and replay a synchronized Operation from an UpdateMsg.
    *
@@ -2469,6 +2581,21 @@ public final class LDAPReplicationDomain extends ReplicationDomain
     } while (msg != null);
   }
 
+  /**
+   * Replays the updates whose dependencies have been committed, until there are no more.
+   *
+   * @param shutdown
+   *          whether the server initiated shutdown
+   */
+  void replayDependentUpdates(AtomicBoolean shutdown)
+  {
+    LDAPUpdateMsg msg;
+    while (!shutdown.get() && (msg = remotePendingChanges.getNextUpdate()) != null)
+    {
+      replay(msg, shutdown);
+    }
+  }
+
   private String logDecodingOperationError(LDAPUpdateMsg msg, Exception e)
   {
     LocalizableMessage message =
@@ -3131,6 +3258,11 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
     state.save();
     state.clearInMemory();
     disabled = true;
+    final PersistentEntryHashTree hashTree = entryHashTree;
+    if (hashTree != null)
+    {
+      hashTree.clear();
+    }
     disableService(); // This will cut the session and wake up the listener
   }
 
@@ -3150,6 +3282,12 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
 
     // Retrieves the generation ID associated with the data imported
     generationId = loadGenerationId();
+
+    final PersistentEntryHashTree hashTree = entryHashTree;
+    if (hashTree != null)
+    {
+      hashTree.rebuild();
+    }
   }
 
   /**
@@ -3440,6 +3578,14 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
     LDIFExportConfig exportConfig = new LDIFExportConfig(os);
     exportConfig.setIncludeBranches(newArrayList(getBaseDN()));
 
+    // Send the entries in binary form when all the importers can decode them
+    BinaryEntryWriter binaryWriter = null;
+    if (!checksumOutput && config.isBinaryInitializationEnabled() && canExportBinaryEntries())
+    {
+      binaryWriter = new BinaryEntryWriter(os);
+      exportConfig.setEntrySink(binaryWriter);
+    }
+
     // For the checksum computing mode, only consider the 'stable' attributes
     if (checksumOutput)
     {
@@ -3457,6 +3603,10 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
     try
     {
       backend.exportLDIF(exportConfig);
+      if (binaryWriter != null)
+      {
+        binaryWriter.flush();
+      }
     }
     catch (DirectoryException de)
     {
@@ -3522,6 +3672,12 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
     // Prevent the processing of the backend finalisation event as the import will disable the attached backend
     ignoreBackendInitializationEvent = true;
 
+    final PersistentEntryHashTree hashTree = entryHashTree;
+    if (hashTree != null)
+    {
+      hashTree.clear();
+    }
+
     // FIXME setBackendEnabled should be part of TaskUtils ?
     TaskUtils.disableBackend(backend.getBackendID());
 
@@ -3558,7 +3714,16 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
         return;
       }
 
-      importConfig = new LDIFImportConfig(input);
+      // Entries sent in binary form are decoded without going through LDIF
+      final InputStream in = new BufferedInputStream(input);
+      in.mark(1);
+      final int firstByte = in.read();
+      in.reset();
+      importConfig = new LDIFImportConfig(in);
+      if (firstByte == (EntryMsg.BINARY_ENTRIES & 0xFF))
+      {
+        importConfig.setEntrySource(new BinaryEntryReader(in));
+      }
       importConfig.setIncludeBranches(newLinkedHashSet(getBaseDN()));
       // We should not validate schema for replication
       importConfig.setValidateSchema(false);
@@ -3802,6 +3967,16 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
 
     solveConflictFlag = isSolveConflict(configuration);
 
+    if (configuration.isEntryHashTreeEnabled() && entryHashTree == null)
+    {
+      startEntryHashTree();
+    }
+    else if (!configuration.isEntryHashTreeEnabled() && entryHashTree != null)
+    {
+      entryHashTree.clear();
+      entryHashTree = null;
+    }
+
     final ConfigChangeResult ccr = new ConfigChangeResult();
     try
     {
@@ -3867,6 +4042,11 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
     // Create the ServerStateFlush thread
     flushThread.start();
 
+    if (config.isEntryHashTreeEnabled())
+    {
+      startEntryHashTree();
+    }
+
     startListenService();
   }
 
@@ -4306,6 +4486,23 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
     attributes.add("remote-pending-changes-size", remotePendingChanges.getQueueSize());
     attributes.add("dependent-changes-size", remotePendingChanges.getDependentChangesSize());
     attributes.add("changes-in-progress-size", remotePendingChanges.changesInProgressSize());
+    attributes.add("replay-lag", remotePendingChanges.getReplayLag());
+    final EntryHashTree hashTree = getEntryHashTree();
+    if (hashTree != null)
+    {
+      attributes.add("entry-hash-tree-root-hash", Long.toHexString(hashTree.getRootHash()));
+      attributes.add("entry-hash-tree-entries", hashTree.getNbEntries());
+    }
+    if (updateToReplayQueue instanceof PartitionedReplayQueue)
+    {
+      List<String> partitionSizes = new ArrayList<>();
+      int[] sizes = ((PartitionedReplayQueue) updateToReplayQueue).getPartitionSizes();
+      for (int i = 0; i < sizes.length; i++)
+      {
+        partitionSizes.add(i + ":" + sizes[i]);
+      }
+      attributes.add("replay-queue-partition-sizes", partitionSizes);
+    }
   }
 
   /**
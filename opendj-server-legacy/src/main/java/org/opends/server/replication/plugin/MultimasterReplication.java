@@ -29,9 +29,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -98,12 +96,14 @@ public class MultimasterReplication
   private ReplicationServerListener replicationServerListener;
   private static final Map<DN, LDAPReplicationDomain> domains = new ConcurrentHashMap<>(4);
   private static final DSRSShutdownSync dsrsShutdownSync = new DSRSShutdownSync();
-  /** The queue of received update messages, to be treated by the ReplayThread threads. */
-  private static final BlockingQueue<UpdateToReplay> updateToReplayQueue = new LinkedBlockingQueue<>(10000);
+  /** The queue of received update messages, partitioned by target entry, to be treated by the ReplayThread threads. */
+  private static final PartitionedReplayQueue updateToReplayQueue = new PartitionedReplayQueue(10000, 1);
   /** The list of ReplayThread threads. */
   private static final List<ReplayThread> replayThreads = new ArrayList<>();
   /** The configurable number of replay threads. */
   private static int replayThreadNumber = 10;
+  private static int maxReplayBatchUpdates = 100;
+  private static long maxReplayBatchSize = 1024 * 1024;
 
   /** Enum that symbolizes the state of the multimaster replication. */
   private enum State
@@ -166,6 +166,11 @@ public class MultimasterReplication
         }
     }
 
+    return findDomain(dn);
+  }
+
+  private static LDAPReplicationDomain findDomain(DN dn)
+  {
     LDAPReplicationDomain domain = null;
     DN temp = dn;
     BackendConfigManager backendConfigManager =
@@ -270,6 +275,8 @@ public class MultimasterReplication
     cfg.addReplicationChangeListener(this);
 
     replayThreadNumber = getNumberOfReplayThreadsOrDefault(cfg);
+    maxReplayBatchUpdates = cfg.getMaxReplayBatchUpdates();
+    maxReplayBatchSize = cfg.getMaxReplayBatchSize();
     connectionTimeoutMS = (int) Math.min(cfg.getConnectionTimeout(), Integer.MAX_VALUE);
 
     //  Create the list of domains that are already defined.
@@ -301,10 +308,12 @@ public class MultimasterReplication
   {
     replayThreads.clear();
 
-    ReentrantLock switchQueueLock = new ReentrantLock();
+    // One partition of the queue per thread
+    updateToReplayQueue.setNumberOfPartitions(replayThreadNumber);
     for (int i = 0; i < replayThreadNumber; i++)
     {
-      ReplayThread replayThread = new ReplayThread(updateToReplayQueue, switchQueueLock);
+      ReplayThread replayThread =
+          new ReplayThread(updateToReplayQueue, i, maxReplayBatchUpdates, maxReplayBatchSize);
       replayThread.start();
       replayThreads.add(replayThread);
     }
@@ -445,6 +454,7 @@ public class MultimasterReplication
   public SynchronizationProviderResult
          doPreOperation(PreOperationModifyOperation modifyOperation)
   {
+    startEntryHashTreeChange(modifyOperation, modifyOperation.getEntryDN());
     DN operationDN = modifyOperation.getEntryDN();
     LDAPReplicationDomain domain = findDomain(operationDN, modifyOperation);
 
@@ -482,6 +492,7 @@ public class MultimasterReplication
   public SynchronizationProviderResult doPreOperation(
          PreOperationDeleteOperation deleteOperation) throws DirectoryException
   {
+    startEntryHashTreeChange(deleteOperation, deleteOperation.getEntryDN());
     return new SynchronizationProviderResult.ContinueProcessing();
   }
 
@@ -490,6 +501,7 @@ public class MultimasterReplication
          PreOperationModifyDNOperation modifyDNOperation)
          throws DirectoryException
   {
+    startEntryHashTreeChange(modifyDNOperation, modifyDNOperation.getEntryDN());
     DN operationDN = modifyDNOperation.getEntryDN();
     LDAPReplicationDomain domain = findDomain(operationDN, modifyDNOperation);
 
@@ -523,6 +535,7 @@ public class MultimasterReplication
   public SynchronizationProviderResult doPreOperation(
          PreOperationAddOperation addOperation)
   {
+    startEntryHashTreeChange(addOperation, addOperation.getEntryDN());
     // Check replication domain
     LDAPReplicationDomain domain =
       findDomain(addOperation.getEntryDN(), addOperation);
@@ -709,6 +722,23 @@ public class MultimasterReplication
     return true;
   }
 
+  /**
+   * Tells the entry hash tree of the domain of an operation that the operation
+   * is about to change its entries, including when the operation is not
+   * replicated.
+   *
+   * @param operation The operation about to change the entries.
+   * @param dn The DN of the entry changed by the operation.
+   */
+  private static void startEntryHashTreeChange(PluginOperation operation, DN dn)
+  {
+    final LDAPReplicationDomain domain = findDomain(dn);
+    if (domain != null)
+    {
+      domain.startEntryHashTreeChange(operation);
+    }
+  }
+
   /**
    * Generic code for all the postOperation entry point.
    *
@@ -721,6 +751,16 @@ public class MultimasterReplication
     if (domain != null) {
       domain.synchronize(operation);
     }
+    else if (operation instanceof Operation && ((Operation) operation).dontSynchronize())
+    {
+      // Conflict resolution and repair operations are not replicated,
+      // but they still change the replicated entries
+      domain = findDomain(dn);
+      if (domain != null)
+      {
+        domain.updateEntryHashTree(operation);
+      }
+    }
   }
 
   /**
@@ -747,6 +787,8 @@ public class MultimasterReplication
     // Stop threads then restart new number of threads
     stopReplayThreads();
     replayThreadNumber = getNumberOfReplayThreadsOrDefault(configuration);
+    maxReplayBatchUpdates = configuration.getMaxReplayBatchUpdates();
+    maxReplayBatchSize = configuration.getMaxReplayBatchSize();
     if (!domains.isEmpty())
     {
       createReplayThreads();
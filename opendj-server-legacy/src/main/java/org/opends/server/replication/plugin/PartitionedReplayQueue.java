@@ -0,0 +1,328 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.forgerock.opendj.ldap.DN;
+
+/**
+ * The queue of updates to be replayed by the replay threads, partitioned by
+ * the DN of the entry targeted by each update.
+ * <p>
+ * Each partition is consumed by a single replay thread, so that the updates
+ * targeting the same entry are replayed in the order in which they were
+ * received, while the updates targeting different entries are replayed in
+ * parallel. Dependencies between updates targeting different entries (for
+ * example the add of an entry and the add of its parent) are detected at replay
+ * time by {@link RemotePendingChanges}.
+ * <p>
+ * The methods inherited from {@link BlockingQueue} which retrieve updates
+ * consider all the partitions: they must not be used while replay threads are
+ * consuming the partitions.
+ */
+class PartitionedReplayQueue extends AbstractQueue<UpdateToReplay>
+    implements BlockingQueue<UpdateToReplay>
+{
+  /** Protects the partitions array against repartitioning. */
+  private final ReentrantReadWriteLock partitionsLock = new ReentrantReadWriteLock();
+  private final int capacity;
+  private volatile LinkedBlockingQueue<UpdateToReplay>[] partitions;
+
+  /**
+   * Creates a new partitioned replay queue.
+   *
+   * @param capacity
+   *          the total number of updates that the partitions can hold
+   * @param numberOfPartitions
+   *          the initial number of partitions
+   */
+  PartitionedReplayQueue(int capacity, int numberOfPartitions)
+  {
+    this.capacity = capacity;
+    this.partitions = newPartitions(numberOfPartitions, new ArrayList<List<UpdateToReplay>>());
+  }
+
+  /**
+   * Returns the number of partitions.
+   *
+   * @return the number of partitions
+   */
+  int getNumberOfPartitions()
+  {
+    return partitions.length;
+  }
+
+  /**
+   * Changes the number of partitions, redistributing the queued updates
+   * without changing the order of the updates targeting the same entry. This
+   * method must be called while no replay thread is consuming the partitions.
+   *
+   * @param numberOfPartitions
+   *          the new number of partitions
+   */
+  void setNumberOfPartitions(int numberOfPartitions)
+  {
+    partitionsLock.writeLock().lock();
+    try
+    {
+      if (numberOfPartitions == partitions.length)
+      {
+        return;
+      }
+      final List<List<UpdateToReplay>> updates = new ArrayList<>(numberOfPartitions);
+      for (int i = 0; i < numberOfPartitions; i++)
+      {
+        updates.add(new ArrayList<UpdateToReplay>());
+      }
+      for (LinkedBlockingQueue<UpdateToReplay> partition : partitions)
+      {
+        for (UpdateToReplay update : partition)
+        {
+          updates.get(partitionOf(update, numberOfPartitions)).add(update);
+        }
+      }
+      partitions = newPartitions(numberOfPartitions, updates);
+    }
+    finally
+    {
+      partitionsLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of updates waiting in each partition.
+   *
+   * @return the number of updates waiting in each partition
+   */
+  int[] getPartitionSizes()
+  {
+    final LinkedBlockingQueue<UpdateToReplay>[] partitions = this.partitions;
+    final int[] sizes = new int[partitions.length];
+    for (int i = 0; i < partitions.length; i++)
+    {
+      sizes[i] = partitions[i].size();
+    }
+    return sizes;
+  }
+
+  /**
+   * Retrieves and removes the next update of the provided partition, waiting
+   * up to the specified time if necessary for an update to become available.
+   *
+   * @param partition
+   *          the partition from which to retrieve the update
+   * @param timeout
+   *          how long to wait before giving up, in units of {@code unit}
+   * @param unit
+   *          the unit of the timeout
+   * @return the next update of the partition, or {@code null} if the
+   *         specified waiting time elapses before an update is available, or
+   *         if the partition does not exist anymore
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  UpdateToReplay poll(int partition, long timeout, TimeUnit unit) throws InterruptedException
+  {
+    final LinkedBlockingQueue<UpdateToReplay>[] partitions = this.partitions;
+    if (partition >= partitions.length)
+    {
+      unit.sleep(timeout);
+      return null;
+    }
+    return partitions[partition].poll(timeout, unit);
+  }
+
+  @Override
+  public boolean offer(UpdateToReplay update)
+  {
+    partitionsLock.readLock().lock();
+    try
+    {
+      return partitions[partitionOf(update, partitions.length)].offer(update);
+    }
+    finally
+    {
+      partitionsLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(UpdateToReplay update, long timeout, TimeUnit unit) throws InterruptedException
+  {
+    partitionsLock.readLock().lock();
+    try
+    {
+      return partitions[partitionOf(update, partitions.length)].offer(update, timeout, unit);
+    }
+    finally
+    {
+      partitionsLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(UpdateToReplay update) throws InterruptedException
+  {
+    // Do not block repartitioning while waiting for some space in the partition
+    while (!offer(update, 1, TimeUnit.SECONDS))
+    {
+      // Try again
+    }
+  }
+
+  @Override
+  public UpdateToReplay poll()
+  {
+    for (LinkedBlockingQueue<UpdateToReplay> partition : partitions)
+    {
+      final UpdateToReplay update = partition.poll();
+      if (update != null)
+      {
+        return update;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public UpdateToReplay poll(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    UpdateToReplay update = poll();
+    while (update == null)
+    {
+      final long remaining = deadline - System.nanoTime();
+      if (remaining <= 0)
+      {
+        return null;
+      }
+      TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)));
+      update = poll();
+    }
+    return update;
+  }
+
+  @Override
+  public UpdateToReplay take() throws InterruptedException
+  {
+    UpdateToReplay update = poll(1, TimeUnit.SECONDS);
+    while (update == null)
+    {
+      update = poll(1, TimeUnit.SECONDS);
+    }
+    return update;
+  }
+
+  @Override
+  public UpdateToReplay peek()
+  {
+    for (LinkedBlockingQueue<UpdateToReplay> partition : partitions)
+    {
+      final UpdateToReplay update = partition.peek();
+      if (update != null)
+      {
+        return update;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public int size()
+  {
+    int size = 0;
+    for (LinkedBlockingQueue<UpdateToReplay> partition : partitions)
+    {
+      size += partition.size();
+    }
+    return size;
+  }
+
+  @Override
+  public int remainingCapacity()
+  {
+    int remainingCapacity = 0;
+    for (LinkedBlockingQueue<UpdateToReplay> partition : partitions)
+    {
+      remainingCapacity += partition.remainingCapacity();
+    }
+    return remainingCapacity;
+  }
+
+  @Override
+  public int drainTo(Collection<? super UpdateToReplay> c)
+  {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super UpdateToReplay> c, int maxElements)
+  {
+    int drained = 0;
+    for (LinkedBlockingQueue<UpdateToReplay> partition : partitions)
+    {
+      drained += partition.drainTo(c, maxElements - drained);
+    }
+    return drained;
+  }
+
+  @Override
+  public Iterator<UpdateToReplay> iterator()
+  {
+    final List<UpdateToReplay> updates = new ArrayList<>();
+    for (LinkedBlockingQueue<UpdateToReplay> partition : partitions)
+    {
+      updates.addAll(partition);
+    }
+    return Collections.unmodifiableList(updates).iterator();
+  }
+
+  @SuppressWarnings("unchecked")
+  private LinkedBlockingQueue<UpdateToReplay>[] newPartitions(int numberOfPartitions,
+      List<List<UpdateToReplay>> updates)
+  {
+    final int partitionCapacity = Math.max(capacity / Math.max(numberOfPartitions, 1), 1);
+    final LinkedBlockingQueue<UpdateToReplay>[] newPartitions = new LinkedBlockingQueue[numberOfPartitions];
+    for (int i = 0; i < numberOfPartitions; i++)
+    {
+      final List<UpdateToReplay> partitionUpdates =
+          i < updates.size() ? updates.get(i) : Collections.<UpdateToReplay> emptyList();
+      // Never drop the updates which were already queued
+      newPartitions[i] = new LinkedBlockingQueue<>(Math.max(partitionCapacity, partitionUpdates.size()));
+      newPartitions[i].addAll(partitionUpdates);
+    }
+    return newPartitions;
+  }
+
+  /** Updates targeting the same entry always end up in the same partition. */
+  private static int partitionOf(UpdateToReplay update, int numberOfPartitions)
+  {
+    final DN dn = update.getUpdateMessage().getDN();
+    int h = dn.hashCode() * 0x9e3779b9;
+    h ^= h >>> 16;
+    return (h & Integer.MAX_VALUE) % numberOfPartitions;
+  }
+}
@@ -0,0 +1,1012 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import static org.opends.messages.ReplicationMessages.*;
+import static org.opends.server.protocols.internal.InternalClientConnection.*;
+import static org.opends.server.replication.plugin.EntryHistorical.*;
+import static org.opends.server.util.CollectionUtils.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.schema.CoreSchema;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.LocalBackend;
+import org.opends.server.controls.SubtreeDeleteControl;
+import org.opends.server.core.ServerContext;
+import org.opends.server.protocols.internal.InternalSearchListener;
+import org.opends.server.protocols.internal.InternalSearchOperation;
+import org.opends.server.protocols.internal.Requests;
+import org.opends.server.protocols.internal.SearchRequest;
+import org.opends.server.replication.common.ServerState;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchResultEntry;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.types.SearchResultReference;
+import org.opends.server.types.operation.PluginOperation;
+import org.opends.server.types.operation.PostOperationAddOperation;
+import org.opends.server.types.operation.PostOperationDeleteOperation;
+import org.opends.server.types.operation.PostOperationModifyDNOperation;
+import org.opends.server.types.operation.PostOperationModifyOperation;
+import org.opends.server.types.operation.PostOperationOperation;
+import org.opends.server.types.operation.PreOperationAddOperation;
+import org.opends.server.types.operation.PreOperationDeleteOperation;
+import org.opends.server.types.operation.PreOperationModifyDNOperation;
+import org.opends.server.types.operation.PreOperationModifyOperation;
+
+/**
+ * Maintains the {@link EntryHashTree} of the entries of a replication domain.
+ * <p>
+ * The tree is built by reading all the entries of the domain, then updated
+ * with each change successfully applied to the domain, whether the change was
+ * made locally or replayed from another replica.
+ * <p>
+ * The entries keep being changed while they are read. Each change is recorded
+ * when its replication pre-operation processing starts, before it is applied
+ * to the backend, along with the version of its entry before the first change
+ * recorded by the build. The build does not add to the tree the entries
+ * having a recorded change: instead it adds the version of each of them
+ * before its first recorded change, unless this version was read and added
+ * before the change was recorded, then it applies the changes whose
+ * post-operation processing ended during the build. The changes still in
+ * progress when the tree is installed are applied to the installed tree. When
+ * the build cannot tell whether a deleted or renamed entry was read before
+ * its change, only the buckets of such entries are read again. The changes in
+ * progress when the build starts are not recorded, so the entries are only
+ * read once they have ended. Deleting or renaming a subtree during the build
+ * starts the build again.
+ * <p>
+ * Each domain has a single thread building its tree, and a request to build
+ * the tree again abandons the build in progress.
+ * <p>
+ * The tree is saved to a file when the domain is shut down, along with the
+ * generation ID and the server state of the domain at that time, so that it
+ * can be loaded instead of being built again the next time the domain starts,
+ * if the domain has not changed in the meantime.
+ */
+class PersistentEntryHashTree
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The directory, relative to the instance root, where the trees are saved. */
+  private static final String TREES_DIRECTORY = "db" + File.separator + "replicationEntryHashTrees";
+  /** The maximum number of times a build reads the entries, the first time all of them. */
+  private static final int MAX_BUILD_PASSES = 10;
+  /** The delay, in milliseconds, between two checks that the changes in progress when a build starts have ended. */
+  private static final long CHANGES_IN_PROGRESS_CHECK_DELAY_MS = 100;
+  /**
+   * The maximum number of subordinate entries renamed in the tree by a modify
+   * DN operation, beyond which the tree is built again in the background
+   * rather than delaying the operation.
+   */
+  private static final int MAX_RENAMED_SUBORDINATES = 1000;
+  /** The operation attachment marking the changes counted by {@link #startChange(PluginOperation)}. */
+  private static final String CHANGE_ATTACHMENT = "replicationEntryHashTreeChange";
+
+  private final DN baseDN;
+  private final ServerContext serverContext;
+  private final File file;
+
+  /**
+   * Held in read mode while counting, recording or applying a change, and in
+   * write mode while installing or discarding the tree, or while a build
+   * starts or ends reading the entries.
+   */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  /** The tree, {@code null} while it is being built. */
+  @GuardedBy("lock")
+  private EntryHashTree tree;
+  /** The build recording the changes, {@code null} when the tree is not being built. */
+  @GuardedBy("lock")
+  private Build build;
+  /** The number of changes whose pre-operation processing has started, only updated while holding the read lock. */
+  private final AtomicLong nbChangesStarted = new AtomicLong();
+  /** The number of changes whose post-operation processing is over, only updated while holding the read lock. */
+  private final AtomicLong nbChangesEnded = new AtomicLong();
+
+  @GuardedBy("this")
+  private BuildThread buildThread;
+  /** Whether the tree must be built again, the build in progress being abandoned. */
+  private volatile boolean buildRequested;
+
+  /**
+   * Creates the entry hash tree of a replication domain. The tree is only
+   * available once {@link #start(long, ServerState)} has been called.
+   *
+   * @param baseDN
+   *          the base DN of the replication domain
+   * @param serverContext
+   *          the server context
+   */
+  PersistentEntryHashTree(DN baseDN, ServerContext serverContext)
+  {
+    this.baseDN = baseDN;
+    this.serverContext = serverContext;
+    this.file = new File(getFileForPath(TREES_DIRECTORY), baseDN.toNormalizedUrlSafeString() + ".tree");
+  }
+
+  /**
+   * Makes the tree available, by loading it from the file it was saved to if
+   * the domain has not changed since, or by building it.
+   *
+   * @param generationId
+   *          the current generation ID of the domain
+   * @param serverState
+   *          the current server state of the domain
+   */
+  void start(long generationId, ServerState serverState)
+  {
+    final EntryHashTree savedTree = load(generationId, serverState);
+    if (savedTree != null)
+    {
+      install(savedTree);
+    }
+    else
+    {
+      rebuild();
+    }
+  }
+
+  /**
+   * Discards the tree and builds it again in the background, for example
+   * after the content of the domain has been imported. A build in progress is
+   * abandoned.
+   */
+  synchronized void rebuild()
+  {
+    install(null);
+    buildRequested = true;
+    if (buildThread == null)
+    {
+      buildThread = new BuildThread();
+      buildThread.start();
+    }
+    notifyAll();
+  }
+
+  /** Discards the tree, and stops building it. */
+  synchronized void clear()
+  {
+    stopBuildThread();
+    install(null);
+  }
+
+  @GuardedBy("this")
+  private void stopBuildThread()
+  {
+    buildRequested = false;
+    if (buildThread != null)
+    {
+      buildThread.initiateShutdown();
+      buildThread = null;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Stops building the tree, and saves it if it is available.
+   *
+   * @param generationId
+   *          the current generation ID of the domain
+   * @param serverState
+   *          the current server state of the domain
+   */
+  void shutdown(long generationId, ServerState serverState)
+  {
+    final EntryHashTree currentTree;
+    synchronized (this)
+    {
+      stopBuildThread();
+      currentTree = getTree();
+    }
+    if (currentTree != null)
+    {
+      save(currentTree, generationId, serverState);
+    }
+  }
+
+  /**
+   * Returns the tree, if it is available.
+   *
+   * @return the tree, or {@code null} if it is being built or has been discarded
+   */
+  EntryHashTree getTree()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return tree;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts a change about to be applied to the domain, before it is applied
+   * to the backend, and records it if the tree is being built. The change must
+   * then be passed to {@link #update(PostOperationOperation)} once applied,
+   * whatever its result.
+   *
+   * @param op
+   *          the operation about to apply the change
+   */
+  void startChange(PluginOperation op)
+  {
+    if (op.getAttachment(CHANGE_ATTACHMENT) == null)
+    {
+      lock.readLock().lock();
+      try
+      {
+        if (build != null)
+        {
+          build.record(op);
+          op.setAttachment(CHANGE_ATTACHMENT, build);
+        }
+        else
+        {
+          op.setAttachment(CHANGE_ATTACHMENT, this);
+        }
+        nbChangesStarted.incrementAndGet();
+      }
+      finally
+      {
+        lock.readLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Updates the tree with a change applied to the domain, if it was
+   * successful.
+   *
+   * @param op
+   *          the operation which applied the change
+   */
+  void update(PostOperationOperation op)
+  {
+    boolean rebuildNeeded = false;
+    lock.readLock().lock();
+    try
+    {
+      final Object change = op.getAttachment(CHANGE_ATTACHMENT);
+      if (op.getResultCode() == ResultCode.SUCCESS)
+      {
+        if (tree != null)
+        {
+          rebuildNeeded = !update(tree, op, MAX_RENAMED_SUBORDINATES);
+        }
+        else if (build != null && change == build)
+        {
+          // the subordinate entries of a renamed entry are not recorded by the build
+          rebuildNeeded = !update(build.endedChanges, op, 0);
+        }
+      }
+      if (change == this || (change instanceof Build && ((Build) change).hashTree == this))
+      {
+        op.removeAttachment(CHANGE_ATTACHMENT);
+        if (change != this)
+        {
+          ((Build) change).nbChangesEnded.incrementAndGet();
+        }
+        nbChangesEnded.incrementAndGet();
+      }
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+    if (rebuildNeeded)
+    {
+      rebuild();
+    }
+  }
+
+  /**
+   * Updates a tree with a successful change.
+   *
+   * @return whether the tree could be updated, otherwise it must be built again
+   */
+  private boolean update(EntryHashTree tree, PostOperationOperation op, int maxRenamedSubordinates)
+  {
+    switch (op.getOperationType())
+    {
+    case ADD:
+      tree.add(((PostOperationAddOperation) op).getEntryToAdd());
+      return true;
+    case DELETE:
+      return updateForDelete(tree, (PostOperationDeleteOperation) op);
+    case MODIFY:
+      final PostOperationModifyOperation modifyOp = (PostOperationModifyOperation) op;
+      tree.replace(modifyOp.getCurrentEntry(), modifyOp.getModifiedEntry());
+      return true;
+    case MODIFY_DN:
+      return updateForModifyDN(tree, (PostOperationModifyDNOperation) op, maxRenamedSubordinates);
+    default:
+      return true;
+    }
+  }
+
+  private boolean updateForDelete(EntryHashTree tree, PostOperationDeleteOperation deleteOp)
+  {
+    if (isSubtreeDelete(deleteOp))
+    {
+      // the deleted subordinate entries are not known anymore
+      return false;
+    }
+    tree.remove(deleteOp.getEntryToDelete());
+    return true;
+  }
+
+  private boolean isSubtreeDelete(PostOperationDeleteOperation deleteOp)
+  {
+    try
+    {
+      return deleteOp.getRequestControl(SubtreeDeleteControl.DECODER) != null;
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+      return false;
+    }
+  }
+
+  /**
+   * Updates the tree with a renamed entry, and with its subordinate entries
+   * since their DN has changed too. Renaming a large subtree does not delay the
+   * operation by reading all its entries: the tree is built again instead.
+   */
+  private boolean updateForModifyDN(final EntryHashTree tree, PostOperationModifyDNOperation modifyDNOp,
+      int maxRenamedSubordinates)
+  {
+    tree.replace(modifyDNOp.getOriginalEntry(), modifyDNOp.getUpdatedEntry());
+
+    final DN oldDN = modifyDNOp.getOriginalEntry().getName();
+    final DN newDN = modifyDNOp.getUpdatedEntry().getName();
+    final SearchRequest request = newEntriesRequest(newDN, SearchScope.SUBORDINATES)
+        .setSizeLimit(maxRenamedSubordinates + 1);
+    final InternalSearchOperation searchOp = getRootConnection().processSearch(request, new EntryListener()
+    {
+      @Override
+      public void handleInternalSearchEntry(InternalSearchOperation searchOperation, SearchResultEntry entry)
+      {
+        tree.remove(entry.getName().rename(newDN, oldDN), entry);
+        tree.add(entry);
+      }
+    });
+    // some subordinate entries might not have been renamed in the tree
+    return searchOp.getResultCode() == ResultCode.SUCCESS && searchOp.getEntriesSent() <= maxRenamedSubordinates;
+  }
+
+  private void install(EntryHashTree newTree)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      tree = newTree;
+      build = null;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Discards the tree and starts recording the changes for a new build.
+   *
+   * @return the new build
+   */
+  private Build startBuild()
+  {
+    lock.writeLock().lock();
+    try
+    {
+      tree = null;
+      // no change can start while holding the write lock
+      build = new Build(this, nbChangesStarted.get());
+      return build;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Stops recording the changes for a build which did not install its tree. */
+  private void stopBuild(Build stoppedBuild)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      if (build == stoppedBuild)
+      {
+        build = null;
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns whether the changes in progress when a build started, which are
+   * not recorded by the build, have all ended.
+   */
+  private boolean haveUnrecordedChangesEnded(Build build)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      // no change can end while holding the write lock
+      return nbChangesEnded.get() - build.nbChangesEnded.get() == build.nbChangesStartedBefore;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Ends reading the entries for a build, then installs the built tree, unless
+   * the build cannot tell for some deleted or renamed entries whether they
+   * were read before they were changed.
+   *
+   * @return the buckets of the entries which must be read again, or
+   *         {@code null} if the tree was installed or the build abandoned
+   */
+  private BitSet installIfComplete(Build build, BuildThread thread)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      if (this.build != build || isBuildAbandoned(thread))
+      {
+        return null;
+      }
+      build.step++;
+      // a renamed entry without an entryUUID is recorded under both its DNs
+      final Set<ChangedEntry> changedEntries = new HashSet<>(build.changedEntries.values());
+      final BitSet bucketsToRead = new BitSet(EntryHashTree.NB_BUCKETS);
+      for (ChangedEntry changedEntry : changedEntries)
+      {
+        if (changedEntry.originalHash != null && build.isOriginalEntryAdded(changedEntry) == null)
+        {
+          bucketsToRead.set(changedEntry.bucket);
+        }
+      }
+      if (!bucketsToRead.isEmpty())
+      {
+        return bucketsToRead;
+      }
+
+      final EntryHashTree builtTree = build.builtTree;
+      for (ChangedEntry changedEntry : changedEntries)
+      {
+        if (changedEntry.originalHash != null && !build.isOriginalEntryAdded(changedEntry))
+        {
+          builtTree.add(changedEntry.bucket, changedEntry.originalHash);
+        }
+      }
+      builtTree.addAll(build.endedChanges);
+      // the changes still in progress are applied to the installed tree
+      tree = builtTree;
+      this.build = null;
+      return null;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private boolean isBuildAbandoned(BuildThread thread)
+  {
+    return thread.isShutdownInitiated() || buildRequested;
+  }
+
+  /**
+   * Reads the entries of the domain assigned to some buckets of the tree, and
+   * adds to the built tree those which have no change recorded by the build.
+   *
+   * @param build
+   *          the build
+   * @param buckets
+   *          the buckets whose entries are read, or {@code null} to read all
+   *          the entries
+   * @param thread
+   *          the thread building the tree, the build is abandoned when this
+   *          thread is shut down or when a new build is requested
+   * @return whether the entries were read, otherwise the build was abandoned
+   * @throws DirectoryException
+   *           If the entries could not be read.
+   */
+  private boolean read(final Build build, final BitSet buckets, final BuildThread thread) throws DirectoryException
+  {
+    lock.writeLock().lock();
+    try
+    {
+      build.step++;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+    if (buckets != null)
+    {
+      for (int bucket = buckets.nextSetBit(0); bucket >= 0; bucket = buckets.nextSetBit(bucket + 1))
+      {
+        build.clearBucket(bucket);
+      }
+    }
+
+    final InternalSearchOperation searchOp = getRootConnection().processSearch(
+        newEntriesRequest(baseDN, SearchScope.WHOLE_SUBTREE), new EntryListener()
+        {
+          @Override
+          public void handleInternalSearchEntry(InternalSearchOperation searchOperation, SearchResultEntry entry)
+              throws DirectoryException
+          {
+            if (isBuildAbandoned(thread))
+            {
+              throw new DirectoryException(ResultCode.CANCELLED, LocalizableMessage.raw("build abandoned"));
+            }
+            final int bucket = EntryHashTree.getBucket(entry);
+            if (buckets == null || buckets.get(bucket))
+            {
+              build.read(bucket, entry);
+            }
+          }
+        });
+    if (isBuildAbandoned(thread))
+    {
+      return false;
+    }
+    if (searchOp.getResultCode() != ResultCode.SUCCESS && searchOp.getResultCode() != ResultCode.NO_SUCH_OBJECT)
+    {
+      throw new DirectoryException(searchOp.getResultCode(), searchOp.getErrorMessage().toMessage());
+    }
+    return true;
+  }
+
+  /**
+   * Returns the DNs of the entries of the domain assigned to some buckets of
+   * the tree, by reading all the entries of the domain.
+   *
+   * @param buckets
+   *          the buckets
+   * @param maxEntries
+   *          the maximum number of DNs to return
+   * @return the DNs of the entries of the buckets, at most {@code maxEntries}
+   * @throws DirectoryException
+   *           If the entries could not be read.
+   */
+  List<DN> findEntries(final BitSet buckets, final int maxEntries) throws DirectoryException
+  {
+    final List<DN> dns = new ArrayList<>();
+    final InternalSearchOperation searchOp = getRootConnection().processSearch(
+        newEntriesRequest(baseDN, SearchScope.WHOLE_SUBTREE), new EntryListener()
+        {
+          @Override
+          public void handleInternalSearchEntry(InternalSearchOperation searchOperation, SearchResultEntry entry)
+              throws DirectoryException
+          {
+            if (buckets.get(EntryHashTree.getBucket(entry)))
+            {
+              dns.add(entry.getName());
+              if (dns.size() >= maxEntries)
+              {
+                throw new DirectoryException(ResultCode.SIZE_LIMIT_EXCEEDED,
+                    LocalizableMessage.raw("enough entries found"));
+              }
+            }
+          }
+        });
+    final ResultCode resultCode = searchOp.getResultCode();
+    if (resultCode != ResultCode.SUCCESS && resultCode != ResultCode.NO_SUCH_OBJECT && dns.size() < maxEntries)
+    {
+      throw new DirectoryException(resultCode, searchOp.getErrorMessage().toMessage());
+    }
+    return dns;
+  }
+
+  /** Returns a request reading all the attributes which are hashed in the tree, including LDAP subentries. */
+  private static SearchRequest newEntriesRequest(DN baseDN, SearchScope scope)
+  {
+    final SearchFilter filter = SearchFilter.createORFilter(newArrayList(
+        SearchFilter.objectClassPresent(),
+        SearchFilter.createEqualityFilter(
+            CoreSchema.getObjectClassAttributeType(), ByteString.valueOfUtf8("ldapSubentry"))));
+    return Requests.newSearchRequest(baseDN, scope, filter)
+        .addAttribute("*", ENTRYUUID_ATTRIBUTE_NAME);
+  }
+
+  /** Listens to the entries returned by a search, ignoring the references. */
+  private abstract static class EntryListener implements InternalSearchListener
+  {
+    @Override
+    public void handleInternalSearchReference(InternalSearchOperation searchOperation,
+        SearchResultReference searchReference)
+    {
+      // Nothing to do.
+    }
+  }
+
+  /**
+   * Returns the key of an entry among the entries changed during a build: its
+   * entryUUID, which does not change when it is renamed, or its DN if it has no
+   * entryUUID.
+   */
+  private static String getChangedEntryKey(Entry entry)
+  {
+    final String entryUUID = getEntryUUID(entry);
+    return entryUUID != null ? entryUUID : entry.getName().toNormalizedUrlSafeString();
+  }
+
+  /** An entry changed during a build. */
+  private static final class ChangedEntry
+  {
+    /** The bucket of the entry before its first change recorded by the build. */
+    private final int bucket;
+    /** The hash of the entry before its first change recorded by the build, {@code null} if it was added. */
+    private final Long originalHash;
+    /** The step of the build when its first change was recorded. */
+    private final int step;
+    /** Whether the entry was deleted during the step when its first change was recorded. */
+    private volatile boolean deleted;
+    /** Whether the entry was renamed during the step when its first change was recorded. */
+    private volatile boolean renamed;
+    /** Whether the entry was read after its first change was recorded, then not added to the built tree. */
+    private volatile boolean skipped;
+
+    private ChangedEntry(int bucket, Long originalHash, int step)
+    {
+      this.bucket = bucket;
+      this.originalHash = originalHash;
+      this.step = step;
+    }
+  }
+
+  /** A build of the tree, recording the changes applied to the domain while the entries are read. */
+  private static final class Build
+  {
+    /** The tree being built. */
+    private final PersistentEntryHashTree hashTree;
+    /** The number of changes started before the build, which are not recorded. */
+    private final long nbChangesStartedBefore;
+    /** The number of changes recorded by this build whose post-operation processing is over. */
+    private final AtomicLong nbChangesEnded = new AtomicLong();
+    /** The changes recorded by this build whose post-operation processing ended before the tree was installed. */
+    private final EntryHashTree endedChanges = new EntryHashTree();
+    /** The changed entries, by key. */
+    private final Map<String, ChangedEntry> changedEntries = new ConcurrentHashMap<>();
+    /**
+     * Odd while reading the entries, the number of times the entries have been
+     * read being {@code step / 2}, only updated while holding the write lock.
+     */
+    private volatile int step;
+
+    /** The tree of the entries read without a recorded change, only used by the build thread. */
+    private final EntryHashTree builtTree = new EntryHashTree();
+    /** The number of entries added to the built tree for each bucket, only used by the build thread. */
+    private final long[] bucketSizes = new long[EntryHashTree.NB_BUCKETS];
+    /** The step when the entries of each bucket were last read, only used by the build thread. */
+    private final int[] bucketSteps = new int[EntryHashTree.NB_BUCKETS];
+
+    private Build(PersistentEntryHashTree hashTree, long nbChangesStartedBefore)
+    {
+      this.hashTree = hashTree;
+      this.nbChangesStartedBefore = nbChangesStartedBefore;
+      Arrays.fill(bucketSteps, 1);
+    }
+
+    /** Records a change about to be applied to the backend, while holding the read lock. */
+    private void record(PluginOperation op)
+    {
+      if (op instanceof PreOperationAddOperation)
+      {
+        record(((PreOperationAddOperation) op).getEntryToAdd(), false);
+      }
+      else if (op instanceof PreOperationModifyOperation)
+      {
+        record(((PreOperationModifyOperation) op).getCurrentEntry(), true);
+      }
+      else if (op instanceof PreOperationDeleteOperation)
+      {
+        final ChangedEntry changedEntry = record(((PreOperationDeleteOperation) op).getEntryToDelete(), true);
+        if (changedEntry.step == step)
+        {
+          changedEntry.deleted = true;
+        }
+      }
+      else if (op instanceof PreOperationModifyDNOperation)
+      {
+        final PreOperationModifyDNOperation modifyDNOp = (PreOperationModifyDNOperation) op;
+        final ChangedEntry changedEntry = record(modifyDNOp.getOriginalEntry(), true);
+        if (changedEntry.step == step)
+        {
+          changedEntry.renamed = true;
+        }
+        changedEntries.putIfAbsent(getChangedEntryKey(modifyDNOp.getUpdatedEntry()), changedEntry);
+      }
+    }
+
+    private ChangedEntry record(Entry entry, boolean existed)
+    {
+      final String key = getChangedEntryKey(entry);
+      final ChangedEntry changedEntry = changedEntries.get(key);
+      if (changedEntry != null)
+      {
+        return changedEntry;
+      }
+      final ChangedEntry newChangedEntry =
+          new ChangedEntry(EntryHashTree.getBucket(entry), existed ? EntryHashTree.hash(entry) : null, step);
+      final ChangedEntry previousChangedEntry = changedEntries.putIfAbsent(key, newChangedEntry);
+      return previousChangedEntry != null ? previousChangedEntry : newChangedEntry;
+    }
+
+    /** Adds an entry read from the backend to the built tree, unless it has a recorded change. */
+    private void read(int bucket, Entry entry)
+    {
+      final ChangedEntry changedEntry = changedEntries.get(getChangedEntryKey(entry));
+      if (changedEntry != null)
+      {
+        changedEntry.skipped = true;
+      }
+      else
+      {
+        builtTree.add(bucket, EntryHashTree.hash(entry));
+        bucketSizes[bucket]++;
+      }
+    }
+
+    /** Removes the entries of a bucket from the built tree, before they are read again. */
+    private void clearBucket(int bucket)
+    {
+      builtTree.clearBucket(bucket, bucketSizes[bucket]);
+      bucketSizes[bucket] = 0;
+      bucketSteps[bucket] = step;
+    }
+
+    /**
+     * Returns whether the version of a changed entry before its first recorded
+     * change was read and added to the built tree.
+     *
+     * @return whether it was added, or {@code null} if the build cannot tell
+     */
+    private Boolean isOriginalEntryAdded(ChangedEntry changedEntry)
+    {
+      final int bucketStep = bucketSteps[changedEntry.bucket];
+      if (changedEntry.step != bucketStep)
+      {
+        // recorded before its bucket was last read, or after: the entry was then read before any change
+        return changedEntry.step > bucketStep;
+      }
+      if (changedEntry.renamed)
+      {
+        // it might have been read with its old DN, its new DN, both or none
+        return null;
+      }
+      if (changedEntry.skipped)
+      {
+        return false;
+      }
+      // unless deleted before being read, it was read before its change was recorded
+      return changedEntry.deleted ? null : Boolean.TRUE;
+    }
+  }
+
+  /** The thread building the tree each time it is requested, until it is shut down. */
+  private class BuildThread extends DirectoryThread
+  {
+    private BuildThread()
+    {
+      super("Replication entry hash tree builder for domain \"" + baseDN + "\"");
+    }
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        while (waitForBuildRequest())
+        {
+          buildAndInstall();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /** Returns whether a build was requested, or false if this thread was shut down. */
+    private boolean waitForBuildRequest() throws InterruptedException
+    {
+      synchronized (PersistentEntryHashTree.this)
+      {
+        while (!buildRequested && !isShutdownInitiated())
+        {
+          PersistentEntryHashTree.this.wait();
+        }
+        buildRequested = false;
+        return !isShutdownInitiated();
+      }
+    }
+
+    /** Waits for this thread to be shut down or for a new build to be requested, for at most the provided delay. */
+    private void pause(long delayMs) throws InterruptedException
+    {
+      synchronized (PersistentEntryHashTree.this)
+      {
+        if (!isBuildAbandoned(this))
+        {
+          PersistentEntryHashTree.this.wait(delayMs);
+        }
+      }
+    }
+
+    private void buildAndInstall() throws InterruptedException
+    {
+      if (isBuildAbandoned(this))
+      {
+        return;
+      }
+      final Build newBuild = startBuild();
+      try
+      {
+        while (!haveUnrecordedChangesEnded(newBuild))
+        {
+          pause(CHANGES_IN_PROGRESS_CHECK_DELAY_MS);
+          if (isBuildAbandoned(this))
+          {
+            return;
+          }
+        }
+        BitSet buckets = null;
+        for (int pass = 1; pass <= MAX_BUILD_PASSES; pass++)
+        {
+          if (!read(newBuild, buckets, this))
+          {
+            return;
+          }
+          buckets = installIfComplete(newBuild, this);
+          if (buckets == null)
+          {
+            return;
+          }
+        }
+        logger.warn(WARN_ENTRY_HASH_TREE_BUILD_INTERRUPTED, baseDN, MAX_BUILD_PASSES);
+      }
+      catch (DirectoryException e)
+      {
+        logger.traceException(e);
+        logger.error(ERR_CANNOT_BUILD_ENTRY_HASH_TREE, baseDN, e.getMessageObject());
+      }
+      finally
+      {
+        stopBuild(newBuild);
+      }
+    }
+  }
+
+  /**
+   * Loads the tree saved when the domain was last shut down, then deletes the
+   * file, so that a tree which is not saved again is never loaded.
+   *
+   * @return the saved tree, or {@code null} if there is none or if the
+   *         domain has changed since it was saved
+   */
+  private EntryHashTree load(long generationId, ServerState serverState)
+  {
+    if (!file.exists())
+    {
+      return null;
+    }
+    try
+    {
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+      {
+        final String savedGenerationId = reader.readLine();
+        final String savedServerState = reader.readLine();
+        final String encodedTree = reader.readLine();
+        if (!String.valueOf(generationId).equals(savedGenerationId)
+            || !serverState.toString().equals(savedServerState)
+            || encodedTree == null)
+        {
+          return null;
+        }
+        final EntryHashTree savedTree = EntryHashTree.decode(encodedTree);
+        final LocalBackend<?> backend = serverContext.getBackendConfigManager().findLocalBackendForEntry(baseDN);
+        if (backend == null || backend.getNumberOfEntriesInBaseDN(baseDN) != savedTree.getNbEntries())
+        {
+          // the entries were changed while the domain was not running
+          return null;
+        }
+        return savedTree;
+      }
+      finally
+      {
+        file.delete();
+      }
+    }
+    catch (IOException | DirectoryException e)
+    {
+      logger.traceException(e);
+      return null;
+    }
+  }
+
+  private void save(EntryHashTree savedTree, long generationId, ServerState serverState)
+  {
+    final File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+    try
+    {
+      file.getParentFile().mkdirs();
+      try (BufferedWriter writer =
+          new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)))
+      {
+        writer.write(String.valueOf(generationId));
+        writer.newLine();
+        writer.write(serverState.toString());
+        writer.newLine();
+        writer.write(savedTree.encode());
+        writer.newLine();
+      }
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CANNOT_SAVE_ENTRY_HASH_TREE, baseDN, file, stackTraceToSingleLineString(e));
+      tmpFile.delete();
+    }
+  }
+}
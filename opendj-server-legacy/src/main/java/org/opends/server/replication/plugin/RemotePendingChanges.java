@@ -17,16 +17,12 @@
 package org.opends.server.replication.plugin;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
-import net.jcip.annotations.GuardedBy;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.core.AddOperation;
@@ -51,31 +47,34 @@ import org.opends.server.types.Operation;
  * It is used to know when the ServerState must be updated and to compute
  * the dependencies between operations.
  *
+ * Updates targeting the same entry are replayed in order by the same replay
+ * thread (see {@link PartitionedReplayQueue}), so only the operations which
+ * change the DIT structure (add, delete and modify DN) need to be tracked from
+ * the time they are received in order to detect dependencies between updates
+ * targeting different entries. Modify operations are only tracked once they
+ * have been found to depend on another change.
+ *
  * One of this object is instantiated for each ReplicationDomain.
  */
 final class RemotePendingChanges
 {
   /** A map used to store the pending changes. */
-  @GuardedBy("pendingChangesLock")
-  private final SortedMap<CSN, PendingChange> pendingChanges = new TreeMap<>();
+  private final ConcurrentSkipListMap<CSN, PendingChange> pendingChanges = new ConcurrentSkipListMap<>();
 
   /**
    * A sorted set containing the list of PendingChanges that have
    * not been replayed correctly because they are dependent on
    * another change to be completed.
    */
-  @GuardedBy("dependentChangesLock")
-  private final SortedSet<PendingChange> dependentChanges = new TreeSet<>();
+  private final ConcurrentSkipListSet<PendingChange> dependentChanges = new ConcurrentSkipListSet<>();
   /**
-   * {@code activeAndDependentChanges} also contains changes discovered to be dependent
-   * on currently in progress changes.
+   * {@code activeAndDependentChanges} contains the changes modifying the DIT structure
+   * which are not yet committed, and the changes discovered to be dependent on another change.
    */
   private final ConcurrentSkipListSet<PendingChange> activeAndDependentChanges = new ConcurrentSkipListSet<>();
 
-  private final ReentrantReadWriteLock pendingChangesLock = new ReentrantReadWriteLock(true);
-  private final ReentrantReadWriteLock.ReadLock pendingChangesReadLock = pendingChangesLock.readLock();
-  private final ReentrantReadWriteLock.WriteLock pendingChangesWriteLock = pendingChangesLock.writeLock();
-  private final ReentrantLock dependentChangesLock = new ReentrantLock();
+  /** Whether a thread is currently updating the ServerState with the committed changes. */
+  private final AtomicBoolean updatingState = new AtomicBoolean();
 
   /** The ServerState that will be updated when LDAPUpdateMsg are fully replayed. */
   private final ServerState state;
@@ -98,19 +97,13 @@ final class RemotePendingChanges
    */
   public int getQueueSize()
   {
-    pendingChangesReadLock.lock();
-    try
-    {
-      return pendingChanges.size();
-    }
-    finally
-    {
-      pendingChangesReadLock.unlock();
-    }
+    return pendingChanges.size();
   }
 
   /**
-   * Returns the number of changes actively being replayed.
+   * Returns the number of changes modifying the DIT structure which are being
+   * replayed or waiting to be replayed, plus the number of changes depending
+   * on other changes.
    *
    * @return the number of changes actively being replayed.
    */
@@ -126,15 +119,24 @@ final class RemotePendingChanges
    */
   public int getDependentChangesSize()
   {
-    dependentChangesLock.lock();
-    try
-    {
-      return dependentChanges.size();
-    }
-    finally
+    return dependentChanges.size();
+  }
+
+  /**
+   * Returns the time elapsed since the oldest change which is not replayed yet
+   * was made on the replica which originated it.
+   *
+   * @return the replay lag in milliseconds, or 0 if all the received changes
+   *         have been replayed.
+   */
+  public long getReplayLag()
+  {
+    final Map.Entry<CSN, PendingChange> oldestChange = pendingChanges.firstEntry();
+    if (oldestChange == null)
     {
-      dependentChangesLock.unlock();
+      return 0;
     }
+    return Math.max(System.currentTimeMillis() - oldestChange.getKey().getTime(), 0);
   }
 
   /**
@@ -148,16 +150,21 @@ final class RemotePendingChanges
    */
   public boolean putRemoteUpdate(LDAPUpdateMsg update)
   {
-    pendingChangesWriteLock.lock();
-    try
+    CSN csn = update.getCSN();
+    PendingChange change = new PendingChange(csn, null, update);
+    if (pendingChanges.putIfAbsent(csn, change) != null)
     {
-      CSN csn = update.getCSN();
-      return pendingChanges.put(csn, new PendingChange(csn, null, update)) == null;
+      return false;
     }
-    finally
+    if (!(update instanceof ModifyMsg))
     {
-      pendingChangesWriteLock.unlock();
+      /*
+       * Changes are received in order, so any newer change depending on this
+       * one will find it when checking its dependencies.
+       */
+      activeAndDependentChanges.add(change);
     }
+    return true;
   }
 
   /**
@@ -168,50 +175,79 @@ final class RemotePendingChanges
    */
   public void commit(CSN csn)
   {
-    pendingChangesWriteLock.lock();
-    try
+    PendingChange curChange = pendingChanges.get(csn);
+    if (curChange == null)
     {
-      PendingChange curChange = pendingChanges.get(csn);
-      if (curChange == null)
-      {
-        throw new NoSuchElementException();
-      }
-      curChange.setCommitted(true);
-      activeAndDependentChanges.remove(curChange);
-
-      final Iterator<PendingChange> it = pendingChanges.values().iterator();
-      while (it.hasNext())
-      {
-        PendingChange pendingChange = it.next();
-        if (!pendingChange.isCommitted())
-        {
-          break;
-        }
-        if (pendingChange.getMsg().contributesToDomainState())
-        {
-          state.update(pendingChange.getCSN());
-        }
-        it.remove();
-      }
+      throw new NoSuchElementException();
     }
-    finally
+    // The change has been applied, newer changes depending on it can now be replayed
+    activeAndDependentChanges.remove(curChange);
+    final ReplayBatch batch = ReplayBatch.current();
+    if (batch != null)
     {
-      pendingChangesWriteLock.unlock();
+      // The change may not be on disk yet, the ServerState must not cover it before the batch is
+      batch.deferCommit(this, curChange);
+      return;
     }
+    curChange.setCommitted(true);
+    updateState();
   }
 
-  public void markInProgress(LDAPUpdateMsg msg)
+  /**
+   * Commits changes replayed as part of a replay batch, once the batch is on disk.
+   *
+   * @param changes the changes to commit
+   */
+  void commit(List<PendingChange> changes)
   {
-    pendingChangesReadLock.lock();
-    try
+    for (PendingChange change : changes)
     {
-      activeAndDependentChanges.add(pendingChanges.get(msg.getCSN()));
+      change.setCommitted(true);
     }
-    finally
+    updateState();
+  }
+
+  /**
+   * Moves the ServerState forward to the last committed change preceded only
+   * by committed changes. A single thread does it at a time: a thread which
+   * finds another one doing it lets it process its own committed change.
+   */
+  private void updateState()
+  {
+    do
     {
-      pendingChangesReadLock.unlock();
+      if (!updatingState.compareAndSet(false, true))
+      {
+        return;
+      }
+      try
+      {
+        Map.Entry<CSN, PendingChange> first;
+        while ((first = pendingChanges.firstEntry()) != null && first.getValue().isCommitted())
+        {
+          PendingChange pendingChange = first.getValue();
+          if (pendingChange.getMsg().contributesToDomainState())
+          {
+            state.update(pendingChange.getCSN());
+          }
+          pendingChanges.remove(first.getKey(), pendingChange);
+        }
+      }
+      finally
+      {
+        updatingState.set(false);
+      }
+      // Check again in case a change was committed after the loop ended, but before releasing the flag
     }
+    while (isFirstChangeCommitted());
+  }
+
+  private boolean isFirstChangeCommitted()
+  {
+    final Map.Entry<CSN, PendingChange> first = pendingChanges.firstEntry();
+    return first != null && first.getValue().isCommitted();
   }
+
   /**
    * Get the first update in the list that have some dependencies cleared.
    *
@@ -219,25 +255,26 @@ final class RemotePendingChanges
    */
   public LDAPUpdateMsg getNextUpdate()
   {
-    pendingChangesReadLock.lock();
-    dependentChangesLock.lock();
-    try
+    for (;;)
     {
-      if (!dependentChanges.isEmpty())
+      // Do not use first(), which fails if another thread takes the last dependent change
+      final Iterator<PendingChange> it = dependentChanges.iterator();
+      if (!it.hasNext())
       {
-        PendingChange firstDependentChange = dependentChanges.first();
-        if (pendingChanges.firstKey().isNewerThanOrEqualTo(firstDependentChange.getCSN()))
-        {
-          dependentChanges.remove(firstDependentChange);
-          return firstDependentChange.getLDAPUpdateMsg();
-        }
+        return null;
+      }
+      final PendingChange firstDependentChange = it.next();
+      final Map.Entry<CSN, PendingChange> firstPendingChange = pendingChanges.firstEntry();
+      if (firstPendingChange == null
+          || !firstPendingChange.getKey().isNewerThanOrEqualTo(firstDependentChange.getCSN()))
+      {
+        return null;
+      }
+      // Another thread may have taken it in the meantime
+      if (dependentChanges.remove(firstDependentChange))
+      {
+        return firstDependentChange.getLDAPUpdateMsg();
       }
-      return null;
-    }
-    finally
-    {
-      dependentChangesLock.unlock();
-      pendingChangesReadLock.unlock();
     }
   }
 
@@ -248,28 +285,14 @@ final class RemotePendingChanges
    */
   private void addDependency(PendingChange dependentChange)
   {
-    dependentChangesLock.lock();
-    try
-    {
-      dependentChanges.add(dependentChange);
-    }
-    finally
-    {
-      dependentChangesLock.unlock();
-    }
+    // Newer changes targeting the same entry must now also wait for this one
+    activeAndDependentChanges.add(dependentChange);
+    dependentChanges.add(dependentChange);
   }
 
   private PendingChange getPendingChange(CSN csn)
   {
-    pendingChangesReadLock.lock();
-    try
-    {
-      return pendingChanges.get(csn);
-    }
-    finally
-    {
-      pendingChangesReadLock.unlock();
-    }
+    return pendingChanges.get(csn);
   }
 
   /**
@@ -0,0 +1,188 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import static org.opends.messages.ReplicationMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.opends.server.backends.pluggable.spi.WriteBatch;
+
+/**
+ * A group of updates replayed by a replay thread which are forced to disk all at once.
+ * <p>
+ * While a replay batch is active for a replay thread, the backends commit the replayed updates
+ * without waiting for them to be written to disk (see {@link WriteBatch}). The replayed updates are
+ * visible and newer updates depending on them can be replayed, but they are only taken into account
+ * in the ServerState of their replication domain once the batch has been forced to disk, so that
+ * they are replayed again if the server crashes before they reached the disk. Forcing the batch to
+ * disk is retried until it succeeds: the ServerState never covers updates which are not durable.
+ * <p>
+ * Newer updates found to depend on a replayed update before it was applied wait for the oldest
+ * pending change of their replication domain to be committed, hence for the batch to be forced to
+ * disk: the replay thread replays them once the batch is committed.
+ */
+final class ReplayBatch
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  private static final ThreadLocal<ReplayBatch> CURRENT = new ThreadLocal<>();
+  /** The delay, in milliseconds, before forcing again to disk a batch which could not be. */
+  private static final long SYNC_RETRY_DELAY_MS = 1000;
+
+  private final WriteBatch writeBatch;
+  /** The replayed changes to commit in their pending changes once the batch is on disk. */
+  private final Map<RemotePendingChanges, List<PendingChange>> changesToCommit = new LinkedHashMap<>();
+  /** The replication domains of the updates replayed in this batch. */
+  private final Set<LDAPReplicationDomain> domains = new LinkedHashSet<>();
+  private int numberOfUpdates;
+  private long size;
+
+  private ReplayBatch()
+  {
+    writeBatch = WriteBatch.begin();
+  }
+
+  /**
+   * Starts a new replay batch for the current thread.
+   *
+   * @return the new replay batch
+   */
+  static ReplayBatch begin()
+  {
+    final ReplayBatch batch = new ReplayBatch();
+    CURRENT.set(batch);
+    return batch;
+  }
+
+  /**
+   * Returns the replay batch active for the current thread.
+   *
+   * @return the replay batch active for the current thread, or {@code null} if there is none
+   */
+  static ReplayBatch current()
+  {
+    return CURRENT.get();
+  }
+
+  /**
+   * Adds an update which is going to be replayed as part of this batch.
+   *
+   * @param update
+   *          the update
+   */
+  void add(UpdateToReplay update)
+  {
+    numberOfUpdates++;
+    size += update.getUpdateMessage().size();
+    domains.add(update.getReplicationDomain());
+  }
+
+  /**
+   * Returns whether this batch reached one of the provided limits.
+   *
+   * @param maxUpdates
+   *          the maximum number of updates in a batch
+   * @param maxSize
+   *          the maximum total size of the updates in a batch
+   * @return {@code true} if no more updates should be added to this batch
+   */
+  boolean isFull(int maxUpdates, long maxSize)
+  {
+    return numberOfUpdates >= maxUpdates || size >= maxSize;
+  }
+
+  /**
+   * Defers the commit of a replayed change until this batch is on disk.
+   *
+   * @param pendingChanges
+   *          the pending changes of the replication domain of the change
+   * @param change
+   *          the replayed change
+   */
+  void deferCommit(RemotePendingChanges pendingChanges, PendingChange change)
+  {
+    List<PendingChange> changes = changesToCommit.get(pendingChanges);
+    if (changes == null)
+    {
+      changes = new ArrayList<>();
+      changesToCommit.put(pendingChanges, changes);
+    }
+    changes.add(change);
+  }
+
+  /**
+   * Ends this replay batch: forces the replayed updates to disk, then commits them in the pending
+   * changes of their replication domain.
+   * <p>
+   * If the updates cannot be forced to disk, this is retried until it succeeds or the replay thread
+   * is shut down. In the latter case, the updates are not committed, so the ServerState of their
+   * replication domain does not cover them and they are replayed again after a restart.
+   *
+   * @param shutdown
+   *          whether the replay thread was shut down
+   * @return the replication domains of the updates replayed in this batch, whose dependent updates
+   *         may now be replayed, or an empty set if the updates were not committed
+   * @throws InterruptedException
+   *           if the thread was interrupted while waiting to retry forcing the updates to disk, in
+   *           which case the updates are not committed either
+   */
+  Set<LDAPReplicationDomain> commit(AtomicBoolean shutdown) throws InterruptedException
+  {
+    if (CURRENT.get() == this)
+    {
+      CURRENT.remove();
+    }
+    while (!sync())
+    {
+      if (shutdown.get())
+      {
+        return Collections.emptySet();
+      }
+      Thread.sleep(SYNC_RETRY_DELAY_MS);
+    }
+    for (Map.Entry<RemotePendingChanges, List<PendingChange>> entry : changesToCommit.entrySet())
+    {
+      entry.getKey().commit(entry.getValue());
+    }
+    changesToCommit.clear();
+    return domains;
+  }
+
+  /** Returns whether the replayed updates are on disk. */
+  private boolean sync()
+  {
+    try
+    {
+      writeBatch.commit();
+      return true;
+    }
+    catch (Exception e)
+    {
+      logger.error(ERR_SYNCING_REPLAYED_UPDATES, stackTraceToSingleLineString(e));
+      return false;
+    }
+  }
+}
@@ -19,28 +19,32 @@ package org.opends.server.replication.plugin;
 import static org.opends.messages.ReplicationMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.opends.server.api.DirectoryThread;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
-import org.opends.server.replication.protocol.LDAPUpdateMsg;
 
 /**
  * Thread that is used to get message from the replication servers (stored
  * in the updates queue) and replay them in the current server. A configurable
  * number of this thread is created for the whole MultimasterReplication object
  * (i.e: these threads are shared across the ReplicationDomain objects for
- * replaying the updates they receive)
+ * replaying the updates they receive). Each thread consumes its own partition
+ * of the updates queue.
+ * <p>
+ * When several updates are waiting in its partition, a thread replays them
+ * as a {@link ReplayBatch}, so that they are forced to disk all at once.
  */
 public class ReplayThread extends DirectoryThread
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-  private final BlockingQueue<UpdateToReplay> updateToReplayQueue;
-  private final ReentrantLock switchQueueLock;
+  private final PartitionedReplayQueue updateToReplayQueue;
+  private final int partition;
+  private final int maxBatchUpdates;
+  private final long maxBatchSize;
   private AtomicBoolean shutdown = new AtomicBoolean(false);
   private static int count;
 
@@ -48,13 +52,18 @@ public class ReplayThread extends DirectoryThread
    * Constructor for the ReplayThread.
    *
    * @param updateToReplayQueue The queue of update messages we have to replay
-   * @param switchQueueLock lock to ensure moving updates from one queue to another is atomic
+   * @param partition The partition of the queue consumed by this thread
+   * @param maxBatchUpdates The maximum number of updates replayed in a batch
+   * @param maxBatchSize The maximum total size of the updates replayed in a batch
    */
-  public ReplayThread(BlockingQueue<UpdateToReplay> updateToReplayQueue, ReentrantLock switchQueueLock)
+  public ReplayThread(PartitionedReplayQueue updateToReplayQueue, int partition, int maxBatchUpdates,
+      long maxBatchSize)
   {
     super("Replica replay thread " + count++);
     this.updateToReplayQueue = updateToReplayQueue;
-    this.switchQueueLock = switchQueueLock;
+    this.partition = partition;
+    this.maxBatchUpdates = maxBatchUpdates;
+    this.maxBatchSize = maxBatchSize;
   }
 
   /**
@@ -80,31 +89,19 @@ public class ReplayThread extends DirectoryThread
     {
       try
       {
-        if (switchQueueLock.tryLock(1L, TimeUnit.SECONDS))
+        UpdateToReplay updateToReplay = updateToReplayQueue.poll(partition, 1L, TimeUnit.SECONDS);
+        if (updateToReplay != null)
         {
-          LDAPReplicationDomain domain;
-          LDAPUpdateMsg updateMsg;
-          try
+          UpdateToReplay nextUpdate =
+              maxBatchUpdates > 1 ? updateToReplayQueue.poll(partition, 0L, TimeUnit.SECONDS) : null;
+          if (nextUpdate == null)
           {
-            if (shutdown.get())
-            {
-              break;
-            }
-            UpdateToReplay updateToreplay = updateToReplayQueue.poll(1L, TimeUnit.SECONDS);
-            if (updateToreplay == null)
-            {
-              continue;
-            }
-            // Find replication domain for that update message and mark it as "in progress"
-            updateMsg = updateToreplay.getUpdateMessage();
-            domain = updateToreplay.getReplicationDomain();
-            domain.markInProgress(updateMsg);
+            replay(updateToReplay);
           }
-          finally
+          else
           {
-            switchQueueLock.unlock();
+            replayBatch(updateToReplay, nextUpdate);
           }
-          domain.replay(updateMsg, shutdown);
         }
       }
       catch (Exception e)
@@ -121,4 +118,44 @@ public class ReplayThread extends DirectoryThread
       logger.trace("Replication Replay thread stopping.");
     }
   }
+
+  private void replay(UpdateToReplay updateToReplay)
+  {
+    // Find replication domain for that update message
+    LDAPReplicationDomain domain = updateToReplay.getReplicationDomain();
+    domain.replay(updateToReplay.getUpdateMessage(), shutdown);
+  }
+
+  /**
+   * Replays the provided updates then the next ones waiting in the partition, until the batch is full.
+   * Once the batch is committed, replays the updates which were waiting for the replayed ones, possibly
+   * from other partitions: they cannot be replayed before the batched updates are committed.
+   */
+  private void replayBatch(UpdateToReplay firstUpdate, UpdateToReplay secondUpdate) throws InterruptedException
+  {
+    final ReplayBatch batch = ReplayBatch.begin();
+    final Set<LDAPReplicationDomain> domains;
+    try
+    {
+      batch.add(firstUpdate);
+      replay(firstUpdate);
+      UpdateToReplay updateToReplay = secondUpdate;
+      do
+      {
+        batch.add(updateToReplay);
+        replay(updateToReplay);
+      }
+      while (!shutdown.get() && !batch.isFull(maxBatchUpdates, maxBatchSize)
+          && (updateToReplay = updateToReplayQueue.poll(partition, 0L, TimeUnit.SECONDS)) != null);
+    }
+    finally
+    {
+      domains = batch.commit(shutdown);
+    }
+
+    for (LDAPReplicationDomain domain : domains)
+    {
+      domain.replayDependentUpdates(shutdown);
+    }
+  }
 }
@@ -23,9 +23,21 @@ import java.util.zip.DataFormatException;
  * This message is sent by a server to one or several other servers and
  * contain one entry to be sent over the protocol in the context of
  * an import/export over the protocol.
+ * <p>
+ * The entry bytes are a part of the LDIF export of the exporting server. Since
+ * {@link ProtocolVersion#REPLICATION_PROTOCOL_V10}, they may instead start
+ * with {@link #BINARY_ENTRIES}, followed by whole entries, each one encoded as
+ * its length on four bytes followed by its binary encoding as produced by
+ * {@code Entry.encode()}.
  */
 public class EntryMsg extends RoutableMsg
 {
+  /**
+   * The first byte of entry bytes containing entries in binary form. It can not
+   * start LDIF data, nor the length of an encoded entry.
+   */
+  public static final byte BINARY_ENTRIES = (byte) 0xFF;
+
   /** The byte array containing the bytes of the entry transported. */
   private final byte[] entryByteArray;
   /** From V4. */
@@ -114,6 +126,45 @@ public class EntryMsg extends RoutableMsg
     return builder.toByteArray();
   }
 
+  /**
+   * Returns whether the provided entry bytes contain entries in binary form.
+   *
+   * @param entryBytes The entry bytes.
+   * @param pos        The starting position in the array.
+   * @param length     Number of bytes to consider.
+   * @return true if the entry bytes contain entries in binary form.
+   */
+  public static boolean containsBinaryEntries(byte[] entryBytes, int pos, int length)
+  {
+    return length > 0 && entryBytes[pos] == BINARY_ENTRIES;
+  }
+
+  /**
+   * Counts the entries contained in entry bytes containing entries in binary
+   * form.
+   *
+   * @param entryBytes The entry bytes.
+   * @param pos        The starting position in the array.
+   * @param length     Number of bytes to consider.
+   * @return The number of entries.
+   */
+  public static int countBinaryEntries(byte[] entryBytes, int pos, int length)
+  {
+    final int end = pos + length;
+    int entryCount = 0;
+    int i = pos + 1;
+    while (i + 4 <= end)
+    {
+      final int entryLength = (entryBytes[i] & 0xFF) << 24
+          | (entryBytes[i + 1] & 0xFF) << 16
+          | (entryBytes[i + 2] & 0xFF) << 8
+          | (entryBytes[i + 3] & 0xFF);
+      i += 4 + entryLength;
+      entryCount++;
+    }
+    return entryCount;
+  }
+
   /**
    * Return the msg id.
    * @return The msg id.
@@ -26,6 +26,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -33,21 +35,41 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import javax.net.ssl.SSLSocket;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.opends.server.api.DirectoryThread;
 import org.opends.server.types.HostPort;
 import org.opends.server.util.StaticUtils;
 
 /**
  * This class defines a replication session using TLS.
+ * <p>
+ * Each message is sent as a frame made of its length, encoded as 8 hexadecimal
+ * digits, followed by its encoded form. Starting with
+ * {@link ProtocolVersion#REPLICATION_PROTOCOL_V9}, a session may also send
+ * compressed frames made of {@link #COMPRESSED_FRAME_MARKER}, the compressed
+ * length encoded as 7 hexadecimal digits, then one or more regular frames
+ * compressed with a deflate stream lasting as long as the session.
+ * <p>
+ * Once started, the session thread sends the messages published on the session,
+ * coalescing the messages which are waiting to be sent into a single write.
  */
 public final class Session extends DirectoryThread implements Closeable
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The first byte of the header of a compressed frame. */
+  static final byte COMPRESSED_FRAME_MARKER = 'z';
+  /** The maximum length of a compressed frame, which is encoded in 7 hexadecimal digits. */
+  private static final int MAX_COMPRESSED_FRAME_LENGTH = 0x0fffffff;
+  /** The size above which the session thread stops waiting for more messages before flushing. */
+  private static final int MAX_BATCH_SIZE = 64 * 1024;
+
   private final Socket plainSocket;
   private final SSLSocket secureSocket;
   private final InputStream plainInput;
@@ -97,6 +119,30 @@ public final class Session extends DirectoryThread implements Closeable
   private BufferedOutputStream output;
 
   private final LinkedBlockingQueue<byte[]> sendQueue = new LinkedBlockingQueue<>(4000);
+
+  /** Whether the messages are compressed when the remote peer supports it. */
+  private volatile boolean compressionEnabled;
+  /** Whether the protocol version has been negotiated with the remote peer. */
+  private volatile boolean protocolVersionNegotiated;
+  /**
+   * How long the session thread may wait for more messages to coalesce before
+   * sending a small batch of messages, in milliseconds.
+   */
+  private volatile long maxSendDelay;
+  /** Frames waiting to be compressed, guarded by publishLock. */
+  private final ByteStringBuilder uncompressedFrames = new ByteStringBuilder();
+  /** Guarded by publishLock. */
+  private Deflater deflater;
+  private byte[] compressedFrame = new byte[0];
+  /** Only used by the receiving thread. */
+  private Inflater inflater;
+  private ByteBuffer inflatedFrames = ByteBuffer.allocate(0);
+
+  /** Statistics, only modified while holding publishLock. */
+  private volatile long sentMessages;
+  private volatile long sentBatches;
+  private volatile long sentUncompressedBytes;
+  private volatile long sentBytes;
   private AtomicBoolean isRunning = new AtomicBoolean(false);
   private final CountDownLatch latch = new CountDownLatch(1);
 
@@ -201,6 +247,20 @@ public final class Session extends DirectoryThread implements Closeable
     }
 
     StaticUtils.close(plainSocket, secureSocket);
+
+    publishLock.lock();
+    try
+    {
+      if (deflater != null)
+      {
+        deflater.end();
+        deflater = null;
+      }
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
   }
 
 
@@ -346,19 +406,49 @@ public final class Session extends DirectoryThread implements Closeable
    */
   private void send(final byte[] buffer) throws IOException
   {
-    final String str = String.format("%08x", buffer.length);
-    final byte[] sendLengthBuf = str.getBytes();
+    publishLock.lock();
+    try
+    {
+      writeFrame(buffer);
+      flushFrames(1);
+    } catch (final IOException e) {
+      setSessionError(e);
+      throw e;
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+
+    lastPublishTime = System.currentTimeMillis();
+  }
 
+  /**
+   * Sends the provided message and the messages waiting in the send queue with
+   * a single flush. As long as the batch is small, waits up to the maximum send
+   * delay for more messages to be published.
+   *
+   * @param firstBuffer
+   *          the first encoded message of the batch
+   * @throws IOException if the messages could not be sent
+   */
+  private void sendBatch(final byte[] firstBuffer) throws IOException
+  {
     publishLock.lock();
     try
     {
-      /*
-       * The buffered output stream ensures that the message is usually sent as
-       * a single TCP packet.
-       */
-      output.write(sendLengthBuf);
-      output.write(buffer);
-      output.flush();
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxSendDelay);
+      int messages = 0;
+      int batchSize = 0;
+      byte[] buffer = firstBuffer;
+      while (buffer != null)
+      {
+        writeFrame(buffer);
+        messages++;
+        batchSize += buffer.length;
+        buffer = batchSize < MAX_BATCH_SIZE ? pollSendQueue(deadline) : null;
+      }
+      flushFrames(messages);
     } catch (final IOException e) {
       setSessionError(e);
       throw e;
@@ -371,7 +461,102 @@ public final class Session extends DirectoryThread implements Closeable
     lastPublishTime = System.currentTimeMillis();
   }
 
+  private byte[] pollSendQueue(final long deadline)
+  {
+    final byte[] buffer = sendQueue.poll();
+    if (buffer != null || maxSendDelay == 0)
+    {
+      return buffer;
+    }
+    final long remaining = deadline - System.nanoTime();
+    if (remaining <= 0)
+    {
+      return null;
+    }
+    try
+    {
+      return sendQueue.poll(remaining, TimeUnit.NANOSECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      // Let the run loop notice it
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /** Must be called while holding publishLock. */
+  private void writeFrame(final byte[] buffer) throws IOException
+  {
+    final byte[] sendLengthBuf = String.format("%08x", buffer.length).getBytes();
+    if (isCompressed())
+    {
+      uncompressedFrames.appendBytes(sendLengthBuf);
+      uncompressedFrames.appendBytes(buffer);
+    }
+    else
+    {
+      /*
+       * The buffered output stream ensures that the message is usually sent as
+       * a single TCP packet.
+       */
+      output.write(sendLengthBuf);
+      output.write(buffer);
+      sentBytes += sendLengthBuf.length + buffer.length;
+    }
+    sentUncompressedBytes += sendLengthBuf.length + buffer.length;
+  }
+
+  /** Must be called while holding publishLock. */
+  private void flushFrames(final int messages) throws IOException
+  {
+    final int length = uncompressedFrames.length();
+    if (length > MAX_COMPRESSED_FRAME_LENGTH / 2)
+    {
+      // Too large to risk exceeding the maximum length once compressed, send the frames as is
+      output.write(uncompressedFrames.getBackingArray(), 0, length);
+      sentBytes += length;
+    }
+    else if (length > 0)
+    {
+      final int compressedLength = deflate(uncompressedFrames.getBackingArray(), length);
+      final byte[] header = String.format("%07x", compressedLength).getBytes();
+      output.write(COMPRESSED_FRAME_MARKER);
+      output.write(header);
+      output.write(compressedFrame, 0, compressedLength);
+      sentBytes += 1 + header.length + compressedLength;
+    }
+    uncompressedFrames.clearAndTruncate(2 * MAX_BATCH_SIZE, MAX_BATCH_SIZE);
+    output.flush();
+    sentMessages += messages;
+    sentBatches++;
+  }
 
+  /** Compresses the provided frames into compressedFrame, and returns the compressed length. */
+  private int deflate(final byte[] frames, final int length)
+  {
+    if (deflater == null)
+    {
+      deflater = new Deflater();
+    }
+    deflater.setInput(frames, 0, length);
+    int compressedLength = 0;
+    for (;;)
+    {
+      if (compressedLength == compressedFrame.length)
+      {
+        compressedFrame = Arrays.copyOf(compressedFrame, Math.max(2 * compressedFrame.length, 1024));
+      }
+      final int available = compressedFrame.length - compressedLength;
+      // Sync flush so that the remote peer can decode the frames right away, without resetting the stream
+      final int compressed = deflater.deflate(compressedFrame, compressedLength, available, Deflater.SYNC_FLUSH);
+      compressedLength += compressed;
+      if (compressed < available)
+      {
+        return compressedLength;
+      }
+    }
+  }
 
   /**
    * Attempt to receive a ReplicationMsg.
@@ -399,33 +584,84 @@ public final class Session extends DirectoryThread implements Closeable
        */
       lastReceiveTime = System.currentTimeMillis();
 
+      final byte[] buffer = readFrame();
+
+      /*
+       * We do not want the heartbeat to close the session when we are
+       * processing a message even a time consuming one.
+       */
+      lastReceiveTime = 0;
+      return ReplicationMsg.generateMsg(buffer, protocolVersion);
+    }
+    catch (final IOException | DataFormatException | NotSupportedOldVersionPDUException | RuntimeException e)
+    {
+      setSessionError(e);
+      throw e;
+    }
+  }
+
+  /** Returns the next message, read from the last compressed frame or from the socket. */
+  private byte[] readFrame() throws IOException, DataFormatException
+  {
+    for (;;)
+    {
+      if (inflatedFrames.hasRemaining())
+      {
+        inflatedFrames.get(rcvLengthBuf);
+        final byte[] buffer = new byte[Integer.parseInt(new String(rcvLengthBuf), 16)];
+        inflatedFrames.get(buffer);
+        return buffer;
+      }
+
       // Read the first 8 bytes containing the packet length.
       read(rcvLengthBuf);
-      final int totalLength = Integer.parseInt(new String(rcvLengthBuf), 16);
+      final boolean compressed = rcvLengthBuf[0] == COMPRESSED_FRAME_MARKER;
+      final int totalLength = compressed
+          ? Integer.parseInt(new String(rcvLengthBuf, 1, rcvLengthBuf.length - 1), 16)
+          : Integer.parseInt(new String(rcvLengthBuf), 16);
 
+      final byte[] buffer;
       try
       {
-        final byte[] buffer = new byte[totalLength];
-        read(buffer);
-
-        /*
-         * We do not want the heartbeat to close the session when we are
-         * processing a message even a time consuming one.
-         */
-        lastReceiveTime = 0;
-        return ReplicationMsg.generateMsg(buffer, protocolVersion);
+        buffer = new byte[totalLength];
       }
       catch (final OutOfMemoryError e)
       {
         throw new IOException("Packet too large, can't allocate "
             + totalLength + " bytes.");
       }
+      read(buffer);
+      if (!compressed)
+      {
+        return buffer;
+      }
+      inflate(buffer);
     }
-    catch (final IOException | DataFormatException | NotSupportedOldVersionPDUException | RuntimeException e)
+  }
+
+  private void inflate(final byte[] compressed) throws DataFormatException
+  {
+    if (inflater == null)
     {
-      setSessionError(e);
-      throw e;
+      inflater = new Inflater();
+    }
+    inflater.setInput(compressed);
+    byte[] frames = inflatedFrames.array();
+    int length = 0;
+    for (;;)
+    {
+      if (length == frames.length)
+      {
+        frames = Arrays.copyOf(frames, Math.max(2 * frames.length, 4 * compressed.length));
+      }
+      final int inflated = inflater.inflate(frames, length, frames.length - length);
+      length += inflated;
+      if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary() || inflater.finished()))
+      {
+        break;
+      }
     }
+    inflatedFrames = ByteBuffer.wrap(frames, 0, length);
   }
 
   private void read(byte[] buffer) throws IOException
@@ -453,6 +689,7 @@ public final class Session extends DirectoryThread implements Closeable
   public void setProtocolVersion(final short version)
   {
     protocolVersion = version;
+    protocolVersionNegotiated = true;
   }
 
 
@@ -508,6 +745,64 @@ public final class Session extends DirectoryThread implements Closeable
 
 
 
+  /**
+   * Sets whether the messages sent on this session are compressed, provided
+   * the remote peer supports it and the session is not encrypted.
+   *
+   * @param compressionEnabled whether the messages must be compressed
+   */
+  public void setCompressionEnabled(final boolean compressionEnabled)
+  {
+    this.compressionEnabled = compressionEnabled;
+  }
+
+  /**
+   * Determine whether the messages sent on this session are compressed.
+   *
+   * @return true if the messages sent are compressed, false otherwise.
+   */
+  public boolean isCompressed()
+  {
+    // Compressing before encrypting would leak the content of the messages through their size (CRIME)
+    return compressionEnabled && !isEncrypted && protocolVersionNegotiated
+        && protocolVersion >= ProtocolVersion.REPLICATION_PROTOCOL_V9;
+  }
+
+  /**
+   * Sets how long the session thread may wait for more messages to be
+   * published before sending a small batch of messages.
+   *
+   * @param maxSendDelay the maximum delay, in milliseconds
+   */
+  public void setMaxSendDelay(final long maxSendDelay)
+  {
+    this.maxSendDelay = maxSendDelay;
+  }
+
+  /**
+   * Returns the ratio between the size of the messages sent on this session
+   * and the number of bytes actually sent.
+   *
+   * @return the compression ratio of the messages sent on this session
+   */
+  public double getCompressionRatio()
+  {
+    final long bytes = sentBytes;
+    return bytes != 0 ? (double) sentUncompressedBytes / bytes : 1.0;
+  }
+
+  /**
+   * Returns the average number of messages sent on this session with a single
+   * flush.
+   *
+   * @return the average number of messages per batch
+   */
+  public double getAverageBatchSize()
+  {
+    final long batches = sentBatches;
+    return batches != 0 ? (double) sentMessages / batches : 0.0;
+  }
+
   private void setSessionError(final Exception e)
   {
     synchronized (stateLock)
@@ -521,7 +816,8 @@ public final class Session extends DirectoryThread implements Closeable
 
   /**
    * Run method for the Session.
-   * Loops waiting for buffers from the queue and sends them when available.
+   * Loops waiting for buffers from the queue and sends them when available,
+   * along with the other buffers waiting in the queue.
    */
   @Override
   public void run()
@@ -546,7 +842,7 @@ public final class Session extends DirectoryThread implements Closeable
       }
       try
       {
-        send(buffer);
+        sendBatch(buffer);
       }
       catch (IOException e)
       {
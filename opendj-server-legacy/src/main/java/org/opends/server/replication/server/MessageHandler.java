@@ -55,14 +55,14 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
   /** The logger of this class. */
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-  private static final int MINIMUM_TRESHOLD_MSG_QUEUE_SIZE = 5;
-
-  /** UpdateMsg queue. */
-  private final MsgQueue msgQueue = new MsgQueue();
+  /**
+   * UpdateMsg queue, bounded by the max queue size. It is filled by the
+   * threads receiving updates and consumed by the writer thread without locks.
+   */
+  private final MsgQueue msgQueue;
   /**
    * Late queue. All access to the lateQueue in getNextMessage() is
-   * single-threaded. However, reads from threads calling getOlderUpdateCN()
-   * need protecting against removals performed using getNextMessage().
+   * single-threaded. Threads calling getOlderUpdateCSN() only read it.
    */
   private final MsgQueue lateQueue = new MsgQueue();
   /** Local hosting RS. */
@@ -75,10 +75,13 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
   private int inCount;
   /** Specifies the max queue size for this handler. */
   protected final int maxQueueSize;
-  /** Specifies the max queue size in bytes for this handler. */
-  private final int maxQueueBytesSize;
   /** Specifies whether the consumer is following the producer (is not late). */
-  private boolean following;
+  private volatile boolean following;
+  /**
+   * The count of messages trimmed from the msgQueue when the consumer started
+   * following it. Only accessed by the consumer.
+   */
+  private long followingTrimmedCount;
   /** Specifies the current serverState of this handler. */
   private ServerState serverState;
   /** Specifies the baseDN of the domain. */
@@ -88,7 +91,7 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
    * If not active, the handler will not return any message.
    * Called at the beginning of shutdown process.
    */
-  private boolean activeConsumer = true;
+  private volatile boolean activeConsumer = true;
   /** Set when ServerHandler is stopping. */
   private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
 
@@ -101,7 +104,7 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
   MessageHandler(int queueSize, ReplicationServer replicationServer)
   {
     this.maxQueueSize = queueSize;
-    this.maxQueueBytesSize = queueSize * 100;
+    this.msgQueue = new MsgQueue(queueSize, queueSize * 100L);
     this.replicationServer = replicationServer;
   }
 
@@ -114,39 +117,39 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
    */
   void add(UpdateMsg update)
   {
-    synchronized (msgQueue)
-    {
-      /*
-       * If queue was empty the writer thread was probably asleep
-       * waiting for some changes, wake it up
-       */
-      if (msgQueue.isEmpty())
-      {
-        msgQueue.notify();
-      }
+    // Wakes up the writer thread if it was waiting for some changes
+    msgQueue.add(update);
 
-      msgQueue.add(update);
-
-      // TODO : size should be configurable and larger than max-receive-queue-size
-      while (isMsgQueueAboveThreshold())
-      {
-        following = false;
-        msgQueue.removeFirst();
-      }
+    // TODO : size should be configurable and larger than max-receive-queue-size
+    if (msgQueue.trimToLimits())
+    {
+      following = false;
     }
   }
 
-  private boolean isMsgQueueAboveThreshold()
+  /**
+   * Makes the consumer follow the msgQueue again, unless the msgQueue was
+   * trimmed since the provided count of trimmed messages was read: the
+   * consumer would then miss the trimmed messages.
+   */
+  private void startFollowing(long trimmedCount)
   {
-    final long count = msgQueue.count();
-    // ensure there is a minimum number of messages in queue to avoid wrong behavior
-    return count > maxQueueSize
-        || (count >= MINIMUM_TRESHOLD_MSG_QUEUE_SIZE && msgQueue.bytesCount() > maxQueueBytesSize);
+    followingTrimmedCount = trimmedCount;
+    following = true;
+    if (msgQueue.getTrimmedCount() != trimmedCount)
+    {
+      following = false;
+    }
   }
 
-  private boolean isMsgQueueBelowThreshold()
+  /**
+   * For testing purposes only, to trim the msgQueue while the consumer is draining it.
+   *
+   * @return the queue of updates which follows the producers
+   */
+  MsgQueue getMsgQueue()
   {
-    return !isMsgQueueAboveThreshold();
+    return msgQueue;
   }
 
   /**
@@ -263,14 +266,12 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
           {
             // we could not find any messages in the changelog
             // so the remote server is not late anymore.
-            synchronized (msgQueue)
+            // Ensure we are below threshold so this server will follow the
+            // msgQueue without fearing the msgQueue gets trimmed
+            final long trimmedCount = msgQueue.getTrimmedCount();
+            if (!msgQueue.isAboveLimits())
             {
-              // Ensure we are below threshold so this server will follow the
-              // msgQueue without fearing the msgQueue gets trimmed
-              if (isMsgQueueBelowThreshold())
-              {
-                following = true;
-              }
+              startFollowing(trimmedCount);
             }
           }
           else
@@ -281,27 +282,25 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
              * -> set following to true and empty the lateQueue.
              */
             UpdateMsg msg = lateQueue.first();
-            synchronized (msgQueue)
+            if (!queueContributesToDomainState)
             {
-              if (!queueContributesToDomainState)
+              // If nothing in the queue contributesToDomainState, add it all to msgQueue so we can get out of here
+              while (!lateQueue.isEmpty())
               {
-               // If nothing in the queue contributesToDomainState, add it all to msgQueue so we can get out of here
-               while(!lateQueue.isEmpty())
-               {
-                 msgQueue.add(lateQueue.removeFirst());
-               }
+                msgQueue.add(lateQueue.removeFirst());
               }
+            }
 
-              if (msgQueue.contains(msg))
+            final long trimmedCount = msgQueue.getTrimmedCount();
+            if (msgQueue.contains(msg))
+            {
+              /* we finally catch up with the regular queue */
+              startFollowing(trimmedCount);
+              lateQueue.clear();
+              msgQueue.consumeUpTo(msg);
+              if (updateServerState(msg))
               {
-                /* we finally catch up with the regular queue */
-                following = true;
-                lateQueue.clear();
-                msgQueue.consumeUpTo(msg);
-                if (updateServerState(msg))
-                {
-                  return msg;
-                }
+                return msg;
               }
             }
           }
@@ -309,21 +308,17 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
         else
         {
           // get the next change from the lateQueue
-          UpdateMsg msg;
-          synchronized (msgQueue) // TODO JNR why synchronize(msgQueue) here?
+          final long trimmedCount = msgQueue.getTrimmedCount();
+          UpdateMsg msg = lateQueue.removeFirst();
+          // By default a server is always not following. A weird case where messages not representing
+          // an operation may happen, making the late queue repeatedly fill and be emptied without ever
+          // getting the server out of state "not following".
+          if (lateQueue.isEmpty() && msgQueue.isEmpty())
           {
-            msg = lateQueue.removeFirst();
-            // By default a server is always not following. A weird case where messages not representing
-            // an operation may happen, making the late queue repeatedly fill and be emptied without ever
-            // getting the server out of state "not following".
-
-            if (lateQueue.isEmpty() && msgQueue.isEmpty())
+            CSN nextChange = findOldestCSNFromReplicaDBs();
+            if (nextChange == null)
             {
-              CSN nextChange = findOldestCSNFromReplicaDBs();
-              if (nextChange == null)
-              {
-                following = true;
-              }
+              startFollowing(trimmedCount);
             }
           }
           if (updateServerState(msg))
@@ -334,35 +329,43 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
         }
       }
 
-      synchronized (msgQueue)
+      if (following)
       {
-        if (following)
+        try
         {
-          try
+          while (following && !msgQueue.awaitNotEmpty(500))
           {
-            while (msgQueue.isEmpty() && following)
+            if (!activeConsumer)
             {
-              msgQueue.wait(500);
-              if (!activeConsumer)
-              {
-                return null;
-              }
+              return null;
             }
-          } catch (InterruptedException e)
-          {
-            return null;
-          }
-          UpdateMsg msg = msgQueue.removeFirst();
-          if (updateServerState(msg))
-          {
-            /*
-             * Only push the message if it has not yet been seen
-             * by the other server.
-             * Otherwise just loop to select the next message.
-             */
-            return msg;
           }
         }
+        catch (InterruptedException e)
+        {
+          return null;
+        }
+        // the queue may have been trimmed in the meantime
+        UpdateMsg msg = msgQueue.removeFirst();
+        if (msgQueue.getTrimmedCount() != followingTrimmedCount)
+        {
+          /*
+           * Older messages may have been trimmed before this one was removed.
+           * Read them all from the changelog: neither send this message first
+           * nor let the server state go past the trimmed messages.
+           */
+          following = false;
+          continue;
+        }
+        if (msg != null && updateServerState(msg))
+        {
+          /*
+           * Only push the message if it has not yet been seen
+           * by the other server.
+           * Otherwise just loop to select the next message.
+           */
+          return msg;
+        }
       }
       /*
        * Need to loop because following flag may have gone to false between the
@@ -410,35 +413,25 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
    */
   public CSN getOlderUpdateCSN()
   {
-    synchronized (msgQueue)
+    if (following)
     {
-      if (following)
-      {
-        if (!msgQueue.isEmpty())
-        {
-          return msgQueue.first().getCSN();
-        }
-      }
-      else
-      {
-        if (!lateQueue.isEmpty())
-        {
-          return lateQueue.first().getCSN();
-        }
-        else
-        {
-          /*
-          following is false AND lateQueue is empty
-          We may be at the very moment when the writer has emptied the
-          lateQueue when it sent the last update. The writer will fill again
-          the lateQueue when it will send the next update but we are not yet
-          there. So let's take the last change not sent directly from the db.
-          */
-          return findOldestCSNFromReplicaDBs();
-        }
-      }
+      final UpdateMsg first = msgQueue.first();
+      return first != null ? first.getCSN() : null;
     }
-    return null;
+
+    final UpdateMsg first = lateQueue.first();
+    if (first != null)
+    {
+      return first.getCSN();
+    }
+    /*
+    following is false AND lateQueue is empty
+    We may be at the very moment when the writer has emptied the
+    lateQueue when it sent the last update. The writer will fill again
+    the lateQueue when it will send the next update but we are not yet
+    there. So let's take the last change not sent directly from the db.
+    */
+    return findOldestCSNFromReplicaDBs();
   }
 
   private CSN findOldestCSNFromReplicaDBs()
@@ -476,27 +469,24 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
    */
   public int getRcvMsgQueueSize()
   {
-    synchronized (msgQueue)
+    /*
+     * When the server is up to date or close to be up to date,
+     * the number of updates to be sent is the size of the receive queue.
+     */
+    if (following)
     {
-      /*
-       * When the server is up to date or close to be up to date,
-       * the number of updates to be sent is the size of the receive queue.
-       */
-      if (following)
-      {
-        return msgQueue.count();
-      }
-
-      /*
-       * When the server is not able to follow, the msgQueue may become too
-       * large and therefore won't contain all the changes. Some changes may
-       * only be stored in the backing DB of the servers.
-       * The total size of the receive queue is calculated by doing the sum of
-       * the number of missing changes for every replicaDB.
-       */
-      ServerState latestState = replicationServerDomain.getLatestServerState();
-      return ServerState.diffChanges(latestState, serverState);
+      return msgQueue.count();
     }
+
+    /*
+     * When the server is not able to follow, the msgQueue may become too
+     * large and therefore won't contain all the changes. Some changes may
+     * only be stored in the backing DB of the servers.
+     * The total size of the receive queue is calculated by doing the sum of
+     * the number of missing changes for every replicaDB.
+     */
+    ServerState latestState = replicationServerDomain.getLatestServerState();
+    return ServerState.diffChanges(latestState, serverState);
   }
 
   /**
@@ -595,12 +585,8 @@ class MessageHandler extends MonitorProvider<MonitorProviderCfg>
   /** Shutdown this handler. */
   public void shutdown()
   {
-    synchronized (msgQueue)
-    {
-      msgQueue.clear();
-      msgQueue.notify();
-      msgQueue.notifyAll();
-    }
+    msgQueue.clear();
+    msgQueue.wakeUp();
 
     DirectoryServer.deregisterMonitorProvider(this);
   }
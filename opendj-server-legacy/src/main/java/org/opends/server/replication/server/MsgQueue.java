@@ -13,12 +13,19 @@
  *
  * Copyright 2006-2010 Sun Microsystems, Inc.
  * Portions Copyright 2012-2016 ForgeRock AS.
+ * Portions Copyright 2026 3A Systems, LLC.
  */
 package org.opends.server.replication.server;
 
 import static org.opends.messages.ReplicationMessages.*;
 
-import java.util.TreeMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.jcip.annotations.ThreadSafe;
 
@@ -29,36 +36,73 @@ import org.opends.server.replication.protocol.UpdateMsg;
 /**
  * This class is used to build ordered lists of UpdateMsg.
  * The order is defined by the order of the CSN of the UpdateMsg.
+ * <p>
+ * The queue does not use any lock to add or remove messages, so that the
+ * threads receiving updates from all the connected servers do not contend with
+ * the writer threads consuming the queues. Messages are mostly added in CSN
+ * order, at the tail of the skip list.
+ * <p>
+ * The queue can be bounded by a number of messages and by a number of bytes:
+ * {@link #trimToLimits()} removes the oldest messages above the limits, and
+ * counts them so that consumers can detect that they missed messages.
  */
 @ThreadSafe
 public class MsgQueue
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-  private TreeMap<CSN, UpdateMsg> map = new TreeMap<>();
+  /** Minimum number of messages kept in the queue whatever their size in bytes. */
+  private static final int MINIMUM_COUNT_FOR_BYTES_LIMIT = 5;
+
+  private final ConcurrentSkipListMap<CSN, UpdateMsg> map = new ConcurrentSkipListMap<>();
+  /** The number of messages in the queue, cheaper to read than the size of the skip list. */
+  private final AtomicInteger count = new AtomicInteger();
+  /** The total number of bytes for all the message in the queue. */
+  private final AtomicLong bytesCount = new AtomicLong();
   /**
-   * FIXME JNR to be investigated:
-   * I strongly suspect that we could replace this field
-   * by using the synchronized keyword on each method.
-   * However, MessageHandler is weirdly synchronizing on msgQueue field
-   * even though it is touching the lateQueue field (?!?).
+   * The number of messages removed by {@link #trimToLimits()} since the
+   * creation of this queue, incremented before each removal.
    */
-  private final Object lock = new Object();
+  private final AtomicLong trimmedCount = new AtomicLong();
 
-  /** The total number of bytes for all the message in the queue. */
-  private int bytesCount;
+  private final int maxCount;
+  private final long maxBytesCount;
+
+  /** Used by the consumer to wait for messages, only taken when the queue is empty. */
+  private final ReentrantLock waitLock = new ReentrantLock();
+  private final Condition notEmpty = waitLock.newCondition();
+  private volatile boolean consumerWaiting;
+
+  /** Creates an unbounded queue. */
+  public MsgQueue()
+  {
+    this(Integer.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a queue bounded by a number of messages and by a number of bytes.
+   *
+   * @param maxCount
+   *          the maximum number of messages in the queue
+   * @param maxBytesCount
+   *          the maximum number of bytes in the queue, only enforced when the
+   *          queue contains a minimum number of messages
+   */
+  public MsgQueue(int maxCount, long maxBytesCount)
+  {
+    this.maxCount = maxCount;
+    this.maxBytesCount = maxBytesCount;
+  }
 
   /**
    * Return the first UpdateMsg in the MsgQueue.
    *
-   * @return The first UpdateMsg in the MsgQueue.
+   * @return The first UpdateMsg in the MsgQueue, or {@code null} if the queue is empty.
    */
   public UpdateMsg first()
   {
-    synchronized (lock)
-    {
-      return map.get(map.firstKey());
-    }
+    final Map.Entry<CSN, UpdateMsg> first = map.firstEntry();
+    return first != null ? first.getValue() : null;
   }
 
   /**
@@ -68,10 +112,7 @@ public class MsgQueue
    */
   public int count()
   {
-    synchronized (lock)
-    {
-      return map.size();
-    }
+    return count.get();
   }
 
   /**
@@ -79,12 +120,9 @@ public class MsgQueue
    *
    * @return The number of bytes in this MsgQueue.
    */
-  public int bytesCount()
+  public long bytesCount()
   {
-    synchronized (lock)
-    {
-      return bytesCount;
-    }
+    return bytesCount.get();
   }
 
   /**
@@ -94,70 +132,191 @@ public class MsgQueue
    */
   public boolean isEmpty()
   {
-    synchronized (lock)
-    {
-      return map.isEmpty();
-    }
+    return map.isEmpty();
   }
 
   /**
-   * Add an UpdateMsg to this MessageQueue.
+   * Add an UpdateMsg to this MessageQueue, and wakes up the consumer waiting
+   * for messages, if any.
    *
    * @param update The UpdateMsg to add to this MessageQueue.
    */
   public void add(UpdateMsg update)
   {
-    synchronized (lock)
+    // count before adding so that concurrent removals never make the counters negative
+    count.incrementAndGet();
+    bytesCount.addAndGet(update.size());
+    final UpdateMsg msgSameCSN = map.putIfAbsent(update.getCSN(), update);
+    if (msgSameCSN == null)
+    {
+      // it is really an ADD
+      signalNotEmpty();
+      return;
+    }
+
+    count.decrementAndGet();
+    bytesCount.addAndGet(-update.size());
+    if (msgSameCSN != update)
+    {
+      replaceSameCSN(msgSameCSN, update);
+    }
+  }
+
+  private void replaceSameCSN(UpdateMsg msgSameCSN, UpdateMsg update)
+  {
+    try
     {
-      final UpdateMsg msgSameCSN = map.put(update.getCSN(), update);
-      if (msgSameCSN != null)
+      if (msgSameCSN.getBytes().length != update.getBytes().length
+          || msgSameCSN.isAssured() != update.isAssured()
+          || msgSameCSN.getVersion() != update.getVersion())
       {
-        try
-        {
-          if (msgSameCSN.getBytes().length != update.getBytes().length
-              || msgSameCSN.isAssured() != update.isAssured()
-              || msgSameCSN.getVersion() != update.getVersion())
-          {
-            // Adding 2 msgs with the same CSN is ok only when the 2 msgs are the same
-            bytesCount += update.size() - msgSameCSN.size();
-            logger.error(ERR_RSQUEUE_DIFFERENT_MSGS_WITH_SAME_CSN, msgSameCSN.getCSN(), msgSameCSN, update);
-          }
-        }
-        catch (Exception e)
+        // Adding 2 msgs with the same CSN is ok only when the 2 msgs are the same
+        if (map.replace(update.getCSN(), msgSameCSN, update))
         {
-          logger.traceException(e);
+          bytesCount.addAndGet(update.size() - msgSameCSN.size());
+          logger.error(ERR_RSQUEUE_DIFFERENT_MSGS_WITH_SAME_CSN, msgSameCSN.getCSN(), msgSameCSN, update);
         }
       }
-      else
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+    }
+  }
+
+  private void signalNotEmpty()
+  {
+    if (consumerWaiting)
+    {
+      waitLock.lock();
+      try
+      {
+        notEmpty.signalAll();
+      }
+      finally
+      {
+        waitLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Waits until this queue contains messages, or until the timeout elapses or
+   * {@link #wakeUp()} is called.
+   *
+   * @param timeout
+   *          the maximum time to wait, in milliseconds
+   * @return {@code true} if this queue contains messages
+   * @throws InterruptedException
+   *           if the current thread is interrupted while waiting
+   */
+  public boolean awaitNotEmpty(long timeout) throws InterruptedException
+  {
+    if (!map.isEmpty())
+    {
+      return true;
+    }
+    waitLock.lock();
+    try
+    {
+      consumerWaiting = true;
+      if (map.isEmpty())
       {
-        // it is really an ADD
-        bytesCount += update.size();
+        notEmpty.await(timeout, TimeUnit.MILLISECONDS);
       }
+      return !map.isEmpty();
+    }
+    finally
+    {
+      consumerWaiting = false;
+      waitLock.unlock();
+    }
+  }
+
+  /** Wakes up the consumer waiting for messages, if any. */
+  public void wakeUp()
+  {
+    waitLock.lock();
+    try
+    {
+      notEmpty.signalAll();
+    }
+    finally
+    {
+      waitLock.unlock();
     }
   }
 
   /**
    * Get and remove the first UpdateMsg in this MessageQueue.
    *
-   * @return The first UpdateMsg in this MessageQueue.
+   * @return The first UpdateMsg in this MessageQueue, or {@code null} if the queue is empty.
    */
   public UpdateMsg removeFirst()
   {
-    synchronized (lock)
+    final Map.Entry<CSN, UpdateMsg> first = map.pollFirstEntry();
+    if (first == null)
+    {
+      return null;
+    }
+    final UpdateMsg update = first.getValue();
+    count.decrementAndGet();
+    final long newBytesCount = bytesCount.addAndGet(-update.size());
+    if (newBytesCount < 0)
+    {
+      // should never happen
+      logger.error(ERR_BYTE_COUNT, newBytesCount);
+      bytesCount.compareAndSet(newBytesCount, 0);
+    }
+    return update;
+  }
+
+  /**
+   * Returns whether this queue contains more messages or more bytes than its limits.
+   *
+   * @return {@code true} if this queue is above its limits
+   */
+  public boolean isAboveLimits()
+  {
+    final int nbMsgs = count();
+    // ensure there is a minimum number of messages in queue to avoid wrong behavior
+    return nbMsgs > maxCount
+        || (nbMsgs >= MINIMUM_COUNT_FOR_BYTES_LIMIT && bytesCount() > maxBytesCount);
+  }
+
+  /**
+   * Removes the oldest messages of this queue until it is within its limits.
+   *
+   * @return {@code true} if messages were removed
+   */
+  public boolean trimToLimits()
+  {
+    boolean trimmed = false;
+    while (isAboveLimits())
     {
-      // FIXME JNR replace next 2 lines with just that one:
-      // final UpdateMsg update = map.pollFirstEntry().getValue();
-      final UpdateMsg update = map.get(map.firstKey());
-      map.remove(update.getCSN());
-      bytesCount -= update.size();
-      if (map.isEmpty() && bytesCount != 0)
+      // Count before removing: a consumer which finds the trimmed message
+      // missing is then guaranteed to see the count change
+      trimmedCount.incrementAndGet();
+      if (removeFirst() == null)
       {
-        // should never happen
-        logger.error(ERR_BYTE_COUNT, bytesCount);
-        bytesCount = 0;
+        trimmedCount.decrementAndGet();
+        break;
       }
-      return update;
+      trimmed = true;
     }
+    return trimmed;
+  }
+
+  /**
+   * Returns the number of messages removed from this queue because it was
+   * above its limits. Consumers can compare two values to know whether they
+   * missed messages in between.
+   *
+   * @return the number of messages removed because this queue was above its limits
+   */
+  public long getTrimmedCount()
+  {
+    return trimmedCount.get();
   }
 
   /**
@@ -171,52 +330,43 @@ public class MsgQueue
    */
   public boolean contains(UpdateMsg msg)
   {
-    synchronized (lock)
-    {
-      return map.containsKey(msg.getCSN());
-    }
+    return map.containsKey(msg.getCSN());
   }
 
   /** Removes all UpdateMsg form this queue. */
   public void clear()
   {
-    synchronized (lock)
+    while (removeFirst() != null)
     {
-      map.clear();
-      bytesCount = 0;
+      // removes the messages one by one to keep the counters accurate
     }
   }
 
   /**
    * Consumes all the messages in this queue up to and including the passed in
    * message. If the passed in message is not contained in the current queue,
-   * then all messages will be removed from it.
+   * then all the older messages will be removed from it.
    *
    * @param finalMsg
    *          the final message to reach when consuming messages from this queue
    */
   public void consumeUpTo(UpdateMsg finalMsg)
   {
-    // FIXME this code could be more efficient if the msgQueue could call the
-    // following code (to be tested):
-    // if (!map.containsKey(finalMsg.getCSN())) {
-    // map.clear();
-    // } else {
-    // map.headMap(finalMsg.getCSN(), true).clear();
-    // }
-
     final CSN finalCSN = finalMsg.getCSN();
-    UpdateMsg msg;
-    do
+    Map.Entry<CSN, UpdateMsg> first;
+    while ((first = map.firstEntry()) != null && first.getKey().compareTo(finalCSN) <= 0)
     {
-      msg = removeFirst();
+      if (map.remove(first.getKey(), first.getValue()))
+      {
+        count.decrementAndGet();
+        bytesCount.addAndGet(-first.getValue().size());
+      }
     }
-    while (!finalCSN.equals(msg.getCSN()));
   }
 
   @Override
   public String toString()
   {
-    return getClass().getSimpleName() + " bytesCount=" + bytesCount + " queue=" + map.values();
+    return getClass().getSimpleName() + " bytesCount=" + bytesCount() + " queue=" + map.values();
   }
 }
@@ -48,6 +48,7 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.ldap.schema.Schema;
+import org.forgerock.opendj.server.config.meta.ReplicationServerCfgDefn.ChangelogDurability;
 import org.forgerock.opendj.server.config.meta.VirtualAttributeCfgDefn.ConflictBehavior;
 import org.forgerock.opendj.server.config.server.ReplicationServerCfg;
 import org.forgerock.opendj.server.config.server.UserDefinedVirtualAttributeCfg;
@@ -245,6 +246,8 @@ public class ReplicationServer
           {
             continue;
           }
+          session.setCompressionEnabled(config.isSessionCompressionEnabled());
+          session.setMaxSendDelay(config.getMaxSessionSendDelay());
         }
         catch (Exception e)
         {
@@ -414,6 +417,8 @@ public class ReplicationServer
       int timeoutMS = MultimasterReplication.getConnectionTimeoutMS();
       socket.connect(remoteServerAddress.toInetSocketAddress(), timeoutMS);
       session = replSessionSecurity.createClientSession(socket, timeoutMS);
+      session.setCompressionEnabled(config.isSessionCompressionEnabled());
+      session.setMaxSendDelay(config.getMaxSessionSendDelay());
 
       ReplicationServerHandler rsHandler = new ReplicationServerHandler(
           session, config.getQueueSize(), this, config.getWindowSize());
@@ -836,6 +841,29 @@ public class ReplicationServer
     return this.config.getReplicationPurgeDelay() * 1000;
   }
 
+  /**
+   * Retrieves when the changes written to the changelog are synchronized to
+   * disk, and therefore when they are acknowledged.
+   *
+   * @return the durability of the changes written to the changelog
+   */
+  public ChangelogDurability getChangelogDurability()
+  {
+    return this.config.getChangelogDurability();
+  }
+
+  /**
+   * Retrieves the maximum time that a change written to the changelog may wait
+   * before it is synchronized to disk (in milliseconds).
+   *
+   * @return the maximum time before a change is synchronized to disk (in
+   *         milliseconds)
+   */
+  public long getChangelogSyncDelay()
+  {
+    return this.config.getChangelogSyncDelay();
+  }
+
   /**
    * Check if the provided configuration is acceptable for add.
    *
@@ -886,6 +914,11 @@ public class ReplicationServer
     {
       this.changelogDB.setPurgeDelay(getPurgeDelay());
     }
+    if (config.getChangelogDurability() != oldConfig.getChangelogDurability()
+        || config.getChangelogSyncDelay() != oldConfig.getChangelogSyncDelay())
+    {
+      this.changelogDB.setDurability(getChangelogDurability(), getChangelogSyncDelay());
+    }
     final boolean computeCN = config.isComputeChangeNumber();
     if (computeCN != oldConfig.isComputeChangeNumber())
     {
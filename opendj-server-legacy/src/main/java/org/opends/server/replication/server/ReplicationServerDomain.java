@@ -327,6 +327,13 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
       return;
     }
 
+    // The update is now as durable as the changelog durability requires:
+    // it can be acknowledged
+    if (preparedAssuredInfo != null && preparedAssuredInfo.ackNow)
+    {
+      sourceHandler.send(new AckMsg(updateMsg.getCSN()));
+    }
+
     final List<Integer> assuredServers = getAssuredServers(updateMsg, preparedAssuredInfo);
 
     /**
@@ -429,7 +436,7 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
   }
 
   private PreparedAssuredInfo getPreparedAssuredInfo(UpdateMsg updateMsg,
-      ServerHandler sourceHandler) throws IOException
+      ServerHandler sourceHandler)
   {
     // Assured feature is supported starting from replication protocol V2
     if (!updateMsg.isAssured()
@@ -573,11 +580,18 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
        * received. Null if expectedServers is null.
        */
       public ExpectedAcksInfo expectedAcksInfo;
+
+      /**
+       * Whether the ack must be sent to the requester without waiting for other
+       * acks. It is sent once the update is published to the changelog.
+       */
+      public boolean ackNow;
   }
 
   /**
    * Process a just received assured update message in Safe Read mode. If the
-   * ack can be sent immediately, it is done here. This will also determine to
+   * ack can be sent immediately, it is flagged here and sent by the put method
+   * once the update is published. This will also determine to
    * which suitable servers an ack should be requested from, and which ones are
    * not eligible for an ack request.
    * This method is an helper method for the put method. Have a look at the put
@@ -587,11 +601,9 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
    *        update was received
    * @return A suitable PreparedAssuredInfo object that contains every needed
    * info to proceed with post to server writers.
-   * @throws IOException When an IO exception happens during the update
-   *         processing.
    */
   private PreparedAssuredInfo processSafeReadUpdateMsg(
-    UpdateMsg update, ServerHandler sourceHandler) throws IOException
+    UpdateMsg update, ServerHandler sourceHandler)
   {
     CSN csn = update.getCSN();
     byte groupId = localReplicationServer.getGroupId();
@@ -652,7 +664,7 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
     if (preparedAssuredInfo.expectedServers == null)
     {
       // No eligible servers found, send the ack immediately
-      sourceHandler.send(new AckMsg(csn));
+      preparedAssuredInfo.ackNow = true;
     }
 
     return preparedAssuredInfo;
@@ -660,7 +672,8 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
 
   /**
    * Process a just received assured update message in Safe Data mode. If the
-   * ack can be sent immediately, it is done here. This will also determine to
+   * ack can be sent immediately, it is flagged here and sent by the put method
+   * once the update is published. This will also determine to
    * which suitable servers an ack should be requested from, and which ones are
    * not eligible for an ack request.
    * This method is an helper method for the put method. Have a look at the put
@@ -670,14 +683,13 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
    *        update was received
    * @return A suitable PreparedAssuredInfo object that contains every needed
    * info to proceed with post to server writers.
-   * @throws IOException When an IO exception happens during the update
-   *         processing.
    */
   private PreparedAssuredInfo processSafeDataUpdateMsg(
-    UpdateMsg update, ServerHandler sourceHandler) throws IOException
+    UpdateMsg update, ServerHandler sourceHandler)
   {
     CSN csn = update.getCSN();
     boolean interestedInAcks = false;
+    boolean ackNow = false;
     byte safeDataLevel = update.getSafeDataLevel();
     byte groupId = localReplicationServer.getGroupId();
     byte sourceGroupId = sourceHandler.getGroupId();
@@ -700,7 +712,7 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
              * mode with safe data level 1, coming from a DS. No need to wait
              * for more acks
              */
-            sourceHandler.send(new AckMsg(csn));
+            ackNow = true;
           } else
           {
             /**
@@ -720,7 +732,7 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
            */
           if (safeDataLevel > (byte) 1)
           {
-            sourceHandler.send(new AckMsg(csn));
+            ackNow = true;
           }
         }
     }
@@ -755,9 +767,10 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
       {
         // level > 1 and source is a DS but no eligible servers found, send the
         // ack immediately
-        sourceHandler.send(new AckMsg(csn));
+        ackNow = true;
       }
     }
+    preparedAssuredInfo.ackNow = ackNow;
 
     return preparedAssuredInfo;
   }
@@ -523,6 +523,11 @@ public abstract class ServerHandler extends MessageHandler
     // Encryption
     attributes.add("ssl-encryption", session.isEncrypted());
 
+    // Compression and batching
+    attributes.add("session-compression", session.isCompressed());
+    attributes.add("session-compression-ratio", session.getCompressionRatio());
+    attributes.add("session-average-batch-size", session.getAverageBatchSize());
+
     // Data generation
     attributes.add("generation-id", generationId);
 
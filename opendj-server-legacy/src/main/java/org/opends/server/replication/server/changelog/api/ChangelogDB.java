@@ -15,7 +15,7 @@
  */
 package org.opends.server.replication.server.changelog.api;
 
-
+import org.forgerock.opendj.server.config.meta.ReplicationServerCfgDefn.ChangelogDurability;
 
 /**
  * This interface is the entry point for the changelog database which stores the
@@ -45,6 +45,24 @@ public interface ChangelogDB
    */
   void setPurgeDelay(long delayInMillis);
 
+  /**
+   * Sets when the updates published to the replication database are
+   * synchronized to disk. Can be called while the database is running.
+   * <p>
+   * Publishing an assured update returns once the update is as durable as
+   * required by the provided durability. Other updates are synchronized to disk
+   * as required by the provided durability too, but publishing them only waits
+   * for the synchronization with the strict durability.
+   *
+   * @param durability
+   *          the durability of the published updates
+   * @param syncDelayInMillis
+   *          the maximum time in milliseconds that a published update may wait
+   *          before being synchronized to disk, when updates are synchronized
+   *          in groups
+   */
+  void setDurability(ChangelogDurability durability, long syncDelayInMillis);
+
   /**
    * Sets whether the replication database must compute change numbers for
    * replicated changes. Change numbers are computed using a separate new
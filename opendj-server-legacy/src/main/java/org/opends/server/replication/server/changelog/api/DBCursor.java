@@ -116,6 +116,7 @@ public interface DBCursor<T> extends Closeable
     private final KeyMatchingStrategy keyMatchingStrategy;
     private final PositionStrategy positionStrategy;
     private final CSN defaultCSN;
+    private final boolean prefetching;
 
     /**
      * Creates options with provided strategies.
@@ -142,10 +143,32 @@ public interface DBCursor<T> extends Closeable
      *          use for replicas which do not have an associated CSN
      */
     public CursorOptions(KeyMatchingStrategy keyMatchingStrategy, PositionStrategy positionStrategy, CSN defaultCSN)
+    {
+      this(keyMatchingStrategy, positionStrategy, defaultCSN, false);
+    }
+
+    /**
+     * Creates options with provided strategies, default CSN and prefetching.
+     *
+     * @param keyMatchingStrategy
+     *          The key matching strategy
+     * @param positionStrategy
+     *          The position strategy
+     * @param defaultCSN
+     *          When creating a replica DB Cursor, this is the default CSN to
+     *          use for replicas which do not have an associated CSN
+     * @param prefetching
+     *          Whether the replication domain cursors read the next records
+     *          ahead in the background, for cursors reading many records in a
+     *          row like the external changelog searches
+     */
+    public CursorOptions(KeyMatchingStrategy keyMatchingStrategy, PositionStrategy positionStrategy, CSN defaultCSN,
+        boolean prefetching)
     {
       this.keyMatchingStrategy = keyMatchingStrategy;
       this.positionStrategy = positionStrategy;
       this.defaultCSN = defaultCSN;
+      this.prefetching = prefetching;
     }
 
     /**
@@ -178,6 +201,16 @@ public interface DBCursor<T> extends Closeable
       return defaultCSN;
     }
 
+    /**
+     * Returns whether the replication domain cursors read the next records ahead.
+     *
+     * @return whether the replication domain cursors read the next records ahead
+     */
+    public boolean isPrefetching()
+    {
+      return prefetching;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -188,7 +221,8 @@ public interface DBCursor<T> extends Closeable
         CursorOptions other = (CursorOptions) obj;
         return keyMatchingStrategy == other.keyMatchingStrategy
             && positionStrategy == other.positionStrategy
-            && Objects.equals(defaultCSN, other.defaultCSN);
+            && Objects.equals(defaultCSN, other.defaultCSN)
+            && prefetching == other.prefetching;
       }
       return false;
     }
@@ -201,6 +235,7 @@ public interface DBCursor<T> extends Closeable
       result = prime * result + ((keyMatchingStrategy == null) ? 0 : keyMatchingStrategy.hashCode());
       result = prime * result + ((positionStrategy == null) ? 0 : positionStrategy.hashCode());
       result = prime * result + ((defaultCSN == null) ? 0 : defaultCSN.hashCode());
+      result = prime * result + (prefetching ? 1231 : 1237);
       return result;
     }
 
@@ -210,7 +245,8 @@ public interface DBCursor<T> extends Closeable
       return getClass().getSimpleName()
           + " [keyMatchingStrategy=" + keyMatchingStrategy
           + ", positionStrategy=" + positionStrategy
-          + ", defaultCSN=" + defaultCSN + "]";
+          + ", defaultCSN=" + defaultCSN
+          + ", prefetching=" + prefetching + "]";
     }
   }
 
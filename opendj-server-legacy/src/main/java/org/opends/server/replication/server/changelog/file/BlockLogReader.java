@@ -24,6 +24,9 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
@@ -44,6 +47,11 @@ import org.opends.server.util.StaticUtils;
  * <p>
  * The reader provides both sequential access, using the {@code readRecord()} method,
  * and reasonably fast random access, using the {@code seekToRecord(K, boolean)} method.
+ * Random access uses the sparse index of the log file when one is provided, and
+ * otherwise a binary search over the blocks.
+ * <p>
+ * The log file is either read through a random access file, or through a memory
+ * mapping of the whole file.
  *
  * @param <K>
  *          Type of the key of a record, which must be comparable.
@@ -69,10 +77,13 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
 
   private final RecordParser<K, V> parser;
 
-  private final RandomAccessFile reader;
+  private final LogInput reader;
 
   private final File file;
 
+  /** The sparse index of the log file, which may be {@code null}. */
+  private final LogFileIndex<K> index;
+
   /**
    * Creates a reader for the provided file, file reader and parser.
    *
@@ -91,7 +102,57 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(
       final File file, final RandomAccessFile reader, final RecordParser<K, V> parser)
   {
-    return new BlockLogReader<>(file, reader, parser, BLOCK_SIZE);
+    return newReader(file, reader, parser, null);
+  }
+
+  /**
+   * Creates a reader for the provided file, file reader, parser and index.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The log file to read.
+   * @param reader
+   *          The random access reader on the log file.
+   * @param parser
+   *          The parser to decode the records read.
+   * @param index
+   *          The sparse index of the log file, which may be {@code null}.
+   * @return a new log reader
+   */
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(
+      final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, final LogFileIndex<K> index)
+  {
+    return new BlockLogReader<>(file, new FileLogInput(reader), parser, BLOCK_SIZE, index);
+  }
+
+  /**
+   * Creates a reader for the provided file, memory mapping of the file, parser and index.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The log file to read.
+   * @param mappedFile
+   *          The memory mapping of the whole log file. The reader only uses a
+   *          duplicate of it, so it may be shared between readers.
+   * @param onClose
+   *          Run once when the reader is closed, to release the mapping.
+   * @param parser
+   *          The parser to decode the records read.
+   * @param index
+   *          The sparse index of the log file, which may be {@code null}.
+   * @return a new log reader
+   */
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newMappedReader(final File file,
+      final ByteBuffer mappedFile, final Runnable onClose, final RecordParser<K, V> parser,
+      final LogFileIndex<K> index)
+  {
+    return new BlockLogReader<>(file, new MappedLogInput(mappedFile, onClose), parser, BLOCK_SIZE, index);
   }
 
   /**
@@ -117,16 +178,45 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> BlockLogReader<K, V> newReaderForTests(
       final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, int blockSize)
   {
-    return new BlockLogReader<>(file, reader, parser, blockSize);
+    return new BlockLogReader<>(file, reader != null ? new FileLogInput(reader) : null, parser, blockSize, null);
+  }
+
+  /**
+   * Creates a reader for the provided file, memory mapping, parser, block size and index.
+   * <p>
+   * This method is intended for tests only, to allow tuning of the block size.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The log file to read.
+   * @param mappedFile
+   *          The memory mapping of the whole log file.
+   * @param parser
+   *          The parser to decode the records read.
+   * @param blockSize
+   *          The size of each block, or frequency at which the record offset is
+   *          present in the log file.
+   * @param index
+   *          The sparse index of the log file, which may be {@code null}.
+   * @return a new log reader
+   */
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newMappedReaderForTests(final File file,
+      final ByteBuffer mappedFile, final RecordParser<K, V> parser, int blockSize, final LogFileIndex<K> index)
+  {
+    return new BlockLogReader<>(file, new MappedLogInput(mappedFile, null), parser, blockSize, index);
   }
 
-  private BlockLogReader(
-      final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, final int blockSize)
+  private BlockLogReader(final File file, final LogInput reader, final RecordParser<K, V> parser,
+      final int blockSize, final LogFileIndex<K> index)
   {
     this.file = file;
     this.reader = reader;
     this.parser = parser;
     this.blockSize = blockSize;
+    this.index = index;
   }
 
   /**
@@ -155,7 +245,8 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
           throws ChangelogException
   {
     Reject.ifNull(key);
-    final long markerPosition = searchClosestBlockStartToKey(key);
+    final long markerPosition = index != null ? index.getBlockStartBeforeOrAtKey(key)
+                                              : searchClosestBlockStartToKey(key);
     if (markerPosition >= 0)
     {
       return positionToKey(markerPosition, key, matchStrategy, positionStrategy);
@@ -265,9 +356,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     reader.seek(blockStartPosition);
     if (blockStartPosition > 0)
     {
-      final byte[] offsetData = new byte[SIZE_OF_BLOCK_OFFSET];
-      reader.readFully(offsetData);
-      final int offsetToRecord = ByteString.wrap(offsetData).toInt();
+      final int offsetToRecord = reader.readInt();
       if (offsetToRecord > 0)
       {
         reader.seek(blockStartPosition - offsetToRecord);
@@ -305,7 +394,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       {
         if (distanceToBlockStart != 0)
         {
-          recordBytes.appendBytes(reader, distanceToBlockStart);
+          reader.readBytes(recordBytes, distanceToBlockStart);
         }
         // skip the offset
         reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
@@ -318,7 +407,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       if (remainingBytesToRead > 0)
       {
         // last bytes of the record
-        recordBytes.appendBytes(reader, remainingBytesToRead);
+        reader.readBytes(recordBytes, remainingBytesToRead);
       }
       return recordBytes.toByteString();
     }
@@ -357,10 +446,10 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     final ByteStringBuilder lengthBytes = new ByteStringBuilder(SIZE_OF_RECORD_SIZE);
     if (distanceToBlockStart > 0 && distanceToBlockStart < SIZE_OF_RECORD_SIZE)
     {
-      lengthBytes.appendBytes(reader, distanceToBlockStart);
+      reader.readBytes(lengthBytes, distanceToBlockStart);
       // skip the offset
       reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
+      reader.readBytes(lengthBytes, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
     }
     else
     {
@@ -369,7 +458,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
         // skip the offset
         reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
       }
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE);
+      reader.readBytes(lengthBytes, SIZE_OF_RECORD_SIZE);
     }
     return lengthBytes.toByteString().toInt();
   }
@@ -428,6 +517,41 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     return -1;
   }
 
+  /**
+   * Builds the sparse index of the log file, with an entry for the record
+   * found at every {@code blocksPerEntry} block starts.
+   * <p>
+   * Note that position of reader is modified by this method.
+   *
+   * @param blocksPerEntry
+   *          The number of blocks between two entries of the index.
+   * @return the index of the log file
+   * @throws ChangelogException
+   *          if a problem occurs
+   */
+  LogFileIndex<K> buildIndex(final int blocksPerEntry) throws ChangelogException
+  {
+    final long fileLength = getFileLength();
+    final long distanceBetweenEntries = (long) blockSize * blocksPerEntry;
+    final List<K> keys = new ArrayList<>();
+    final List<Long> positions = new ArrayList<>();
+    for (long blockStart = 0; blockStart < fileLength; blockStart += distanceBetweenEntries)
+    {
+      final Record<K, V> record = readRecord(blockStart);
+      if (record == null)
+      {
+        break;
+      }
+      // a record larger than the distance between entries is found from several block starts
+      if (keys.isEmpty() || keys.get(keys.size() - 1).compareTo(record.getKey()) < 0)
+      {
+        keys.add(record.getKey());
+        positions.add(blockStart);
+      }
+    }
+    return LogFileIndex.from(keys, positions, fileLength, blockSize);
+  }
+
   private long getFileLength() throws ChangelogException
   {
     try
@@ -639,4 +763,172 @@ Record<K, V> getNewestRecord() throws ChangelogException
      throw new ChangelogException(ERR_CHANGELOG_CANNOT_READ_NEWEST_RECORD.get(file.getPath()), e);
    }
  }
+
+  /** Random access to the content of a log file. */
+  private interface LogInput extends Closeable
+  {
+    long length() throws IOException;
+
+    long getFilePointer() throws IOException;
+
+    void seek(long position) throws IOException;
+
+    int skipBytes(int length) throws IOException;
+
+    int readInt() throws IOException;
+
+    /** Appends the provided number of bytes to the builder, or throws an EOFException. */
+    void readBytes(ByteStringBuilder builder, int length) throws IOException;
+  }
+
+  /** Reads a log file through a random access file. */
+  private static final class FileLogInput implements LogInput
+  {
+    private final RandomAccessFile file;
+
+    private FileLogInput(final RandomAccessFile file)
+    {
+      this.file = file;
+    }
+
+    @Override
+    public long length() throws IOException
+    {
+      return file.length();
+    }
+
+    @Override
+    public long getFilePointer() throws IOException
+    {
+      return file.getFilePointer();
+    }
+
+    @Override
+    public void seek(final long position) throws IOException
+    {
+      file.seek(position);
+    }
+
+    @Override
+    public int skipBytes(final int length) throws IOException
+    {
+      return file.skipBytes(length);
+    }
+
+    @Override
+    public int readInt() throws IOException
+    {
+      return file.readInt();
+    }
+
+    @Override
+    public void readBytes(final ByteStringBuilder builder, final int length) throws IOException
+    {
+      builder.appendBytes(file, length);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      file.close();
+    }
+
+    @Override
+    public String toString()
+    {
+      return file.toString();
+    }
+  }
+
+  /**
+   * Reads a log file through a memory mapping of the whole file, which avoids a
+   * system call for each read.
+   * <p>
+   * As with a random access file, the position may be set beyond the end of the file.
+   */
+  private static final class MappedLogInput implements LogInput
+  {
+    private final ByteBuffer buffer;
+
+    /** Releases the mapping shared with the other readers of the file, may be {@code null}. */
+    private Runnable onClose;
+
+    private long position;
+
+    private MappedLogInput(final ByteBuffer mappedFile, final Runnable onClose)
+    {
+      this.buffer = mappedFile.duplicate();
+      this.onClose = onClose;
+    }
+
+    @Override
+    public long length()
+    {
+      return buffer.limit();
+    }
+
+    @Override
+    public long getFilePointer()
+    {
+      return position;
+    }
+
+    @Override
+    public void seek(final long position)
+    {
+      this.position = position;
+    }
+
+    @Override
+    public int skipBytes(final int length)
+    {
+      final int skipped = (int) Math.max(Math.min(length, buffer.limit() - position), 0);
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public int readInt() throws IOException
+    {
+      checkAvailable(4);
+      final int value = buffer.getInt((int) position);
+      position += 4;
+      return value;
+    }
+
+    @Override
+    public void readBytes(final ByteStringBuilder builder, final int length) throws IOException
+    {
+      checkAvailable(length);
+      buffer.position((int) position);
+      builder.appendBytes(buffer, length);
+      position += length;
+    }
+
+    private void checkAvailable(final int length) throws EOFException
+    {
+      if (position + length > buffer.limit())
+      {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    public void close()
+    {
+      // The mapping is shared with the other readers of the file, it must only be released once
+      if (onClose != null)
+      {
+        final Runnable release = onClose;
+        onClose = null;
+        release.run();
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return "MappedLogInput(position=" + position + ", length=" + buffer.limit() + ")";
+    }
+  }
 }
@@ -67,6 +67,8 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
 
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
   private static final int NO_KEY = 0;
+  /** Number of the most recent records kept in memory for the cursors following them. */
+  private static final int READ_AHEAD_CAPACITY = 4096;
   private static final Record.Mapper<ChangeNumberIndexRecord, CSN> MAPPER_TO_CSN =
       new Record.Mapper<ChangeNumberIndexRecord, CSN>()
       {
@@ -81,6 +83,13 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
 
   /** The log in which records are persisted. */
   private final Log<Long, ChangeNumberIndexRecord> log;
+  /**
+   * The most recent records of the log: searches on the external changelog
+   * polling for the newest change numbers find them in memory. It is also the
+   * lock ordering the appends to the log and to this buffer.
+   */
+  private final SharedReadAheadBuffer<Long, ChangeNumberIndexRecord> readAheadBuffer =
+      new SharedReadAheadBuffer<>(READ_AHEAD_CAPACITY);
 
   /**
    * The newest changenumber stored in the DB. It is used to avoid purging the
@@ -160,7 +169,12 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
     final long changeNumber = nextChangeNumber();
     final ChangeNumberIndexRecord newRecord =
         new ChangeNumberIndexRecord(changeNumber, record.getBaseDN(), record.getCSN());
-    log.append(Record.from(newRecord.getChangeNumber(), newRecord));
+    final Record<Long, ChangeNumberIndexRecord> logRecord = Record.from(newRecord.getChangeNumber(), newRecord);
+    synchronized (readAheadBuffer)
+    {
+      log.append(logRecord);
+      readAheadBuffer.append(logRecord);
+    }
     newestChangeNumber = changeNumber;
 
     if (logger.isTraceEnabled())
@@ -241,7 +255,7 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
   @Override
   public DBCursor<ChangeNumberIndexRecord> getCursorFrom(final long startChangeNumber) throws ChangelogException
   {
-    return new FileChangeNumberIndexDBCursor(log.getCursor(startChangeNumber));
+    return new FileChangeNumberIndexDBCursor(log, readAheadBuffer, startChangeNumber);
   }
 
   /**
@@ -277,7 +291,12 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
     if (purgeChangeNumber != null)
     {
       final Record<Long, ChangeNumberIndexRecord> record = log.purgeUpTo(purgeChangeNumber);
-      return record != null ? record.getValue().getCSN() : null;
+      if (record != null)
+      {
+        readAheadBuffer.purgeUpTo(record.getKey());
+        return record.getValue().getCSN();
+      }
+      return null;
     }
     return null;
   }
@@ -292,10 +311,12 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
       long lastCN = readChangeNumber(ChangeNumberType.LAST);
       long numberOfChanges = lastCN == NO_KEY ? 0 : lastCN - firstCN + 1;
 
-      final MonitorData attributes = new MonitorData(3);
+      final MonitorData attributes = new MonitorData(5);
       attributes.add(ChangeNumberType.FIRST.getAttributeName(), firstCN);
       attributes.add(ChangeNumberType.LAST.getAttributeName(), lastCN);
       attributes.add("count", numberOfChanges);
+      attributes.add("read-ahead-hits", readAheadBuffer.getHits());
+      attributes.add("read-ahead-misses", readAheadBuffer.getMisses());
       return attributes;
     }
 
@@ -354,7 +375,11 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
    */
   public void clear() throws ChangelogException
   {
-    log.clear();
+    synchronized (readAheadBuffer)
+    {
+      log.clear();
+      readAheadBuffer.clear();
+    }
     newestChangeNumber = NO_KEY;
   }
 
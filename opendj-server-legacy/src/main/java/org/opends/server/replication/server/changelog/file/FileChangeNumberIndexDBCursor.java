@@ -15,53 +15,119 @@
  */
 package org.opends.server.replication.server.changelog.file;
 
+import static org.opends.server.replication.server.changelog.api.DBCursor.KeyMatchingStrategy.*;
+import static org.opends.server.replication.server.changelog.api.DBCursor.PositionStrategy.*;
+
 import net.jcip.annotations.NotThreadSafe;
 
 import org.opends.server.replication.server.changelog.api.ChangeNumberIndexRecord;
 import org.opends.server.replication.server.changelog.api.ChangelogException;
 import org.opends.server.replication.server.changelog.api.DBCursor;
 
-/** A cursor on ChangeNumberIndexDB. */
+/**
+ * A cursor on ChangeNumberIndexDB.
+ * <p>
+ * The cursor reads the records from the {@link SharedReadAheadBuffer} of the
+ * ChangeNumberIndexDB while it follows the newest change numbers. It reads the
+ * log when the start change number is not in the buffer, or when it lags
+ * behind the buffer.
+ */
 @NotThreadSafe
 class FileChangeNumberIndexDBCursor implements DBCursor<ChangeNumberIndexRecord>
 {
-  /** The underlying cursor. */
-  private final DBCursor<Record<Long, ChangeNumberIndexRecord>> cursor;
+  /** The log, used to create the underlying cursor. */
+  private final Log<Long, ChangeNumberIndexRecord> log;
+  /** The reader of the shared read-ahead buffer. */
+  private final SharedReadAheadBuffer<Long, ChangeNumberIndexRecord>.Reader readAhead;
+  /** The underlying cursor, only created when the records cannot be read from the buffer. */
+  private DBCursor<Record<Long, ChangeNumberIndexRecord>> cursor;
+
+  /** The start change number until the first record is found, then the change number of the last record found. */
+  private long lastChangeNumber;
+  private boolean started;
+  private ChangeNumberIndexRecord record;
 
   /**
-   * Creates the cursor from provided cursor.
+   * Creates the cursor starting at the provided change number.
    *
-   * @param cursor
-   *          The underlying cursor to read log.
-   * @throws ChangelogException
-   *            If an error occurs.
+   * @param log
+   *          The log to read when the records are not in the buffer.
+   * @param readAheadBuffer
+   *          The read-ahead buffer of the log.
+   * @param startChangeNumber
+   *          The change number of the first record to return: the cursor
+   *          returns no records if it does not exist.
    */
-  FileChangeNumberIndexDBCursor(final DBCursor<Record<Long, ChangeNumberIndexRecord>> cursor)
-      throws ChangelogException
+  FileChangeNumberIndexDBCursor(final Log<Long, ChangeNumberIndexRecord> log,
+      final SharedReadAheadBuffer<Long, ChangeNumberIndexRecord> readAheadBuffer, final long startChangeNumber)
   {
-    this.cursor = cursor;
+    this.log = log;
+    this.readAhead = readAheadBuffer.newReader();
+    this.lastChangeNumber = startChangeNumber;
   }
 
   /** {@inheritDoc} */
   @Override
   public ChangeNumberIndexRecord getRecord()
   {
-    final Record<Long, ChangeNumberIndexRecord> record = cursor.getRecord();
-    return record != null ? record.getValue() : null;
+    return record;
   }
 
   /** {@inheritDoc} */
   @Override
   public boolean next() throws ChangelogException
   {
-    return cursor.next();
+    if (cursor == null)
+    {
+      switch (readAhead.next(lastChangeNumber, !started))
+      {
+      case FOUND:
+        final Record<Long, ChangeNumberIndexRecord> found = readAhead.getRecord();
+        if (started || found.getKey() == lastChangeNumber)
+        {
+          return setRecord(found);
+        }
+        // the start change number is not in the buffer: the log tells whether it exists
+        break;
+      case EXHAUSTED:
+        if (started)
+        {
+          record = null;
+          return false;
+        }
+        break;
+      default:
+        break;
+      }
+      cursor = started
+          ? log.getCursor(lastChangeNumber, GREATER_THAN_OR_EQUAL_TO_KEY, AFTER_MATCHING_KEY)
+          : log.getCursor(lastChangeNumber);
+    }
+
+    if (cursor.next())
+    {
+      return setRecord(cursor.getRecord());
+    }
+    record = null;
+    return false;
+  }
+
+  private boolean setRecord(final Record<Long, ChangeNumberIndexRecord> found)
+  {
+    lastChangeNumber = found.getKey();
+    started = true;
+    record = found.getValue();
+    return true;
   }
 
   /** {@inheritDoc} */
   @Override
   public void close()
   {
-    cursor.close();
+    if (cursor != null)
+    {
+      cursor.close();
+    }
   }
 
 }
@@ -29,6 +29,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -38,6 +41,7 @@ import org.forgerock.i18n.LocalizableMessageBuilder;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.config.DurationUnit;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.meta.ReplicationServerCfgDefn.ChangelogDurability;
 import org.forgerock.util.Pair;
 import org.forgerock.util.time.TimeService;
 import org.opends.server.api.DirectoryThread;
@@ -109,6 +113,15 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
   private volatile long purgeDelayInMillis;
   private final AtomicReference<ChangelogDBPurger> cnPurger = new AtomicReference<>();
 
+  /** Synchronizes the records added to the replicaDBs to the file system, according to the configured durability. */
+  private final LogSyncer logSyncer = new LogSyncer();
+
+  /**
+   * Reads ahead the records of the replication domain cursors created with the
+   * prefetching option, used by the searches on the external changelog.
+   */
+  private final ThreadPoolExecutor cursorPrefetcher = newCursorPrefetcher();
+
   /** The local replication server. */
   private final ReplicationServer replicationServer;
   private final AtomicBoolean shutdown = new AtomicBoolean();
@@ -138,6 +151,15 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
     this.cryptoSuite = cryptoSuite;
   }
 
+  private static ThreadPoolExecutor newCursorPrefetcher()
+  {
+    final int nbThreads = Runtime.getRuntime().availableProcessors();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(nbThreads, nbThreads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new DirectoryThread.Factory("Changelog cursor prefetcher"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   private File makeDir(final String dbDirName) throws ConfigException
   {
     // Check that this path exists or create it.
@@ -290,6 +312,7 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
         startIndexer();
       }
       setPurgeDelay(replicationServer.getPurgeDelay());
+      setDurability(replicationServer.getChangelogDurability(), replicationServer.getChangelogSyncDelay());
     }
     catch (ChangelogException e)
     {
@@ -334,6 +357,10 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
     }
 
     shutdownCNIndexerAndPurger();
+    // make durable the records added so far, before closing the replicaDBs
+    logSyncer.shutdown();
+    // cursors still open read the next records inline from now on
+    cursorPrefetcher.shutdown();
 
     // Remember the first exception because :
     // - we want to try to remove everything we want to remove
@@ -597,6 +624,12 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
     }
   }
 
+  @Override
+  public void setDurability(final ChangelogDurability durability, final long syncDelayInMillis)
+  {
+    logSyncer.setDurability(durability, syncDelayInMillis);
+  }
+
   @Override
   public void setComputeChangeNumber(final boolean computeChangeNumber)
       throws ChangelogException
@@ -715,6 +748,10 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
       final CSN lastCSN = startState != null ? startState.getCSN(serverId) : null;
       cursor.addReplicaDB(serverId, lastCSN);
     }
+    if (options.isPrefetching())
+    {
+      return new PrefetchingDBCursor<>(cursor, cursorPrefetcher);
+    }
     return cursor;
   }
 
@@ -809,6 +846,17 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
         csn.getServerId(), replicationServer);
     final FileReplicaDB replicaDB = pair.getFirst();
     replicaDB.add(updateMsg);
+    if (updateMsg.isAssured())
+    {
+      // Only expose and acknowledge the update once it is as durable as configured
+      logSyncer.awaitDurable(replicaDB.getLog());
+    }
+    else
+    {
+      // Nothing waits for the update to be durable: do not make the thread reading the updates
+      // of the sender wait for each of them to be synchronized
+      logSyncer.scheduleSync(replicaDB.getLog());
+    }
 
     ChangelogBackend.getInstance().notifyCookieEntryAdded(baseDN, updateMsg);
 
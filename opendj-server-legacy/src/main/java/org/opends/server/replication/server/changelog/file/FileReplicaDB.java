@@ -73,10 +73,20 @@ class FileReplicaDB
     }
   }
 
+  /** Number of the most recent records kept in memory for the cursors following them. */
+  private static final int READ_AHEAD_CAPACITY = 1024;
+
   private final AtomicBoolean shutdown = new AtomicBoolean(false);
 
   /** The log in which records are persisted. */
   private final Log<CSN, UpdateMsg> log;
+  /**
+   * The most recent records of the log, shared by the cursors following them,
+   * so that they do not read and decode the same records from the log files.
+   * It is also the lock ordering the appends to the log and to this buffer.
+   */
+  private final SharedReadAheadBuffer<CSN, UpdateMsg> readAheadBuffer =
+      new SharedReadAheadBuffer<>(READ_AHEAD_CAPACITY);
 
   /**
    * Holds the oldest and newest CSNs for this replicaDB for fast retrieval.
@@ -155,7 +165,12 @@ class FileReplicaDB
               .toString(), String.valueOf(baseDN), String.valueOf(serverId)));
     }
 
-    log.append(Record.from(updateMsg.getCSN(), updateMsg));
+    final Record<CSN, UpdateMsg> record = Record.from(updateMsg.getCSN(), updateMsg);
+    synchronized (readAheadBuffer)
+    {
+      log.append(record);
+      readAheadBuffer.append(record);
+    }
 
     final CSNLimits limits = csnLimits;
     final boolean updateNew = limits.newestCSN == null || limits.newestCSN.isOlderThan(updateMsg.getCSN());
@@ -168,6 +183,16 @@ class FileReplicaDB
     }
   }
 
+  /**
+   * Returns the log in which the messages of this replicaDB are persisted.
+   *
+   * @return the log
+   */
+  Log<CSN, UpdateMsg> getLog()
+  {
+    return log;
+  }
+
   /**
    * Get the oldest CSN that has not been purged yet.
    *
@@ -207,9 +232,13 @@ class FileReplicaDB
   DBCursor<UpdateMsg> generateCursorFrom(final CSN startCSN, final KeyMatchingStrategy matchingStrategy,
       final PositionStrategy positionStrategy) throws ChangelogException
   {
-    RepositionableCursor<CSN, UpdateMsg> cursor = log.getCursor(startCSN, matchingStrategy, positionStrategy);
     CSN actualStartCSN = (startCSN != null && startCSN.getServerId() == serverId) ? startCSN : null;
-    return new FileReplicaDBCursor(cursor, actualStartCSN, positionStrategy);
+    // The log cursor is only created when needed if the records may be read from the read-ahead buffer
+    RepositionableCursor<CSN, UpdateMsg> cursor =
+        actualStartCSN != null && matchingStrategy == KeyMatchingStrategy.GREATER_THAN_OR_EQUAL_TO_KEY
+        ? null
+        : log.getCursor(startCSN, matchingStrategy, positionStrategy);
+    return new FileReplicaDBCursor(log, readAheadBuffer, cursor, actualStartCSN, positionStrategy);
   }
 
   /** Shutdown this ReplicaDB. */
@@ -240,6 +269,7 @@ class FileReplicaDB
     final Record<CSN, UpdateMsg> oldestRecord = log.purgeUpTo(purgeCSN);
     if (oldestRecord != null)
     {
+      readAheadBuffer.purgeUpTo(oldestRecord.getKey());
       csnLimits = new CSNLimits(oldestRecord.getKey(), csnLimits.newestCSN);
     }
   }
@@ -252,7 +282,7 @@ class FileReplicaDB
     @Override
     public MonitorData getMonitorData()
     {
-      final MonitorData attributes = new MonitorData(4);
+      final MonitorData attributes = new MonitorData(6);
       attributes.add("replicationServer-database", serverId);
       attributes.add("domain-name", baseDN);
       final CSNLimits limits = csnLimits;
@@ -264,6 +294,8 @@ class FileReplicaDB
       {
         attributes.add("last-change", encode(limits.newestCSN));
       }
+      attributes.add("read-ahead-hits", readAheadBuffer.getHits());
+      attributes.add("read-ahead-misses", readAheadBuffer.getMisses());
       return attributes;
     }
 
@@ -308,7 +340,11 @@ class FileReplicaDB
   void clear() throws ChangelogException
   {
     // Remove all persisted data and reset generationId to default value
-    log.clear();
+    synchronized (readAheadBuffer)
+    {
+      log.clear();
+      readAheadBuffer.clear();
+    }
     replicationEnv.resetGenerationId(baseDN);
 
     csnLimits = new CSNLimits(null, null);
@@ -48,12 +48,22 @@ import org.opends.server.replication.server.changelog.file.Log.RepositionableCur
  * record is newly available, a subsequent call to the {@code next()} method will
  * return {@code true} and the record will be available by calling {@code getRecord()}
  * method.
+ * <p>
+ * When the ReplicaDB has a {@link SharedReadAheadBuffer}, the cursor reads the
+ * next records from the buffer while it follows the newest records, and only
+ * reads the log when it lags behind the buffer.
  */
 @NotThreadSafe
 class FileReplicaDBCursor implements DBCursor<UpdateMsg>
 {
-  /** The underlying cursor. */
-  private final RepositionableCursor<CSN, UpdateMsg> cursor;
+  /** The log, used to create the underlying cursor when it is not provided. */
+  private final Log<CSN, UpdateMsg> log;
+  /** The underlying cursor, lazily created when the cursor starts with the read-ahead buffer. */
+  private RepositionableCursor<CSN, UpdateMsg> cursor;
+  /** The reader of the shared read-ahead buffer, null if the ReplicaDB has no buffer. */
+  private final SharedReadAheadBuffer<CSN, UpdateMsg>.Reader readAhead;
+  /** Whether the underlying cursor must be repositioned because records were read from the buffer. */
+  private boolean cursorIsBehind;
 
   /** The next record to return. */
   private Record<CSN, UpdateMsg> nextRecord;
@@ -79,7 +89,35 @@ class FileReplicaDBCursor implements DBCursor<UpdateMsg>
       final RepositionableCursor<CSN, UpdateMsg> cursor,
       final CSN startCSN,
       final PositionStrategy positionStrategy) {
+    this(null, null, cursor, startCSN, positionStrategy);
+  }
+
+  /**
+   * Creates the cursor reading the shared read-ahead buffer before the log.
+   *
+   * @param log
+   *          The log, used to create the underlying cursor if not provided.
+   * @param readAheadBuffer
+   *          The read-ahead buffer of the log.
+   * @param cursor
+   *          The underlying log cursor, or {@code null} to create it only if
+   *          the records cannot be read from the buffer. It must then be
+   *          positioned with the {@code GREATER_THAN_OR_EQUAL_TO_KEY} strategy.
+   * @param startCSN
+   *          The CSN to use as a start point.
+   * @param positionStrategy
+   *          Cursor position strategy.
+   */
+  FileReplicaDBCursor(
+      final Log<CSN, UpdateMsg> log,
+      final SharedReadAheadBuffer<CSN, UpdateMsg> readAheadBuffer,
+      final RepositionableCursor<CSN, UpdateMsg> cursor,
+      final CSN startCSN,
+      final PositionStrategy positionStrategy) {
+    this.log = log;
+    this.readAhead = readAheadBuffer != null ? readAheadBuffer.newReader() : null;
     this.cursor = cursor;
+    this.cursorIsBehind = cursor == null;
     this.lastNonNullCurrentCSN = startCSN;
     this.positionStrategy = positionStrategy;
   }
@@ -95,6 +133,29 @@ class FileReplicaDBCursor implements DBCursor<UpdateMsg>
   @Override
   public boolean next() throws ChangelogException
   {
+    if (readAhead != null)
+    {
+      switch (readAhead.next(lastNonNullCurrentCSN, positionStrategy == ON_MATCHING_KEY))
+      {
+      case FOUND:
+        nextRecord = readAhead.getRecord();
+        lastNonNullCurrentCSN = nextRecord.getKey();
+        positionStrategy = AFTER_MATCHING_KEY;
+        cursorIsBehind = true;
+        return true;
+      case EXHAUSTED:
+        nextRecord = null;
+        return false;
+      default:
+        break;
+      }
+    }
+    if (cursorIsBehind)
+    {
+      cursorIsBehind = false;
+      return nextWhenCursorIsExhaustedOrNotCorrectlyPositionned();
+    }
+
     if (cursor.next())
     {
       nextRecord = cursor.getRecord();
@@ -114,6 +175,10 @@ class FileReplicaDBCursor implements DBCursor<UpdateMsg>
   /** Re-initialize the cursor after the last non null CSN. */
   private boolean nextWhenCursorIsExhaustedOrNotCorrectlyPositionned() throws ChangelogException
   {
+    if (cursor == null)
+    {
+      cursor = log.getCursor();
+    }
     final boolean found = cursor.positionTo(lastNonNullCurrentCSN, GREATER_THAN_OR_EQUAL_TO_KEY, positionStrategy);
     if (found && cursor.next())
     {
@@ -129,7 +194,10 @@ class FileReplicaDBCursor implements DBCursor<UpdateMsg>
   @Override
   public void close()
   {
-    cursor.close();
+    if (cursor != null)
+    {
+      cursor.close();
+    }
   }
 
 }
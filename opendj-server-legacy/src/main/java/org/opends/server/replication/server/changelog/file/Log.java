@@ -69,6 +69,10 @@ import org.opends.server.util.StaticUtils;
  * read-only file and a new empty head log file is opened. There is no limit on the
  * number of read-only files, but they can be purged.
  * <p>
+ * Each read-only log file has a sparse index of its records, named
+ * '[lowkey]_[highkey].idx', which is built when the file is created and is used
+ * to position cursors on the file.
+ * <p>
  * A log is obtained using the {@code Log.openLog()} method and must always be
  * released using the {@code close()} method.
  * <p>
@@ -172,11 +176,11 @@ final class Log<K extends Comparable<K>, V> implements Closeable
 
   /**
    * The exclusive lock used for log rotation and lifecycle operations on this log:
-   * initialize, clear, sync and close.
+   * initialize, clear and close.
    */
   private final Lock exclusiveLock;
 
-  /** The shared lock used for write operations and accessing {@link #logFiles} map. */
+  /** The shared lock used for write and sync operations and accessing {@link #logFiles} map. */
   private final Lock sharedLock;
 
   /**
@@ -505,14 +509,20 @@ final class Log<K extends Comparable<K>, V> implements Closeable
    */
   public void syncToFileSystem() throws ChangelogException
   {
-    exclusiveLock.lock();
+    // Shared lock is enough to prevent rotation and close: records can be appended while syncing
+    sharedLock.lock();
     try
     {
+      if (isClosed)
+      {
+        // closing the log has synchronized it
+        return;
+      }
       getHeadLogFile().syncToFileSystem();
     }
     finally
     {
-      exclusiveLock.unlock();
+      sharedLock.unlock();
     }
   }
 
@@ -965,7 +975,7 @@ final class Log<K extends Comparable<K>, V> implements Closeable
     renameHeadLogFileTo(readOnlyLogFile);
 
     openHeadLogFile();
-    openReadOnlyLogFile(readOnlyLogFile);
+    openReadOnlyLogFile(readOnlyLogFile).initializeIndex();
 
     // Re-enable cursors previously opened on head, with the saved state
     updateOpenedCursorsOnHeadAfterRotation(cursorsOnHead);
@@ -1091,11 +1101,12 @@ final class Log<K extends Comparable<K>, V> implements Closeable
     logFiles.put(recordParser.getMaxKey(), head);
   }
 
-  private void openReadOnlyLogFile(final File logFilePath) throws ChangelogException
+  private LogFile<K, V> openReadOnlyLogFile(final File logFilePath) throws ChangelogException
   {
     final LogFile<K, V> logFile = LogFile.newReadOnlyLogFile(logFilePath, recordParser);
     final Pair<K, K> bounds = getKeyBounds(logFile);
     logFiles.put(bounds.getSecond(), logFile);
+    return logFile;
   }
 
   private void registerCursor(final AbortableLogCursor<K, V> cursor)
@@ -108,7 +108,7 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
     sharedLock = rwLock.readLock();
     createLogFileIfNotExists();
 
-    readerPool = new LogReaderPool<>(logfile, parser);
+    readerPool = new LogReaderPool<>(logfile, parser, !isWriteEnabled);
     if (isWriteEnabled)
     {
       ensureLogFileIsValid(parser);
@@ -313,7 +313,10 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
    * are effectively persisted.
    * <p>
    * After a successful call to this method, it is guaranteed that all records
-   * added to the log are persisted to the file system.
+   * added to the log before the call are persisted to the file system.
+   * <p>
+   * No lock is taken, so that records can be appended while the file system
+   * is synchronizing the ones already added.
    *
    * @throws ChangelogException
    *           If the synchronization fails.
@@ -321,7 +324,6 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
   void syncToFileSystem() throws ChangelogException
   {
     checkLogIsEnabledForWrite();
-    sharedLock.lock();
     try
     {
       writer.sync();
@@ -330,9 +332,23 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
     {
       throw new ChangelogException(ERR_CHANGELOG_UNABLE_TO_SYNC.get(getPath()), e);
     }
-    finally
+  }
+
+  /**
+   * Prepares the reads on this read-only log file, by mapping it in memory and
+   * loading its sparse index, which is built and persisted beside the log file
+   * if it does not exist yet.
+   * <p>
+   * Calling this method is optional, as it is otherwise done by the first read.
+   *
+   * @throws ChangelogException
+   *           If the log file can't be read.
+   */
+  void initializeIndex() throws ChangelogException
+  {
+    if (!isWriteEnabled)
     {
-      sharedLock.unlock();
+      readerPool.initializeReadOnlyAccess();
     }
   }
 
@@ -455,8 +471,8 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
   }
 
   /**
-   * Delete this log file (file is physically removed). Should be called only
-   * when log file is closed.
+   * Delete this log file (file is physically removed), along with its index.
+   * Should be called only when log file is closed.
    *
    * @throws ChangelogException
    *            If log file can't be deleted.
@@ -471,6 +487,8 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
       {
         throw new ChangelogException(ERR_CHANGELOG_UNABLE_TO_DELETE_LOG_FILE.get(getPath()));
       }
+      // A left over index is ignored as it does not match any log file
+      LogFileIndex.getIndexFile(logfile).delete();
     }
     finally
     {
@@ -0,0 +1,249 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.opends.server.replication.server.changelog.api.ChangelogException;
+import org.opends.server.util.StaticUtils;
+
+/**
+ * A sparse index of the records of a read-only log file.
+ * <p>
+ * The index maps the key of the record found at regular block starts of the
+ * log file to the position of these block starts. Looking up a key in the index
+ * gives a block start from which the record can be found by reading only a few
+ * blocks, instead of doing a binary search over the whole file.
+ * <p>
+ * As read-only log files never change, the index is built once and persisted
+ * beside the log file, in a file named after the log file with the
+ * {@code .idx} extension.
+ *
+ * @param <K>
+ *          Type of the key of a record, which must be comparable.
+ */
+final class LogFileIndex<K extends Comparable<K>>
+{
+  /** Number of blocks between two entries of the index, which means an entry for every 4KB of log file. */
+  static final int BLOCKS_PER_ENTRY = 16;
+
+  private static final String INDEX_FILE_SUFFIX = ".idx";
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final Object[] keys;
+
+  private final long[] positions;
+
+  /** The length of the indexed log file, used to detect an index not matching its log file. */
+  private final long logFileLength;
+
+  /** The block size of the indexed log file. */
+  private final int blockSize;
+
+  private LogFileIndex(final Object[] keys, final long[] positions, final long logFileLength, final int blockSize)
+  {
+    this.keys = keys;
+    this.positions = positions;
+    this.logFileLength = logFileLength;
+    this.blockSize = blockSize;
+  }
+
+  /**
+   * Creates an index from the provided keys and positions of block starts.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param keys
+   *          The keys of the records found at each indexed block start, in ascending order.
+   * @param positions
+   *          The positions of the indexed block starts.
+   * @param logFileLength
+   *          The length of the indexed log file.
+   * @param blockSize
+   *          The block size of the indexed log file.
+   * @return the index
+   */
+  static <K extends Comparable<K>> LogFileIndex<K> from(
+      final List<K> keys, final List<Long> positions, final long logFileLength, final int blockSize)
+  {
+    final long[] positionsArray = new long[positions.size()];
+    for (int i = 0; i < positionsArray.length; i++)
+    {
+      positionsArray[i] = positions.get(i);
+    }
+    return new LogFileIndex<>(keys.toArray(), positionsArray, logFileLength, blockSize);
+  }
+
+  /**
+   * Returns the file containing the index of the provided log file.
+   *
+   * @param logFile
+   *          The log file.
+   * @return the index file
+   */
+  static File getIndexFile(final File logFile)
+  {
+    final String name = logFile.getName();
+    final int extension = name.lastIndexOf('.');
+    return new File(logFile.getParentFile(), (extension > 0 ? name.substring(0, extension) : name) + INDEX_FILE_SUFFIX);
+  }
+
+  /**
+   * Reads the index persisted for the provided log file.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param logFile
+   *          The indexed log file.
+   * @param parser
+   *          The parser of the log records, used to decode the keys.
+   * @param blockSize
+   *          The block size of the log file.
+   * @return the index, or {@code null} if no index was persisted or if the
+   *         persisted index does not match the log file
+   */
+  static <K extends Comparable<K>> LogFileIndex<K> read(
+      final File logFile, final RecordParser<K, ?> parser, final int blockSize)
+  {
+    final File indexFile = getIndexFile(logFile);
+    if (!indexFile.isFile())
+    {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile))))
+    {
+      if (input.readInt() != FORMAT_VERSION
+          || input.readInt() != blockSize
+          || input.readLong() != logFile.length())
+      {
+        return null;
+      }
+      final int size = input.readInt();
+      final Object[] keys = new Object[size];
+      final long[] positions = new long[size];
+      for (int i = 0; i < size; i++)
+      {
+        keys[i] = parser.decodeKeyFromString(input.readUTF());
+        positions[i] = input.readLong();
+      }
+      return new LogFileIndex<>(keys, positions, logFile.length(), blockSize);
+    }
+    catch (IOException | ChangelogException | RuntimeException e)
+    {
+      // Corrupted index, let it be rebuilt
+      return null;
+    }
+  }
+
+  /**
+   * Persists this index beside the provided log file.
+   *
+   * @param logFile
+   *          The indexed log file.
+   * @param parser
+   *          The parser of the log records, used to encode the keys.
+   * @throws IOException
+   *           If the index can't be written.
+   */
+  void write(final File logFile, final RecordParser<K, ?> parser) throws IOException
+  {
+    final File indexFile = getIndexFile(logFile);
+    final File tempFile = new File(indexFile.getPath() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+    {
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(blockSize);
+      output.writeLong(logFileLength);
+      output.writeInt(keys.length);
+      for (int i = 0; i < keys.length; i++)
+      {
+        output.writeUTF(parser.encodeKeyToString(getKey(i)));
+        output.writeLong(positions[i]);
+      }
+    }
+    StaticUtils.renameFile(tempFile, indexFile);
+  }
+
+  /**
+   * Returns the position of the closest indexed block start from which the
+   * provided key can be searched, that is the last block start whose record
+   * has a key lower than or equal to the provided key.
+   *
+   * @param key
+   *          The key to search.
+   * @return the file position of the block start, or a negative number if the
+   *         log file contains no record
+   */
+  long getBlockStartBeforeOrAtKey(final K key)
+  {
+    if (keys.length == 0)
+    {
+      return -1;
+    }
+    int low = 0;
+    int high = keys.length - 1;
+    while (low <= high)
+    {
+      final int middle = (low + high) >>> 1;
+      final int comparison = getKey(middle).compareTo(key);
+      if (comparison < 0)
+      {
+        low = middle + 1;
+      }
+      else if (comparison > 0)
+      {
+        high = middle - 1;
+      }
+      else
+      {
+        return positions[middle];
+      }
+    }
+    // the key is lower than all the indexed keys, start from the first record
+    return high >= 0 ? positions[high] : positions[0];
+  }
+
+  /**
+   * Returns the number of entries in this index.
+   *
+   * @return the number of entries
+   */
+  int size()
+  {
+    return keys.length;
+  }
+
+  @SuppressWarnings("unchecked")
+  private K getKey(final int i)
+  {
+    return (K) keys[i];
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "(entries=" + keys.length + ", logFileLength=" + logFileLength + ")";
+  }
+}
@@ -15,17 +15,32 @@
  */
 package org.opends.server.replication.server.changelog.file;
 
+import static org.opends.messages.ReplicationMessages.*;
+
 import java.io.File;
+import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
+import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.opends.server.replication.server.changelog.api.ChangelogException;
 import org.opends.server.util.StaticUtils;
 
-import static org.opends.messages.ReplicationMessages.*;
+import com.forgerock.opendj.util.OperatingSystem;
 
 /**
  * A Pool of readers to a log file.
-
+ * <p>
+ * Readers on a read-only log file share a memory mapping of the file and the
+ * sparse index of its records, which are both set up on first use. The
+ * mapping is explicitly unmapped once the pool is shut down and all its
+ * readers are closed, so that the disk space of a purged file is freed right
+ * away rather than when the mapping is garbage collected. Files are read
+ * through {@link RandomAccessFile} readers when the JVM does not allow to
+ * unmap a file, and on Windows, where a mapped file cannot be deleted.
  *
  * @param <K>
  *          Type of the key of a record, which must be comparable.
@@ -35,11 +50,107 @@ import static org.opends.messages.ReplicationMessages.*;
 // TODO : implement a real pool - reusing readers instead of opening-closing them each time
 class LogReaderPool<K extends Comparable<K>, V>
 {
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Unmaps a mapped file: {@code Unsafe.invokeCleaner()} on Java 9+, {@code Cleaner.clean()} on Java 8. */
+  private static final Method unmapMethod;
+  /** The object {@link #unmapMethod} is invoked on, {@code null} if it takes the mapping as target. */
+  private static final Object unmapTarget;
+
+  static
+  {
+    Method tmpUnmapMethod = null;
+    Object tmpUnmapTarget = null;
+    try
+    {
+      // sun.misc is opened by the jdk.unsupported module, this does not trigger illegal access warnings
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      tmpUnmapMethod = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      tmpUnmapTarget = theUnsafe.get(null);
+    }
+    catch (Exception e)
+    {
+      tmpUnmapMethod = null;
+      tmpUnmapTarget = null;
+      if (System.getProperty("java.version").startsWith("1."))
+      {
+        try
+        {
+          tmpUnmapMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+        }
+        catch (Exception ignored)
+        {
+          // Mapped files cannot be unmapped, they will not be mapped
+        }
+      }
+    }
+    unmapMethod = tmpUnmapMethod;
+    unmapTarget = tmpUnmapTarget;
+  }
+
+  /**
+   * A memory mapping of a read-only file, shared by the readers of the file.
+   * It is unmapped once the pool is shut down and the last reader is closed.
+   */
+  private static final class SharedMapping
+  {
+    private final ByteBuffer buffer;
+    private int nbReaders;
+    private boolean isShutdown;
+
+    private SharedMapping(ByteBuffer buffer)
+    {
+      this.buffer = buffer;
+    }
+
+    private synchronized ByteBuffer acquire()
+    {
+      nbReaders++;
+      return buffer;
+    }
+
+    private synchronized void release()
+    {
+      nbReaders--;
+      unmapIfUnused();
+    }
+
+    private synchronized void shutdown()
+    {
+      isShutdown = true;
+      unmapIfUnused();
+    }
+
+    private void unmapIfUnused()
+    {
+      if (isShutdown && nbReaders == 0)
+      {
+        // no reader may access the buffer once it is unmapped, release() is only called once per reader
+        isShutdown = false;
+        unmap(buffer);
+      }
+    }
+  }
+
   /** The file to read. */
   private final File file;
 
   private final RecordParser<K, V> parser;
 
+  /** Indicates if the file is read-only, which allows to map it and to index it. */
+  private final boolean isReadOnly;
+
+  /** Indicates if the mapping and the index of a read-only file have been set up. */
+  private boolean isReadOnlyAccessInitialized;
+
+  /** The memory mapping of the read-only file, or {@code null} if the file is not mapped. */
+  private SharedMapping mappedFile;
+
+  /** The sparse index of the read-only file. */
+  private LogFileIndex<K> index;
+
   /**
    * Creates a pool of readers for provided file.
    *
@@ -47,11 +158,15 @@ class LogReaderPool<K extends Comparable<K>, V>
    *          The file to read.
    * @param parser
    *          The parser to decode the records read.
+   * @param isReadOnly
+   *          {@code true} if the file is read-only, {@code false} if records
+   *          may still be appended to it.
    */
-  LogReaderPool(File file, RecordParser<K, V> parser)
+  LogReaderPool(File file, RecordParser<K, V> parser, boolean isReadOnly)
   {
     this.file = file;
     this.parser = parser;
+    this.isReadOnly = isReadOnly;
   }
 
   /**
@@ -66,7 +181,109 @@ class LogReaderPool<K extends Comparable<K>, V>
    */
   BlockLogReader<K, V> get() throws ChangelogException
   {
-    return getReader(file);
+    if (!isReadOnly)
+    {
+      return getReader(file, null);
+    }
+    synchronized (this)
+    {
+      initializeReadOnlyAccess();
+      return mappedFile != null ? getMappedReader(index) : getReader(file, index);
+    }
+  }
+
+  /**
+   * Sets up the memory mapping and the index of the read-only file, reading the
+   * index persisted beside the file, or building and persisting it if needed.
+   *
+   * @throws ChangelogException
+   *            If the file can't be read.
+   */
+  synchronized void initializeReadOnlyAccess() throws ChangelogException
+  {
+    if (isReadOnlyAccessInitialized)
+    {
+      return;
+    }
+    mappedFile = mapFile();
+    index = LogFileIndex.read(file, parser, BlockLogReader.BLOCK_SIZE);
+    if (index == null)
+    {
+      try (BlockLogReader<K, V> reader = mappedFile != null ? getMappedReader(null) : getReader(file, null))
+      {
+        index = reader.buildIndex(LogFileIndex.BLOCKS_PER_ENTRY);
+      }
+      catch (IOException e)
+      {
+        throw new ChangelogException(ERR_CHANGELOG_UNABLE_TO_OPEN_READER_ON_LOG_FILE.get(file.getPath()), e);
+      }
+      try
+      {
+        index.write(file, parser);
+      }
+      catch (IOException e)
+      {
+        // The index is still used, it will be rebuilt next time the file is opened
+        logger.warn(WARN_CHANGELOG_UNABLE_TO_WRITE_LOG_FILE_INDEX.get(
+            LogFileIndex.getIndexFile(file).getPath(), StaticUtils.stackTraceToSingleLineString(e)));
+      }
+    }
+    isReadOnlyAccessInitialized = true;
+  }
+
+  /** Returns a memory mapping of the whole file, or null if the file must not be mapped. */
+  private SharedMapping mapFile() throws ChangelogException
+  {
+    if (unmapMethod == null || OperatingSystem.isWindows() || file.length() > Integer.MAX_VALUE)
+    {
+      return null;
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"))
+    {
+      final FileChannel channel = randomAccessFile.getChannel();
+      // the mapping remains valid after the channel is closed
+      return new SharedMapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    catch (IOException e)
+    {
+      throw new ChangelogException(ERR_CHANGELOG_UNABLE_TO_OPEN_READER_ON_LOG_FILE.get(file.getPath()), e);
+    }
+  }
+
+  /** Returns a reader on the memory mapping of this log, which releases the mapping when closed. */
+  private BlockLogReader<K, V> getMappedReader(LogFileIndex<K> index)
+  {
+    final SharedMapping mapping = mappedFile;
+    return BlockLogReader.newMappedReader(file, mapping.acquire(), new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        mapping.release();
+      }
+    }, parser, index);
+  }
+
+  /** Releases the memory of a mapped file, which must not be accessed any more. */
+  private static void unmap(ByteBuffer mappedFile)
+  {
+    try
+    {
+      if (unmapTarget != null)
+      {
+        unmapMethod.invoke(unmapTarget, mappedFile);
+      }
+      else
+      {
+        final Object cleaner = unmapMethod.invoke(mappedFile);
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    }
+    catch (Exception e)
+    {
+      // the mapping will be released once garbage collected
+      logger.traceException(e);
+    }
   }
 
   /**
@@ -84,11 +301,11 @@ class LogReaderPool<K extends Comparable<K>, V>
   }
 
   /** Returns a random access file to read this log. */
-  private BlockLogReader<K, V> getReader(File file) throws ChangelogException
+  private BlockLogReader<K, V> getReader(File file, LogFileIndex<K> index) throws ChangelogException
   {
     try
     {
-      return BlockLogReader.newReader(file, new RandomAccessFile(file, "r"), parser) ;
+      return BlockLogReader.newReader(file, new RandomAccessFile(file, "r"), parser, index);
     }
     catch (Exception e)
     {
@@ -100,9 +317,16 @@ class LogReaderPool<K extends Comparable<K>, V>
    * Shutdown this pool, releasing all files handles opened
    * on the file.
    */
-  void shutdown()
+  synchronized void shutdown()
   {
-    // Nothing to do yet as no file handle is kept opened.
+    // No file handle is kept opened, the mapping is released once the readers still open are closed.
+    if (mappedFile != null)
+    {
+      mappedFile.shutdown();
+      mappedFile = null;
+    }
+    index = null;
+    isReadOnlyAccessInitialized = false;
   }
 
 }
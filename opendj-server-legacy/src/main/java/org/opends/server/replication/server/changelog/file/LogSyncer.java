@@ -0,0 +1,345 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.server.config.meta.ReplicationServerCfgDefn.ChangelogDurability;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.replication.server.changelog.api.ChangelogException;
+
+/**
+ * Synchronizes to the file system the records appended to logs, according to
+ * a {@link ChangelogDurability} policy.
+ * <p>
+ * With the {@code STRICT} durability, each appending thread synchronizes the
+ * log it wrote to.
+ * <p>
+ * With the {@code GROUP_COMMIT} durability, the appending threads register the
+ * log they wrote to in the current group of logs, then wait for this group to
+ * be synchronized. A single thread synchronizes all the logs of the group, once
+ * each, and then releases the waiting threads. Records appended while a group
+ * is being synchronized join the next group, so a single synchronization makes
+ * durable the records appended by many threads.
+ * <p>
+ * With the {@code ASYNC} durability, the logs are registered in the same way,
+ * but the appending threads do not wait for the synchronization.
+ * <p>
+ * Appending threads which need not wait for their records to be durable only
+ * register the log they wrote to, as with the {@code ASYNC} durability, unless
+ * the durability is {@code STRICT}.
+ */
+final class LogSyncer
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** A group of logs to synchronize together, which the appending threads can wait for. */
+  private static final class SyncGroup
+  {
+    private final Set<Log<?, ?>> logs = new LinkedHashSet<>();
+    @GuardedBy("this")
+    private boolean isDone;
+    @GuardedBy("this")
+    private ChangelogException failure;
+
+    /**
+     * Synchronizes the logs of this group, then releases the waiting threads.
+     *
+     * @return the first failure, or {@code null} if all the logs were synchronized
+     */
+    private ChangelogException sync()
+    {
+      ChangelogException firstFailure = null;
+      for (Log<?, ?> log : logs)
+      {
+        try
+        {
+          log.syncToFileSystem();
+        }
+        catch (ChangelogException e)
+        {
+          if (firstFailure == null)
+          {
+            firstFailure = e;
+          }
+          else
+          {
+            logger.traceException(e);
+          }
+        }
+      }
+      complete(firstFailure);
+      return firstFailure;
+    }
+
+    private synchronized void complete(final ChangelogException failure)
+    {
+      this.failure = failure;
+      this.isDone = true;
+      notifyAll();
+    }
+
+    private synchronized void await() throws ChangelogException
+    {
+      try
+      {
+        while (!isDone)
+        {
+          wait();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // the records are written, only their durability is not known
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (failure != null)
+      {
+        throw failure;
+      }
+    }
+  }
+
+  /** Lock protecting the open group, also used to wake up the sync thread. */
+  private final Object lock = new Object();
+
+  /** The group in which appending threads currently register their logs. */
+  @GuardedBy("lock")
+  private SyncGroup openGroup = new SyncGroup();
+
+  @GuardedBy("lock")
+  private SyncThread syncThread;
+
+  @GuardedBy("lock")
+  private boolean isShutdown;
+
+  private volatile ChangelogDurability durability = ChangelogDurability.STRICT;
+
+  /** The maximum time a group is kept open before being synchronized. */
+  private volatile long syncDelayInMillis;
+
+  /**
+   * Sets the durability policy. Can be called while records are being appended.
+   *
+   * @param durability
+   *          the durability policy
+   * @param syncDelayInMillis
+   *          the maximum time in milliseconds that a record can wait before
+   *          being synchronized, when the records are synchronized in groups
+   */
+  void setDurability(final ChangelogDurability durability, final long syncDelayInMillis)
+  {
+    this.syncDelayInMillis = syncDelayInMillis;
+    this.durability = durability;
+    if (durability != ChangelogDurability.STRICT)
+    {
+      synchronized (lock)
+      {
+        if (syncThread == null && !isShutdown)
+        {
+          syncThread = new SyncThread();
+          syncThread.start();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the durability policy.
+   *
+   * @return the durability policy
+   */
+  ChangelogDurability getDurability()
+  {
+    return durability;
+  }
+
+  /**
+   * Makes the records appended to the provided log durable, as required by the
+   * durability policy. Depending on this policy, this method returns once the
+   * records are synchronized to the file system, or immediately.
+   *
+   * @param log
+   *          the log to which records were appended by the current thread
+   * @throws ChangelogException
+   *           If the synchronization fails.
+   */
+  void awaitDurable(final Log<?, ?> log) throws ChangelogException
+  {
+    final ChangelogDurability policy = durability;
+    final SyncGroup group = policy != ChangelogDurability.STRICT ? register(log) : null;
+    if (group == null)
+    {
+      log.syncToFileSystem();
+    }
+    else if (policy == ChangelogDurability.GROUP_COMMIT)
+    {
+      group.await();
+    }
+  }
+
+  /**
+   * Makes the records appended to the provided log durable, as required by the
+   * durability policy, but without waiting for the records to be synchronized
+   * with a group of logs. With the {@code STRICT} durability, this method still
+   * returns once the records are synchronized to the file system.
+   *
+   * @param log
+   *          the log to which records were appended by the current thread
+   * @throws ChangelogException
+   *           If the synchronization fails.
+   */
+  void scheduleSync(final Log<?, ?> log) throws ChangelogException
+  {
+    if (durability == ChangelogDurability.STRICT || register(log) == null)
+    {
+      log.syncToFileSystem();
+    }
+  }
+
+  /**
+   * Registers the provided log in the open group.
+   *
+   * @return the open group, or {@code null} if this syncer is shut down
+   */
+  private SyncGroup register(final Log<?, ?> log)
+  {
+    synchronized (lock)
+    {
+      if (isShutdown)
+      {
+        return null;
+      }
+      if (openGroup.logs.isEmpty())
+      {
+        lock.notifyAll();
+      }
+      openGroup.logs.add(log);
+      return openGroup;
+    }
+  }
+
+  /**
+   * Stops the sync thread, after having synchronized the logs registered so
+   * far. Once shut down, the records are synchronized by the appending threads.
+   */
+  void shutdown()
+  {
+    final SyncThread thread;
+    synchronized (lock)
+    {
+      if (isShutdown)
+      {
+        return;
+      }
+      isShutdown = true;
+      thread = syncThread;
+      syncThread = null;
+      lock.notifyAll();
+    }
+    if (thread != null)
+    {
+      thread.initiateShutdown();
+      try
+      {
+        thread.join();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    // sync the logs registered after the thread has stopped
+    syncOpenGroup();
+  }
+
+  /** Synchronizes the open group, and opens a new one. */
+  private void syncOpenGroup()
+  {
+    final SyncGroup group;
+    synchronized (lock)
+    {
+      group = openGroup;
+      openGroup = new SyncGroup();
+    }
+    if (!group.logs.isEmpty())
+    {
+      final ChangelogException failure = group.sync();
+      if (failure != null && durability == ChangelogDurability.ASYNC)
+      {
+        // nobody is waiting for this group, report the failure here
+        logger.error(failure.getMessageObject());
+      }
+    }
+  }
+
+  /** The thread synchronizing the groups of logs. */
+  private final class SyncThread extends DirectoryThread
+  {
+    private SyncThread()
+    {
+      super("Changelog DB syncer");
+    }
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        while (waitForOpenGroup())
+        {
+          syncOpenGroup();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // shutdown initiated
+      }
+    }
+
+    /**
+     * Waits until some logs are registered in the open group, then keeps the
+     * group open for the sync delay.
+     */
+    private boolean waitForOpenGroup() throws InterruptedException
+    {
+      synchronized (lock)
+      {
+        while (openGroup.logs.isEmpty() && !isShutdown)
+        {
+          lock.wait();
+        }
+        final long delayInMillis = syncDelayInMillis;
+        if (delayInMillis > 0)
+        {
+          final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayInMillis);
+          long remaining;
+          while (!isShutdown && (remaining = deadline - System.nanoTime()) > 0)
+          {
+            TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+          }
+        }
+        return !isShutdown;
+      }
+    }
+  }
+}
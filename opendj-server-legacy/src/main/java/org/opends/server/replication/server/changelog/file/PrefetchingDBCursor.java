@@ -0,0 +1,268 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.opends.server.replication.server.changelog.api.ChangelogException;
+import org.opends.server.replication.server.changelog.api.DBCursor;
+
+/**
+ * A cursor reading the next records of another cursor ahead, on a thread of
+ * the provided executor, while the records already read are being consumed.
+ * <p>
+ * The records are read in batches: once a batch is returned to the consumer,
+ * the next batch is read in the background. Like the other changelog cursors,
+ * the cursor can return {@code true} again after being exhausted: when the
+ * underlying cursor is exhausted, the next call to {@link #next()} reads it
+ * again inline, which costs the same as reading the underlying cursor directly.
+ * <p>
+ * The underlying cursor is only accessed by one thread at a time: either by the
+ * background task, or by the consumer when no task is running.
+ *
+ * @param <T>
+ *          Type of the records returned by the cursor
+ */
+@NotThreadSafe
+class PrefetchingDBCursor<T> implements DBCursor<T>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum number of records read ahead by a background task. */
+  static final int BATCH_SIZE = 256;
+
+  /** Records read from the underlying cursor by a task. */
+  private static final class Batch<T>
+  {
+    private final List<T> records;
+    /** Whether the underlying cursor was exhausted before filling the batch. */
+    private final boolean exhausted;
+    private final ChangelogException error;
+
+    private Batch(List<T> records, boolean exhausted, ChangelogException error)
+    {
+      this.records = records;
+      this.exhausted = exhausted;
+      this.error = error;
+    }
+  }
+
+  private final DBCursor<T> cursor;
+  private final Executor executor;
+
+  /** The records returned to the consumer, the current record being at {@code index}. */
+  private List<T> batch = Collections.emptyList();
+  private int index;
+  private T record;
+  /** The task reading the next batch, or {@code null} if none is running. */
+  private Future<Batch<T>> nextBatch;
+  /** The error raised by the underlying cursor after the records of the current batch. */
+  private ChangelogException pendingError;
+  /** Asks the running task to stop early, when the cursor is closed. */
+  private volatile boolean closed;
+
+  /**
+   * Creates a cursor reading the provided cursor ahead.
+   *
+   * @param cursor
+   *          the underlying cursor, which is closed with this cursor
+   * @param executor
+   *          the executor running the read-ahead tasks
+   */
+  PrefetchingDBCursor(DBCursor<T> cursor, Executor executor)
+  {
+    this.cursor = cursor;
+    this.executor = executor;
+  }
+
+  @Override
+  public T getRecord()
+  {
+    return record;
+  }
+
+  @Override
+  public boolean next() throws ChangelogException
+  {
+    if (index + 1 < batch.size())
+    {
+      record = batch.get(++index);
+      return true;
+    }
+
+    if (pendingError != null)
+    {
+      final ChangelogException e = pendingError;
+      pendingError = null;
+      record = null;
+      throw e;
+    }
+    final Batch<T> result;
+    if (nextBatch != null)
+    {
+      result = awaitNextBatch();
+    }
+    else
+    {
+      // nothing was read ahead: only read the next record to return it as soon as possible
+      result = read(1);
+    }
+    if (result.error != null && result.records.isEmpty())
+    {
+      record = null;
+      throw result.error;
+    }
+
+    batch = result.records;
+    pendingError = result.error;
+    index = 0;
+    if (batch.isEmpty())
+    {
+      record = null;
+      return false;
+    }
+    record = batch.get(0);
+    if (!result.exhausted)
+    {
+      readNextBatchAhead();
+    }
+    return true;
+  }
+
+  private Batch<T> awaitNextBatch() throws ChangelogException
+  {
+    try
+    {
+      return nextBatch.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new ChangelogException(e);
+    }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      throw new ChangelogException(cause);
+    }
+    finally
+    {
+      nextBatch = null;
+    }
+  }
+
+  private void readNextBatchAhead()
+  {
+    final FutureTask<Batch<T>> task = new FutureTask<>(new Callable<Batch<T>>()
+    {
+      @Override
+      public Batch<T> call()
+      {
+        return read(BATCH_SIZE);
+      }
+    });
+    try
+    {
+      executor.execute(task);
+      nextBatch = task;
+    }
+    catch (RejectedExecutionException e)
+    {
+      // the changelog is shutting down: the next records will be read inline
+      logger.traceException(e);
+    }
+  }
+
+  /** Reads up to {@code maxRecords} records from the underlying cursor. */
+  private Batch<T> read(int maxRecords)
+  {
+    final List<T> records = new ArrayList<>(maxRecords);
+    try
+    {
+      while (records.size() < maxRecords && !closed)
+      {
+        if (!cursor.next())
+        {
+          return new Batch<>(records, true, null);
+        }
+        records.add(cursor.getRecord());
+      }
+      return new Batch<>(records, false, null);
+    }
+    catch (ChangelogException e)
+    {
+      // return the records read so far, the error will be raised after them
+      return new Batch<>(records, true, e);
+    }
+  }
+
+  @Override
+  public void close()
+  {
+    closed = true;
+    if (nextBatch != null)
+    {
+      // wait for the task to stop using the underlying cursor before closing it
+      boolean interrupted = false;
+      while (nextBatch != null)
+      {
+        try
+        {
+          nextBatch.get();
+          nextBatch = null;
+        }
+        catch (InterruptedException e)
+        {
+          interrupted = true;
+        }
+        catch (ExecutionException e)
+        {
+          logger.traceException(e);
+          nextBatch = null;
+        }
+      }
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    batch = Collections.emptyList();
+    record = null;
+    pendingError = null;
+    cursor.close();
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + " cursor=" + cursor;
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A ring buffer holding the most recent records appended to a log, shared by
+ * all the cursors reading this log.
+ * <p>
+ * The buffer always contains a contiguous suffix of the log: cursors positioned
+ * within this suffix read the next records from memory, without reading nor
+ * decoding them from the log files again. Cursors lagging behind the suffix
+ * must read the log.
+ * <p>
+ * Records are appended, purged and cleared by the writer of the log, in the
+ * same order as in the log. Cursors read the buffer without locks: each slot
+ * records the sequence number of its record, so that cursors can detect that a
+ * slot was overwritten while they were reading it.
+ *
+ * @param <K>
+ *          Type of the keys of the records, ordered as in the log
+ * @param <V>
+ *          Type of the values of the records
+ */
+@ThreadSafe
+final class SharedReadAheadBuffer<K extends Comparable<K>, V>
+{
+  /** Result of reading the buffer. */
+  enum ReadResult
+  {
+    /** The next record was found in the buffer. */
+    FOUND,
+    /** The cursor is positioned on the newest record, there is no next record yet. */
+    EXHAUSTED,
+    /** The buffer cannot tell which record is next: the log must be read. */
+    NOT_IN_BUFFER
+  }
+
+  /** A record of the buffer, with its sequence number. */
+  private static final class Slot<K, V>
+  {
+    private final long seq;
+    private final Record<K, V> record;
+
+    private Slot(long seq, Record<K, V> record)
+    {
+      this.seq = seq;
+      this.record = record;
+    }
+  }
+
+  /**
+   * A reader of the buffer, owned by one cursor. It remembers where the last
+   * record was found to avoid searching the buffer for the next one.
+   */
+  final class Reader
+  {
+    /** Sequence number of the record following the last record read. */
+    private long hintSeq = -1;
+    private Record<K, V> record;
+
+    /**
+     * Reads the record following the provided key.
+     *
+     * @param key
+     *          the key of the last record read by the cursor
+     * @param includeKey
+     *          whether the record with the provided key must be returned
+     * @return whether the next record was found, or whether the log must be
+     *         read
+     */
+    ReadResult next(K key, boolean includeKey)
+    {
+      final ReadResult result = next0(key, includeKey);
+      if (result == ReadResult.NOT_IN_BUFFER)
+      {
+        misses.increment();
+        hintSeq = -1;
+        record = null;
+      }
+      else
+      {
+        hits.increment();
+      }
+      return result;
+    }
+
+    private ReadResult next0(K key, boolean includeKey)
+    {
+      if (key == null)
+      {
+        return ReadResult.NOT_IN_BUFFER;
+      }
+      final long end = nextSeq;
+      final long start = Math.max(firstValidSeq, end - slots.length());
+      if (start >= end)
+      {
+        return ReadResult.NOT_IN_BUFFER;
+      }
+
+      long seq;
+      if (!includeKey && start < hintSeq && hintSeq <= end && isKeyAt(hintSeq - 1, key))
+      {
+        seq = hintSeq;
+      }
+      else
+      {
+        seq = search(start, end, key, includeKey);
+        if (seq < 0)
+        {
+          return ReadResult.NOT_IN_BUFFER;
+        }
+      }
+
+      if (seq == end)
+      {
+        hintSeq = seq;
+        record = null;
+        return ReadResult.EXHAUSTED;
+      }
+      final Record<K, V> found = recordAt(seq);
+      if (found == null)
+      {
+        return ReadResult.NOT_IN_BUFFER;
+      }
+      hintSeq = seq + 1;
+      record = found;
+      return ReadResult.FOUND;
+    }
+
+    /**
+     * Returns the record found by the last call to {@link #next(Comparable, boolean)}.
+     *
+     * @return the record found, or {@code null} if none was found
+     */
+    Record<K, V> getRecord()
+    {
+      return record;
+    }
+  }
+
+  private final AtomicReferenceArray<Slot<K, V>> slots;
+  private final int mask;
+  /** Sequence number of the next record to append. */
+  private volatile long nextSeq;
+  /** Records with lower sequence numbers were purged or cleared. */
+  private volatile long firstValidSeq;
+  /** Key of the newest record appended, only accessed by the writer. */
+  private K newestKey;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Creates a buffer.
+   *
+   * @param capacity
+   *          the number of records kept in the buffer, rounded up to a power of two
+   */
+  SharedReadAheadBuffer(int capacity)
+  {
+    final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * Appends a record to this buffer. It must be called after appending the
+   * record to the log, under the same lock. Like the log, the buffer ignores
+   * records which would break the key ordering.
+   *
+   * @param record
+   *          the record appended to the log
+   */
+  synchronized void append(Record<K, V> record)
+  {
+    if (newestKey != null && record.getKey().compareTo(newestKey) <= 0)
+    {
+      return;
+    }
+    final long seq = nextSeq;
+    slots.set((int) (seq & mask), new Slot<>(seq, record));
+    newestKey = record.getKey();
+    nextSeq = seq + 1;
+  }
+
+  /**
+   * Removes the records older than the provided key from this buffer.
+   *
+   * @param key
+   *          the oldest key remaining in the log
+   */
+  synchronized void purgeUpTo(K key)
+  {
+    long seq = Math.max(firstValidSeq, nextSeq - slots.length());
+    while (seq < nextSeq)
+    {
+      final Slot<K, V> slot = slots.get((int) (seq & mask));
+      if (slot.record.getKey().compareTo(key) >= 0)
+      {
+        break;
+      }
+      seq++;
+    }
+    firstValidSeq = seq;
+  }
+
+  /** Removes all the records from this buffer, when the log is cleared. */
+  synchronized void clear()
+  {
+    firstValidSeq = nextSeq;
+    newestKey = null;
+  }
+
+  /**
+   * Returns a new reader for a cursor.
+   *
+   * @return a new reader
+   */
+  Reader newReader()
+  {
+    return new Reader();
+  }
+
+  /**
+   * Returns the number of times cursors read the next record from this buffer.
+   *
+   * @return the number of reads served by this buffer
+   */
+  long getHits()
+  {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of times cursors had to read the log.
+   *
+   * @return the number of reads not served by this buffer
+   */
+  long getMisses()
+  {
+    return misses.sum();
+  }
+
+  /** Returns the record with the provided sequence number, or null if it was overwritten. */
+  private Record<K, V> recordAt(long seq)
+  {
+    final Slot<K, V> slot = slots.get((int) (seq & mask));
+    return slot != null && slot.seq == seq ? slot.record : null;
+  }
+
+  private boolean isKeyAt(long seq, K key)
+  {
+    final Record<K, V> record = recordAt(seq);
+    return record != null && record.getKey().compareTo(key) == 0;
+  }
+
+  /**
+   * Searches the sequence number of the first record after the provided key.
+   *
+   * @return the sequence number of the next record, {@code end} if the key is
+   *         the newest one, or -1 if the buffer cannot tell: records may have
+   *         been overwritten, or the buffer may not contain the records
+   *         immediately following the key
+   */
+  private long search(long start, long end, K key, boolean includeKey)
+  {
+    long low = start;
+    long high = end;
+    while (low < high)
+    {
+      final long middle = (low + high) >>> 1;
+      final Record<K, V> record = recordAt(middle);
+      if (record == null)
+      {
+        return -1;
+      }
+      final int cmp = record.getKey().compareTo(key);
+      if (cmp < 0 || (cmp == 0 && !includeKey))
+      {
+        low = middle + 1;
+      }
+      else
+      {
+        high = middle;
+      }
+    }
+
+    if (low == start)
+    {
+      // the oldest record of the buffer may not immediately follow the key,
+      // unless it is the requested key itself
+      final Record<K, V> oldest = recordAt(start);
+      if (oldest == null || !includeKey || oldest.getKey().compareTo(key) != 0)
+      {
+        return -1;
+      }
+    }
+    return low;
+  }
+}
@@ -141,10 +141,11 @@ class ReplInputStream extends InputStream
 
     byte[] b = new byte[1];
 
-    if (read(b, 0, 1) == 0) {
+    int read = read(b, 0, 1);
+    if (read == 0) {
       throw new IOException();
     }
 
-    return b[0];
+    return read < 0 ? -1 : b[0] & 0xFF;
   }
 }
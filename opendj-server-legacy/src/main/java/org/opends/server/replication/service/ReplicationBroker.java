@@ -1081,6 +1081,8 @@ public class ReplicationBroker
       int timeoutMS = MultimasterReplication.getConnectionTimeoutMS();
       socket.connect(HostPort.valueOf(serverURL).toInetSocketAddress(), timeoutMS);
       newSession = replSessionSecurity.createClientSession(socket, timeoutMS);
+      newSession.setCompressionEnabled(config.isSessionCompressionEnabled());
+      newSession.setMaxSendDelay(config.getMaxSessionSendDelay());
       boolean isSslEncryption = replSessionSecurity.isSslEncryption();
 
       // Send our ServerStartMsg.
@@ -2821,6 +2823,26 @@ public class ReplicationBroker
     return session != null ? session.isEncrypted() : false;
   }
 
+  /**
+   * Determine whether the messages sent to the replication server are compressed.
+   * @return true if the messages are compressed, false otherwise.
+   */
+  public boolean isSessionCompressed()
+  {
+    final Session session = connectedRS.get().session;
+    return session != null && session.isCompressed();
+  }
+
+  /**
+   * Returns the compression ratio of the messages sent to the replication server.
+   * @return the compression ratio, 1 if the messages are not compressed.
+   */
+  public double getSessionCompressionRatio()
+  {
+    final Session session = connectedRS.get().session;
+    return session != null ? session.getCompressionRatio() : 1.0;
+  }
+
   /**
    * Signals the RS we just entered a new status.
    * @param newStatus The status the local DS just entered
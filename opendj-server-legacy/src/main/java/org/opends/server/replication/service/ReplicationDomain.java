@@ -1310,7 +1310,7 @@ public abstract class ReplicationDomain
      * @param serverId serverId of the acknowledger/receiver/importer server.
      * @param numAck   id of the message received.
      */
-    private void setAckVal(int serverId, int numAck)
+    private synchronized void setAckVal(int serverId, int numAck)
     {
       if (logger.isTraceEnabled())
       {
@@ -1331,6 +1331,18 @@ public abstract class ReplicationDomain
           minMsgReceived = nbMsgReceived;
         }
       }
+      notifyAll();
+    }
+
+    /**
+     * Waits for an EntryMsg to be acknowledged, or for the provided timeout to
+     * expire.
+     * @param timeout The maximum time to wait in milliseconds.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    private synchronized void waitForAck(long timeout) throws InterruptedException
+    {
+      wait(timeout);
     }
 
     /**
@@ -2003,7 +2015,7 @@ public abstract class ReplicationDomain
 
   /**
    * Count the number of entries in the provided byte[].
-   * This is based on the hypothesis that the entries are separated
+   * For LDIF, this is based on the hypothesis that the entries are separated
    * by a "\n\n" String.
    *
    * @param   entryBytes the set of bytes containing one or more entries.
@@ -2011,6 +2023,11 @@ public abstract class ReplicationDomain
    */
   private int countEntryLimits(byte[] entryBytes, int pos, int length)
   {
+    if (EntryMsg.containsBinaryEntries(entryBytes, pos, length))
+    {
+      return EntryMsg.countBinaryEntries(entryBytes, pos, length);
+    }
+
     int entryCount = 0;
     int count = 0;
     while (count<=length-2)
@@ -2088,7 +2105,7 @@ public abstract class ReplicationDomain
         }
 
         // our export is too far beyond the slowest importer - let's wait
-        try { Thread.sleep(100); }
+        try { ieCtx.waitForAck(100); }
         catch(Exception e) { /* do nothing */ }
 
         // process any connection error
@@ -2146,6 +2163,29 @@ public abstract class ReplicationDomain
     }
   }
 
+  /**
+   * Returns whether all the replicas initialized by the export in progress can
+   * import entries in binary form, as described in {@link EntryMsg}.
+   *
+   * @return true if the entries can be exported in binary form.
+   */
+  protected boolean canExportBinaryEntries()
+  {
+    final ImportExportContext ieCtx = importExportContext.get();
+    if (ieCtx == null || ieCtx.startList.isEmpty())
+    {
+      return false;
+    }
+    for (int serverId : ieCtx.startList)
+    {
+      if (getProtocolVersion(serverId) < ProtocolVersion.REPLICATION_PROTOCOL_V10)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Initializes asynchronously this domain from a remote source server.
    * Before returning from this call, for the provided task :
@@ -2674,6 +2714,24 @@ public abstract class ReplicationDomain
     return broker != null && broker.isSessionEncrypted();
   }
 
+  /**
+   * Determine whether the messages sent to the replication server are compressed.
+   * @return true if the messages are compressed, false otherwise.
+   */
+  boolean isSessionCompressed()
+  {
+    return broker != null && broker.isSessionCompressed();
+  }
+
+  /**
+   * Returns the compression ratio of the messages sent to the replication server.
+   * @return the compression ratio, 1 if the messages are not compressed.
+   */
+  double getSessionCompressionRatio()
+  {
+    return broker != null ? broker.getSessionCompressionRatio() : 1.0;
+  }
+
   /**
    * Check if the domain is connected to a ReplicationServer.
    *
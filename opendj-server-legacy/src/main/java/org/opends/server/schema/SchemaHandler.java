@@ -53,6 +53,7 @@ import org.forgerock.opendj.config.ClassPropertyDefinition;
 import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.ldap.AttributeDescription;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.Entry;
 import org.forgerock.opendj.ldap.ModificationType;
 import org.forgerock.opendj.ldap.ResultCode;
@@ -1079,6 +1080,8 @@ public final class SchemaHandler
     rejectSchemaWithWarnings(newSchema);
     schema = newSchema.asNonStrictSchema();
     Schema.setDefaultSchema(schema);
+    // the DNs cached with the old schema will never be looked up again
+    DN.clearSharedCache();
   }
 
   private void rejectSchemaWithWarnings(Schema newSchema) throws DirectoryException
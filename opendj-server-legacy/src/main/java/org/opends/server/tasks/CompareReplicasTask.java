@@ -0,0 +1,115 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.tasks;
+
+import static org.opends.messages.TaskMessages.*;
+import static org.opends.server.config.ConfigConstants.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.opends.server.backends.task.Task;
+import org.opends.server.backends.task.TaskState;
+import org.opends.server.replication.plugin.LDAPReplicationDomain;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+
+/**
+ * This class provides an implementation of a Directory Server task that can
+ * be used to compare the entries of two replicas of a replication domain,
+ * without exporting them.
+ * <p>
+ * Each replica maintains a hash tree of its entries. Run without a remote
+ * tree, the task returns the tree of the local replica. Run with the tree of
+ * another replica, the task also returns the buckets of the trees which differ
+ * and the DNs of the local entries of these buckets: running the task the
+ * other way around, on the other replica, lists the entries of the other
+ * replica which can differ.
+ */
+public class CompareReplicasTask extends Task
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum number of divergent entries listed in the task entry. */
+  private static final int MAX_DIVERGENT_ENTRIES = 1000;
+
+  private LDAPReplicationDomain domain;
+  private String remoteTree;
+
+  @Override
+  public LocalizableMessage getDisplayName() {
+    return INFO_TASK_COMPARE_REPLICAS_NAME.get();
+  }
+
+  @Override public void initializeTask() throws DirectoryException
+  {
+    if (TaskState.isDone(getTaskState()))
+    {
+      return;
+    }
+
+    final Entry taskEntry = getTaskEntry();
+    final DN baseDN = DN.valueOf(TaskUtils.getSingleValueString(
+        taskEntry.getAllAttributes(ATTR_TASK_COMPARE_REPLICAS_DOMAIN_DN)));
+    domain = LDAPReplicationDomain.retrievesReplicationDomain(baseDN);
+    remoteTree = TaskUtils.getSingleValueString(taskEntry.getAllAttributes(ATTR_TASK_COMPARE_REPLICAS_REMOTE_TREE));
+  }
+
+  @Override
+  protected TaskState runTask()
+  {
+    try
+    {
+      final String localTree = domain.getEncodedEntryHashTree();
+      if (localTree == null)
+      {
+        logger.error(ERR_TASK_COMPARE_REPLICAS_NO_HASH_TREE, domain.getBaseDN());
+        return TaskState.STOPPED_BY_ERROR;
+      }
+      replaceAttributeValue(ATTR_TASK_COMPARE_REPLICAS_LOCAL_TREE, localTree);
+
+      if (remoteTree != null)
+      {
+        final List<String> divergentBuckets = new ArrayList<>();
+        final List<DN> divergentEntries = new ArrayList<>();
+        if (!domain.compareEntryHashTrees(remoteTree, divergentBuckets, divergentEntries, MAX_DIVERGENT_ENTRIES))
+        {
+          logger.error(ERR_TASK_COMPARE_REPLICAS_NO_HASH_TREE, domain.getBaseDN());
+          return TaskState.STOPPED_BY_ERROR;
+        }
+        replaceAttributeValues(ATTR_TASK_COMPARE_REPLICAS_DIVERGENT_BUCKET, divergentBuckets);
+        replaceAttributeValues(ATTR_TASK_COMPARE_REPLICAS_DIVERGENT_ENTRY, divergentEntries);
+      }
+      return TaskState.COMPLETED_SUCCESSFULLY;
+    }
+    catch (DecodeException e)
+    {
+      logger.error(ERR_TASK_COMPARE_REPLICAS_INVALID_TREE,
+          ATTR_TASK_COMPARE_REPLICAS_REMOTE_TREE, e.getMessageObject());
+      return TaskState.STOPPED_BY_ERROR;
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_TASK_COMPARE_REPLICAS_FAILED, domain.getBaseDN(), e.getMessageObject());
+      return TaskState.STOPPED_BY_ERROR;
+    }
+  }
+}
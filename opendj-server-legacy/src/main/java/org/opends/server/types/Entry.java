@@ -3289,6 +3289,11 @@ public class Entry
       {
         for (Attribute a : attrList)
         {
+          if (a.isVirtual() || a.isEmpty())
+          {
+            continue;
+          }
+
           buffer.appendBytes(getBytes(a.getAttributeDescription().toString()));
           buffer.appendByte(0x00);
 
@@ -3711,6 +3716,15 @@ public class Entry
     }
 
 
+    // Give the entry as is to the sink, if any, rather than writing LDIF.
+    LDIFExportConfig.EntrySink entrySink = exportConfig.getEntrySink();
+    if (entrySink != null)
+    {
+      entrySink.writeEntry(this);
+      return true;
+    }
+
+
     // Get the information necessary to write the LDIF.
     BufferedWriter writer     = exportConfig.getWriter();
     int            wrapColumn = exportConfig.getWrapColumn();
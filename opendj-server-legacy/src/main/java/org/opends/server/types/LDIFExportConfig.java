@@ -103,6 +103,9 @@ public final class LDIFExportConfig extends OperationConfig
   /** The set of attribute types that should be included in the export. */
   private Set<AttributeType> includeAttributes;
 
+  /** The sink receiving the exported entries instead of the LDIF writer, if any. */
+  private EntrySink entrySink;
+
   /**
    * Creates a new LDIF export configuration that will write to the
    * specified LDIF file.
@@ -294,6 +297,32 @@ public final class LDIFExportConfig extends OperationConfig
     this.invokeExportPlugins = invokeExportPlugins;
   }
 
+  /**
+   * Retrieves the sink receiving the exported entries instead of the
+   * LDIF writer.
+   *
+   * @return  The sink receiving the exported entries, or
+   *          <CODE>null</CODE> if the entries are written as LDIF.
+   */
+  public EntrySink getEntrySink()
+  {
+    return entrySink;
+  }
+
+  /**
+   * Specifies a sink receiving the exported entries instead of the
+   * LDIF writer.  The entries which are included in the export are
+   * given to the sink as they are, the attributes to include or
+   * exclude from the export are not taken into account.
+   *
+   * @param  entrySink  The sink receiving the exported entries, or
+   *                    <CODE>null</CODE> to write the entries as LDIF.
+   */
+  public void setEntrySink(EntrySink entrySink)
+  {
+    this.entrySink = entrySink;
+  }
+
   /**
    * Specifies whether the LDIF data should be compressed as it is
    * written.  If compression should be used, then this must be set
@@ -823,4 +852,17 @@ public final class LDIFExportConfig extends OperationConfig
     // FIXME -- Need to add code to generate a signed hash of the LDIF content.
     StaticUtils.close(writer);
   }
+
+  /** A destination for exported entries, which are not written as LDIF. */
+  public interface EntrySink
+  {
+    /**
+     * Writes an entry included in the export.
+     *
+     * @param  entry  The entry to write.
+     *
+     * @throws  IOException  If a problem occurs while writing the entry.
+     */
+    void writeEntry(Entry entry) throws IOException;
+  }
 }
@@ -90,6 +90,8 @@ public final class LDIFImportConfig extends OperationConfig
   private BufferedWriter skipWriter;
   /** The input stream to use to read the data to import. */
   private InputStream ldifInputStream;
+  /** The source of the entries to import instead of the LDIF data, if any. */
+  private EntrySource entrySource;
 
   /** The buffer size to use when reading data from the LDIF file. */
   private int bufferSize = DEFAULT_BUFFER_SIZE;
@@ -471,6 +473,37 @@ public final class LDIFImportConfig extends OperationConfig
 
 
 
+  /**
+   * Retrieves the source of the entries to import instead of the
+   * LDIF data.
+   *
+   * @return  The source of the entries to import, or
+   *          <CODE>null</CODE> if the entries are read from LDIF.
+   */
+  public EntrySource getEntrySource()
+  {
+    return entrySource;
+  }
+
+
+
+  /**
+   * Specifies a source of already decoded entries to import instead
+   * of the LDIF data.  The entries read from the source are filtered,
+   * given to the import plugins and checked against the schema in the
+   * same way as the entries read from LDIF.
+   *
+   * @param  entrySource  The source of the entries to import, or
+   *                      <CODE>null</CODE> to read the entries from
+   *                      LDIF.
+   */
+  public void setEntrySource(EntrySource entrySource)
+  {
+    this.entrySource = entrySource;
+  }
+
+
+
   /**
    * Indicates whether the input LDIF source is expected to be
    * compressed.
@@ -1055,4 +1088,18 @@ public final class LDIFImportConfig extends OperationConfig
   {
     return this.threadCount;
   }
+
+  /** A source of entries to import, which are not read from LDIF. */
+  public interface EntrySource
+  {
+    /**
+     * Reads the next entry to import.
+     *
+     * @return  The next entry, or <CODE>null</CODE> if there are no
+     *          more entries to import.
+     *
+     * @throws  IOException  If a problem occurs while reading the entry.
+     */
+    Entry readEntry() throws IOException;
+  }
 }
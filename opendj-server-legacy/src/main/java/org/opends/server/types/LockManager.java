@@ -15,12 +15,21 @@
  */
 package org.opends.server.types;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
 
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.util.Reject;
@@ -66,17 +75,23 @@ import org.forgerock.util.Reject;
  * from the root DN down to the immediate parent of the subtree to be locked. Then a <b>subtree</b>
  * write lock is acquired for the target subtree.
  * <p>
- * The lock table itself is not represented using a {@code ConcurrentHashMap} because the JDK6/7
- * APIs do not provide the ability to atomically add-and-lock or unlock-and-remove locks (this
- * capability is provided in JDK8). Instead, we provide our own implementation comprising of a fixed
- * number of buckets, a bucket being a {@code LinkedList} of {@code DNLock}s. In addition, it is
- * important to be able to efficiently iterate up and down a chain of hierarchically related locks,
- * so each lock maintains a reference to its parent lock. Modern directories tend to have a flat
- * structure so it is also important to avoid contention on "hot" parent DNs. Typically, a lock
- * attempt against a DN will involve a cache miss for the target DN and a cache hit for the parent,
- * but the parent will be the same parent for all lock requests, resulting in a lot of contention on
- * the same lock bucket. To avoid this the lock manager maintains a small-thread local cache of
- * locks, so that parent locks can be acquired using a lock-free algorithm.
+ * The lock table is a {@code ConcurrentHashMap} of locks keyed on DN: locks are atomically
+ * added-and-referenced using {@code compute()} and unreferenced-and-removed using
+ * {@code computeIfPresent()}, so that lock lookups never serialize behind an unrelated lock table
+ * bucket. In addition, it is important to be able to efficiently iterate up and down a chain of
+ * hierarchically related locks, so each lock maintains a reference to its parent lock. Modern
+ * directories tend to have a flat structure so it is also important to avoid contention on "hot"
+ * parent DNs. Typically, a lock attempt against a DN will involve a cache miss for the target DN
+ * and a cache hit for the parent, but the parent will be the same parent for all lock requests. To
+ * avoid contention on the lock table the lock manager maintains a small thread-local cache of
+ * locks, so that parent locks can be found using a lock-free algorithm. To avoid contention on the
+ * parent lock itself, subtree read locks are optimistic: a reader increments a counter chosen
+ * from a set of striped counters and then validates that no writer owns the subtree, backing off
+ * only if one does. Subtree write locks are rare (deletes and renames) and have to wait until the
+ * striped reader counts drain to zero.
+ * <p>
+ * Lock attempts which cannot be satisfied immediately are recorded in a wait time histogram and in
+ * a bounded table of the most contended DNs, which are exposed as monitoring data.
  * <p>
  * Since the thread local cache may reference locks which are not actively locked by anyone, a
  * reference counting mechanism is used in order to prevent cached locks from being removed from the
@@ -107,14 +122,17 @@ public final class LockManager
   public final class DNLock
   {
     private final DNLockHolder lock;
-    private final Lock subtreeLock;
+    private final int[] parentSubtreeReadTokens;
+    private final int subtreeToken;
     private final Lock entryLock;
     private boolean isLocked = true;
 
-    private DNLock(final DNLockHolder lock, final Lock subtreeLock, final Lock entryLock)
+    private DNLock(final DNLockHolder lock, final int[] parentSubtreeReadTokens, final int subtreeToken,
+        final Lock entryLock)
     {
       this.lock = lock;
-      this.subtreeLock = subtreeLock;
+      this.parentSubtreeReadTokens = parentSubtreeReadTokens;
+      this.subtreeToken = subtreeToken;
       this.entryLock = entryLock;
     }
 
@@ -136,8 +154,8 @@ public final class LockManager
       {
         throw new IllegalStateException("Already unlocked");
       }
-      lock.releaseParentSubtreeReadLock();
-      subtreeLock.unlock();
+      lock.releaseParentSubtreeReadLock(parentSubtreeReadTokens);
+      lock.subtreeLock.unlock(subtreeToken);
       entryLock.unlock();
       dereference(lock);
       isLocked = false;
@@ -150,6 +168,332 @@ public final class LockManager
     }
   }
 
+  /** The number of contended lock attempts and the time spent waiting for a lock on a given DN. */
+  public static final class LockContention
+  {
+    private final DN dn;
+    private final LongAdder contendedCount = new LongAdder();
+    private final LongAdder waitTimeNanos = new LongAdder();
+
+    private LockContention(final DN dn)
+    {
+      this.dn = dn;
+    }
+
+    private void record(final long waitNanos)
+    {
+      contendedCount.increment();
+      waitTimeNanos.add(waitNanos);
+    }
+
+    /**
+     * Returns the DN of the contended lock.
+     *
+     * @return The DN of the contended lock.
+     */
+    public DN getDN()
+    {
+      return dn;
+    }
+
+    /**
+     * Returns the number of lock attempts which had to wait for the lock.
+     *
+     * @return The number of lock attempts which had to wait for the lock.
+     */
+    public long getContendedCount()
+    {
+      return contendedCount.sum();
+    }
+
+    /**
+     * Returns the total time spent waiting for the lock.
+     *
+     * @param unit
+     *          The unit of the returned time.
+     * @return The total time spent waiting for the lock.
+     */
+    public long getWaitTime(final TimeUnit unit)
+    {
+      return unit.convert(waitTimeNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "\"" + dn + "\" : " + getContendedCount() + " waits, " + getWaitTime(TimeUnit.MILLISECONDS) + " ms";
+    }
+  }
+
+  /**
+   * A read-write lock optimized for the subtree locks of parent entries, which are read locked by
+   * every update below them and are very rarely write locked.
+   * <p>
+   * Readers increment a counter and then check that the lock is not owned by a writer. The count is
+   * first maintained in a single counter, and is spread over a set of counters chosen according to
+   * the reading thread once concurrent readers are detected, so that readers of a hot parent entry
+   * do not contend on a single memory location. A read lock is released by decrementing the counter
+   * which was incremented, as identified by the returned token. Writers are serialized using a
+   * reentrant mutex, then claim ownership and wait until there are no more readers. Readers which
+   * find the lock claimed by another thread back off and wait for the writer to release it, or to
+   * give up waiting for the readers, so that a steady flow of readers cannot starve a writer. The
+   * owner of the write lock may also acquire the read lock.
+   */
+  private static final class SubtreeLock
+  {
+    private static final int BASE_TOKEN = -1;
+    private static final int STRIPE_SPACING = 16;
+    private static final int NUMBER_OF_STRIPES = getNumberOfStripes();
+
+    private final AtomicInteger readers = new AtomicInteger();
+    private volatile AtomicIntegerArray stripes;
+    private final ReentrantLock writeMutex = new ReentrantLock();
+    private volatile Thread writer;
+    /** Guarded by this object's monitor. */
+    private volatile int waitingWriters;
+
+    int tryReadLock()
+    {
+      final int token = incrementReaders();
+      final Thread owner = writer;
+      if (owner == null || owner == Thread.currentThread())
+      {
+        return token;
+      }
+      // Back off: a writer owns, or is about to own, the lock.
+      readUnlock(token);
+      return NO_TOKEN;
+    }
+
+    int tryReadLock(final long timeoutNanos) throws InterruptedException
+    {
+      final long deadline = System.nanoTime() + timeoutNanos;
+      for (;;)
+      {
+        final int token = tryReadLock();
+        if (token != NO_TOKEN)
+        {
+          return token;
+        }
+        synchronized (this)
+        {
+          while (writer != null)
+          {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+            {
+              return NO_TOKEN;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+          }
+        }
+      }
+    }
+
+    void readUnlock(final int token)
+    {
+      if (token == BASE_TOKEN)
+      {
+        readers.decrementAndGet();
+      }
+      else
+      {
+        stripes.decrementAndGet(token);
+      }
+      if (waitingWriters > 0)
+      {
+        synchronized (this)
+        {
+          notifyAll();
+        }
+      }
+    }
+
+    boolean tryWriteLock()
+    {
+      if (!writeMutex.tryLock())
+      {
+        return false;
+      }
+      if (writeMutex.getHoldCount() > 1)
+      {
+        return true;
+      }
+      writer = Thread.currentThread();
+      if (getReaders() == 0)
+      {
+        return true;
+      }
+      releaseWriteClaim();
+      return false;
+    }
+
+    boolean tryWriteLock(final long timeoutNanos) throws InterruptedException
+    {
+      final long deadline = System.nanoTime() + timeoutNanos;
+      if (!writeMutex.tryLock(timeoutNanos, TimeUnit.NANOSECONDS))
+      {
+        return false;
+      }
+      if (writeMutex.getHoldCount() > 1)
+      {
+        return true;
+      }
+      // Keep the lock claimed while waiting, so that new readers back off until the current ones are gone.
+      writer = Thread.currentThread();
+      boolean isLocked = false;
+      try
+      {
+        if (getReaders() == 0)
+        {
+          isLocked = true;
+          return true;
+        }
+        synchronized (this)
+        {
+          waitingWriters++;
+          try
+          {
+            while (getReaders() > 0)
+            {
+              final long remaining = deadline - System.nanoTime();
+              if (remaining <= 0)
+              {
+                return false;
+              }
+              TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            isLocked = true;
+            return true;
+          }
+          finally
+          {
+            waitingWriters--;
+          }
+        }
+      }
+      finally
+      {
+        if (!isLocked)
+        {
+          releaseWriteClaim();
+        }
+      }
+    }
+
+    void writeUnlock()
+    {
+      final boolean isLastHold = writeMutex.getHoldCount() == 1;
+      if (isLastHold)
+      {
+        writer = null;
+      }
+      writeMutex.unlock();
+      if (isLastHold)
+      {
+        synchronized (this)
+        {
+          notifyAll();
+        }
+      }
+    }
+
+    void unlock(final int token)
+    {
+      if (token == WRITE_TOKEN)
+      {
+        writeUnlock();
+      }
+      else
+      {
+        readUnlock(token);
+      }
+    }
+
+    /**
+     * Gives up the ownership of this lock claimed by a writer which could not wait for the readers
+     * any longer, and lets the readers which backed off proceed. Must be called while holding the
+     * write mutex, which is released.
+     */
+    private void releaseWriteClaim()
+    {
+      writer = null;
+      writeMutex.unlock();
+      synchronized (this)
+      {
+        notifyAll();
+      }
+    }
+
+    private int incrementReaders()
+    {
+      AtomicIntegerArray stripes = this.stripes;
+      if (stripes == null)
+      {
+        final int count = readers.get();
+        if (readers.compareAndSet(count, count + 1))
+        {
+          return BASE_TOKEN;
+        }
+        // Concurrent readers: spread them over several counters from now on.
+        stripes = getStripes();
+      }
+      final int index = stripeIndex();
+      stripes.incrementAndGet(index);
+      return index;
+    }
+
+    private AtomicIntegerArray getStripes()
+    {
+      AtomicIntegerArray stripes = this.stripes;
+      if (stripes == null)
+      {
+        synchronized (this)
+        {
+          stripes = this.stripes;
+          if (stripes == null)
+          {
+            stripes = new AtomicIntegerArray(NUMBER_OF_STRIPES * STRIPE_SPACING);
+            this.stripes = stripes;
+          }
+        }
+      }
+      return stripes;
+    }
+
+    private int getReaders()
+    {
+      int count = readers.get();
+      final AtomicIntegerArray stripes = this.stripes;
+      if (stripes != null)
+      {
+        for (int i = 0; i < NUMBER_OF_STRIPES; i++)
+        {
+          count += stripes.get(i * STRIPE_SPACING);
+        }
+      }
+      return count;
+    }
+
+    /** Each counter is padded to a full cache line in order to avoid false sharing. */
+    private static int stripeIndex()
+    {
+      final long h = Thread.currentThread().getId() * 0x9e3779b97f4a7c15L;
+      return ((int) (h >>> 32) & (NUMBER_OF_STRIPES - 1)) * STRIPE_SPACING;
+    }
+
+    private static int getNumberOfStripes()
+    {
+      final int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAXIMUM_NUMBER_OF_STRIPES);
+      int powerOf2 = 2;
+      while (powerOf2 < processors)
+      {
+        powerOf2 <<= 1;
+      }
+      return powerOf2;
+    }
+  }
+
   /** Lock implementation. */
   private final class DNLockHolder
   {
@@ -157,7 +501,9 @@ public final class LockManager
     private final DNLockHolder parent;
     private final DN dn;
     private final int dnHashCode;
-    private final ReentrantReadWriteLock subtreeLock = new ReentrantReadWriteLock();
+    /** The number of parents of this lock. */
+    private final int depth;
+    private final SubtreeLock subtreeLock = new SubtreeLock();
     private final ReentrantReadWriteLock entryLock = new ReentrantReadWriteLock();
 
     DNLockHolder(final DNLockHolder parent, final DN dn, final int dnHashCode)
@@ -165,6 +511,7 @@ public final class LockManager
       this.parent = parent;
       this.dn = dn;
       this.dnHashCode = dnHashCode;
+      this.depth = parent != null ? parent.depth + 1 : 0;
     }
 
     @Override
@@ -174,78 +521,149 @@ public final class LockManager
     }
 
     /** Unlocks the subtree read lock from the parent of this lock up to the root. */
-    void releaseParentSubtreeReadLock()
+    void releaseParentSubtreeReadLock(final int[] tokens)
     {
-      for (DNLockHolder lock = parent; lock != null; lock = lock.parent)
-      {
-        lock.subtreeLock.readLock().unlock();
-      }
+      releaseSubtreeReadLock(parent, 0, tokens);
     }
 
     DNLock tryReadLockEntry()
     {
-      return tryLock(subtreeLock.readLock(), entryLock.readLock());
+      return tryLock(false, entryLock.readLock());
     }
 
     DNLock tryWriteLockEntry()
     {
-      return tryLock(subtreeLock.readLock(), entryLock.writeLock());
+      return tryLock(false, entryLock.writeLock());
     }
 
     DNLock tryWriteLockSubtree()
     {
-      return tryLock(subtreeLock.writeLock(), entryLock.writeLock());
+      return tryLock(true, entryLock.writeLock());
     }
 
-    /** Locks the subtree read lock from the root down to the parent of this lock. */
-    private boolean tryAcquireParentSubtreeReadLock()
+    /** Unlocks the subtree read lock from the provided lock up to the root. */
+    private void releaseSubtreeReadLock(final DNLockHolder from, int index, final int[] tokens)
     {
-      // First lock the parents of the parent.
-      if (parent == null)
+      for (DNLockHolder lock = from; lock != null; lock = lock.parent)
+      {
+        lock.subtreeLock.readUnlock(tokens[index++]);
+      }
+    }
+
+    /**
+     * Locks the subtree read lock from the root down to the provided lock, storing the tokens of
+     * each lock at its distance from the provided lock.
+     */
+    private boolean tryAcquireSubtreeReadLock(final DNLockHolder to, final int index, final int[] tokens)
+    {
+      // First lock the parents of the lock.
+      if (to == null)
       {
         return true;
       }
 
-      if (!parent.tryAcquireParentSubtreeReadLock())
+      if (!tryAcquireSubtreeReadLock(to.parent, index + 1, tokens))
       {
         return false;
       }
 
-      // Then lock the parent of this lock
-      if (tryLockWithTimeout(parent.subtreeLock.readLock()))
+      // Then lock the lock itself.
+      final int token = to.tryReadLockSubtreeWithTimeout();
+      if (token != NO_TOKEN)
       {
+        tokens[index] = token;
         return true;
       }
 
-      // Failed to grab the parent lock within the timeout, so roll-back the other locks.
-      releaseParentSubtreeReadLock();
+      // Failed to grab the lock within the timeout, so roll-back the other locks.
+      releaseSubtreeReadLock(to.parent, index + 1, tokens);
       return false;
     }
 
-    private DNLock tryLock(final Lock subtreeLock, final Lock entryLock)
+    private DNLock tryLock(final boolean writeLockSubtree, final Lock entryLock)
     {
-      if (tryAcquireParentSubtreeReadLock())
+      final int[] parentSubtreeReadTokens = new int[depth];
+      if (tryAcquireSubtreeReadLock(parent, 0, parentSubtreeReadTokens))
       {
-        if (tryLockWithTimeout(subtreeLock))
+        final int subtreeToken = writeLockSubtree ? tryWriteLockSubtreeWithTimeout()
+                                                  : tryReadLockSubtreeWithTimeout();
+        if (subtreeToken != NO_TOKEN)
         {
           if (tryLockWithTimeout(entryLock))
           {
-            return new DNLock(this, subtreeLock, entryLock);
+            return new DNLock(this, parentSubtreeReadTokens, subtreeToken, entryLock);
           }
-          subtreeLock.unlock();
+          subtreeLock.unlock(subtreeToken);
         }
-        releaseParentSubtreeReadLock();
+        releaseParentSubtreeReadLock(parentSubtreeReadTokens);
       }
       // Failed to acquire all the necessary locks within the time out.
       dereference(this);
       return null;
     }
 
+    private int tryReadLockSubtreeWithTimeout()
+    {
+      int token = subtreeLock.tryReadLock();
+      if (token != NO_TOKEN)
+      {
+        return token;
+      }
+      final long startTime = System.nanoTime();
+      try
+      {
+        token = subtreeLock.tryReadLock(lockTimeoutNanos);
+      }
+      catch (final InterruptedException e)
+      {
+        // Unable to handle interrupts here.
+        Thread.currentThread().interrupt();
+      }
+      recordContention(dn, System.nanoTime() - startTime, token != NO_TOKEN);
+      return token;
+    }
+
+    private int tryWriteLockSubtreeWithTimeout()
+    {
+      if (subtreeLock.tryWriteLock())
+      {
+        return WRITE_TOKEN;
+      }
+      final long startTime = System.nanoTime();
+      boolean isLocked = false;
+      try
+      {
+        isLocked = subtreeLock.tryWriteLock(lockTimeoutNanos);
+      }
+      catch (final InterruptedException e)
+      {
+        // Unable to handle interrupts here.
+        Thread.currentThread().interrupt();
+      }
+      recordContention(dn, System.nanoTime() - startTime, isLocked);
+      return isLocked ? WRITE_TOKEN : NO_TOKEN;
+    }
+
     private boolean tryLockWithTimeout(final Lock lock)
     {
       try
       {
-        return lock.tryLock(lockTimeout, lockTimeoutUnits);
+        // Do not barge ahead of queued writers.
+        if (lock.tryLock(0, TimeUnit.NANOSECONDS))
+        {
+          return true;
+        }
+        final long startTime = System.nanoTime();
+        boolean isLocked = false;
+        try
+        {
+          isLocked = lock.tryLock(lockTimeoutNanos, TimeUnit.NANOSECONDS);
+          return isLocked;
+        }
+        finally
+        {
+          recordContention(dn, System.nanoTime() - startTime, isLocked);
+        }
       }
       catch (final InterruptedException e)
       {
@@ -256,31 +674,40 @@ public final class LockManager
     }
   }
 
+  /** Token of a subtree lock which could not be acquired. */
+  private static final int NO_TOKEN = Integer.MIN_VALUE;
+  /** Token of a write locked subtree lock. */
+  private static final int WRITE_TOKEN = -2;
+  private static final int MAXIMUM_NUMBER_OF_STRIPES = 64;
+
   private static final long DEFAULT_LOCK_TIMEOUT = 9;
   private static final TimeUnit DEFAULT_LOCK_TIMEOUT_UNITS = TimeUnit.SECONDS;
-  private static final int MINIMUM_NUMBER_OF_BUCKETS = 64;
   private static final int THREAD_LOCAL_CACHE_SIZE = 8;
+  /** Bucket {@code i} of the wait time histogram counts waits shorter than 2^i microseconds. */
+  private static final int WAIT_TIME_HISTOGRAM_SIZE = 25;
+  private static final int MAXIMUM_NUMBER_OF_CONTENDED_DNS = 1000;
+
+  private final ConcurrentHashMap<DN, DNLockHolder> lockTable = new ConcurrentHashMap<>();
+  private final long lockTimeoutNanos;
 
-  private final int numberOfBuckets;
-  private final LinkedList<DNLockHolder>[] lockTable;
-  private final long lockTimeout;
-  private final TimeUnit lockTimeoutUnits;
+  private final LongAdder contendedLockCount = new LongAdder();
+  private final LongAdder timedOutLockCount = new LongAdder();
+  private final LongAdder[] waitTimeHistogram = new LongAdder[WAIT_TIME_HISTOGRAM_SIZE];
+  private final ConcurrentHashMap<DN, LockContention> contentionByDN = new ConcurrentHashMap<>();
+  /** Held by the thread forgetting the least contended DNs. */
+  private final Lock contentionEvictionLock = new ReentrantLock();
 
   /** Avoid sub-classing in order to workaround class leaks in app servers. */
   private final ThreadLocal<LinkedList<DNLockHolder>> threadLocalCache = new ThreadLocal<>();
 
-  /**
-   * Creates a new lock manager with a lock timeout of 9 seconds and an automatically chosen number
-   * of lock table buckets based on the number of processors.
-   */
+  /** Creates a new lock manager with a lock timeout of 9 seconds. */
   public LockManager()
   {
     this(DEFAULT_LOCK_TIMEOUT, DEFAULT_LOCK_TIMEOUT_UNITS);
   }
 
   /**
-   * Creates a new lock manager with the specified lock timeout and an automatically chosen number
-   * of lock table buckets based on the number of processors.
+   * Creates a new lock manager with the specified lock timeout.
    *
    * @param lockTimeout
    *          The lock timeout.
@@ -288,34 +715,14 @@ public final class LockManager
    *          The lock timeout units.
    */
   public LockManager(final long lockTimeout, final TimeUnit lockTimeoutUnit)
-  {
-    this(lockTimeout, lockTimeoutUnit, Runtime.getRuntime().availableProcessors() * 8);
-  }
-
-  /**
-   * Creates a new lock manager with the provided configuration.
-   *
-   * @param lockTimeout
-   *          The lock timeout.
-   * @param lockTimeoutUnit
-   *          The lock timeout units.
-   * @param numberOfBuckets
-   *          The number of buckets to use in the lock table. The minimum number of buckets is 64.
-   */
-  @SuppressWarnings("unchecked")
-  private LockManager(final long lockTimeout, final TimeUnit lockTimeoutUnit, final int numberOfBuckets)
   {
     Reject.ifFalse(lockTimeout >= 0, "lockTimeout must be a non-negative integer");
     Reject.ifNull(lockTimeoutUnit, "lockTimeoutUnit must be non-null");
-    Reject.ifFalse(numberOfBuckets > 0, "numberOfBuckets must be a positive integer");
 
-    this.lockTimeout = lockTimeout;
-    this.lockTimeoutUnits = lockTimeoutUnit;
-    this.numberOfBuckets = getNumberOfBuckets(numberOfBuckets);
-    this.lockTable = new LinkedList[this.numberOfBuckets];
-    for (int i = 0; i < this.numberOfBuckets; i++)
+    this.lockTimeoutNanos = lockTimeoutUnit.toNanos(lockTimeout);
+    for (int i = 0; i < WAIT_TIME_HISTOGRAM_SIZE; i++)
     {
-      this.lockTable[i] = new LinkedList<>();
+      this.waitTimeHistogram[i] = new LongAdder();
     }
   }
 
@@ -323,17 +730,10 @@ public final class LockManager
   public String toString()
   {
     final StringBuilder builder = new StringBuilder();
-    for (int i = 0; i < numberOfBuckets; i++)
+    for (final DNLockHolder lock : lockTable.values())
     {
-      final LinkedList<DNLockHolder> bucket = lockTable[i];
-      synchronized (bucket)
-      {
-        for (final DNLockHolder lock : bucket)
-        {
-          builder.append(lock);
-          builder.append('\n');
-        }
-      }
+      builder.append(lock);
+      builder.append('\n');
     }
     return builder.toString();
   }
@@ -378,22 +778,72 @@ public final class LockManager
     return acquireLockFromCache(subtree).tryWriteLockSubtree();
   }
 
-  /** For unit testing. */
-  int getLockTableRefCountFor(final DN dn)
+  /**
+   * Returns the number of lock attempts which could not be granted immediately.
+   *
+   * @return The number of lock attempts which could not be granted immediately.
+   */
+  public long getContendedLockCount()
   {
-    final int dnHashCode = dn.hashCode();
-    final LinkedList<DNLockHolder> bucket = getBucket(dnHashCode);
-    synchronized (bucket)
+    return contendedLockCount.sum();
+  }
+
+  /**
+   * Returns the number of lock attempts which timed out.
+   *
+   * @return The number of lock attempts which timed out.
+   */
+  public long getTimedOutLockCount()
+  {
+    return timedOutLockCount.sum();
+  }
+
+  /**
+   * Returns the distribution of the time spent waiting by the lock attempts which could not be
+   * granted immediately. Element {@code i} of the returned array is the number of waits shorter than
+   * 2^i microseconds, and at least 2^(i-1) microseconds long. The last element also counts all the
+   * longer waits.
+   *
+   * @return The distribution of the time spent waiting for locks.
+   */
+  public long[] getWaitTimeHistogram()
+  {
+    final long[] histogram = new long[WAIT_TIME_HISTOGRAM_SIZE];
+    for (int i = 0; i < WAIT_TIME_HISTOGRAM_SIZE; i++)
     {
-      for (final DNLockHolder lock : bucket)
+      histogram[i] = waitTimeHistogram[i].sum();
+    }
+    return histogram;
+  }
+
+  /**
+   * Returns the most contended DNs, by decreasing number of contended lock attempts. The contention
+   * is only tracked for a bounded number of DNs: the least contended half of the tracked DNs is
+   * forgotten when this bound is reached.
+   *
+   * @param maxDNs
+   *          The maximum number of DNs to return.
+   * @return The most contended DNs.
+   */
+  public List<LockContention> getMostContendedDNs(final int maxDNs)
+  {
+    final List<LockContention> contentions = new ArrayList<>(contentionByDN.values());
+    Collections.sort(contentions, new Comparator<LockContention>()
+    {
+      @Override
+      public int compare(final LockContention c1, final LockContention c2)
       {
-        if (lock.dnHashCode == dnHashCode && lock.dn.equals(dn))
-        {
-          return lock.refCount.get();
-        }
+        return Long.compare(c2.getContendedCount(), c1.getContendedCount());
       }
-      return -1;
-    }
+    });
+    return contentions.size() > maxDNs ? contentions.subList(0, maxDNs) : contentions;
+  }
+
+  /** For unit testing. */
+  int getLockTableRefCountFor(final DN dn)
+  {
+    final DNLockHolder lock = lockTable.get(dn);
+    return lock != null ? lock.refCount.get() : -1;
   }
 
   /** For unit testing. */
@@ -415,6 +865,64 @@ public final class LockManager
     return -1;
   }
 
+  /** Package private for unit testing. */
+  void recordContention(final DN dn, final long waitNanos, final boolean isLocked)
+  {
+    contendedLockCount.increment();
+    if (!isLocked)
+    {
+      timedOutLockCount.increment();
+    }
+    final long waitMicros = waitNanos / 1000;
+    final int index = waitMicros > 0 ? 64 - Long.numberOfLeadingZeros(waitMicros) : 0;
+    waitTimeHistogram[Math.min(index, WAIT_TIME_HISTOGRAM_SIZE - 1)].increment();
+
+    LockContention contention = contentionByDN.get(dn);
+    if (contention == null)
+    {
+      if (contentionByDN.size() >= MAXIMUM_NUMBER_OF_CONTENDED_DNS)
+      {
+        evictLeastContendedDNs();
+      }
+      final LockContention newContention = new LockContention(dn);
+      contention = contentionByDN.putIfAbsent(dn, newContention);
+      if (contention == null)
+      {
+        contention = newContention;
+      }
+    }
+    contention.record(waitNanos);
+  }
+
+  /**
+   * Forgets the least contended half of the tracked DNs, so that the most contended DNs keep their
+   * statistics while the DNs contended from now on can still be tracked.
+   */
+  private void evictLeastContendedDNs()
+  {
+    if (!contentionEvictionLock.tryLock())
+    {
+      // Another thread is already making room.
+      return;
+    }
+    try
+    {
+      final List<LockContention> contentions = getMostContendedDNs(Integer.MAX_VALUE);
+      if (contentions.size() >= MAXIMUM_NUMBER_OF_CONTENDED_DNS)
+      {
+        for (final LockContention contention : contentions.subList(MAXIMUM_NUMBER_OF_CONTENDED_DNS / 2,
+            contentions.size()))
+        {
+          contentionByDN.remove(contention.getDN(), contention);
+        }
+      }
+    }
+    finally
+    {
+      contentionEvictionLock.unlock();
+    }
+  }
+
   private DNLockHolder acquireLockFromCache(final DN dn)
   {
     LinkedList<DNLockHolder> cache = threadLocalCache.get();
@@ -448,87 +956,63 @@ public final class LockManager
   {
     /*
      * The lock doesn't exist yet so we'll have to create a new one referencing its parent lock. The
-     * parent lock may not yet exist in the lock table either so acquire it before locking the
-     * bucket in order to avoid deadlocks resulting from reentrant bucket locks. Note that we
-     * pre-emptively fetch the parent lock because experiments show that the requested child lock is
-     * almost never in the lock-table. Specifically, this method is only called if we are already on
-     * the slow path due to a cache miss in the thread-local cache.
+     * parent lock may not yet exist in the lock table either so acquire it before updating the lock
+     * table, since the lock table cannot be updated recursively. Note that we pre-emptively fetch
+     * the parent lock because experiments show that the requested child lock is almost never in the
+     * lock-table. Specifically, this method is only called if we are already on the slow path due
+     * to a cache miss in the thread-local cache.
      */
     final DN parentDN = dn.parent();
     final DNLockHolder parentLock = parentDN != null ? acquireLockFromCache0(parentDN, cache) : null;
-    boolean parentLockWasUsed = false;
-    try
+    final DNLockHolder newLock = new DNLockHolder(parentLock, dn, dnHashCode);
+    final DNLockHolder lock = lockTable.compute(dn, new BiFunction<DN, DNLockHolder, DNLockHolder>()
     {
-      final LinkedList<DNLockHolder> bucket = getBucket(dnHashCode);
-      synchronized (bucket)
+      @Override
+      public DNLockHolder apply(final DN key, final DNLockHolder existingLock)
       {
-        DNLockHolder lock = removeLock(bucket, dn, dnHashCode);
-        if (lock == null)
-        {
-          lock = new DNLockHolder(parentLock, dn, dnHashCode);
-          parentLockWasUsed = true;
-        }
-        bucket.addFirst(lock); // optimize for LRU
+        final DNLockHolder lock = existingLock != null ? existingLock : newLock;
         lock.refCount.incrementAndGet();
         return lock;
       }
-    }
-    finally
+    });
+    if (lock != newLock && parentLock != null)
     {
-      if (!parentLockWasUsed && parentLock != null)
-      {
-        dereference(parentLock);
-      }
+      dereference(parentLock);
     }
+    return lock;
   }
 
   private void dereference(final DNLockHolder lock)
   {
     if (lock.refCount.decrementAndGet() <= 0)
     {
-      final LinkedList<DNLockHolder> bucket = getBucket(lock.dnHashCode);
-      boolean lockWasRemoved = false;
-      synchronized (bucket)
+      final boolean[] lockWasRemoved = new boolean[1];
+      lockTable.computeIfPresent(lock.dn, new BiFunction<DN, DNLockHolder, DNLockHolder>()
       {
-        // Double check: another thread could have acquired the lock since we decremented it to zero.
-        if (lock.refCount.get() <= 0)
+        @Override
+        public DNLockHolder apply(final DN key, final DNLockHolder existingLock)
         {
-          removeLock(bucket, lock.dn, lock.dnHashCode);
-          lockWasRemoved = true;
+          // Double check: another thread could have acquired the lock since we decremented it to zero.
+          if (existingLock == lock && lock.refCount.get() <= 0)
+          {
+            lockWasRemoved[0] = true;
+            return null;
+          }
+          return existingLock;
         }
-      }
+      });
 
       /*
-       * Dereference the parent outside of the bucket lock to avoid potential deadlocks due to
-       * reentrant bucket locks.
+       * Dereference the parent outside of the lock table update since the lock table cannot be
+       * updated recursively.
        */
-      if (lockWasRemoved && lock.parent != null)
+      if (lockWasRemoved[0] && lock.parent != null)
       {
         dereference(lock.parent);
       }
     }
   }
 
-  private LinkedList<DNLockHolder> getBucket(final int dnHashCode)
-  {
-    return lockTable[dnHashCode & numberOfBuckets - 1];
-  }
-
-  /**
-   * Ensure that the number of buckets is a power of 2 in order to make it easier to map hash codes
-   * to bucket indexes.
-   */
-  private int getNumberOfBuckets(final int buckets)
-  {
-    final int roundedNumberOfBuckets = Math.min(buckets, MINIMUM_NUMBER_OF_BUCKETS);
-    int powerOf2 = 1;
-    while (powerOf2 < roundedNumberOfBuckets)
-    {
-      powerOf2 <<= 1;
-    }
-    return powerOf2;
-  }
-
   private DNLockHolder removeLock(final LinkedList<DNLockHolder> lockList, final DN dn, final int dnHashCode)
   {
     final Iterator<DNLockHolder> iterator = lockList.iterator();
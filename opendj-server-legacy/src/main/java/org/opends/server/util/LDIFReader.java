@@ -127,7 +127,7 @@ public class LDIFReader implements Closeable
     ifNull(importConfig);
     this.importConfig = importConfig;
 
-    reader               = importConfig.getReader();
+    reader               = importConfig.getEntrySource() == null ? importConfig.getReader() : null;
     lastEntryBodyLines   = new LinkedList<>();
     lastEntryHeaderLines = new LinkedList<>();
     pluginConfigManager  = DirectoryServer.getPluginConfigManager();
@@ -180,6 +180,11 @@ public class LDIFReader implements Closeable
   public Entry readEntry(boolean checkSchema)
          throws IOException, LDIFException
   {
+    if (importConfig.getEntrySource() != null)
+    {
+      return readDecodedEntry(checkSchema);
+    }
+
     while (true)
     {
       // Read the set of lines that make up the next entry.
@@ -224,6 +229,69 @@ public class LDIFReader implements Closeable
     }
   }
 
+  /**
+   * Reads the next entry from the entry source of the import configuration.
+   *
+   * @param  checkSchema  Indicates whether this reader should perform schema
+   *                      checking on the entry before returning it.
+   * @return  The next entry read from the entry source, or <CODE>null</CODE> if
+   *          there are no more entries.
+   * @throws  IOException  If an I/O problem occurs while reading the entry.
+   * @throws  LDIFException  If the entry is not valid.
+   */
+  private Entry readDecodedEntry(boolean checkSchema) throws IOException, LDIFException
+  {
+    while (true)
+    {
+      final Entry entry = importConfig.getEntrySource().readEntry();
+      if (entry == null)
+      {
+        return null;
+      }
+
+      entriesRead.incrementAndGet();
+      Pair<Boolean, LocalizableMessage> includeResult = importConfig.includeEntry(entry.getName());
+      if (!includeResult.getFirst())
+      {
+        logToSkipWriter(linesOf(entry, null), includeResult.getSecond());
+        continue;
+      }
+
+      if (!isIncludedInImport(entry, null)
+          || !invokeImportPlugins(entry, null))
+      {
+        continue;
+      }
+
+      validateAgainstSchemaIfNeeded(checkSchema, entry, null);
+      return entry;
+    }
+  }
+
+  /**
+   * Returns the lines of an entry, to log it to the reject or skip writer.
+   *
+   * @param entry
+   *          The entry.
+   * @param lines
+   *          The lines the entry was read from, or {@code null} if it was not
+   *          read from LDIF.
+   * @return The lines of the entry.
+   */
+  protected static List<StringBuilder> linesOf(Entry entry, List<StringBuilder> lines)
+  {
+    if (lines != null)
+    {
+      return lines;
+    }
+    final List<StringBuilder> entryLines = new ArrayList<>();
+    for (String line : entry.toLDIFString().split("\r?\n"))
+    {
+      entryLines.add(new StringBuilder(line));
+    }
+    return entryLines;
+  }
+
   private Entry createEntry(DN entryDN, List<StringBuilder> lines, boolean checkSchema) throws LDIFException
   {
     Map<ObjectClass, String> objectClasses = new HashMap<>();
@@ -240,14 +308,14 @@ public class LDIFReader implements Closeable
     return entry;
   }
 
-  private boolean isIncludedInImport(Entry entry, LinkedList<StringBuilder> lines) throws LDIFException
+  private boolean isIncludedInImport(Entry entry, List<StringBuilder> lines) throws LDIFException
   {
     try
     {
       Pair<Boolean, LocalizableMessage> includeResult = importConfig.includeEntry(entry);
       if (!includeResult.getFirst())
       {
-        logToSkipWriter(lines, includeResult.getSecond());
+        logToSkipWriter(linesOf(entry, lines), includeResult.getSecond());
         return false;
       }
       return true;
@@ -262,7 +330,7 @@ public class LDIFReader implements Closeable
     }
   }
 
-  private boolean invokeImportPlugins(Entry entry, LinkedList<StringBuilder> lines)
+  private boolean invokeImportPlugins(Entry entry, List<StringBuilder> lines)
   {
     if (importConfig.invokeImportPlugins())
     {
@@ -276,14 +344,14 @@ public class LDIFReader implements Closeable
             ? ERR_LDIF_REJECTED_BY_PLUGIN.get(entryDN, rejectMessage)
             : ERR_LDIF_REJECTED_BY_PLUGIN_NOMESSAGE.get(entryDN);
 
-        logToRejectWriter(lines, m);
+        logToRejectWriter(linesOf(entry, lines), m);
         return false;
       }
     }
     return true;
   }
 
-  private void validateAgainstSchemaIfNeeded(boolean checkSchema, final Entry entry, LinkedList<StringBuilder> lines)
+  private void validateAgainstSchemaIfNeeded(boolean checkSchema, final Entry entry, List<StringBuilder> lines)
       throws LDIFException
   {
     if (checkSchema)
@@ -293,7 +361,7 @@ public class LDIFReader implements Closeable
       {
         final DN entryDN = entry.getName();
         LocalizableMessage message = ERR_LDIF_SCHEMA_VIOLATION.get(entryDN, lastEntryLineNumber, invalidReason);
-        logToRejectWriter(lines, message);
+        logToRejectWriter(linesOf(entry, lines), message);
         throw new LDIFException(message, lastEntryLineNumber, true);
       }
       // Add any superior objectclass(s) missing in an entries objectclass map.
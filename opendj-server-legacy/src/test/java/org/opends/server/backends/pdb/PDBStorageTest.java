@@ -25,8 +25,14 @@ import org.forgerock.opendj.config.server.ConfigException;
 import org.opends.server.DirectoryServerTestCase;
 import org.opends.server.TestCaseUtils;
 import org.forgerock.opendj.server.config.server.PDBBackendCfg;
+import org.forgerock.opendj.ldap.ByteString;
 import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteBatch;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
 import org.opends.server.core.MemoryQuota;
@@ -122,6 +128,66 @@ public class PDBStorageTest extends DirectoryServerTestCase
     assertThat(storage.getNewExchange(treeName, true)).isNotSameAs(initial);
   }
 
+  @Test
+  public void testWriteBatchIsVisibleBeforeBeingCommitted() throws Exception
+  {
+    final WriteBatch batch = WriteBatch.begin();
+    try
+    {
+      assertThat(WriteBatch.current()).isSameAs(batch);
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.openTree(treeName, true);
+          txn.put(treeName, valueOfUtf8("batched"), valueOfUtf8("value"));
+        }
+      });
+      assertThat(readValue("batched")).isEqualTo(valueOfUtf8("value"));
+    }
+    finally
+    {
+      batch.commit();
+    }
+    assertThat(WriteBatch.current()).isNull();
+    assertThat(readValue("batched")).isEqualTo(valueOfUtf8("value"));
+  }
+
+  @Test
+  public void testWriteBatchCommitCanBeRetriedAfterAFailedSync() throws Exception
+  {
+    final Storage failingStorage = mock(Storage.class);
+    doThrow(new StorageRuntimeException("sync failed")).doNothing().when(failingStorage).sync();
+    final WriteBatch batch = WriteBatch.begin();
+    batch.addStorageToSync(failingStorage);
+    try
+    {
+      batch.commit();
+      fail("Expected the first commit to fail");
+    }
+    catch (StorageRuntimeException expected)
+    {
+      assertThat(WriteBatch.current()).isNull();
+    }
+
+    batch.commit();
+    batch.commit();
+    verify(failingStorage, times(2)).sync();
+  }
+
+  private ByteString readValue(final String key) throws Exception
+  {
+    return storage.read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return txn.read(treeName, valueOfUtf8(key));
+      }
+    });
+  }
+
   protected PDBBackendCfg createBackendCfg()
   {
     PDBBackendCfg backendCfg = mockCfg(PDBBackendCfg.class);
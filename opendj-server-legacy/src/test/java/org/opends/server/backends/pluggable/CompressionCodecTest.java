@@ -0,0 +1,252 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class CompressionCodecTest extends DirectoryServerTestCase
+{
+  private static final LZ4CompressionCodec LZ4_WITH_DICTIONARY =
+      new LZ4CompressionCodec(1, PersistentCompressionDictionaries.trainDictionary(newEntries(0, 200), 4096));
+
+  @DataProvider
+  public Object[][] codecsAndData()
+  {
+    final List<Object[]> data = new ArrayList<>();
+    final Random random = new Random(0);
+    for (CompressionCodec codec : new CompressionCodec[] {
+      DeflateCompressionCodec.INSTANCE, LZ4CompressionCodec.WITHOUT_DICTIONARY, LZ4_WITH_DICTIONARY })
+    {
+      for (int length : new int[] { 0, 1, 12, 13, 100, 70_000 })
+      {
+        final byte[] randomBytes = new byte[length];
+        random.nextBytes(randomBytes);
+        data.add(new Object[] { codec, ByteString.wrap(randomBytes) });
+      }
+      data.add(new Object[] { codec, newEntry(1_000) });
+      data.add(new Object[] { codec, ByteString.wrap(new byte[100_000]) });
+    }
+    return data.toArray(new Object[0][]);
+  }
+
+  @Test(dataProvider = "codecsAndData")
+  public void testCompressDecompress(CompressionCodec codec, ByteString data) throws Exception
+  {
+    assertThat(decompress(codec, compress(codec, data), data.length())).isEqualTo(data);
+  }
+
+  @Test
+  public void testLZ4CompressesRepeatedSequences() throws Exception
+  {
+    final ByteString entry = newEntry(1);
+    assertThat(compress(LZ4CompressionCodec.WITHOUT_DICTIONARY, entry).length()).isLessThan(entry.length());
+    assertThat(compress(LZ4CompressionCodec.WITHOUT_DICTIONARY, ByteString.wrap(new byte[100_000])).length())
+        .isLessThan(1_000);
+  }
+
+  @Test
+  public void testLZ4DictionaryImprovesCompressionOfSimilarEntries() throws Exception
+  {
+    int sizeWithoutDictionary = 0;
+    int sizeWithDictionary = 0;
+    for (ByteString entry : newEntries(1_000, 100))
+    {
+      sizeWithoutDictionary += compress(LZ4CompressionCodec.WITHOUT_DICTIONARY, entry).length();
+      sizeWithDictionary += compress(LZ4_WITH_DICTIONARY, entry).length();
+    }
+    assertThat(sizeWithDictionary).isLessThan(sizeWithoutDictionary / 2);
+  }
+
+  @Test
+  public void testLZ4FormatVersions()
+  {
+    assertThat(LZ4CompressionCodec.WITHOUT_DICTIONARY.getFormatVersion()).isEqualTo(LZ4CompressionCodec.FORMAT_VERSION);
+    assertThat(LZ4CompressionCodec.WITHOUT_DICTIONARY.getDictionaryID()).isEqualTo(0);
+    assertThat(LZ4_WITH_DICTIONARY.getFormatVersion()).isEqualTo(LZ4CompressionCodec.FORMAT_VERSION_DICTIONARY);
+    assertThat(LZ4_WITH_DICTIONARY.getDictionaryID()).isEqualTo(1);
+  }
+
+  @Test(expectedExceptions = DecodeException.class)
+  public void testLZ4DecompressTruncatedData() throws Exception
+  {
+    final ByteString entry = newEntry(1);
+    final ByteString compressed = compress(LZ4CompressionCodec.WITHOUT_DICTIONARY, entry);
+    decompress(LZ4CompressionCodec.WITHOUT_DICTIONARY, compressed.subSequence(0, compressed.length() - 10),
+        entry.length());
+  }
+
+  @Test(expectedExceptions = DecodeException.class)
+  public void testLZ4DecompressWithWrongLength() throws Exception
+  {
+    final ByteString entry = newEntry(1);
+    decompress(LZ4CompressionCodec.WITHOUT_DICTIONARY, compress(LZ4CompressionCodec.WITHOUT_DICTIONARY, entry),
+        entry.length() + 1);
+  }
+
+  @Test
+  public void testTrainDictionary()
+  {
+    final byte[] dictionary = PersistentCompressionDictionaries.trainDictionary(newEntries(0, 200), 4096);
+    assertThat(dictionary.length).isLessThanOrEqualTo(4096).isGreaterThan(1024);
+    assertThat(new String(dictionary)).contains("objectClass");
+
+    // Nothing is shared by the samples
+    final Random random = new Random(0);
+    final List<ByteString> samples = new ArrayList<>();
+    for (int i = 0; i < 10; i++)
+    {
+      final byte[] bytes = new byte[100];
+      random.nextBytes(bytes);
+      samples.add(ByteString.wrap(bytes));
+    }
+    assertThat(PersistentCompressionDictionaries.trainDictionary(samples, 4096)).isEmpty();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDictionaryIsTrainedFromFirstEntries() throws Exception
+  {
+    final Storage storage = mock(Storage.class);
+    final WriteableTransaction txn = mock(WriteableTransaction.class);
+    when(txn.openCursor(any(TreeName.class))).thenReturn(mock(Cursor.class));
+    final PersistentCompressionDictionaries dictionaries =
+        new PersistentCompressionDictionaries(storage, txn, AccessMode.READ_WRITE);
+
+    final TreeName treeName = new TreeName("dc=example,dc=com", "id2entry");
+    try
+    {
+      LZ4CompressionCodec codec = null;
+      int nbEntries = 0;
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (codec == null && System.currentTimeMillis() < deadline)
+      {
+        codec = dictionaries.getCodec(treeName, newEntry(nbEntries++));
+        if (codec == null && nbEntries > 100)
+        {
+          // the dictionary is trained in the background
+          Thread.sleep(1);
+        }
+      }
+      assertThat(nbEntries).isGreaterThan(100);
+      assertThat(codec).isNotNull();
+      assertThat(codec.getDictionaryID()).isEqualTo(1);
+      assertThat(dictionaries.getCodec(1)).isSameAs(codec);
+      assertThat(dictionaries.getCodec(treeName, newEntry(0))).isSameAs(codec);
+      assertThat(dictionaries.getCodec(new TreeName("dc=other", "id2entry"), newEntry(0))).isNull();
+      verify(storage).write(any(WriteOperation.class));
+    }
+    finally
+    {
+      dictionaries.close();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDictionaryIsOnlyUsedOnceStored() throws Exception
+  {
+    final Storage storage = mock(Storage.class);
+    final CountDownLatch writeAttempted = new CountDownLatch(1);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        writeAttempted.countDown();
+        throw new StorageRuntimeException("write failed");
+      }
+    }).when(storage).write(any(WriteOperation.class));
+    final WriteableTransaction txn = mock(WriteableTransaction.class);
+    when(txn.openCursor(any(TreeName.class))).thenReturn(mock(Cursor.class));
+    final PersistentCompressionDictionaries dictionaries =
+        new PersistentCompressionDictionaries(storage, txn, AccessMode.READ_WRITE);
+
+    final TreeName treeName = new TreeName("dc=example,dc=com", "id2entry");
+    try
+    {
+      for (int i = 0; i < 1000; i++)
+      {
+        assertThat(dictionaries.getCodec(treeName, newEntry(i))).isNull();
+      }
+      assertThat(writeAttempted.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(dictionaries.getCodec(1)).isNull();
+      assertThat(dictionaries.getCodec(treeName, newEntry(0))).isNull();
+    }
+    finally
+    {
+      dictionaries.close();
+    }
+  }
+
+  private static ByteString compress(CompressionCodec codec, ByteString data) throws Exception
+  {
+    final ByteStringBuilder output = new ByteStringBuilder();
+    codec.compress(data, output);
+    return output.toByteString();
+  }
+
+  private static ByteString decompress(CompressionCodec codec, ByteString compressed, int length) throws Exception
+  {
+    final byte[] output = new byte[length];
+    codec.decompress(compressed.asReader(), output);
+    return ByteString.wrap(output);
+  }
+
+  private static List<ByteString> newEntries(int first, int nbEntries)
+  {
+    final List<ByteString> entries = new ArrayList<>();
+    for (int i = first; i < first + nbEntries; i++)
+    {
+      entries.add(newEntry(i));
+    }
+    return entries;
+  }
+
+  private static ByteString newEntry(int i)
+  {
+    return ByteString.valueOfUtf8("dn: uid=user." + i + ",ou=People,dc=example,dc=com\n"
+        + "objectClass: top\nobjectClass: person\nobjectClass: organizationalPerson\n"
+        + "objectClass: inetOrgPerson\nuid: user." + i + "\ncn: User " + i + "\nsn: " + i + "\n"
+        + "mail: user." + i + "@example.com\ntelephoneNumber: +1 408 555 " + (1000 + i) + "\n"
+        + "employeeNumber: " + i + "\ndescription: This is the description for User " + i + ".\n");
+  }
+}
@@ -42,6 +42,7 @@ import org.forgerock.opendj.server.config.meta.BackendVLVIndexCfgDefn.Scope;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PDBBackendCfg;
 import org.opends.server.backends.pdb.PDBBackend;
+import org.opends.server.controls.PagedResultsControl;
 import org.opends.server.controls.ServerSideSortRequestControl;
 import org.opends.server.controls.ServerSideSortResponseControl;
 import org.opends.server.controls.VLVRequestControl;
@@ -135,6 +136,10 @@ public class ControlsTestCase extends DirectoryServerTestCase
     when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
     when(backendCfg.getDBCacheSize()).thenReturn(0L);
     when(backendCfg.getDBCachePercent()).thenReturn(20);
+    when(backendCfg.getSortMemoryLimit()).thenReturn(16L * 1024 * 1024);
+    when(backendCfg.getSearchSnapshotCacheSize()).thenReturn(64L * 1024 * 1024);
+    when(backendCfg.getSearchSnapshotMaxCount()).thenReturn(128);
+    when(backendCfg.getSearchSnapshotExpirationTime()).thenReturn(600_000L);
 
     createVlvIndex(baseDN, backendCfg, SORT_ORDER_1);
     createVlvIndex(baseDN, backendCfg, SORT_ORDER_2);
@@ -562,6 +567,51 @@ public class ControlsTestCase extends DirectoryServerTestCase
     vlvByOffset(sortOrder, beforeCount, afterCount, offset, expectedOrder);
   }
 
+  @Test
+  public void sortedPagedResultsShouldReturnAllPagesInCorrectOrder() throws Exception
+  {
+    final List<DN> dns = new ArrayList<>();
+    ByteString cookie = ByteString.empty();
+    do
+    {
+      final SearchRequest request =
+          newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER).addControl(
+              new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3))).addControl(
+              new PagedResultsControl(false, 2, cookie));
+      final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+      assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      assertThat(getServerSideSortResponseControl(internalSearch.getResponseControls()).getResultCode())
+          .isEqualTo(LDAPResultCode.SUCCESS);
+      dns.addAll(getDNs(internalSearch.getSearchEntries()));
+      cookie = getPagedResultsControl(internalSearch.getResponseControls()).getCookie();
+    }
+    while (cookie.length() != 0);
+
+    assertThat(dns).isEqualTo(getDNs(USERS_BY_SORT_ORDER_3));
+  }
+
+  @Test
+  public void unindexedVlvByOffsetShouldReuseContextID() throws Exception
+  {
+    final List<Control> responseControls = vlvByOffset0(SORT_ORDER_3, 0, 2, 1, USERS_BY_SORT_ORDER_3.subList(0, 3));
+    final ByteString contextID = getVLVResponseControl(responseControls).getContextID();
+    assertThat(contextID).isNotNull();
+
+    final SearchRequest request =
+        newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER).addControl(
+            new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3))).addControl(
+            new VLVRequestControl(false, 1, 1, 5, 0, contextID));
+    final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+
+    assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+    assertThat(getDNs(internalSearch.getSearchEntries())).isEqualTo(getDNs(USERS_BY_SORT_ORDER_3.subList(3, 6)));
+    final VLVResponseControl vlvResponse = getVLVResponseControl(internalSearch.getResponseControls());
+    assertThat(vlvResponse.getTargetPosition()).isEqualTo(5);
+    assertThat(vlvResponse.getContentCount()).isEqualTo(CONTENT_COUNT);
+    assertThat(getServerSideSortResponseControl(internalSearch.getResponseControls()).getResultCode())
+        .isEqualTo(LDAPResultCode.SUCCESS);
+  }
+
   @AfterClass
   public void afterClass() throws Exception
   {
@@ -657,6 +707,23 @@ public class ControlsTestCase extends DirectoryServerTestCase
     return null;
   }
 
+  private PagedResultsControl getPagedResultsControl(final List<Control> responseControls) throws DirectoryException
+  {
+    for (final Control c : responseControls)
+    {
+      if (c.getOID().equals(OID_PAGED_RESULTS_CONTROL))
+      {
+        if (c instanceof LDAPControl)
+        {
+          return PagedResultsControl.DECODER.decode(c.isCritical(), ((LDAPControl) c).getValue());
+        }
+        return (PagedResultsControl) c;
+      }
+    }
+    fail("Expected to find PagedResultsControl");
+    return null;
+  }
+
   private VLVResponseControl getVLVResponseControl(final Control c) throws DirectoryException
   {
     if (c instanceof LDAPControl)
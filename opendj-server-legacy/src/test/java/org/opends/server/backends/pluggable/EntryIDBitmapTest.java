@@ -0,0 +1,190 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class EntryIDBitmapTest extends DirectoryServerTestCase
+{
+  @DataProvider
+  public Object[][] densities()
+  {
+    // sparse (array containers), dense (bitmap containers) and contiguous (run containers)
+    return new Object[][] { { 200_000, 1_000 }, { 200_000, 150_000 }, { 0, 0 } };
+  }
+
+  @Test(dataProvider = "densities")
+  public void testAddRemoveContains(int range, int nbIDs)
+  {
+    final Random random = new Random(range);
+    final TreeSet<Long> expected = new TreeSet<>();
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    fill(random, range, nbIDs, expected, bitmap);
+    assertBitmapEquals(bitmap, expected);
+
+    for (int i = 0; i < nbIDs / 2; i++)
+    {
+      final long id = random.nextInt(Math.max(range, 1));
+      assertThat(bitmap.remove(id)).isEqualTo(expected.remove(id));
+    }
+    assertBitmapEquals(bitmap, expected);
+  }
+
+  @Test(dataProvider = "densities")
+  public void testBooleanOperations(int range, int nbIDs)
+  {
+    final Random random = new Random(nbIDs);
+    final TreeSet<Long> expected1 = new TreeSet<>();
+    final TreeSet<Long> expected2 = new TreeSet<>();
+    final EntryIDBitmap bitmap1 = new EntryIDBitmap();
+    final EntryIDBitmap bitmap2 = new EntryIDBitmap();
+    fill(random, range, nbIDs, expected1, bitmap1);
+    fill(random, range, nbIDs / 3, expected2, bitmap2);
+
+    final EntryIDBitmap and = bitmap1.copy();
+    and.and(bitmap2);
+    final TreeSet<Long> expectedAnd = new TreeSet<>(expected1);
+    expectedAnd.retainAll(expected2);
+    assertBitmapEquals(and, expectedAnd);
+
+    final EntryIDBitmap or = bitmap1.copy();
+    or.or(bitmap2);
+    final TreeSet<Long> expectedOr = new TreeSet<>(expected1);
+    expectedOr.addAll(expected2);
+    assertBitmapEquals(or, expectedOr);
+
+    final EntryIDBitmap andNot = bitmap1.copy();
+    andNot.andNot(bitmap2);
+    final TreeSet<Long> expectedAndNot = new TreeSet<>(expected1);
+    expectedAndNot.removeAll(expected2);
+    assertBitmapEquals(andNot, expectedAndNot);
+
+    // Operands must not have been modified
+    assertBitmapEquals(bitmap1, expected1);
+    assertBitmapEquals(bitmap2, expected2);
+  }
+
+  @Test(dataProvider = "densities")
+  public void testEncodeDecode(int range, int nbIDs)
+  {
+    final TreeSet<Long> expected = new TreeSet<>();
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    fill(new Random(42), range, nbIDs, expected, bitmap);
+
+    final ByteString encoded = bitmap.encode(new ByteStringBuilder()).toByteString();
+    assertThat(encoded.length()).isLessThanOrEqualTo(bitmap.getEstimatedEncodedSize());
+    final EntryIDBitmap decoded = EntryIDBitmap.decode(encoded.asReader());
+    assertBitmapEquals(decoded, expected);
+
+    // Decoded (possibly run) containers must still be updatable
+    decoded.add(1_000_000);
+    decoded.remove(0);
+    expected.add(1_000_000L);
+    expected.remove(0L);
+    assertBitmapEquals(decoded, expected);
+  }
+
+  @Test(dataProvider = "densities")
+  public void testDecodeIntersection(int range, int nbIDs)
+  {
+    final Random random = new Random(7);
+    final TreeSet<Long> expected = new TreeSet<>();
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    fill(random, range, nbIDs, expected, bitmap);
+    final TreeSet<Long> candidates = new TreeSet<>();
+    fill(random, 300_000, 2_000, candidates, new EntryIDBitmap());
+
+    final long[] sortedCandidates = new long[candidates.size()];
+    int i = 0;
+    for (long id : candidates)
+    {
+      sortedCandidates[i++] = id;
+    }
+    final ByteString encoded = bitmap.encode(new ByteStringBuilder()).toByteString();
+    final long[] intersection = EntryIDBitmap.decodeIntersection(encoded.asReader(), sortedCandidates);
+
+    expected.retainAll(candidates);
+    assertBitmapEquals(EntryIDBitmap.valueOf(intersection), expected);
+  }
+
+  @Test
+  public void testRunsAreEncodedCompactly()
+  {
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    for (long id = 1; id <= 100_000; id++)
+    {
+      bitmap.add(id);
+    }
+    assertThat(bitmap.encode(new ByteStringBuilder()).length()).isLessThan(32);
+  }
+
+  private static void fill(Random random, int range, int nbIDs, TreeSet<Long> expected, EntryIDBitmap bitmap)
+  {
+    if (range == 0)
+    {
+      // contiguous range with a few holes
+      for (long id = 0; id < 140_000; id++)
+      {
+        if (id % 10_000 != 5)
+        {
+          expected.add(id);
+          bitmap.add(id);
+        }
+      }
+      return;
+    }
+    for (int i = 0; i < nbIDs; i++)
+    {
+      final long id = random.nextInt(range);
+      assertThat(bitmap.add(id)).isEqualTo(expected.add(id));
+    }
+  }
+
+  private static void assertBitmapEquals(EntryIDBitmap bitmap, TreeSet<Long> expected)
+  {
+    assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+    assertThat(bitmap.isEmpty()).isEqualTo(expected.isEmpty());
+    if (!expected.isEmpty())
+    {
+      assertThat(bitmap.first()).isEqualTo(expected.first());
+      assertThat(bitmap.last()).isEqualTo(expected.last());
+    }
+
+    final long[] ids = bitmap.toArray();
+    final Iterator<EntryID> it = bitmap.iterator();
+    int i = 0;
+    for (long id : expected)
+    {
+      assertThat(ids[i++]).isEqualTo(id);
+      assertThat(it.next().longValue()).isEqualTo(id);
+      assertThat(bitmap.contains(id)).isTrue();
+    }
+    assertThat(it.hasNext()).isFalse();
+    assertThat(bitmap.contains(-1)).isFalse();
+  }
+}
@@ -166,6 +166,23 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertThat(codec.decode(KEY, string).size()).isEqualTo(Long.MAX_VALUE);
   }
 
+  @Test(dataProvider = "codecs")
+  public void testCodecsDecodeIntersection(EntryIDSetCodec codec)
+  {
+    final ByteString string = codec.encode(newDefinedSet(4, 6, 8, 10, 12, 100_000, 200_000));
+    assertIdsEquals(codec.decodeIntersection(KEY, string, newDefinedSet(1, 4, 5, 10, 11, 200_000, 300_000)),
+        4, 10, 200_000);
+    assertIdsEquals(codec.decodeIntersection(KEY, string, newDefinedSet(1, 300_000)));
+    assertIdsEquals(codec.decodeIntersection(KEY, string, newDefinedSet(3, 4, 5)), 4);
+
+    final EntryIDSet candidates = newBitmapSet(EntryIDBitmap.valueOf(6, 7, 8, 100_000));
+    assertIdsEquals(codec.decodeIntersection(KEY, string, candidates), 6, 8, 100_000);
+    assertIdsEquals(candidates, 6, 7, 8, 100_000);
+
+    final ByteString undefined = codec.encode(newUndefinedSet());
+    assertThat(codec.decodeIntersection(KEY, undefined, newDefinedSet(4, 6)).isDefined()).isFalse();
+  }
+
   @Test(enabled = false, dataProvider = "codec")
   public void testCodecsEmptyDefinedSet(EntryIDSetCodec codec)
   {
@@ -290,9 +307,56 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(retained, 1, 3, 5, 7, 9);
   }
 
+  @Test
+  public void testBitmapAddAllRemoveAll()
+  {
+    final EntryIDSet set = newBitmapSet(EntryIDBitmap.valueOf(10, 12));
+
+    set.addAll(newDefinedSet(6, 8, 70000));
+    assertIdsEquals(set, 6, 8, 10, 12, 70000);
+
+    set.addAll(newBitmapSet(EntryIDBitmap.valueOf(9, 100000)));
+    assertIdsEquals(set, 6, 8, 9, 10, 12, 70000, 100000);
+
+    set.removeAll(newBitmapSet(EntryIDBitmap.valueOf(8, 70000)));
+    assertIdsEquals(set, 6, 9, 10, 12, 100000);
+
+    set.removeAll(newDefinedSet(6, 100000));
+    assertIdsEquals(set, 9, 10, 12);
+    assertThat(set.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void testBitmapRetainAll()
+  {
+    EntryIDSet retained = newBitmapSet(EntryIDBitmap.valueOf(2, 4, 6, 8, 70000));
+    retained.retainAll(newBitmapSet(EntryIDBitmap.valueOf(1, 2, 3, 5, 6, 7, 8, 70001)));
+    assertIdsEquals(retained, 2, 6, 8);
+
+    retained = newDefinedSet(2, 4, 6, 8);
+    retained.retainAll(newBitmapSet(EntryIDBitmap.valueOf(4, 8, 9)));
+    assertIdsEquals(retained, 4, 8);
+
+    final EntryIDSet bitmapSet = newBitmapSet(EntryIDBitmap.valueOf(1, 3, 5));
+    retained = newUndefinedSet();
+    retained.retainAll(bitmapSet);
+    retained.remove(id(3));
+    assertIdsEquals(retained, 1, 5);
+    assertIdsEquals(bitmapSet, 1, 3, 5);
+  }
+
+  @Test
+  public void testBitmapUnion()
+  {
+    final EntryIDSet union = newSetFromUnion(Arrays.asList(
+        newDefinedSet(1, 2, 3), newBitmapSet(EntryIDBitmap.valueOf(4, 5, 6)), newDefinedSet(3, 4)));
+    assertIdsEquals(union, 1, 2, 3, 4, 5, 6);
+    assertThat(union.toLongArray()).containsExactly(1, 2, 3, 4, 5, 6);
+  }
+
   @DataProvider(name = "codecs")
   public static Object[][] codecs() {
-     return new Object[][] { { CODEC_V1 }, { CODEC_V2 } };
+     return new Object[][] { { CODEC_V1 }, { CODEC_V2 }, { CODEC_V4 } };
   }
 
 }
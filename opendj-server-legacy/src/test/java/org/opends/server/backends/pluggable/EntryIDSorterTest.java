@@ -0,0 +1,169 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.util.CollectionUtils.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.crypto.CryptoSuite;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class EntryIDSorterTest extends DirectoryServerTestCase
+{
+  private File tempDir;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    tempDir = File.createTempFile("EntryIDSorterTest", "");
+    tempDir.delete();
+  }
+
+  @AfterClass
+  public void tearDown()
+  {
+    StaticUtils.recursiveDelete(tempDir);
+  }
+
+  @DataProvider
+  public Object[][] sorts()
+  {
+    // nbEntries, maxEntries, memoryLimit, expected truncation, expected spill
+    return new Object[][] {
+      { 1_000, Integer.MAX_VALUE, 1L << 20, false, false },
+      { 1_000, Integer.MAX_VALUE, 8_000L, false, true },
+      { 1_000, 10, 1L << 20, false, false },
+      { 1_000, 10, 8_000L, true, false },
+      { 1_000, 100, 1_000L, true, true },
+      { 0, Integer.MAX_VALUE, 1_000L, false, false },
+    };
+  }
+
+  @Test(dataProvider = "sorts")
+  public void testSort(int nbEntries, int maxEntries, long memoryLimit, boolean expectTruncation,
+      boolean expectSpill) throws Exception
+  {
+    final Random random = new Random(nbEntries + maxEntries);
+    final TreeMap<ByteString, Long> expected = new TreeMap<>();
+    try (EntryIDSorter sorter = new EntryIDSorter(maxEntries, memoryLimit, tempDir, null))
+    {
+      for (long id = 0; id < nbEntries; id++)
+      {
+        final ByteString key = new ByteStringBuilder().appendInt(random.nextInt()).appendLong(id).toByteString();
+        expected.put(key, id);
+        sorter.add(key, id);
+      }
+
+      final List<Long> expectedIDs = new ArrayList<>();
+      for (Map.Entry<ByteString, Long> entry : expected.entrySet())
+      {
+        if (expectTruncation && expectedIDs.size() == maxEntries)
+        {
+          break;
+        }
+        expectedIDs.add(entry.getValue());
+      }
+
+      final long[] sortedIDs = sorter.toSortedEntryIDs();
+      assertThat(sortedIDs).containsExactly(toArray(expectedIDs));
+      assertThat(sorter.getNbEntries()).isEqualTo(nbEntries);
+      assertThat(sorter.isTruncated()).isEqualTo(expectTruncation);
+      assertThat(sorter.getSpilledBytes() > 0).isEqualTo(expectSpill);
+    }
+    assertThat(tempDir.list()).isNullOrEmpty();
+  }
+
+  @Test
+  public void testCursorReturnsKeys() throws Exception
+  {
+    try (EntryIDSorter sorter = new EntryIDSorter(Integer.MAX_VALUE, 200L, tempDir, null))
+    {
+      for (long id = 10; id > 0; id--)
+      {
+        sorter.add(ByteString.valueOfLong(id), id);
+      }
+      final EntryIDSorter.SortedCursor cursor = sorter.cursor();
+      for (long id = 1; id <= 10; id++)
+      {
+        assertThat(cursor.next()).isTrue();
+        assertThat(cursor.getKey()).isEqualTo(ByteString.valueOfLong(id));
+        assertThat(cursor.getEntryID()).isEqualTo(id);
+      }
+      assertThat(cursor.next()).isFalse();
+      assertThat(sorter.getSpilledBytes()).isPositive();
+    }
+  }
+
+  @Test
+  public void testSpilledKeysAreEncryptedForConfidentialBackends() throws Exception
+  {
+    TestCaseUtils.startServer();
+    final CryptoSuite cryptoSuite = TestCaseUtils.getServerContext().getCryptoManager()
+        .newCryptoSuite("AES/CBC/PKCS5Padding", 128, true);
+    try (EntryIDSorter sorter = new EntryIDSorter(Integer.MAX_VALUE, 200L, tempDir, cryptoSuite))
+    {
+      for (long id = 10; id > 0; id--)
+      {
+        sorter.add(ByteString.valueOfUtf8("secret-value-" + id), id);
+      }
+      assertThat(sorter.getSpilledBytes()).isPositive();
+      for (File run : tempDir.listFiles())
+      {
+        assertThat(new String(Files.readAllBytes(run.toPath()), StandardCharsets.ISO_8859_1))
+            .doesNotContain("secret-value");
+      }
+
+      final EntryIDSorter.SortedCursor cursor = sorter.cursor();
+      final List<Long> sortedIDs = new ArrayList<>();
+      while (cursor.next())
+      {
+        assertThat(cursor.getKey().toString()).isEqualTo("secret-value-" + cursor.getEntryID());
+        sortedIDs.add(cursor.getEntryID());
+      }
+      assertThat(sortedIDs).isEqualTo(newArrayList(1L, 10L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L));
+    }
+    assertThat(tempDir.list()).isNullOrEmpty();
+  }
+
+  private static long[] toArray(List<Long> ids)
+  {
+    final long[] array = new long[ids.size()];
+    for (int i = 0; i < array.length; i++)
+    {
+      array[i] = ids.get(i);
+    }
+    return array;
+  }
+}
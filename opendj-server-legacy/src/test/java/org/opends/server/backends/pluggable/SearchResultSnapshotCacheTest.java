@@ -0,0 +1,180 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.backends.pluggable.SearchResultSnapshotCache.*;
+
+import java.nio.LongBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.SearchResultSnapshotCache.Snapshot;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.Control;
+import org.opends.server.types.SearchFilter;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class SearchResultSnapshotCacheTest extends DirectoryServerTestCase
+{
+  @Test
+  public void testPutGet() throws Exception
+  {
+    final SearchResultSnapshotCache cache = new SearchResultSnapshotCache(60_000, 10, 1000);
+    final SearchOperation search = search("(cn=test)");
+    final Snapshot snapshot = cache.put(search, LongBuffer.wrap(new long[] { 5, 3, 4 }), true, noControls());
+
+    assertThat(cache.get(snapshot.getID(), search)).isSameAs(snapshot);
+    assertThat(cache.get(snapshot.getID() + 1, search)).isNull();
+    assertThat(toArray(snapshot.getEntryIDs())).containsExactly(5, 3, 4);
+    assertThat(snapshot.areCandidatesInScope()).isTrue();
+  }
+
+  @Test
+  public void testGetFromDifferentSearch() throws Exception
+  {
+    final SearchResultSnapshotCache cache = new SearchResultSnapshotCache(60_000, 10, 1000);
+    final Snapshot snapshot = cache.put(search("(cn=test)"), LongBuffer.wrap(new long[] { 1 }), true, noControls());
+
+    assertThat(cache.get(snapshot.getID(), search("(cn=other)"))).isNull();
+    cache.remove(snapshot.getID(), search("(cn=other)"));
+    assertThat(cache.size()).isEqualTo(1);
+    cache.remove(snapshot.getID(), search("(cn=test)"));
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() throws Exception
+  {
+    final SearchResultSnapshotCache cache = new SearchResultSnapshotCache(60_000, 2, 5);
+    final SearchOperation search = search("(cn=test)");
+    final Snapshot snapshot1 = cache.put(search, LongBuffer.wrap(new long[] { 1, 2 }), true, noControls());
+    final Snapshot snapshot2 = cache.put(search, LongBuffer.wrap(new long[] { 1, 2 }), true, noControls());
+    cache.get(snapshot1.getID(), search);
+
+    // Too many snapshots
+    final Snapshot snapshot3 = cache.put(search, LongBuffer.wrap(new long[] { 3 }), true, noControls());
+    assertThat(cache.get(snapshot2.getID(), search)).isNull();
+    assertThat(cache.get(snapshot1.getID(), search)).isSameAs(snapshot1);
+
+    // Too many entry IDs
+    cache.put(search, LongBuffer.wrap(new long[] { 1, 2, 3, 4 }), true, noControls());
+    assertThat(cache.get(snapshot3.getID(), search)).isNull();
+    assertThat(cache.get(snapshot1.getID(), search)).isNull();
+    assertThat(cache.size()).isEqualTo(1);
+
+    // Bigger than the cache
+    assertThat(cache.put(search, LongBuffer.wrap(new long[6]), true, noControls())).isNull();
+  }
+
+  @Test
+  public void testExpiration() throws Exception
+  {
+    final SearchResultSnapshotCache cache = new SearchResultSnapshotCache(0, 10, 1000);
+    final SearchOperation search = search("(cn=test)");
+    final Snapshot snapshot = cache.put(search, LongBuffer.wrap(new long[] { 1 }), true, noControls());
+    Thread.sleep(5);
+    assertThat(cache.get(snapshot.getID(), search)).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLoweredLimitsEvictLeastRecentlyUsed() throws Exception
+  {
+    final PluggableBackendCfg config = mock(PluggableBackendCfg.class);
+    when(config.getSearchSnapshotExpirationTime()).thenReturn(60_000L);
+    when(config.getSearchSnapshotMaxCount()).thenReturn(10);
+    when(config.getSearchSnapshotCacheSize()).thenReturn(1000L * 8);
+    final SearchResultSnapshotCache cache = new SearchResultSnapshotCache(config);
+    final Snapshot snapshot1 = cache.put(search("(cn=1)"), LongBuffer.wrap(new long[] { 1, 2 }), true, noControls());
+    final Snapshot snapshot2 = cache.put(search("(cn=2)"), LongBuffer.wrap(new long[] { 3, 4 }), true, noControls());
+    assertThat(cache.getMemorySize()).isEqualTo(4 * 8);
+
+    when(config.getSearchSnapshotCacheSize()).thenReturn(3L * 8);
+    cache.setLimits(config);
+    assertThat(cache.get(snapshot1.getID(), search("(cn=1)"))).isNull();
+    assertThat(cache.get(snapshot2.getID(), search("(cn=2)"))).isSameAs(snapshot2);
+    assertThat(cache.getMemorySize()).isEqualTo(2 * 8);
+    assertThat(cache.getNbEvictions()).isEqualTo(1);
+
+    when(config.getSearchSnapshotMaxCount()).thenReturn(0);
+    cache.setLimits(config);
+    assertThat(cache.size()).isZero();
+    assertThat(cache.put(search("(cn=1)"), LongBuffer.wrap(new long[] { 1 }), true, noControls())).isNull();
+  }
+
+  @Test
+  public void testClearOnlyDiscardsTheSnapshotsOfTheBaseDN() throws Exception
+  {
+    final SearchResultSnapshotCache cache = new SearchResultSnapshotCache(60_000, 10, 1000);
+    final SearchOperation search = search("(cn=test)");
+    final Snapshot snapshot = cache.put(search, LongBuffer.wrap(new long[] { 1 }), true, noControls());
+
+    cache.clear(DN.valueOf("dc=example,dc=org"));
+    assertThat(cache.get(snapshot.getID(), search)).isSameAs(snapshot);
+    cache.clear(DN.valueOf("dc=com"));
+    assertThat(cache.get(snapshot.getID(), search)).isNull();
+    assertThat(cache.getMemorySize()).isZero();
+  }
+
+  @Test
+  public void testCookie() throws Exception
+  {
+    final SearchResultSnapshotCache cache = new SearchResultSnapshotCache(60_000, 10, 1000);
+    final Snapshot snapshot = cache.put(search("(cn=test)"), LongBuffer.wrap(new long[] { 7, 8, 9 }), false,
+        noControls());
+
+    final ByteString cookie = encodeCookie(snapshot, 1);
+    assertThat(isSnapshotCookie(cookie)).isTrue();
+    assertThat(isSnapshotCookie(ByteString.valueOfLong(8))).isFalse();
+    assertThat(cookie.toLong()).isEqualTo(8);
+    assertThat(getSnapshotID(cookie)).isEqualTo(snapshot.getID());
+    assertThat(getPosition(cookie)).isEqualTo(1);
+
+    assertThat(getSnapshotIDFromContextID(encodeContextID(snapshot))).isEqualTo(snapshot.getID());
+    assertThat(getSnapshotIDFromContextID(null)).isNull();
+  }
+
+  private static SearchOperation search(String filter) throws Exception
+  {
+    final SearchOperation search = mock(SearchOperation.class);
+    when(search.getBaseDN()).thenReturn(DN.valueOf("dc=example,dc=com"));
+    when(search.getScope()).thenReturn(SearchScope.WHOLE_SUBTREE);
+    when(search.getFilter()).thenReturn(SearchFilter.createFilterFromString(filter));
+    when(search.getAuthorizationDN()).thenReturn(DN.rootDN());
+    return search;
+  }
+
+  private static List<Control> noControls()
+  {
+    return Collections.emptyList();
+  }
+
+  private static long[] toArray(LongBuffer buffer)
+  {
+    final long[] array = new long[buffer.remaining()];
+    buffer.get(array);
+    return array;
+  }
+}
@@ -29,6 +29,7 @@ import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.ldap.schema.ObjectClass;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntryCompressionCodec;
 import org.opends.server.DirectoryServerTestCase;
 import org.opends.server.TestCaseUtils;
 import org.opends.server.backends.pluggable.spi.TreeName;
@@ -313,14 +314,28 @@ public class TestDnKeyFormat extends DirectoryServerTestCase {
     }
   }
 
+  /** Retrieves the compression options used to test the entry encoding and decoding. */
+  @DataProvider(name = "compressionCodecs")
+  public Object[][] getCompressionCodecs()
+  {
+    return new Object[][]
+    {
+      new Object[] { false, EntryCompressionCodec.DEFLATE },
+      new Object[] { true, EntryCompressionCodec.DEFLATE },
+      new Object[] { true, EntryCompressionCodec.LZ4 },
+      // Without dictionaries, entries are compressed with LZ4 without dictionary
+      new Object[] { true, EntryCompressionCodec.LZ4_DICTIONARY },
+    };
+  }
+
   /**
    * Test entry.
    *
    * @throws Exception
    *           If the test failed unexpectedly.
    */
-  @Test
-  public void testEntryToAndFromDatabase() throws Exception {
+  @Test(dataProvider = "compressionCodecs")
+  public void testEntryToAndFromDatabase(boolean compressed, EntryCompressionCodec codec) throws Exception {
     ensureServerIsUpAndRunning();
 
     // Convert the test LDIF string to a byte array
@@ -329,7 +344,8 @@ public class TestDnKeyFormat extends DirectoryServerTestCase {
     try (final LDIFReader reader = new LDIFReader(new LDIFImportConfig(new ByteArrayInputStream(originalLDIFBytes))))
     {
       Entry entryBefore, entryAfter;
-      DataConfig dataConfig = new DataConfig.Builder().compress(false).encode(false).build();
+      DataConfig dataConfig =
+          new DataConfig.Builder().compress(compressed).compressionCodec(codec).encode(false).build();
       ID2Entry id2entry = new ID2Entry(new TreeName("o=test", "id2entry"), dataConfig);
       while ((entryBefore = reader.readEntry(false)) != null) {
         ByteString bytes = id2entry.entryToDatabase(entryBefore, dataConfig);
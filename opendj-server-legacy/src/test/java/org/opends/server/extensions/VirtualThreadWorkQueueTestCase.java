@@ -0,0 +1,211 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.server.protocols.internal.InternalClientConnection.*;
+import static org.opends.server.protocols.internal.Requests.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.server.config.meta.VirtualThreadWorkQueueCfgDefn;
+import org.forgerock.opendj.server.config.server.VirtualThreadWorkQueueCfg;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.VirtualThreadWorkQueueMonitor;
+import org.opends.server.plugins.DelayPreOpPlugin;
+import org.opends.server.protocols.internal.InternalSearchOperation;
+import org.opends.server.protocols.internal.SearchRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * A set of test cases for the virtual thread work queue.
+ */
+public class VirtualThreadWorkQueueTestCase
+       extends ExtensionsTestCase
+{
+  /** The monitor provider of the server work queue, replaced while testing. */
+  private MonitorProvider<?> serverWorkQueueMonitor;
+
+  /**
+   * Ensures that the Directory Server is running.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+    TestCaseUtils.initializeTestBackend(true);
+  }
+
+  @BeforeMethod
+  public void saveServerWorkQueueMonitor()
+  {
+    serverWorkQueueMonitor = DirectoryServer.getMonitorProviders().get("work queue");
+  }
+
+  @AfterMethod
+  public void restoreServerWorkQueueMonitor()
+  {
+    if (serverWorkQueueMonitor != null)
+    {
+      DirectoryServer.registerMonitorProvider(serverWorkQueueMonitor);
+    }
+  }
+
+
+
+  /**
+   * Tests that operations are processed concurrently, beyond the number of
+   * worker threads of the traditional work queue.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testProcessOperations() throws Exception
+  {
+    VirtualThreadWorkQueue workQueue = newWorkQueue(100);
+    try
+    {
+      List<InternalSearchOperation> operations = new ArrayList<>();
+      for (int i = 0; i < 200; i++)
+      {
+        InternalSearchOperation operation = newSearchOperation(i < 50 ? 1000 : 0);
+        workQueue.submitOperation(operation);
+        operations.add(operation);
+      }
+
+      assertTrue(workQueue.waitUntilIdle(30000));
+      for (InternalSearchOperation operation : operations)
+      {
+        assertEquals(operation.getResultCode(), ResultCode.SUCCESS);
+      }
+      assertEquals(workQueue.getOpsSubmitted(), 200);
+      assertEquals(workQueue.getActiveOperations(), 0);
+      assertTrue(workQueue.getMaxActiveOperations() >= 50, "max active " + workQueue.getMaxActiveOperations());
+
+      String monitorData = DirectoryServer.getMonitorProviders().get("work queue").getMonitorData().toString();
+      assertTrue(monitorData.contains(VirtualThreadWorkQueueMonitor.ATTR_MAX_ACTIVE_OPERATIONS), monitorData);
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(null);
+    }
+  }
+
+
+
+  /**
+   * Tests that operations are rejected when the maximum number of concurrent
+   * operations is reached and the caller does not want to wait, and that this
+   * maximum can be changed on the fly.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testMaxConcurrentOperations() throws Exception
+  {
+    VirtualThreadWorkQueue workQueue = newWorkQueue(1);
+    try
+    {
+      workQueue.submitOperation(newSearchOperation(2000));
+      assertFalse(workQueue.trySubmitOperation(newSearchOperation(0)));
+      assertEquals(workQueue.getOpsRejectedDueToQueueFull(), 1);
+      assertFalse(workQueue.isIdle());
+
+      workQueue.applyConfigurationChange(newConfiguration(2));
+      assertEquals(workQueue.getNumWorkerThreads(), 2);
+      assertTrue(workQueue.trySubmitOperation(newSearchOperation(0)));
+
+      assertTrue(workQueue.waitUntilIdle(10000));
+      workQueue.applyConfigurationChange(newConfiguration(1));
+      workQueue.submitOperation(newSearchOperation(1000));
+      assertFalse(workQueue.trySubmitOperation(newSearchOperation(0)));
+      assertTrue(workQueue.waitUntilIdle(10000));
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(null);
+    }
+  }
+
+
+
+  /**
+   * Tests that operations are rejected once the work queue is shut down.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testSubmitAfterShutdown() throws Exception
+  {
+    VirtualThreadWorkQueue workQueue = newWorkQueue(10);
+    workQueue.finalizeWorkQueue(null);
+    assertTrue(workQueue.shutdownRequested());
+    try
+    {
+      workQueue.submitOperation(newSearchOperation(0));
+      fail("Expected the operation to be rejected");
+    }
+    catch (DirectoryException e)
+    {
+      assertEquals(e.getResultCode(), ResultCode.UNAVAILABLE);
+    }
+  }
+
+
+
+  private VirtualThreadWorkQueue newWorkQueue(int maxConcurrentOperations) throws Exception
+  {
+    VirtualThreadWorkQueue workQueue = new VirtualThreadWorkQueue();
+    workQueue.initializeWorkQueue(newConfiguration(maxConcurrentOperations));
+    return workQueue;
+  }
+
+  private VirtualThreadWorkQueueCfg newConfiguration(int maxConcurrentOperations) throws Exception
+  {
+    Entry configEntry = TestCaseUtils.makeEntry(
+      "dn: cn=Virtual Thread Work Queue,cn=config",
+      "objectClass: ds-cfg-virtual-thread-work-queue",
+      "objectClass: ds-cfg-work-queue",
+      "objectClass: top",
+      "cn: Virtual Thread Work Queue",
+      "ds-cfg-java-class: org.opends.server.extensions.VirtualThreadWorkQueue",
+      "ds-cfg-max-concurrent-operations: " + maxConcurrentOperations);
+    return InitializationUtils.getConfiguration(VirtualThreadWorkQueueCfgDefn.getInstance(), configEntry);
+  }
+
+  private InternalSearchOperation newSearchOperation(int delay) throws Exception
+  {
+    SearchRequest request = newSearchRequest(DN.valueOf("o=test"), SearchScope.BASE_OBJECT);
+    if (delay > 0)
+    {
+      request.addControl(DelayPreOpPlugin.createDelayControlList(delay));
+    }
+    return new InternalSearchOperation(getRootConnection(), nextOperationID(), nextMessageID(), request);
+  }
+}
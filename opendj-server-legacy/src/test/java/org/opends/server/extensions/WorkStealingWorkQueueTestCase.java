@@ -0,0 +1,256 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.server.protocols.internal.InternalClientConnection.*;
+import static org.opends.server.protocols.internal.Requests.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.server.config.meta.WorkStealingWorkQueueCfgDefn;
+import org.forgerock.opendj.server.config.server.WorkStealingWorkQueueCfg;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.WorkStealingWorkQueueMonitor;
+import org.opends.server.plugins.DelayPreOpPlugin;
+import org.opends.server.protocols.internal.InternalSearchOperation;
+import org.opends.server.protocols.internal.SearchRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * A set of test cases for the work stealing work queue.
+ */
+public class WorkStealingWorkQueueTestCase
+       extends ExtensionsTestCase
+{
+  /** The monitor provider of the server work queue, replaced while testing. */
+  private MonitorProvider<?> serverWorkQueueMonitor;
+
+  /**
+   * Ensures that the Directory Server is running.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+    TestCaseUtils.initializeTestBackend(true);
+  }
+
+  @BeforeMethod
+  public void saveServerWorkQueueMonitor()
+  {
+    serverWorkQueueMonitor = DirectoryServer.getMonitorProviders().get("work queue");
+  }
+
+  @AfterMethod
+  public void restoreServerWorkQueueMonitor()
+  {
+    if (serverWorkQueueMonitor != null)
+    {
+      DirectoryServer.registerMonitorProvider(serverWorkQueueMonitor);
+    }
+  }
+
+
+
+  /**
+   * Tests that operations submitted from many connections are all processed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testProcessOperations() throws Exception
+  {
+    WorkStealingWorkQueue workQueue = newWorkQueue(4, 100);
+    try
+    {
+      List<InternalSearchOperation> operations = new ArrayList<>();
+      for (int i = 0; i < 500; i++)
+      {
+        InternalSearchOperation operation = newSearchOperation(0);
+        workQueue.submitOperation(operation);
+        operations.add(operation);
+      }
+
+      assertTrue(workQueue.waitUntilIdle(30000));
+      for (InternalSearchOperation operation : operations)
+      {
+        assertEquals(operation.getResultCode(), ResultCode.SUCCESS);
+      }
+      assertEquals(workQueue.getOpsSubmitted(), 500);
+      assertEquals(workQueue.size(), 0);
+
+      String monitorData = DirectoryServer.getMonitorProviders().get("work queue").getMonitorData().toString();
+      assertTrue(monitorData.contains(WorkStealingWorkQueueMonitor.ATTR_OPS_STOLEN), monitorData);
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(null);
+    }
+  }
+
+
+
+  /**
+   * Tests that operations are rejected when the work queue is at its maximum
+   * capacity and the caller does not want to wait.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testQueueFullRejects() throws Exception
+  {
+    WorkStealingWorkQueue workQueue = newWorkQueue(1, 1);
+    try
+    {
+      // Keep the only worker thread busy.
+      workQueue.submitOperation(newSearchOperation(2000));
+      while (workQueue.size() > 0)
+      {
+        Thread.sleep(10);
+      }
+
+      assertTrue(workQueue.trySubmitOperation(newSearchOperation(0)));
+      assertFalse(workQueue.trySubmitOperation(newSearchOperation(0)));
+      assertEquals(workQueue.getOpsRejectedDueToQueueFull(), 1);
+      assertEquals(workQueue.size(), 1);
+
+      assertTrue(workQueue.waitUntilIdle(10000));
+      assertTrue(workQueue.trySubmitOperation(newSearchOperation(0)));
+      assertTrue(workQueue.waitUntilIdle(10000));
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(null);
+    }
+  }
+
+
+
+  /**
+   * Tests that the number of worker threads and the capacity can be changed
+   * while operations are pending.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testConfigurationChange() throws Exception
+  {
+    WorkStealingWorkQueue workQueue = newWorkQueue(2, 100);
+    try
+    {
+      List<InternalSearchOperation> operations = new ArrayList<>();
+      for (int i = 0; i < 50; i++)
+      {
+        InternalSearchOperation operation = newSearchOperation(i < 2 ? 500 : 0);
+        workQueue.submitOperation(operation);
+        operations.add(operation);
+      }
+
+      workQueue.applyConfigurationChange(newConfiguration(6, 500));
+      assertEquals(workQueue.getNumWorkerThreads(), 6);
+      workQueue.applyConfigurationChange(newConfiguration(1, 20));
+      assertEquals(workQueue.getNumWorkerThreads(), 1);
+
+      for (int i = 0; i < 50; i++)
+      {
+        InternalSearchOperation operation = newSearchOperation(0);
+        workQueue.submitOperation(operation);
+        operations.add(operation);
+      }
+
+      assertTrue(workQueue.waitUntilIdle(30000));
+      for (InternalSearchOperation operation : operations)
+      {
+        assertEquals(operation.getResultCode(), ResultCode.SUCCESS);
+      }
+    }
+    finally
+    {
+      workQueue.finalizeWorkQueue(null);
+    }
+  }
+
+
+
+  /**
+   * Tests that operations are rejected once the work queue is shut down.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testSubmitAfterShutdown() throws Exception
+  {
+    WorkStealingWorkQueue workQueue = newWorkQueue(2, 10);
+    workQueue.finalizeWorkQueue(null);
+    assertTrue(workQueue.shutdownRequested());
+    try
+    {
+      workQueue.submitOperation(newSearchOperation(0));
+      fail("Expected the operation to be rejected");
+    }
+    catch (DirectoryException e)
+    {
+      assertEquals(e.getResultCode(), ResultCode.UNAVAILABLE);
+    }
+  }
+
+
+
+  private WorkStealingWorkQueue newWorkQueue(int numWorkerThreads, int maxCapacity) throws Exception
+  {
+    WorkStealingWorkQueue workQueue = new WorkStealingWorkQueue();
+    workQueue.initializeWorkQueue(newConfiguration(numWorkerThreads, maxCapacity));
+    return workQueue;
+  }
+
+  private WorkStealingWorkQueueCfg newConfiguration(int numWorkerThreads, int maxCapacity) throws Exception
+  {
+    Entry configEntry = TestCaseUtils.makeEntry(
+      "dn: cn=Work Stealing Work Queue,cn=config",
+      "objectClass: ds-cfg-work-stealing-work-queue",
+      "objectClass: ds-cfg-work-queue",
+      "objectClass: top",
+      "cn: Work Stealing Work Queue",
+      "ds-cfg-java-class: org.opends.server.extensions.WorkStealingWorkQueue",
+      "ds-cfg-num-worker-threads: " + numWorkerThreads,
+      "ds-cfg-max-work-queue-capacity: " + maxCapacity);
+    return InitializationUtils.getConfiguration(WorkStealingWorkQueueCfgDefn.getInstance(), configEntry);
+  }
+
+  private InternalSearchOperation newSearchOperation(int delay) throws Exception
+  {
+    SearchRequest request = newSearchRequest(DN.valueOf("o=test"), SearchScope.BASE_OBJECT);
+    if (delay > 0)
+    {
+      request.addControl(DelayPreOpPlugin.createDelayControlList(delay));
+    }
+    return new InternalSearchOperation(getRootConnection(), nextOperationID(), nextMessageID(), request);
+  }
+}
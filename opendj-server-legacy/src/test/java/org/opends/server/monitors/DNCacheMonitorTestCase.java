@@ -0,0 +1,83 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.monitors;
+
+import static org.testng.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.types.Attribute;
+import org.testng.annotations.Test;
+
+/**
+ * This class defines a set of tests for the
+ * org.opends.server.monitors.DNCacheMonitor class.
+ */
+@SuppressWarnings("javadoc")
+public class DNCacheMonitorTestCase
+       extends GenericMonitorTestCase
+{
+  public DNCacheMonitorTestCase()
+  {
+    super(null);
+  }
+
+  @Override
+  protected MonitorProvider<?> getMonitorInstance() throws Exception
+  {
+    DNCacheMonitor monitorProvider = new DNCacheMonitor();
+    monitorProvider.initializeMonitorProvider(null);
+    return monitorProvider;
+  }
+
+  @Test
+  public void testCacheIsEnabledByTheGlobalConfiguration() throws Exception
+  {
+    TestCaseUtils.dsconfig("set-global-configuration-prop", "--set", "dn-cache-size:100");
+    try
+    {
+      final String dnString = "ou=DN Cache Monitor Test,dc=example,dc=com";
+      final Map<String, Long> before = getMonitorValues();
+      assertSame(DN.valueOf(dnString), DN.valueOf(dnString));
+
+      final Map<String, Long> after = getMonitorValues();
+      // other threads of the server may be using the cache at the same time
+      assertTrue(after.get(DNCacheMonitor.ATTR_DN_CACHE_MISSES) > before.get(DNCacheMonitor.ATTR_DN_CACHE_MISSES));
+      assertTrue(after.get(DNCacheMonitor.ATTR_DN_CACHE_HITS) > before.get(DNCacheMonitor.ATTR_DN_CACHE_HITS));
+      assertTrue(after.get(DNCacheMonitor.ATTR_DN_CACHE_SIZE) > 0);
+    }
+    finally
+    {
+      TestCaseUtils.dsconfig("set-global-configuration-prop", "--reset", "dn-cache-size");
+    }
+    assertEquals(DN.getSharedCacheSize(), 0);
+  }
+
+  private Map<String, Long> getMonitorValues() throws Exception
+  {
+    final Map<String, Long> values = new HashMap<>();
+    for (Attribute attribute : getMonitorInstance().getMonitorData())
+    {
+      values.put(attribute.getAttributeDescription().getNameOrOID(),
+          Long.valueOf(attribute.iterator().next().toString()));
+    }
+    return values;
+  }
+}
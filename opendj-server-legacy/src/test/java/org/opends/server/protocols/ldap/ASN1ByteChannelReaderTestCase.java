@@ -16,12 +16,23 @@
  */
 package org.opends.server.protocols.ldap;
 
+import static org.testng.Assert.*;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
 
+import org.forgerock.opendj.io.ASN1;
 import org.forgerock.opendj.io.ASN1Reader;
+import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
 import org.testng.annotations.Test;
 
 /** Test class for ASN1ByteChannelReader. */
@@ -288,4 +299,103 @@ public class ASN1ByteChannelReaderTestCase extends ASN1ReaderTestCase
   {
     super.testSkipElementIncompleteRead();
   }
+
+  /** Tests that messages split across several reads, or sharing a read, are all decoded. */
+  @Test
+  public void testReadMessagesFromSeveralReads() throws Exception
+  {
+    final byte[] messages = encodeMessages(1, 2, 3);
+    final DirectBufferPool pool = new DirectBufferPool(2);
+    // the first read ends in the middle of the second message, the second one
+    // contains the end of the second message and the whole third message
+    final ASN1ByteChannelReader reader = new ASN1ByteChannelReader(
+        newChannel(Arrays.copyOfRange(messages, 0, 30), Arrays.copyOfRange(messages, 30, messages.length)),
+        pool, 64, 0);
+
+    assertFalse(reader.elementAvailable());
+    assertTrue(reader.processChannelData() > 0);
+    assertMessage(reader, 1);
+    assertFalse(reader.elementAvailable());
+    assertTrue(reader.hasRemainingData());
+
+    assertTrue(reader.processChannelData() > 0);
+    assertMessage(reader, 2);
+    assertMessage(reader, 3);
+    assertFalse(reader.elementAvailable());
+    assertFalse(reader.hasRemainingData());
+    assertEquals(pool.size(), 1, "The read buffer should be back in the pool");
+
+    assertEquals(reader.processChannelData(), -1);
+    assertFalse(reader.elementAvailable());
+    reader.close();
+  }
+
+  /** Tests that the max element size is enforced before the whole message is read. */
+  @Test(expectedExceptions = DecodeException.class)
+  public void testMessageExceedsMaxElementSize() throws Exception
+  {
+    final byte[] messages = encodeMessages(1);
+    final ASN1ByteChannelReader reader = new ASN1ByteChannelReader(
+        newChannel(Arrays.copyOfRange(messages, 0, 4)), new DirectBufferPool(1), 64, 8);
+    reader.processChannelData();
+    reader.elementAvailable();
+  }
+
+  private byte[] encodeMessages(int... messageIDs) throws IOException
+  {
+    final ByteStringBuilder builder = new ByteStringBuilder();
+    final ASN1Writer writer = ASN1.getWriter(builder);
+    for (int messageID : messageIDs)
+    {
+      writer.writeStartSequence();
+      writer.writeInteger(messageID);
+      writer.writeOctetString("value of message " + messageID);
+      writer.writeEndSequence();
+    }
+    return builder.toByteArray();
+  }
+
+  private void assertMessage(ASN1Reader reader, int messageID) throws IOException
+  {
+    assertTrue(reader.elementAvailable());
+    reader.readStartSequence();
+    assertEquals(reader.readInteger(), messageID);
+    assertEquals(reader.readOctetString(), ByteString.valueOfUtf8("value of message " + messageID));
+    assertFalse(reader.hasNextElement());
+    reader.readEndSequence();
+  }
+
+  /** Returns a channel returning each of the provided chunks in a separate read. */
+  private ReadableByteChannel newChannel(byte[]... chunks)
+  {
+    final Iterator<byte[]> it = Arrays.asList(chunks).iterator();
+    return new ReadableByteChannel()
+    {
+      private boolean open = true;
+
+      @Override
+      public boolean isOpen()
+      {
+        return open;
+      }
+
+      @Override
+      public void close()
+      {
+        open = false;
+      }
+
+      @Override
+      public int read(ByteBuffer dst)
+      {
+        if (!it.hasNext())
+        {
+          return -1;
+        }
+        final byte[] chunk = it.next();
+        dst.put(chunk);
+        return chunk.length;
+      }
+    };
+  }
 }
@@ -0,0 +1,287 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.mockito.Mockito.*;
+import static org.opends.server.config.ConfigConstants.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.ClientConnection;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.protocols.ldap.LDAPStatistics.FlushReason;
+import org.opends.server.tools.RemoteConnection;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.Control;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchResultEntry;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Tests the responses written by the connections of the NIO based LDAP connection handler. */
+@SuppressWarnings("javadoc")
+public class LDAPClientConnectionTestCase extends LdapTestCase
+{
+  private LDAPConnectionHandler handler;
+  private int port;
+
+  @BeforeClass
+  public void startHandler() throws Exception
+  {
+    TestCaseUtils.startServer();
+
+    port = TestCaseUtils.findFreePort();
+    final Entry handlerEntry = TestCaseUtils.makeEntry(
+        "dn: cn=NIO LDAP Connection Handler,cn=Connection Handlers,cn=config",
+        "objectClass: top",
+        "objectClass: ds-cfg-connection-handler",
+        "objectClass: ds-cfg-ldap-connection-handler",
+        "cn: NIO LDAP Connection Handler",
+        "ds-cfg-java-class: org.opends.server.protocols.ldap.LDAPConnectionHandler",
+        "ds-cfg-enabled: true",
+        "ds-cfg-listen-address: 127.0.0.1",
+        "ds-cfg-keep-stats: true",
+        "ds-cfg-num-request-handlers: 1",
+        "ds-cfg-max-concurrent-ops-per-connection: 1",
+        "ds-cfg-allow-start-tls: false",
+        "ds-cfg-use-ssl: false");
+    handlerEntry.addAttribute(Attributes.create(ATTR_LISTEN_PORT, String.valueOf(port)), null);
+
+    handler = new LDAPConnectionHandler();
+    handler.initializeConnectionHandler(DirectoryServer.getInstance().getServerContext(),
+        getConfiguration(handlerEntry));
+    handler.start();
+  }
+
+  @AfterClass
+  public void stopHandler()
+  {
+    if (handler != null)
+    {
+      handler.finalizeConnectionHandler(LocalizableMessage.raw("Test done"));
+    }
+  }
+
+  @Test
+  public void searchResultEntriesAreWrittenTogether() throws Exception
+  {
+    final LDAPStatistics stats = handler.getStatTracker();
+    try (RemoteConnection conn = new RemoteConnection("127.0.0.1", port))
+    {
+      conn.bind("cn=Directory Manager", "password");
+      final long writesBefore = stats.getWrites();
+      final long entriesBefore = stats.getSearchResultEntries();
+
+      conn.search("cn=config", SearchScope.WHOLE_SUBTREE, "(objectClass=*)");
+      final List<SearchResultEntryProtocolOp> entries = conn.readEntries();
+
+      assertTrue(entries.size() > 100, "Expected many entries below cn=config, got " + entries.size());
+      assertEquals(stats.getSearchResultEntries() - entriesBefore, entries.size());
+      final long writes = stats.getWrites() - writesBefore;
+      assertTrue(writes < entries.size() / 4,
+          "Expected the entries to be written together, got " + writes + " writes for " + entries.size() + " entries");
+      assertTrue(stats.getWrites(FlushReason.FULL_BUFFER) > 0);
+      assertTrue(stats.getWrites(FlushReason.RESPONSE) > 0);
+      assertTrue(stats.getBytesPerWrite() > 0);
+    }
+  }
+
+  @Test
+  public void singleResponsesAreWrittenImmediately() throws Exception
+  {
+    try (RemoteConnection conn = new RemoteConnection("127.0.0.1", port))
+    {
+      conn.bind("cn=Directory Manager", "password");
+
+      conn.search("cn=config", SearchScope.BASE_OBJECT, "(objectClass=*)");
+      assertEquals(conn.readEntries().size(), 1);
+      conn.search("cn=Directory Manager,cn=Root DNs,cn=config", SearchScope.BASE_OBJECT, "(objectClass=*)");
+      assertEquals(conn.readEntries().size(), 1);
+    }
+  }
+
+  @Test
+  public void heldEntriesAreWrittenAfterTheDelay() throws Exception
+  {
+    try (RemoteConnection conn = new RemoteConnection("127.0.0.1", port))
+    {
+      conn.bind("cn=Directory Manager", "password");
+      final Entry entry = TestCaseUtils.makeEntry(
+          "dn: cn=Held Entry,cn=config",
+          "objectClass: top",
+          "objectClass: device",
+          "cn: Held Entry");
+
+      // Neither another entry nor the search result done follow this entry
+      getLastClientConnection().sendSearchEntry(mockSearch(42), new SearchResultEntry(entry));
+      final LDAPMessage message = conn.readMessage();
+      assertEquals(message.getMessageID(), 42);
+      assertEquals(message.getSearchResultEntryProtocolOp().getDN(), entry.getName());
+    }
+  }
+
+  @Test
+  public void heldEntriesAreNotDelayedByAStalledConnection() throws Exception
+  {
+    try (RemoteConnection stalledConn = new RemoteConnection("127.0.0.1", port))
+    {
+      stalledConn.bind("cn=Directory Manager", "password");
+      final LDAPClientConnection stalled = getLastClientConnection();
+      final SearchResultEntry largeEntry = new SearchResultEntry(TestCaseUtils.makeEntry(
+          "dn: cn=Large Entry,cn=config",
+          "objectClass: top",
+          "objectClass: device",
+          "cn: Large Entry",
+          "description: " + new String(new char[8 * 1024]).replace('\0', 'x')));
+
+      // The peer never reads the entries: the writer ends up blocked in a
+      // flush, holding the outbound buffer of the stalled connection
+      final AtomicInteger entriesSent = new AtomicInteger();
+      final Thread writer = new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          final SearchOperation search = mockSearch(42);
+          while (stalled.isConnectionValid() && entriesSent.get() < 8192)
+          {
+            stalled.sendSearchEntry(search, largeEntry);
+            entriesSent.incrementAndGet();
+          }
+        }
+      }, "Stalled connection writer");
+      writer.setDaemon(true);
+      writer.start();
+      int sent;
+      do
+      {
+        sent = entriesSent.get();
+        Thread.sleep(200);
+      }
+      while (sent != entriesSent.get());
+      assertTrue(writer.isAlive(), "Expected the writer to be blocked by the stalled connection");
+
+      try (RemoteConnection conn = new RemoteConnection("127.0.0.1", port))
+      {
+        conn.bind("cn=Directory Manager", "password");
+        final Entry entry = TestCaseUtils.makeEntry(
+            "dn: cn=Held Entry,cn=config",
+            "objectClass: top",
+            "objectClass: device",
+            "cn: Held Entry");
+
+        // The delayed flushes of both connections run on the same thread
+        final long start = System.nanoTime();
+        getLastClientConnection().sendSearchEntry(mockSearch(43), new SearchResultEntry(entry));
+        final LDAPMessage message = conn.readMessage();
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(message.getMessageID(), 43);
+        assertTrue(elapsedMillis < 1000,
+            "Expected the held entry to be written after about 10ms, got " + elapsedMillis + "ms");
+      }
+    }
+  }
+
+  @Test
+  public void pipelinedRequestsAreReadWithinTheInFlightWindow() throws Exception
+  {
+    final LDAPStatistics stats = handler.getStatTracker();
+    final int nbSearches = 20;
+    try (RemoteConnection conn = new RemoteConnection("127.0.0.1", port))
+    {
+      conn.bind("cn=Directory Manager", "password");
+      final long deferredBefore = stats.getRequestsDeferred();
+
+      // send all the requests before reading any response
+      for (int i = 0; i < nbSearches; i++)
+      {
+        conn.search("cn=config", SearchScope.WHOLE_SUBTREE, "(objectClass=*)");
+      }
+      for (int i = 0; i < nbSearches; i++)
+      {
+        final int size = conn.readEntries().size();
+        assertTrue(size > 100, "Expected many entries below cn=config, got " + size);
+      }
+
+      assertTrue(stats.getRequestsDeferred() > deferredBefore,
+          "Expected the requests to be deferred while a search is in progress");
+    }
+  }
+
+  @Test
+  public void deferredRequestsCanBeAbandoned() throws Exception
+  {
+    final int nbSearches = 20;
+    try (RemoteConnection conn = new RemoteConnection("127.0.0.1", port))
+    {
+      conn.bind("cn=Directory Manager", "password");
+
+      // the bind used message ID 1, the searches use the next ones
+      for (int i = 0; i < nbSearches; i++)
+      {
+        conn.search("cn=config", SearchScope.WHOLE_SUBTREE, "(objectClass=*)");
+      }
+      final int abandonedID = nbSearches + 1;
+      conn.writeMessage(new AbandonRequestProtocolOp(abandonedID));
+      conn.search("cn=config", SearchScope.BASE_OBJECT, "(objectClass=*)");
+      final int lastID = nbSearches + 3;
+
+      // the responses of two consecutive operations may be interleaved
+      final List<Integer> completedIDs = new ArrayList<>();
+      while (completedIDs.size() < nbSearches)
+      {
+        final LDAPMessage message = conn.readMessage();
+        assertNotEquals(message.getMessageID(), abandonedID);
+        if (message.getProtocolOpType() == LDAPConstants.OP_TYPE_SEARCH_RESULT_DONE)
+        {
+          completedIDs.add(message.getMessageID());
+        }
+      }
+      assertTrue(completedIDs.contains(lastID));
+    }
+  }
+
+  private static SearchOperation mockSearch(int messageID)
+  {
+    final SearchOperation search = mock(SearchOperation.class);
+    when(search.getMessageID()).thenReturn(messageID);
+    when(search.getRequestControls()).thenReturn(Collections.<Control> emptyList());
+    return search;
+  }
+
+  private LDAPClientConnection getLastClientConnection()
+  {
+    ClientConnection last = null;
+    for (ClientConnection connection : handler.getClientConnections())
+    {
+      if (last == null || connection.getConnectionID() > last.getConnectionID())
+      {
+        last = connection;
+      }
+    }
+    return (LDAPClientConnection) last;
+  }
+}
@@ -26,6 +26,7 @@ import org.assertj.core.api.Assertions;
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.Base64;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
@@ -50,6 +51,7 @@ import org.opends.server.replication.server.ReplicationServerDomain;
 import org.opends.server.replication.service.ReplicationBroker;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -391,6 +393,40 @@ public class InitOnLineTest extends ReplicationTestCase
     log("Broker " + senderID + " published entries");
   }
 
+  /**
+   * Broker will send the entries to a server in binary form, in a single
+   * EntryMsg.
+   * @param broker The broker that will send the entries.
+   * @param senderID The serverID of this broker.
+   * @param destinationServerID The target server.
+   * @param requestorID The initiator server.
+   */
+  private void makeBrokerPublishBinaryEntries(ReplicationBroker broker,
+      int senderID, int destinationServerID, int requestorID) throws Exception
+  {
+    RoutableMsg initTargetMessage =
+        new InitializeTargetMsg(baseDN, server2ID, destinationServerID,
+            requestorID, updatedEntries.length, initWindow);
+    broker.publish(initTargetMessage);
+
+    ByteStringBuilder entryBytes = new ByteStringBuilder();
+    ByteStringBuilder chunk = new ByteStringBuilder();
+    chunk.appendByte(EntryMsg.BINARY_ENTRIES);
+    for (String entry : updatedEntries)
+    {
+      entryBytes.clear();
+      TestCaseUtils.entryFromLdifString(entry).encode(entryBytes, EntryEncodeConfig.DEFAULT_CONFIG);
+      chunk.appendInt(entryBytes.length());
+      chunk.appendBytes(entryBytes);
+    }
+    broker.publish(new EntryMsg(senderID, destinationServerID, chunk.toByteArray(), 1));
+
+    DoneMsg doneMsg = new DoneMsg(senderID, destinationServerID);
+    broker.publish(doneMsg);
+
+    log("Broker " + senderID + " published binary entries");
+  }
+
   private void receiveUpdatedEntries(ReplicationBroker broker) throws Exception
   {
     final int serverId = broker.getServerId();
@@ -450,6 +486,10 @@ public class InitOnLineTest extends ReplicationTestCase
    */
   private int countEntryLimits(byte[] entryBytes)
   {
+    if (EntryMsg.containsBinaryEntries(entryBytes, 0, entryBytes.length))
+    {
+      return EntryMsg.countBinaryEntries(entryBytes, 0, entryBytes.length);
+    }
     int entryCount = 0;
     int count = 0;
     while (count<=entryBytes.length-2)
@@ -495,6 +535,11 @@ public class InitOnLineTest extends ReplicationTestCase
   }
 
   private void connectServer1ToReplServer(int replServerId) throws Exception
+  {
+    connectServer1ToReplServer(replServerId, false);
+  }
+
+  private void connectServer1ToReplServer(int replServerId, boolean binaryInitialization) throws Exception
   {
     // suffix synchronized
     String testName = "initOnLineTest";
@@ -509,7 +554,8 @@ public class InitOnLineTest extends ReplicationTestCase
     + getReplServerPort(replServerId)+"\n"
     + "ds-cfg-server-id: " + server1ID + "\n"
     + "ds-cfg-receive-status: true\n"
-    + "ds-cfg-window-size: " + WINDOW_SIZE;
+    + "ds-cfg-window-size: " + WINDOW_SIZE + "\n"
+    + "ds-cfg-binary-initialization-enabled: " + binaryInitialization;
 
     TestCaseUtils.clearBackend("userRoot");
 
@@ -625,6 +671,92 @@ public class InitOnLineTest extends ReplicationTestCase
     }
 }
 
+  /**
+   * Tests the import of entries sent in binary form.
+   */
+  @Test(enabled=true, groups="slow")
+  public void initializeImportBinaryEntries() throws Exception
+  {
+    String testCase = "initializeImportBinaryEntries";
+    log("Starting "+testCase);
+    try
+    {
+      replServer1 = createReplicationServer(replServer1ID, testCase);
+
+      // Connect DS to the replicationServer
+      connectServer1ToReplServer(replServer1ID);
+
+      if (server2 == null)
+      {
+        server2 = openReplicationSession(baseDN,
+          server2ID, 100, getReplServerPort(replServer1ID), 1000);
+      }
+
+      // In S1 launch the total update
+      addTask(taskInitFromS2, ResultCode.SUCCESS, null);
+
+      // S2 should receive init msg
+      ReplicationMsg msg = server2.receive();
+      Assertions.assertThat(msg).isInstanceOf(InitializeRequestMsg.class);
+      InitializeRequestMsg initMsg = (InitializeRequestMsg)msg;
+
+      // S2 publishes entries in binary form to S1
+      makeBrokerPublishBinaryEntries(server2, server2ID, initMsg.getSenderID(),
+          initMsg.getSenderID());
+
+      // Wait for task (import) completion in S1
+      waitTaskCompleted(taskInitFromS2, TaskState.COMPLETED_SUCCESSFULLY,
+          0, updatedEntries.length);
+
+      // Test import result in S1
+      testEntriesInDb();
+
+      log("Successfully ending " + testCase);
+    } finally
+    {
+      afterTest(testCase);
+    }
+  }
+
+  /**
+   * Tests the export of entries in binary form, when enabled and supported by
+   * the importer.
+   */
+  @Test(enabled=true, groups="slow")
+  public void initializeExportBinaryEntries() throws Exception
+  {
+    String testCase = "initializeExportBinaryEntries";
+    log("Starting "+testCase);
+    try
+    {
+      replServer1 = createReplicationServer(replServer1ID, testCase);
+
+      // Connect DS to the replicationServer
+      connectServer1ToReplServer(replServer1ID, true);
+
+      addTestEntriesToDB();
+
+      if (server2 == null)
+      {
+        server2 = openReplicationSession(baseDN,
+          server2ID, 100, getReplServerPort(replServer1ID), 1000);
+      }
+
+      InitializeRequestMsg initMsg = new InitializeRequestMsg(baseDN, server2ID, server1ID, 100);
+      server2.publish(initMsg);
+
+      // Signal RS we just entered the full update status
+      server2.signalStatusChange(ServerStatus.FULL_UPDATE_STATUS);
+
+      receiveUpdatedEntries(server2);
+
+      log("Successfully ending " + testCase);
+    } finally
+    {
+      afterTest(testCase);
+    }
+  }
+
   /**
    * Tests the import side of the InitializeTarget task
    * Test steps :
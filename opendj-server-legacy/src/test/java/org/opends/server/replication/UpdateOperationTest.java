@@ -750,6 +750,8 @@ public class UpdateOperationTest extends ReplicationTestCase
       // check that the delete operation has not been applied
       assertNotNull(getEntry(newPersonDN, 10000, true),
           "The DELETE replication message was replayed when it should not");
+      // the entry is still there, so wait for the delete to be replayed
+      waitForNonZeroMonitorDelta();
       assertEquals(getMonitorDelta(), 1);
       assertConflictAutomaticallyResolved(alertCount);
 
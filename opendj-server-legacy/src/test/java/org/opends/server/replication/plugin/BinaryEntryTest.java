@@ -0,0 +1,178 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.TestCaseUtils.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opends.server.TestCaseUtils;
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.replication.protocol.EntryMsg;
+import org.opends.server.types.Entry;
+import org.opends.server.types.LDIFExportConfig;
+import org.opends.server.types.LDIFImportConfig;
+import org.opends.server.util.LDIFReader;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class BinaryEntryTest extends ReplicationTestCase
+{
+  /** Records the chunks written to the output stream, one per flush. */
+  private static final class ChunkOutputStream extends ByteArrayOutputStream
+  {
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    @Override
+    public void flush()
+    {
+      chunks.add(toByteArray());
+      reset();
+    }
+  }
+
+  private List<Entry> newEntries(int nbEntries) throws Exception
+  {
+    final List<Entry> entries = new ArrayList<>();
+    entries.add(TestCaseUtils.makeEntry(
+        "dn: " + TEST_ROOT_DN_STRING,
+        "objectClass: top",
+        "objectClass: organization",
+        "o: test"));
+    for (int i = 0; i < nbEntries; i++)
+    {
+      entries.add(TestCaseUtils.makeEntry(
+          "dn: uid=user." + i + "," + TEST_ROOT_DN_STRING,
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: user." + i,
+          "cn: user " + i,
+          "sn: " + i,
+          "description: value é " + i));
+    }
+    return entries;
+  }
+
+  private List<byte[]> writeEntries(List<Entry> entries) throws IOException
+  {
+    final ChunkOutputStream output = new ChunkOutputStream();
+    final BinaryEntryWriter writer = new BinaryEntryWriter(output);
+    for (Entry entry : entries)
+    {
+      writer.writeEntry(entry);
+    }
+    writer.flush();
+    return output.chunks;
+  }
+
+  private List<Entry> readEntries(List<byte[]> chunks) throws Exception
+  {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (byte[] chunk : chunks)
+    {
+      bytes.write(chunk);
+    }
+    final ByteArrayInputStream input = new ByteArrayInputStream(bytes.toByteArray());
+    final LDIFImportConfig importConfig = new LDIFImportConfig(input);
+    importConfig.setEntrySource(new BinaryEntryReader(input));
+    importConfig.setValidateSchema(false);
+
+    final List<Entry> entries = new ArrayList<>();
+    try (LDIFReader reader = new LDIFReader(importConfig))
+    {
+      Entry entry;
+      while ((entry = reader.readEntry()) != null)
+      {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  @Test
+  public void testEntriesAreReadAsWritten() throws Exception
+  {
+    final List<Entry> entries = newEntries(10);
+
+    final List<Entry> readEntries = readEntries(writeEntries(entries));
+
+    assertThat(readEntries).hasSameSizeAs(entries);
+    for (int i = 0; i < entries.size(); i++)
+    {
+      assertThat((Object) readEntries.get(i).getName()).isEqualTo(entries.get(i).getName());
+      assertThat(readEntries.get(i).toLDIFString()).isEqualTo(entries.get(i).toLDIFString());
+    }
+  }
+
+  @Test
+  public void testChunksOnlyContainWholeEntries() throws Exception
+  {
+    final List<Entry> entries = newEntries(2000);
+
+    final List<byte[]> chunks = writeEntries(entries);
+
+    assertThat(chunks.size()).isGreaterThan(1);
+    int nbEntries = 0;
+    for (byte[] chunk : chunks)
+    {
+      assertThat(EntryMsg.containsBinaryEntries(chunk, 0, chunk.length)).isTrue();
+      nbEntries += EntryMsg.countBinaryEntries(chunk, 0, chunk.length);
+    }
+    assertThat(nbEntries).isEqualTo(entries.size());
+    assertThat(readEntries(chunks)).hasSameSizeAs(entries);
+  }
+
+  @Test
+  public void testEntriesAreGivenToTheSinkInsteadOfLDIF() throws Exception
+  {
+    final List<Entry> entries = newEntries(3);
+    final ByteArrayOutputStream ldif = new ByteArrayOutputStream();
+    final List<Entry> sunkEntries = new ArrayList<>();
+    final LDIFExportConfig exportConfig = new LDIFExportConfig(ldif);
+    exportConfig.setEntrySink(new LDIFExportConfig.EntrySink()
+    {
+      @Override
+      public void writeEntry(Entry entry)
+      {
+        sunkEntries.add(entry);
+      }
+    });
+
+    for (Entry entry : entries)
+    {
+      assertThat(entry.toLDIF(exportConfig)).isTrue();
+    }
+    exportConfig.close();
+
+    assertThat(sunkEntries).containsExactlyElementsOf(entries);
+    assertThat(ldif.size()).isZero();
+  }
+
+  @Test
+  public void testLDIFIsNotMistakenForBinaryEntries() throws Exception
+  {
+    final byte[] ldif = newEntries(1).get(0).toLDIFString().getBytes("UTF-8");
+
+    assertThat(EntryMsg.containsBinaryEntries(ldif, 0, ldif.length)).isFalse();
+  }
+}
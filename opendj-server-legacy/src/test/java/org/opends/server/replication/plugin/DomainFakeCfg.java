@@ -64,6 +64,7 @@ public class DomainFakeCfg implements ReplicationDomainCfg
   private ExternalChangelogDomainCfg eclCfg =
     new ExternalChangelogDomainFakeCfg(true, null, null);
   private int windowSize = 100;
+  private boolean entryHashTreeEnabled;
 
   /**
    * Creates a new Domain with the provided information
@@ -164,6 +165,26 @@ public class DomainFakeCfg implements ReplicationDomainCfg
   @Override
   public InetAddress getSourceAddress() { return null; }
 
+  @Override
+  public boolean isSessionCompressionEnabled() { return false; }
+
+  @Override
+  public long getMaxSessionSendDelay() { return 0; }
+
+  @Override
+  public boolean isEntryHashTreeEnabled()
+  {
+    return entryHashTreeEnabled;
+  }
+
+  public void setEntryHashTreeEnabled(boolean entryHashTreeEnabled)
+  {
+    this.entryHashTreeEnabled = entryHashTreeEnabled;
+  }
+
+  @Override
+  public boolean isBinaryInitializationEnabled() { return false; }
+
   /** {@inheritDoc} */
   @Override
   public int getServerId()
@@ -0,0 +1,493 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.forgerock.opendj.ldap.ModificationType.*;
+import static org.opends.server.TestCaseUtils.*;
+import static org.opends.server.protocols.internal.InternalClientConnection.*;
+import static org.opends.server.protocols.internal.Requests.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.RDN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.server.config.meta.ReplicationDomainCfgDefn.IsolationPolicy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.types.Attributes;
+import org.opends.server.types.Entry;
+import org.opends.server.types.OperationType;
+import org.opends.server.types.operation.PostOperationAddOperation;
+import org.opends.server.util.TestTimer;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class EntryHashTreeTest extends ReplicationTestCase
+{
+  private Entry newEntry(String uid, String description) throws Exception
+  {
+    return TestCaseUtils.makeEntry(
+        "dn: uid=" + uid + "," + TEST_ROOT_DN_STRING,
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: " + uid,
+        "cn: " + uid,
+        "sn: " + uid,
+        "description: " + description,
+        "entryUUID: " + UUID.nameUUIDFromBytes(uid.getBytes()));
+  }
+
+  @Test
+  public void testRootHashDoesNotDependOnTheOrderOfTheChanges() throws Exception
+  {
+    final Entry entry1 = newEntry("user.1", "first");
+    final Entry entry2 = newEntry("user.2", "second");
+    final Entry entry3 = newEntry("user.3", "third");
+
+    final EntryHashTree tree1 = new EntryHashTree();
+    tree1.add(entry1);
+    tree1.add(entry2);
+    tree1.add(entry3);
+
+    final EntryHashTree tree2 = new EntryHashTree();
+    tree2.add(entry3);
+    tree2.add(entry1);
+    tree2.add(entry2);
+
+    assertThat(tree1.getRootHash()).isEqualTo(tree2.getRootHash());
+    assertThat(tree1.getNbEntries()).isEqualTo(3);
+    assertThat(tree1.getDivergentBuckets(tree2)).isEmpty();
+  }
+
+  @Test
+  public void testRemoveRestoresTheRootHash() throws Exception
+  {
+    final EntryHashTree tree = new EntryHashTree();
+    final long emptyRootHash = tree.getRootHash();
+
+    final Entry entry = newEntry("user.1", "first");
+    tree.add(entry);
+    assertThat(tree.getRootHash()).isNotEqualTo(emptyRootHash);
+
+    tree.remove(entry);
+    assertThat(tree.getRootHash()).isEqualTo(emptyRootHash);
+    assertThat(tree.getNbEntries()).isZero();
+  }
+
+  @Test
+  public void testReplaceIsEquivalentToAddingTheNewEntry() throws Exception
+  {
+    final Entry entry = newEntry("user.1", "before");
+    final Entry modifiedEntry = newEntry("user.1", "after");
+
+    final EntryHashTree tree1 = new EntryHashTree();
+    tree1.add(entry);
+    tree1.replace(entry, modifiedEntry);
+
+    final EntryHashTree tree2 = new EntryHashTree();
+    tree2.add(modifiedEntry);
+
+    assertThat(tree1.getRootHash()).isEqualTo(tree2.getRootHash());
+  }
+
+  @Test
+  public void testOperationalAttributesAreIgnored() throws Exception
+  {
+    final Entry entry = newEntry("user.1", "first");
+    final Entry entryWithOperationalAttributes = entry.duplicate(false);
+    entryWithOperationalAttributes.addAttribute(
+        Attributes.create("modifiersName", "cn=Directory Manager"), null);
+
+    final EntryHashTree tree1 = new EntryHashTree();
+    tree1.add(entry);
+    final EntryHashTree tree2 = new EntryHashTree();
+    tree2.add(entryWithOperationalAttributes);
+
+    assertThat(tree1.getRootHash()).isEqualTo(tree2.getRootHash());
+  }
+
+  @Test
+  public void testDivergentBucketsContainTheDifferentEntries() throws Exception
+  {
+    final EntryHashTree tree1 = new EntryHashTree();
+    final EntryHashTree tree2 = new EntryHashTree();
+    for (int i = 0; i < 100; i++)
+    {
+      final Entry entry = newEntry("user." + i, "same");
+      tree1.add(entry);
+      tree2.add(entry);
+    }
+    final Entry differentEntry = newEntry("user.50", "different");
+    tree2.replace(newEntry("user.50", "same"), differentEntry);
+    final Entry missingEntry = newEntry("user.100", "missing");
+    tree1.add(missingEntry);
+
+    assertThat(tree1.getRootHash()).isNotEqualTo(tree2.getRootHash());
+    final List<Integer> divergentBuckets = new ArrayList<>();
+    for (int[] range : tree1.getDivergentBuckets(tree2))
+    {
+      for (int bucket = range[0]; bucket <= range[1]; bucket++)
+      {
+        divergentBuckets.add(bucket);
+      }
+    }
+    assertThat(divergentBuckets).containsOnly(
+        EntryHashTree.getBucket(differentEntry), EntryHashTree.getBucket(missingEntry));
+  }
+
+  @Test
+  public void testEncodeDecode() throws Exception
+  {
+    final EntryHashTree tree = new EntryHashTree();
+    tree.add(newEntry("user.1", "first"));
+    tree.add(newEntry("user.2", "second"));
+
+    final EntryHashTree decodedTree = EntryHashTree.decode(tree.encode());
+
+    assertThat(decodedTree.getRootHash()).isEqualTo(tree.getRootHash());
+    assertThat(decodedTree.getNbEntries()).isEqualTo(2);
+    assertThat(decodedTree.getDivergentBuckets(tree)).isEmpty();
+  }
+
+  @Test(expectedExceptions = DecodeException.class)
+  public void testDecodeInvalidTree() throws Exception
+  {
+    EntryHashTree.decode("bm90IGEgdHJlZQ==");
+  }
+
+  /**
+   * Checks that the tree maintained by a domain while its entries are changed
+   * is the same as the tree built from these entries.
+   */
+  @Test
+  public void testDomainMaintainsTheTree() throws Exception
+  {
+    final DN baseDN = DN.valueOf(TEST_ROOT_DN_STRING);
+    TestCaseUtils.initializeTestBackend(true);
+    LDAPReplicationDomain domain = null;
+    try
+    {
+      final SortedSet<String> replServers = new TreeSet<>();
+      replServers.add("localhost:" + TestCaseUtils.findFreePort());
+      final DomainFakeCfg domainConf = new DomainFakeCfg(baseDN, 1, replServers);
+      domainConf.setHeartbeatInterval(100000);
+      domainConf.setIsolationPolicy(IsolationPolicy.ACCEPT_ALL_UPDATES);
+      domainConf.setEntryHashTreeEnabled(true);
+      domain = MultimasterReplication.createNewDomain(domainConf);
+      domain.start();
+      waitForTree(domain);
+
+      TestCaseUtils.addEntries(
+          "dn: ou=people," + TEST_ROOT_DN_STRING,
+          "objectClass: top",
+          "objectClass: organizationalUnit",
+          "ou: people",
+          "",
+          "dn: uid=user.1,ou=people," + TEST_ROOT_DN_STRING,
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: user.1",
+          "cn: user.1",
+          "sn: user.1",
+          "",
+          "dn: uid=user.2,ou=people," + TEST_ROOT_DN_STRING,
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: user.2",
+          "cn: user.2",
+          "sn: user.2");
+      assertThat(getRootConnection().processModify(
+          modifyRequest(DN.valueOf("uid=user.1,ou=people," + TEST_ROOT_DN_STRING), REPLACE, "description", "new"))
+          .getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      assertThat(getRootConnection().processModifyDN(
+          DN.valueOf("uid=user.2,ou=people," + TEST_ROOT_DN_STRING), RDN.valueOf("uid=user.3"), false)
+          .getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      assertThat(getRootConnection().processModifyDN(
+          DN.valueOf("uid=user.1,ou=people," + TEST_ROOT_DN_STRING), RDN.valueOf("uid=user.4"), true)
+          .getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      assertThat(getRootConnection().processDelete("uid=user.3,ou=people," + TEST_ROOT_DN_STRING)
+          .getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      final String maintainedTree = domain.getEncodedEntryHashTree();
+
+      // build the tree again from the entries
+      domainConf.setEntryHashTreeEnabled(false);
+      domain.applyConfigurationChange(domainConf);
+      assertThat(domain.getEncodedEntryHashTree()).isNull();
+      domainConf.setEntryHashTreeEnabled(true);
+      domain.applyConfigurationChange(domainConf);
+      waitForTree(domain);
+
+      final List<String> divergentBuckets = new ArrayList<>();
+      final List<DN> divergentEntries = new ArrayList<>();
+      assertThat(domain.compareEntryHashTrees(maintainedTree, divergentBuckets, divergentEntries, 10)).isTrue();
+      assertThat(divergentBuckets).isEmpty();
+      assertThat(divergentEntries).isEmpty();
+      assertThat(EntryHashTree.decode(maintainedTree).getNbEntries()).isEqualTo(3);
+
+      // a replica missing an entry
+      final EntryHashTree remoteTree = EntryHashTree.decode(maintainedTree);
+      final Entry user4 = getRootConnection().processSearch(newSearchRequest(
+          DN.valueOf("uid=user.4,ou=people," + TEST_ROOT_DN_STRING), SearchScope.BASE_OBJECT)
+          .addAttribute("*", "entryUUID")).getSearchEntries().getFirst();
+      remoteTree.remove(user4);
+      assertThat(domain.compareEntryHashTrees(remoteTree.encode(), divergentBuckets, divergentEntries, 10)).isTrue();
+      assertThat(divergentBuckets).hasSize(1);
+      assertThat(divergentEntries).containsExactly(user4.getName());
+
+      // the same comparison through a task
+      final Entry taskEntry = TestCaseUtils.makeEntry(
+          "dn: ds-task-id=" + UUID.randomUUID() + ",cn=Scheduled Tasks,cn=Tasks",
+          "objectclass: top",
+          "objectclass: ds-task",
+          "objectclass: ds-task-compare-replicas",
+          "ds-task-class-name: org.opends.server.tasks.CompareReplicasTask",
+          "ds-task-compare-replicas-domain-dn: " + TEST_ROOT_DN_STRING,
+          "ds-task-compare-replicas-remote-tree: " + remoteTree.encode());
+      executeTask(taskEntry, 10000);
+      final Entry completedTaskEntry = getRootConnection().processSearch(
+          newSearchRequest(taskEntry.getName(), SearchScope.BASE_OBJECT)).getSearchEntries().getFirst();
+      assertThat(completedTaskEntry.parseAttribute("ds-task-compare-replicas-local-tree").asString())
+          .isEqualTo(maintainedTree);
+      assertThat(completedTaskEntry.parseAttribute("ds-task-compare-replicas-divergent-entry").asString())
+          .isEqualTo(user4.getName().toString());
+    }
+    finally
+    {
+      if (domain != null)
+      {
+        MultimasterReplication.deleteDomain(baseDN);
+      }
+    }
+  }
+
+  /**
+   * Checks that the tree is built and installed while the entries keep being
+   * changed, and that it reflects the changes applied during the build.
+   */
+  @Test
+  public void testBuildWhileEntriesAreChanged() throws Exception
+  {
+    final DN baseDN = DN.valueOf(TEST_ROOT_DN_STRING);
+    TestCaseUtils.initializeTestBackend(true);
+    LDAPReplicationDomain domain = null;
+    final int nbEntries = 1000;
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final AtomicInteger nbChanges = new AtomicInteger();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final Thread writer = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          for (int i = 0; !stopped.get(); i++)
+          {
+            assertThat(getRootConnection().processModify(modifyRequest(
+                DN.valueOf("uid=user." + i % nbEntries + "," + TEST_ROOT_DN_STRING), REPLACE, "description", "change " + i))
+                .getResultCode()).isEqualTo(ResultCode.SUCCESS);
+            TestCaseUtils.addEntry(newEntry("added." + i, "added"));
+            if (i >= 2 && i % 2 == 0)
+            {
+              assertThat(getRootConnection().processDelete("uid=added." + (i - 2) + "," + TEST_ROOT_DN_STRING)
+                  .getResultCode()).isEqualTo(ResultCode.SUCCESS);
+            }
+            else if (i >= 2)
+            {
+              assertThat(getRootConnection().processModifyDN(
+                  DN.valueOf("uid=added." + (i - 2) + "," + TEST_ROOT_DN_STRING),
+                  RDN.valueOf("uid=renamed." + (i - 2)), true).getResultCode()).isEqualTo(ResultCode.SUCCESS);
+            }
+            nbChanges.incrementAndGet();
+          }
+        }
+        catch (Throwable t)
+        {
+          error.set(t);
+        }
+      }
+    }, "Entry hash tree test writer");
+    try
+    {
+      final SortedSet<String> replServers = new TreeSet<>();
+      replServers.add("localhost:" + TestCaseUtils.findFreePort());
+      final DomainFakeCfg domainConf = new DomainFakeCfg(baseDN, 1, replServers);
+      domainConf.setHeartbeatInterval(100000);
+      domainConf.setIsolationPolicy(IsolationPolicy.ACCEPT_ALL_UPDATES);
+      domainConf.setEntryHashTreeEnabled(true);
+      domain = MultimasterReplication.createNewDomain(domainConf);
+      domain.start();
+      for (int i = 0; i < nbEntries; i++)
+      {
+        TestCaseUtils.addEntry(newEntry("user." + i, "initial"));
+      }
+      waitForTree(domain);
+
+      // build the tree again while the entries are changed
+      writer.start();
+      domainConf.setEntryHashTreeEnabled(false);
+      domain.applyConfigurationChange(domainConf);
+      final int nbChangesBeforeBuild = nbChanges.get();
+      domainConf.setEntryHashTreeEnabled(true);
+      domain.applyConfigurationChange(domainConf);
+      waitForTree(domain);
+      assertThat(nbChanges.get()).isGreaterThan(nbChangesBeforeBuild);
+
+      stopped.set(true);
+      writer.join();
+      assertThat(error.get()).isNull();
+      final String maintainedTree = domain.getEncodedEntryHashTree();
+
+      // build the tree again from the entries, which are not changed anymore
+      domainConf.setEntryHashTreeEnabled(false);
+      domain.applyConfigurationChange(domainConf);
+      domainConf.setEntryHashTreeEnabled(true);
+      domain.applyConfigurationChange(domainConf);
+      waitForTree(domain);
+      assertThat(domain.getEncodedEntryHashTree()).isEqualTo(maintainedTree);
+    }
+    finally
+    {
+      stopped.set(true);
+      writer.join();
+      if (domain != null)
+      {
+        MultimasterReplication.deleteDomain(baseDN);
+      }
+    }
+  }
+
+  /**
+   * Checks that a change applied to the backend before the tree is built, but
+   * whose post-operation processing ends after the build started, is only
+   * reflected once in the tree.
+   */
+  @Test
+  public void testBuildWaitsForTheChangesInProgress() throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+    final PersistentEntryHashTree hashTree = new PersistentEntryHashTree(
+        DN.valueOf(TEST_ROOT_DN_STRING), DirectoryServer.getInstance().getServerContext());
+    final Entry entry = newEntry("user.1", "in progress");
+    final PostOperationAddOperation addOperation = mockAddOperation(entry);
+    try
+    {
+      hashTree.startChange(addOperation);
+      TestCaseUtils.addEntry(entry);
+      hashTree.rebuild();
+      Thread.sleep(200);
+      assertThat(hashTree.getTree()).isNull();
+
+      hashTree.update(addOperation);
+      final TestTimer timer = new TestTimer.Builder()
+          .maxSleep(10, SECONDS)
+          .sleepTimes(50, MILLISECONDS)
+          .toTimer();
+      timer.repeatUntilSuccess(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          assertThat(hashTree.getTree()).isNotNull();
+          return null;
+        }
+      });
+      // the base entry and the added entry
+      assertThat(hashTree.getTree().getNbEntries()).isEqualTo(2);
+    }
+    finally
+    {
+      hashTree.clear();
+    }
+  }
+
+  private PostOperationAddOperation mockAddOperation(Entry entry)
+  {
+    final PostOperationAddOperation addOperation = mock(PostOperationAddOperation.class);
+    final Map<String, Object> attachments = new HashMap<>();
+    when(addOperation.getOperationType()).thenReturn(OperationType.ADD);
+    when(addOperation.getResultCode()).thenReturn(ResultCode.SUCCESS);
+    when(addOperation.getEntryToAdd()).thenReturn(entry);
+    when(addOperation.getAttachment(anyString())).thenAnswer(new Answer<Object>()
+    {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable
+      {
+        return attachments.get(invocation.getArgumentAt(0, String.class));
+      }
+    });
+    when(addOperation.setAttachment(anyString(), any())).thenAnswer(new Answer<Object>()
+    {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable
+      {
+        return attachments.put(invocation.getArgumentAt(0, String.class), invocation.getArgumentAt(1, Object.class));
+      }
+    });
+    when(addOperation.removeAttachment(anyString())).thenAnswer(new Answer<Object>()
+    {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable
+      {
+        return attachments.remove(invocation.getArgumentAt(0, String.class));
+      }
+    });
+    return addOperation;
+  }
+
+  private void waitForTree(final LDAPReplicationDomain domain) throws Exception
+  {
+    final TestTimer timer = new TestTimer.Builder()
+        .maxSleep(10, SECONDS)
+        .sleepTimes(50, MILLISECONDS)
+        .toTimer();
+    timer.repeatUntilSuccess(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        assertThat(domain.getEncodedEntryHashTree()).isNotNull();
+        return null;
+      }
+    });
+  }
+}
@@ -0,0 +1,372 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.plugin;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.TestCaseUtils.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.meta.ReplicationDomainCfgDefn.IsolationPolicy;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.WriteBatch;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.common.CSNGenerator;
+import org.opends.server.replication.common.ServerState;
+import org.opends.server.replication.protocol.AddMsg;
+import org.opends.server.replication.protocol.DeleteMsg;
+import org.opends.server.replication.protocol.LDAPUpdateMsg;
+import org.opends.server.types.Entry;
+import org.opends.server.util.TestTimer;
+import org.opends.server.util.TestTimer.CallableVoid;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the parallel replay of the updates: the partitioned replay queue, the replay batches and the remote pending
+ * changes.
+ */
+@SuppressWarnings("javadoc")
+public class PartitionedReplayQueueTest extends ReplicationTestCase
+{
+  private static final int SERVER_ID = 42;
+
+  @Test
+  public void updatesOfTheSameEntryAreReplayedInOrder() throws Exception
+  {
+    final PartitionedReplayQueue queue = new PartitionedReplayQueue(1000, 3);
+    final List<UpdateToReplay> updates = new ArrayList<>();
+    for (int i = 0; i < 100; i++)
+    {
+      final UpdateToReplay update = update(i % 7, i);
+      updates.add(update);
+      assertThat(queue.offer(update)).isTrue();
+    }
+    assertThat(queue.size()).isEqualTo(updates.size());
+
+    queue.setNumberOfPartitions(5);
+    assertThat(queue.getNumberOfPartitions()).isEqualTo(5);
+    assertThat(queue.size()).isEqualTo(updates.size());
+
+    final List<List<UpdateToReplay>> replayed = new ArrayList<>();
+    for (int partition = 0; partition < queue.getNumberOfPartitions(); partition++)
+    {
+      final List<UpdateToReplay> partitionUpdates = new ArrayList<>();
+      UpdateToReplay update;
+      while ((update = queue.poll(partition, 0, TimeUnit.SECONDS)) != null)
+      {
+        partitionUpdates.add(update);
+      }
+      replayed.add(partitionUpdates);
+    }
+    assertThat(queue.size()).isEqualTo(0);
+
+    for (int entry = 0; entry < 7; entry++)
+    {
+      final DN dn = dn(entry);
+      List<UpdateToReplay> partitionUpdates = null;
+      for (List<UpdateToReplay> candidate : replayed)
+      {
+        if (!candidate.isEmpty() && indexOf(candidate, dn) >= 0)
+        {
+          assertThat(partitionUpdates).as("Updates of " + dn + " found in several partitions").isNull();
+          partitionUpdates = candidate;
+        }
+      }
+      assertThat(partitionUpdates).isNotNull();
+      CSN previous = null;
+      for (UpdateToReplay update : partitionUpdates)
+      {
+        final LDAPUpdateMsg msg = update.getUpdateMessage();
+        if (msg.getDN().equals(dn))
+        {
+          assertThat(previous == null || msg.getCSN().isNewerThan(previous)).isTrue();
+          previous = msg.getCSN();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void serverStateOnlyCoversCommittedChanges() throws Exception
+  {
+    final ServerState state = new ServerState();
+    final RemotePendingChanges pendingChanges = new RemotePendingChanges(state);
+    final CSN csn1 = csn(1);
+    final CSN csn2 = csn(2);
+    final CSN csn3 = csn(3);
+    assertThat(pendingChanges.putRemoteUpdate(new DeleteMsg(dn(1), csn1, "uuid1"))).isTrue();
+    assertThat(pendingChanges.putRemoteUpdate(new DeleteMsg(dn(2), csn2, "uuid2"))).isTrue();
+    assertThat(pendingChanges.putRemoteUpdate(new DeleteMsg(dn(3), csn3, "uuid3"))).isTrue();
+    assertThat(pendingChanges.putRemoteUpdate(new DeleteMsg(dn(3), csn3, "uuid3"))).isFalse();
+    assertThat(pendingChanges.changesInProgressSize()).isEqualTo(3);
+    assertThat(pendingChanges.getReplayLag()).isGreaterThanOrEqualTo(0);
+
+    pendingChanges.commit(csn2);
+    assertThat(state.getCSN(SERVER_ID)).isNull();
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(3);
+
+    pendingChanges.commit(csn1);
+    assertThat(state.getCSN(SERVER_ID)).isEqualTo(csn2);
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(1);
+
+    pendingChanges.commit(csn3);
+    assertThat(state.getCSN(SERVER_ID)).isEqualTo(csn3);
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(0);
+    assertThat(pendingChanges.changesInProgressSize()).isEqualTo(0);
+    assertThat(pendingChanges.getReplayLag()).isEqualTo(0);
+  }
+
+  @Test
+  public void serverStateOnlyCoversBatchedChangesOnceTheBatchIsCommitted() throws Exception
+  {
+    final ServerState state = new ServerState();
+    final RemotePendingChanges pendingChanges = new RemotePendingChanges(state);
+    final CSN csn1 = csn(1);
+    final CSN csn2 = csn(2);
+    pendingChanges.putRemoteUpdate(new DeleteMsg(dn(1), csn1, "uuid1"));
+    pendingChanges.putRemoteUpdate(new DeleteMsg(dn(2), csn2, "uuid2"));
+
+    final ReplayBatch batch = ReplayBatch.begin();
+    try
+    {
+      assertThat(ReplayBatch.current()).isSameAs(batch);
+      pendingChanges.commit(csn1);
+      pendingChanges.commit(csn2);
+      // Changes depending on the replayed ones need not wait for the batch
+      assertThat(pendingChanges.changesInProgressSize()).isEqualTo(0);
+      assertThat(state.getCSN(SERVER_ID)).isNull();
+      assertThat(pendingChanges.getQueueSize()).isEqualTo(2);
+    }
+    finally
+    {
+      batch.commit(new AtomicBoolean());
+    }
+    assertThat(ReplayBatch.current()).isNull();
+    assertThat(state.getCSN(SERVER_ID)).isEqualTo(csn2);
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void serverStateOnlyCoversBatchedChangesOnceTheyAreOnDisk() throws Exception
+  {
+    final ServerState state = new ServerState();
+    final RemotePendingChanges pendingChanges = new RemotePendingChanges(state);
+    final CSN csn1 = csn(1);
+    final CSN csn2 = csn(2);
+    pendingChanges.putRemoteUpdate(new DeleteMsg(dn(1), csn1, "uuid1"));
+    pendingChanges.putRemoteUpdate(new DeleteMsg(dn(2), csn2, "uuid2"));
+    final Storage storage = mock(Storage.class);
+    doThrow(new StorageRuntimeException("sync failed")).doNothing().when(storage).sync();
+
+    // the sync is retried until it succeeds
+    ReplayBatch batch = ReplayBatch.begin();
+    WriteBatch.current().addStorageToSync(storage);
+    pendingChanges.commit(csn1);
+    batch.commit(new AtomicBoolean());
+    verify(storage, times(2)).sync();
+    assertThat(state.getCSN(SERVER_ID)).isEqualTo(csn1);
+
+    // the thread is shut down before the sync succeeds
+    doThrow(new StorageRuntimeException("sync failed")).when(storage).sync();
+    batch = ReplayBatch.begin();
+    WriteBatch.current().addStorageToSync(storage);
+    pendingChanges.commit(csn2);
+    batch.commit(new AtomicBoolean(true));
+    assertThat(state.getCSN(SERVER_ID)).isEqualTo(csn1);
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void concurrentCommitsMoveTheServerStateToTheLastChange() throws Exception
+  {
+    final ServerState state = new ServerState();
+    final RemotePendingChanges pendingChanges = new RemotePendingChanges(state);
+    final List<CSN> csns = new ArrayList<>();
+    for (int i = 1; i <= 10000; i++)
+    {
+      final CSN csn = csn(i);
+      csns.add(csn);
+      pendingChanges.putRemoteUpdate(new DeleteMsg(dn(i), csn, "uuid" + i));
+    }
+    Collections.shuffle(csns);
+
+    final int threadCount = 4;
+    final ExecutorService threadPool = Executors.newFixedThreadPool(threadCount);
+    for (int i = 0; i < threadCount; i++)
+    {
+      final List<CSN> threadCSNs = csns.subList(i * csns.size() / threadCount, (i + 1) * csns.size() / threadCount);
+      threadPool.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for (CSN csn : threadCSNs)
+          {
+            pendingChanges.commit(csn);
+          }
+        }
+      });
+    }
+    threadPool.shutdown();
+    assertThat(threadPool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(0);
+    assertThat(state.getCSN(SERVER_ID)).isEqualTo(csn(10000));
+  }
+
+  /**
+   * An ADD waiting for the ADD of its parent, replayed from another partition in a batch, must be replayed once
+   * the batch is committed.
+   */
+  @Test
+  public void dependentUpdateOfAnotherPartitionIsReplayedOnceTheBatchIsCommitted() throws Exception
+  {
+    final DN baseDN = DN.valueOf(TEST_ROOT_DN_STRING);
+    TestCaseUtils.initializeTestBackend(true);
+    final DN parentDN = DN.valueOf("ou=people," + TEST_ROOT_DN_STRING);
+    final int parentPartition = partitionOf(parentDN);
+    // the parent is replayed in a batch with another update of its partition
+    String siblingOU;
+    DN siblingDN;
+    int i = 0;
+    do
+    {
+      siblingOU = "groups" + i++;
+      siblingDN = DN.valueOf("ou=" + siblingOU + "," + TEST_ROOT_DN_STRING);
+    }
+    while (partitionOf(siblingDN) != parentPartition);
+    String childUid;
+    DN childDN;
+    i = 0;
+    do
+    {
+      childUid = "user." + i++;
+      childDN = DN.valueOf("uid=" + childUid + ",ou=people," + TEST_ROOT_DN_STRING);
+    }
+    while (partitionOf(childDN) == parentPartition);
+
+    final PartitionedReplayQueue queue = new PartitionedReplayQueue(100, 2);
+    final DomainFakeCfg conf = new DomainFakeCfg(baseDN, 1, new TreeSet<String>());
+    conf.setIsolationPolicy(IsolationPolicy.ACCEPT_ALL_UPDATES);
+    final LDAPReplicationDomain domain = MultimasterReplication.createNewDomain(conf, queue);
+    ReplayThread replayThread = null;
+    try
+    {
+      domain.start();
+      final CSNGenerator gen = new CSNGenerator(201, 0);
+      final String baseUUID = getEntryUUID(baseDN);
+      final String parentUUID = "11111111-1111-1111-1111-111111111111";
+      domain.processUpdate(addMsg(gen.newCSN(), makeEntry(
+          "dn: " + parentDN, "objectClass: top", "objectClass: organizationalUnit", "ou: people"),
+          parentUUID, baseUUID));
+      domain.processUpdate(addMsg(gen.newCSN(), makeEntry(
+          "dn: " + siblingDN, "objectClass: top", "objectClass: organizationalUnit", "ou: " + siblingOU),
+          "22222222-2222-2222-2222-222222222222", baseUUID));
+      final CSN childCSN = gen.newCSN();
+      domain.processUpdate(addMsg(childCSN, makeEntry(
+          "dn: " + childDN, "objectClass: top", "objectClass: person", "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson", "uid: " + childUid, "sn: user", "cn: user"),
+          "33333333-3333-3333-3333-333333333333", parentUUID));
+
+      // the replay thread of the child partition finds it depends on the parent, not replayed yet
+      final AtomicBoolean shutdown = new AtomicBoolean();
+      domain.replay(queue.poll(1 - parentPartition, 0, SECONDS).getUpdateMessage(), shutdown);
+      assertThat(DirectoryServer.entryExists(childDN)).isFalse();
+
+      replayThread = new ReplayThread(queue, parentPartition, 100, 1024 * 1024);
+      replayThread.start();
+      final TestTimer timer = new TestTimer.Builder()
+          .maxSleep(10, SECONDS)
+          .sleepTimes(50, MILLISECONDS)
+          .toTimer();
+      timer.repeatUntilSuccess(new CallableVoid()
+      {
+        @Override
+        public void call() throws Exception
+        {
+          assertThat(domain.getServerState().getCSN(childCSN.getServerId())).isEqualTo(childCSN);
+        }
+      });
+      assertThat(DirectoryServer.entryExists(parentDN)).isTrue();
+      assertThat(DirectoryServer.entryExists(siblingDN)).isTrue();
+      assertThat(DirectoryServer.entryExists(childDN)).isTrue();
+    }
+    finally
+    {
+      if (replayThread != null)
+      {
+        replayThread.shutdown();
+        replayThread.join();
+      }
+      MultimasterReplication.deleteDomain(baseDN);
+    }
+  }
+
+  private static AddMsg addMsg(CSN csn, Entry entry, String entryUUID, String parentUUID)
+  {
+    return new AddMsg(csn, entry.getName(), entryUUID, parentUUID,
+        entry.getObjectClasses(), entry.getUserAttributes(), null);
+  }
+
+  /** Returns the partition of the updates of the provided entry, in a queue with two partitions. */
+  private static int partitionOf(DN dn) throws Exception
+  {
+    final PartitionedReplayQueue queue = new PartitionedReplayQueue(2, 2);
+    queue.offer(new UpdateToReplay(new DeleteMsg(dn, csn(1), "uuid"), null));
+    return queue.getPartitionSizes()[0] == 1 ? 0 : 1;
+  }
+
+  private static int indexOf(List<UpdateToReplay> updates, DN dn)
+  {
+    for (int i = 0; i < updates.size(); i++)
+    {
+      if (updates.get(i).getUpdateMessage().getDN().equals(dn))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static UpdateToReplay update(int entry, int change) throws Exception
+  {
+    return new UpdateToReplay(new DeleteMsg(dn(entry), csn(change + 1), "uuid" + entry), null);
+  }
+
+  private static DN dn(int entry)
+  {
+    return DN.valueOf("uid=user." + entry + ",ou=people,dc=example,dc=com");
+  }
+
+  private static CSN csn(int seqNum)
+  {
+    return new CSN(1000, seqNum, SERVER_ID);
+  }
+}
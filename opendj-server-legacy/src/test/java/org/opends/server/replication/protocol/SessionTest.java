@@ -0,0 +1,183 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.protocol;
+
+import static org.testng.Assert.*;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests the sending and receiving of messages by the {@link Session} class. */
+@SuppressWarnings("javadoc")
+public class SessionTest extends DirectoryServerTestCase
+{
+  private static final int TIMEOUT_MS = 30000;
+
+  private ServerSocket listenSocket;
+  private Session sender;
+  private Session receiver;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void openSessions() throws Exception
+  {
+    final ReplSessionSecurity security = new ReplSessionSecurity(null, null, null, true);
+    listenSocket = new ServerSocket(0);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try
+    {
+      final Future<Session> accepted = executor.submit(new Callable<Session>()
+      {
+        @Override
+        public Session call() throws Exception
+        {
+          return security.createServerSession(listenSocket.accept(), TIMEOUT_MS);
+        }
+      });
+      final Socket socket = new Socket("localhost", listenSocket.getLocalPort());
+      sender = security.createClientSession(socket, TIMEOUT_MS);
+      receiver = accepted.get();
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  @AfterMethod
+  public void closeSessions() throws Exception
+  {
+    sender.close();
+    receiver.close();
+    listenSocket.close();
+  }
+
+  @Test
+  public void compressedBatches() throws Exception
+  {
+    negotiate(ProtocolVersion.REPLICATION_PROTOCOL_V9, true);
+    assertTrue(sender.isCompressed());
+
+    sender.setMaxSendDelay(100);
+    sender.start();
+    final int nbMessages = 1000;
+    for (int i = 0; i < nbMessages; i++)
+    {
+      sender.publish(newMessage(i));
+    }
+    assertReceived(nbMessages);
+
+    assertTrue(sender.getAverageBatchSize() > 1, "average batch size " + sender.getAverageBatchSize());
+    assertTrue(sender.getCompressionRatio() > 1, "compression ratio " + sender.getCompressionRatio());
+  }
+
+  @Test
+  public void compressedSynchronousSends() throws Exception
+  {
+    negotiate(ProtocolVersion.REPLICATION_PROTOCOL_V9, true);
+
+    final int nbMessages = 100;
+    for (int i = 0; i < nbMessages; i++)
+    {
+      sender.publish(newMessage(i));
+    }
+    assertReceived(nbMessages);
+
+    assertEquals(sender.getAverageBatchSize(), 1.0);
+    assertTrue(sender.getCompressionRatio() > 1, "compression ratio " + sender.getCompressionRatio());
+  }
+
+  @Test
+  public void noCompressionWithOldProtocolVersion() throws Exception
+  {
+    negotiate(ProtocolVersion.REPLICATION_PROTOCOL_V8, true);
+    assertFalse(sender.isCompressed());
+
+    sender.publish(newMessage(0));
+    assertReceived(1);
+    assertEquals(sender.getCompressionRatio(), 1.0);
+  }
+
+  @Test
+  public void noCompressionWhenDisabled() throws Exception
+  {
+    negotiate(ProtocolVersion.REPLICATION_PROTOCOL_V9, false);
+    assertFalse(sender.isCompressed());
+
+    sender.publish(newMessage(0));
+    assertReceived(1);
+    assertEquals(sender.getCompressionRatio(), 1.0);
+  }
+
+  @Test
+  public void noCompressionOnEncryptedSessions() throws Exception
+  {
+    negotiate(ProtocolVersion.REPLICATION_PROTOCOL_V9, true, true);
+    assertFalse(sender.isCompressed());
+
+    sender.publish(newMessage(0));
+    assertReceived(1);
+    assertEquals(sender.getCompressionRatio(), 1.0);
+  }
+
+  private void negotiate(final short protocolVersion, final boolean compressionEnabled)
+  {
+    negotiate(protocolVersion, compressionEnabled, false);
+  }
+
+  private void negotiate(final short protocolVersion, final boolean compressionEnabled, final boolean encrypted)
+  {
+    if (!encrypted)
+    {
+      sender.stopEncryption();
+      receiver.stopEncryption();
+    }
+    sender.setProtocolVersion(protocolVersion);
+    sender.setCompressionEnabled(compressionEnabled);
+    receiver.setProtocolVersion(protocolVersion);
+  }
+
+  private ErrorMsg newMessage(final int i)
+  {
+    return new ErrorMsg(1, 2, LocalizableMessage.raw("Replication message number " + i));
+  }
+
+  private void assertReceived(final int nbMessages) throws Exception
+  {
+    for (int i = 0; i < nbMessages; i++)
+    {
+      final ErrorMsg msg = (ErrorMsg) receiver.receive();
+      assertEquals(msg.getDetails().toString(), newMessage(i).getDetails().toString());
+    }
+  }
+}
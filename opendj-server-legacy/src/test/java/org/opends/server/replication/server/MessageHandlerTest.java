@@ -0,0 +1,161 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.common.ServerState;
+import org.opends.server.replication.protocol.UpdateMsg;
+import org.opends.server.replication.server.changelog.api.DBCursor;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MessageHandlerTest extends DirectoryServerTestCase
+{
+  private static final int SERVER_ID = 1;
+
+  /** The messages of the replica, as persisted in the changelog before being added to the handler. */
+  private final ConcurrentSkipListMap<CSN, UpdateMsg> changelog = new ConcurrentSkipListMap<>();
+
+  private static UpdateMsg newMsg(long time)
+  {
+    return new UpdateMsg(new CSN(time, 0, SERVER_ID), new byte[10]);
+  }
+
+  private ReplicationServerDomain newReplicationServerDomain() throws Exception
+  {
+    final ReplicationServerDomain domain = mock(ReplicationServerDomain.class);
+    when(domain.getCursorFrom(any(ServerState.class))).thenAnswer(new Answer<DBCursor<UpdateMsg>>()
+    {
+      @Override
+      public DBCursor<UpdateMsg> answer(InvocationOnMock invocation) throws Throwable
+      {
+        final CSN startAfter = ((ServerState) invocation.getArguments()[0]).getCSN(SERVER_ID);
+        final Iterable<UpdateMsg> msgs =
+            startAfter != null ? changelog.tailMap(startAfter, false).values() : changelog.values();
+        return newCursor(msgs.iterator());
+      }
+    });
+    return domain;
+  }
+
+  private static DBCursor<UpdateMsg> newCursor(final Iterator<UpdateMsg> msgs)
+  {
+    return new DBCursor<UpdateMsg>()
+    {
+      private UpdateMsg current;
+
+      @Override
+      public UpdateMsg getRecord()
+      {
+        return current;
+      }
+
+      @Override
+      public boolean next()
+      {
+        current = msgs.hasNext() ? msgs.next() : null;
+        return current != null;
+      }
+
+      @Override
+      public void close()
+      {
+        // nothing to do
+      }
+    };
+  }
+
+  private MessageHandler newMessageHandler(int queueSize) throws Exception
+  {
+    final MessageHandler handler = new MessageHandler(queueSize, null);
+    handler.replicationServerDomain = newReplicationServerDomain();
+    handler.setInitialServerState(new ServerState());
+    return handler;
+  }
+
+  private void persistAndAdd(MessageHandler handler, UpdateMsg msg)
+  {
+    changelog.put(msg.getCSN(), msg);
+    handler.add(msg);
+  }
+
+  @Test
+  public void testTrimmedMessagesAreReadFromTheChangelog() throws Exception
+  {
+    final MessageHandler handler = newMessageHandler(3);
+    persistAndAdd(handler, newMsg(1));
+    // catches up with the queue from the changelog, then follows the queue
+    assertThat(handler.getNextMessage().getCSN()).isEqualTo(newMsg(1).getCSN());
+
+    // the producer has trimmed the queue, but has not yet stopped the consumer from following it
+    final MsgQueue msgQueue = handler.getMsgQueue();
+    for (long time = 2; time <= 6; time++)
+    {
+      final UpdateMsg msg = newMsg(time);
+      changelog.put(msg.getCSN(), msg);
+      msgQueue.add(msg);
+    }
+    assertThat(msgQueue.trimToLimits()).isTrue();
+
+    for (long time = 2; time <= 6; time++)
+    {
+      assertThat(handler.getNextMessage().getCSN()).isEqualTo(newMsg(time).getCSN());
+    }
+  }
+
+  @Test(timeOut = 120000)
+  public void testNoMessageIsLostWhenTheQueueIsTrimmedWhileDraining() throws Exception
+  {
+    final MessageHandler handler = newMessageHandler(10);
+
+    final int nbMsgs = 20000;
+    // the last messages are only sent so that losing any checked message makes the next one unexpected
+    final int nbTrailingMsgs = 100;
+    final Thread producer = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        for (long time = 1; time <= nbMsgs + nbTrailingMsgs; time++)
+        {
+          persistAndAdd(handler, newMsg(time));
+        }
+      }
+    });
+    producer.start();
+    try
+    {
+      for (long time = 1; time <= nbMsgs; time++)
+      {
+        assertThat(handler.getNextMessage().getCSN()).isEqualTo(new CSN(time, 0, SERVER_ID));
+      }
+    }
+    finally
+    {
+      producer.join();
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.protocol.UpdateMsg;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MsgQueueTest extends DirectoryServerTestCase
+{
+  private static UpdateMsg newMsg(long time, int serverId, int payloadSize)
+  {
+    return new UpdateMsg(new CSN(time, 0, serverId), new byte[payloadSize]);
+  }
+
+  private static List<CSN> removeAll(MsgQueue queue)
+  {
+    final List<CSN> csns = new ArrayList<>();
+    UpdateMsg msg;
+    while ((msg = queue.removeFirst()) != null)
+    {
+      csns.add(msg.getCSN());
+    }
+    return csns;
+  }
+
+  @Test
+  public void testMessagesAreOrderedByCSN()
+  {
+    final MsgQueue queue = new MsgQueue();
+    final UpdateMsg msg1 = newMsg(1, 1, 10);
+    final UpdateMsg msg2 = newMsg(2, 2, 10);
+    final UpdateMsg msg3 = newMsg(3, 1, 10);
+    queue.add(msg3);
+    queue.add(msg1);
+    queue.add(msg2);
+    queue.add(msg1);
+
+    assertThat(queue.count()).isEqualTo(3);
+    assertThat(queue.bytesCount()).isEqualTo(msg1.size() + msg2.size() + msg3.size());
+    assertThat(queue.first()).isSameAs(msg1);
+    assertThat(removeAll(queue)).containsExactly(msg1.getCSN(), msg2.getCSN(), msg3.getCSN());
+    assertThat(queue.isEmpty()).isTrue();
+    assertThat(queue.count()).isZero();
+    assertThat(queue.bytesCount()).isZero();
+    assertThat(queue.first()).isNull();
+  }
+
+  @Test
+  public void testTrimToCountLimit()
+  {
+    final MsgQueue queue = new MsgQueue(3, Long.MAX_VALUE);
+    for (int i = 1; i <= 5; i++)
+    {
+      queue.add(newMsg(i, 1, 10));
+    }
+    assertThat(queue.isAboveLimits()).isTrue();
+
+    assertThat(queue.trimToLimits()).isTrue();
+
+    assertThat(queue.getTrimmedCount()).isEqualTo(2);
+    assertThat(queue.isAboveLimits()).isFalse();
+    assertThat(queue.trimToLimits()).isFalse();
+    assertThat(queue.first().getCSN()).isEqualTo(new CSN(3, 0, 1));
+  }
+
+  @Test
+  public void testTrimToBytesLimitKeepsAMinimumOfMessages()
+  {
+    final MsgQueue queue = new MsgQueue(100, 100);
+    for (int i = 1; i <= 4; i++)
+    {
+      queue.add(newMsg(i, 1, 1000));
+    }
+    assertThat(queue.trimToLimits()).isFalse();
+
+    queue.add(newMsg(5, 1, 1000));
+    assertThat(queue.trimToLimits()).isTrue();
+
+    assertThat(queue.count()).isEqualTo(4);
+    assertThat(queue.getTrimmedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testConsumeUpTo()
+  {
+    final MsgQueue queue = new MsgQueue();
+    for (int i = 1; i <= 5; i++)
+    {
+      queue.add(newMsg(i, 1, 10));
+    }
+
+    queue.consumeUpTo(newMsg(3, 1, 10));
+
+    assertThat(queue.count()).isEqualTo(2);
+    assertThat(removeAll(queue)).containsExactly(new CSN(4, 0, 1), new CSN(5, 0, 1));
+  }
+
+  @Test(timeOut = 10000)
+  public void testAddWakesUpWaitingConsumer() throws Exception
+  {
+    final MsgQueue queue = new MsgQueue();
+    assertThat(queue.awaitNotEmpty(1)).isFalse();
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final Thread producer = new Thread(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          started.await();
+          Thread.sleep(50);
+          queue.add(newMsg(1, 1, 10));
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    producer.start();
+    started.countDown();
+
+    assertThat(queue.awaitNotEmpty(5000)).isTrue();
+    producer.join();
+  }
+
+  @Test(timeOut = 60000)
+  public void testConcurrentProducersAndConsumer() throws Exception
+  {
+    final int nbProducers = 4;
+    final int nbMsgsPerProducer = 10000;
+    final MsgQueue queue = new MsgQueue();
+    final List<Thread> producers = new ArrayList<>();
+    for (int p = 1; p <= nbProducers; p++)
+    {
+      final int serverId = p;
+      producers.add(new Thread(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          for (int i = 1; i <= nbMsgsPerProducer; i++)
+          {
+            queue.add(newMsg(i, serverId, 10));
+          }
+        }
+      }));
+    }
+    for (Thread producer : producers)
+    {
+      producer.start();
+    }
+
+    int nbConsumed = 0;
+    while (nbConsumed < nbProducers * nbMsgsPerProducer)
+    {
+      if (queue.awaitNotEmpty(100))
+      {
+        assertThat(queue.removeFirst()).isNotNull();
+        nbConsumed++;
+      }
+    }
+    for (Thread producer : producers)
+    {
+      producer.join();
+    }
+
+    assertThat(queue.isEmpty()).isTrue();
+    assertThat(queue.count()).isZero();
+    assertThat(queue.bytesCount()).isZero();
+  }
+}
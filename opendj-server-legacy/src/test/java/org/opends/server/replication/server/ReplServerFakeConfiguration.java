@@ -24,6 +24,7 @@ import org.forgerock.opendj.config.Configuration;
 import org.forgerock.opendj.config.server.ConfigurationChangeListener;
 import org.forgerock.opendj.config.server.ServerManagedObject;
 import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.meta.ReplicationServerCfgDefn.ChangelogDurability;
 import org.forgerock.opendj.server.config.server.ReplicationServerCfg;
 
 /**
@@ -169,6 +170,18 @@ public class ReplServerFakeConfiguration implements ReplicationServerCfg
   @Override
   public InetAddress getSourceAddress() { return null; }
 
+  @Override
+  public boolean isSessionCompressionEnabled() { return false; }
+
+  @Override
+  public long getMaxSessionSendDelay() { return 0; }
+
+  @Override
+  public ChangelogDurability getChangelogDurability() { return ChangelogDurability.GROUP_COMMIT; }
+
+  @Override
+  public long getChangelogSyncDelay() { return 0; }
+
   @Override
   public int getQueueSize()
   {
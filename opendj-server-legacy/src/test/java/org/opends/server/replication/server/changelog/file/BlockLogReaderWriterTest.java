@@ -25,6 +25,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -251,6 +253,76 @@ public class BlockLogReaderWriterTest extends DirectoryServerTestCase
     }
   }
 
+  @Test(dataProvider = "recordsForSeek")
+  public void testSeekToRecordWithMappedFileAndIndex(int blockSize, List<Record<Integer, Integer>> records, int key,
+      KeyMatchingStrategy matchingStrategy, PositionStrategy positionStrategy, Record<Integer, Integer> expectedRecord,
+      boolean shouldBeFound) throws Exception
+  {
+    writeRecords(blockSize, records);
+
+    for (int blocksPerEntry : new int[] { 1, 2, LogFileIndex.BLOCKS_PER_ENTRY })
+    {
+      try (BlockLogReader<Integer, Integer> reader = newMappedReader(blockSize, blocksPerEntry))
+      {
+        Pair<Boolean, Record<Integer, Integer>> result = reader.seekToRecord(key, matchingStrategy, positionStrategy);
+
+        final SoftAssertions softly = new SoftAssertions();
+        softly.assertThat(result.getFirst()).isEqualTo(shouldBeFound);
+        softly.assertThat(result.getSecond()).isEqualTo(expectedRecord);
+        softly.assertAll();
+      }
+    }
+  }
+
+  @Test
+  public void testMappedReaderReadsAllRecords() throws Exception
+  {
+    final int blockSize = 10;
+    final List<Record<Integer, Integer>> records = records(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    writeRecords(blockSize, records);
+
+    try (BlockLogReader<Integer, Integer> reader = newMappedReader(blockSize, 1))
+    {
+      for (Record<Integer, Integer> record : records)
+      {
+        assertThat(reader.readRecord()).isEqualTo(record);
+      }
+      assertThat(reader.readRecord()).isNull();
+      assertThat(reader.getFilePosition()).isEqualTo(TEST_FILE.length());
+    }
+  }
+
+  @Test
+  public void testIndexIsPersisted() throws Exception
+  {
+    final int blockSize = 10;
+    writeRecords(blockSize, records(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+    final File indexFile = LogFileIndex.getIndexFile(TEST_FILE);
+    try
+    {
+      try (BlockLogReader<Integer, Integer> reader = newReader(blockSize))
+      {
+        reader.buildIndex(2).write(TEST_FILE, RECORD_PARSER);
+      }
+      final LogFileIndex<Integer> index = LogFileIndex.read(TEST_FILE, RECORD_PARSER, blockSize);
+      assertThat(index).isNotNull();
+      assertThat(index.size()).isGreaterThan(1);
+      assertThat(index.getBlockStartBeforeOrAtKey(0)).isEqualTo(0);
+      assertThat(index.getBlockStartBeforeOrAtKey(1)).isEqualTo(0);
+      assertThat(index.getBlockStartBeforeOrAtKey(10)).isGreaterThan(0);
+
+      // the index does not match a log file with another block size or length
+      assertThat(LogFileIndex.read(TEST_FILE, RECORD_PARSER, blockSize + 1)).isNull();
+      StaticUtils.recursiveDelete(TEST_FILE);
+      writeRecords(blockSize, records(1, 2, 3));
+      assertThat(LogFileIndex.read(TEST_FILE, RECORD_PARSER, blockSize)).isNull();
+    }
+    finally
+    {
+      indexFile.delete();
+    }
+  }
+
   @Test
   public void testGetClosestBlockStartBeforeOrAtPosition() throws Exception
   {
@@ -518,6 +590,21 @@ public class BlockLogReaderWriterTest extends DirectoryServerTestCase
         RECORD_PARSER, blockSize);
   }
 
+  private BlockLogReader<Integer, Integer> newMappedReader(int blockSize, int blocksPerEntry) throws Exception
+  {
+    final ByteBuffer mappedFile;
+    try (RandomAccessFile file = new RandomAccessFile(TEST_FILE, "r"))
+    {
+      mappedFile = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+    }
+    final LogFileIndex<Integer> index;
+    try (BlockLogReader<Integer, Integer> reader = newReader(blockSize))
+    {
+      index = reader.buildIndex(blocksPerEntry);
+    }
+    return BlockLogReader.newMappedReaderForTests(TEST_FILE, mappedFile, RECORD_PARSER, blockSize, index);
+  }
+
   private BlockLogReader<Integer, Integer> newReaderWithNullFile(int blockSize) throws FileNotFoundException
   {
     return BlockLogReader.newReaderForTests(null, null, RECORD_PARSER, blockSize);
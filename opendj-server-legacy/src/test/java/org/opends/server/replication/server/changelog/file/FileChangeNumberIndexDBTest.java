@@ -106,6 +106,46 @@ public class FileChangeNumberIndexDBTest extends ReplicationTestCase
     }
   }
 
+  @Test
+  public void testCursorFollowsNewestRecords() throws Exception
+  {
+    ReplicationServer replicationServer = null;
+    try
+    {
+      replicationServer = newReplicationServer(false);
+      final ChangelogDB changelogDB = replicationServer.getChangelogDB();
+      changelogDB.setPurgeDelay(0);
+      final FileChangeNumberIndexDB cnIndexDB = getCNIndexDB(replicationServer);
+
+      long[] changeNumbers = addThreeRecords(cnIndexDB);
+      long cn2 = changeNumbers[1];
+      long cn3 = changeNumbers[2];
+
+      try (DBCursor<ChangeNumberIndexRecord> cursor = cnIndexDB.getCursorFrom(cn2);
+          DBCursor<ChangeNumberIndexRecord> unknownCursor = cnIndexDB.getCursorFrom(cn3 + 2))
+      {
+        assertCursorReadsInOrder(cursor, cn2, cn3);
+        assertFalse(unknownCursor.next());
+
+        final long cn4 = addRecord(cnIndexDB, DN.valueOf("o=test4"), generateCSNs(2, 0, 1)[0]);
+        final long cn5 = addRecord(cnIndexDB, DN.valueOf("o=test5"), generateCSNs(3, 0, 1)[0]);
+        assertCursorReadsInOrder(cursor, cn4, cn5);
+        // like a cursor reading the log, a cursor on an unknown change number never returns records
+        assertFalse(unknownCursor.next());
+      }
+
+      cnIndexDB.clear();
+      try (DBCursor<ChangeNumberIndexRecord> cursor = cnIndexDB.getCursorFrom(cn2))
+      {
+        assertFalse(cursor.next());
+      }
+    }
+    finally
+    {
+      remove(replicationServer);
+    }
+  }
+
   @Test
   public void testClear() throws Exception
   {
@@ -0,0 +1,221 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.replication.server.changelog.file.LogFileTest.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.server.config.meta.ReplicationServerCfgDefn.ChangelogDurability;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.replication.server.changelog.api.ChangelogException;
+import org.opends.server.replication.server.changelog.api.DBCursor;
+import org.opends.server.replication.server.changelog.file.Log.LogRotationParameters;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(sequential=true)
+public class LogSyncerTest extends DirectoryServerTestCase
+{
+  /** Use a directory dedicated to this test class. */
+  private static final File LOG_DIRECTORY = new File(TestCaseUtils.getUnitTestRootPath(), "changelog-syncer");
+
+  private static final int NB_LOGS = 4;
+  private static final int NB_RECORDS_PER_LOG = 50;
+
+  private final List<Log<String, String>> logs = new ArrayList<>();
+  private LogSyncer syncer;
+
+  @BeforeMethod
+  public void initialize() throws Exception
+  {
+    if (LOG_DIRECTORY.exists())
+    {
+      StaticUtils.recursiveDelete(LOG_DIRECTORY);
+    }
+    final LogRotationParameters rotationParams = new LogRotationParameters(1024, 0, 0);
+    for (int i = 0; i < NB_LOGS; i++)
+    {
+      logs.add(Log.openLog(mock(ReplicationEnvironment.class), new File(LOG_DIRECTORY, "log" + i),
+          RECORD_PARSER, rotationParams));
+    }
+    syncer = new LogSyncer();
+  }
+
+  @AfterMethod
+  public void cleanup() throws Exception
+  {
+    syncer.shutdown();
+    StaticUtils.close(logs);
+    logs.clear();
+    StaticUtils.recursiveDelete(LOG_DIRECTORY);
+  }
+
+  @DataProvider
+  Object[][] durabilities()
+  {
+    return new Object[][] {
+      { ChangelogDurability.STRICT },
+      { ChangelogDurability.GROUP_COMMIT },
+      { ChangelogDurability.ASYNC },
+    };
+  }
+
+  @Test(dataProvider = "durabilities")
+  public void testConcurrentAppends(final ChangelogDurability durability) throws Exception
+  {
+    syncer.setDurability(durability, 0);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(NB_LOGS);
+    try
+    {
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (final Log<String, String> log : logs)
+      {
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for (int i = 1; i <= NB_RECORDS_PER_LOG; i++)
+            {
+              log.append(Record.from(String.format("key%03d", i), "value" + i));
+              syncer.awaitDurable(log);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures)
+      {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    for (Log<String, String> log : logs)
+    {
+      assertThat(countRecords(log)).isEqualTo(NB_RECORDS_PER_LOG);
+    }
+  }
+
+  @Test
+  public void testGroupCommitWaitsForTheSync() throws Exception
+  {
+    final long syncDelayInMillis = 300;
+    syncer.setDurability(ChangelogDurability.GROUP_COMMIT, syncDelayInMillis);
+
+    final Log<String, String> log = logs.get(0);
+    log.append(Record.from("key001", "value1"));
+    final long start = System.nanoTime();
+    syncer.awaitDurable(log);
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(syncDelayInMillis);
+  }
+
+  @Test
+  public void testScheduledSyncDoesNotWaitForTheGroup() throws Exception
+  {
+    final long syncDelayInMillis = 10000;
+    syncer.setDurability(ChangelogDurability.GROUP_COMMIT, syncDelayInMillis);
+
+    final Log<String, String> log = logs.get(0);
+    log.append(Record.from("key001", "value1"));
+    final long start = System.nanoTime();
+    syncer.scheduleSync(log);
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(syncDelayInMillis);
+  }
+
+  @Test
+  public void testAsyncDoesNotWaitForTheSync() throws Exception
+  {
+    final long syncDelayInMillis = 10000;
+    syncer.setDurability(ChangelogDurability.ASYNC, syncDelayInMillis);
+
+    final Log<String, String> log = logs.get(0);
+    log.append(Record.from("key001", "value1"));
+    final long start = System.nanoTime();
+    syncer.awaitDurable(log);
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(syncDelayInMillis);
+  }
+
+  @Test
+  public void testShutdownReleasesWaitingThreads() throws Exception
+  {
+    syncer.setDurability(ChangelogDurability.GROUP_COMMIT, 10000);
+
+    final Log<String, String> log = logs.get(0);
+    log.append(Record.from("key001", "value1"));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try
+    {
+      final Future<Void> future = executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          syncer.awaitDurable(log);
+          return null;
+        }
+      });
+      Thread.sleep(100);
+      assertThat(future.isDone()).isFalse();
+
+      syncer.shutdown();
+      future.get(5, TimeUnit.SECONDS);
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    // once shut down, the appending threads sync by themselves
+    log.append(Record.from("key002", "value2"));
+    syncer.awaitDurable(log);
+    assertThat(countRecords(log)).isEqualTo(2);
+  }
+
+  private int countRecords(final Log<String, String> log) throws ChangelogException
+  {
+    int count = 0;
+    try (DBCursor<Record<String, String>> cursor = log.getCursor())
+    {
+      while (cursor.next())
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+}
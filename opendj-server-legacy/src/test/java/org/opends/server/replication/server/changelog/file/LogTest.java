@@ -22,6 +22,10 @@ import static org.opends.server.replication.server.changelog.api.DBCursor.Positi
 import static org.opends.server.replication.server.changelog.file.LogFileTest.*;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import org.opends.server.DirectoryServerTestCase;
 import org.opends.server.TestCaseUtils;
@@ -34,6 +38,7 @@ import org.opends.server.replication.server.changelog.file.Log.LogRotationParame
 import org.opends.server.replication.server.changelog.file.LogFileTest.FailingStringRecordParser;
 import org.opends.server.replication.server.changelog.file.Record.Mapper;
 import org.opends.server.util.StaticUtils;
+import org.testng.SkipException;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -388,6 +393,46 @@ public class LogTest extends DirectoryServerTestCase
     };
   }
 
+  @Test
+  public void testReadOnlyLogFilesAreIndexed() throws Exception
+  {
+    final File readOnlyLogFile = new File(LOG_DIRECTORY, "key001_key002.log");
+    assertThat(readOnlyLogFile).exists();
+    assertThat(LogFileIndex.getIndexFile(readOnlyLogFile)).exists();
+    assertThat(LogFileIndex.getIndexFile(new File(LOG_DIRECTORY, Log.HEAD_LOG_FILE_NAME))).doesNotExist();
+
+    try (Log<String, String> log = openLog(LogFileTest.RECORD_PARSER))
+    {
+      log.purgeUpTo("key003");
+    }
+    assertThat(readOnlyLogFile).doesNotExist();
+    assertThat(LogFileIndex.getIndexFile(readOnlyLogFile)).doesNotExist();
+  }
+
+  @Test
+  public void testPurgedLogFilesAreUnmappedOnceTheirCursorsAreClosed() throws Exception
+  {
+    final Path processMappings = Paths.get("/proc/self/maps");
+    if (!Files.isReadable(processMappings))
+    {
+      throw new SkipException("The memory mappings of the process cannot be listed on this platform");
+    }
+    final String readOnlyLogFile = new File(LOG_DIRECTORY, "key001_key002.log").getCanonicalPath();
+
+    try (Log<String, String> log = openLog(LogFileTest.RECORD_PARSER))
+    {
+      final DBCursor<Record<String, String>> cursor = log.getCursor("key001");
+      assertThat(cursor.next()).isTrue();
+      log.purgeUpTo("key003");
+      // the purged file is still mapped for the cursor that was reading it
+      assertThat(new String(Files.readAllBytes(processMappings), StandardCharsets.UTF_8)).contains(readOnlyLogFile);
+
+      cursor.close();
+      assertThat(new String(Files.readAllBytes(processMappings), StandardCharsets.UTF_8))
+          .doesNotContain(readOnlyLogFile);
+    }
+  }
+
   /**
    * Given a purge key, after purge is done, expects a new cursor to point on first record provided and
    * then to be fully read starting at provided start index and finishing at provided end index.
@@ -0,0 +1,175 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.replication.protocol.UpdateMsg;
+import org.opends.server.replication.server.changelog.api.ChangelogException;
+import org.opends.server.replication.server.changelog.api.DBCursor;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class PrefetchingDBCursorTest extends DirectoryServerTestCase
+{
+  private ExecutorService executor;
+
+  @BeforeClass
+  public void startExecutor()
+  {
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterClass
+  public void stopExecutor()
+  {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void readsAllRecordsInOrder() throws Exception
+  {
+    final int nbRecords = 2 * PrefetchingDBCursor.BATCH_SIZE + 10;
+    try (DBCursor<UpdateMsg> cursor = new PrefetchingDBCursor<>(newCursor(nbRecords), executor))
+    {
+      assertReadsInOrder(cursor, 1, nbRecords);
+      assertFalse(cursor.next());
+      assertNull(cursor.getRecord());
+    }
+  }
+
+  @Test
+  public void readsNewRecordsAfterExhaustion() throws Exception
+  {
+    final SequentialDBCursor delegate = newCursor(1);
+    try (DBCursor<UpdateMsg> cursor = new PrefetchingDBCursor<>(delegate, executor))
+    {
+      assertReadsInOrder(cursor, 1, 1);
+      assertFalse(cursor.next());
+
+      delegate.add(new FakeUpdateMsg(2));
+      assertReadsInOrder(cursor, 2, 2);
+      assertFalse(cursor.next());
+    }
+  }
+
+  @Test
+  public void readsInlineWhenExecutorIsShutdown() throws Exception
+  {
+    final ExecutorService stoppedExecutor = Executors.newSingleThreadExecutor();
+    stoppedExecutor.shutdown();
+    try (DBCursor<UpdateMsg> cursor = new PrefetchingDBCursor<>(newCursor(5), stoppedExecutor))
+    {
+      assertReadsInOrder(cursor, 1, 5);
+      assertFalse(cursor.next());
+    }
+  }
+
+  @Test
+  public void raisesErrorAfterRecordsReadBeforeIt() throws Exception
+  {
+    final int nbRecords = PrefetchingDBCursor.BATCH_SIZE / 2;
+    final SequentialDBCursor delegate = newCursor(nbRecords);
+    final DBCursor<UpdateMsg> failingCursor = new DBCursor<UpdateMsg>()
+    {
+      @Override
+      public UpdateMsg getRecord()
+      {
+        return delegate.getRecord();
+      }
+
+      @Override
+      public boolean next() throws ChangelogException
+      {
+        if (!delegate.next())
+        {
+          throw new ChangelogException(LocalizableMessage.raw("expected"));
+        }
+        return true;
+      }
+
+      @Override
+      public void close()
+      {
+        delegate.close();
+      }
+    };
+
+    try (DBCursor<UpdateMsg> cursor = new PrefetchingDBCursor<>(failingCursor, executor))
+    {
+      assertReadsInOrder(cursor, 1, nbRecords);
+      try
+      {
+        cursor.next();
+        fail("Expected a ChangelogException");
+      }
+      catch (ChangelogException expected)
+      {
+        assertEquals(expected.getMessageObject().toString(), "expected");
+      }
+    }
+  }
+
+  @Test
+  public void closeClosesUnderlyingCursor() throws Exception
+  {
+    final boolean[] closed = new boolean[1];
+    final SequentialDBCursor delegate = new SequentialDBCursor()
+    {
+      @Override
+      public void close()
+      {
+        closed[0] = true;
+      }
+    };
+    for (int i = 1; i <= 3 * PrefetchingDBCursor.BATCH_SIZE; i++)
+    {
+      delegate.add(new FakeUpdateMsg(i));
+    }
+
+    final DBCursor<UpdateMsg> cursor = new PrefetchingDBCursor<>(delegate, executor);
+    assertReadsInOrder(cursor, 1, 2);
+    cursor.close();
+    assertTrue(closed[0]);
+    assertNull(cursor.getRecord());
+  }
+
+  private SequentialDBCursor newCursor(int nbRecords)
+  {
+    final SequentialDBCursor cursor = new SequentialDBCursor();
+    for (int i = 1; i <= nbRecords; i++)
+    {
+      cursor.add(new FakeUpdateMsg(i));
+    }
+    return cursor;
+  }
+
+  private void assertReadsInOrder(DBCursor<UpdateMsg> cursor, int first, int last) throws ChangelogException
+  {
+    for (int i = first; i <= last; i++)
+    {
+      assertTrue(cursor.next());
+      assertEquals(cursor.getRecord().getCSN().getTime(), i);
+    }
+  }
+}
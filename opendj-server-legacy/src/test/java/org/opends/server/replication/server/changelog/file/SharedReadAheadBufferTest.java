@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 3A Systems, LLC.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.replication.server.changelog.file.SharedReadAheadBuffer.ReadResult.*;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class SharedReadAheadBufferTest extends DirectoryServerTestCase
+{
+  private static SharedReadAheadBuffer<Integer, String> newBuffer(int capacity, int... keys)
+  {
+    final SharedReadAheadBuffer<Integer, String> buffer = new SharedReadAheadBuffer<>(capacity);
+    for (int key : keys)
+    {
+      buffer.append(Record.from(key, "value" + key));
+    }
+    return buffer;
+  }
+
+  private static void assertFound(SharedReadAheadBuffer<Integer, String>.Reader reader, int key, boolean includeKey,
+      int expectedKey)
+  {
+    assertThat(reader.next(key, includeKey)).isEqualTo(FOUND);
+    assertThat(reader.getRecord().getKey()).isEqualTo(expectedKey);
+    assertThat(reader.getRecord().getValue()).isEqualTo("value" + expectedKey);
+  }
+
+  @Test
+  public void testReaderFollowsTheNewestRecords()
+  {
+    final SharedReadAheadBuffer<Integer, String> buffer = newBuffer(16, 1, 2, 3, 4, 5);
+    final SharedReadAheadBuffer<Integer, String>.Reader reader = buffer.newReader();
+
+    assertFound(reader, 3, false, 4);
+    assertFound(reader, 4, false, 5);
+    assertThat(reader.next(5, false)).isEqualTo(EXHAUSTED);
+    assertThat(reader.getRecord()).isNull();
+
+    buffer.append(Record.from(6, "value6"));
+    assertFound(reader, 5, false, 6);
+    assertFound(reader, 2, true, 2);
+    assertThat(buffer.getHits()).isEqualTo(5);
+    assertThat(buffer.getMisses()).isZero();
+  }
+
+  @Test
+  public void testLaggingReaderMustReadTheLog()
+  {
+    final SharedReadAheadBuffer<Integer, String> buffer = newBuffer(4, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    final SharedReadAheadBuffer<Integer, String>.Reader reader = buffer.newReader();
+
+    assertThat(reader.next(5, false)).isEqualTo(NOT_IN_BUFFER);
+    // record 7 is the oldest one in the buffer: is there any record between 6 and 7?
+    assertThat(reader.next(6, false)).isEqualTo(NOT_IN_BUFFER);
+    assertThat(reader.next(null, false)).isEqualTo(NOT_IN_BUFFER);
+    assertFound(reader, 7, true, 7);
+    assertFound(reader, 7, false, 8);
+    assertThat(buffer.getMisses()).isEqualTo(3);
+  }
+
+  @Test
+  public void testRecordsBreakingTheKeyOrderingAreIgnored()
+  {
+    final SharedReadAheadBuffer<Integer, String> buffer = newBuffer(16, 1, 3, 2, 3, 4);
+    final SharedReadAheadBuffer<Integer, String>.Reader reader = buffer.newReader();
+
+    assertFound(reader, 1, false, 3);
+    assertFound(reader, 3, false, 4);
+    assertFound(reader, 2, false, 3);
+  }
+
+  @Test
+  public void testPurgeAndClear()
+  {
+    final SharedReadAheadBuffer<Integer, String> buffer = newBuffer(16, 1, 2, 3, 4, 5);
+    final SharedReadAheadBuffer<Integer, String>.Reader reader = buffer.newReader();
+
+    buffer.purgeUpTo(3);
+    assertThat(reader.next(2, false)).isEqualTo(NOT_IN_BUFFER);
+    assertFound(reader, 3, false, 4);
+
+    buffer.clear();
+    assertThat(reader.next(4, false)).isEqualTo(NOT_IN_BUFFER);
+
+    // the log accepts any key after being cleared
+    buffer.append(Record.from(1, "value1"));
+    buffer.append(Record.from(2, "value2"));
+    assertFound(reader, 1, false, 2);
+  }
+}
@@ -18,6 +18,7 @@ package org.opends.server.types;
 import static org.assertj.core.api.Assertions.*;
 
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -25,10 +26,12 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.TestCaseUtils;
 import org.opends.server.types.LockManager.DNLock;
+import org.opends.server.types.LockManager.LockContention;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -266,6 +269,140 @@ public class LockManagerTest extends TypesTestCase
     assertThat(lockManager.getLockTableRefCountFor(dn(99))).isGreaterThan(0);
   }
 
+  @Test
+  public void testLockContentionIsRecorded() throws Exception
+  {
+    final LockManager lockManager = new LockManager(100, TimeUnit.MILLISECONDS);
+    DNLock lock1 = lockUsingThread(thread1, lockManager, LockType.WRITE_ENTRY, dnABC).get();
+    assertThat(lockManager.getContendedLockCount()).isEqualTo(0);
+
+    DNLock lock2 = lockUsingThread(thread2, lockManager, LockType.READ_ENTRY, dnABC).get();
+    assertThat(lock2).isNull(); // Timed out.
+    unlockUsingThread(thread1, lock1);
+
+    assertThat(lockManager.getContendedLockCount()).isEqualTo(1);
+    assertThat(lockManager.getTimedOutLockCount()).isEqualTo(1);
+    long waits = 0;
+    for (long count : lockManager.getWaitTimeHistogram())
+    {
+      waits += count;
+    }
+    assertThat(waits).isEqualTo(1);
+    assertThat(lockManager.getMostContendedDNs(10)).hasSize(1);
+    assertThat(lockManager.getMostContendedDNs(10).get(0).getDN().equals(dnABC)).isTrue();
+    assertThat(lockManager.getMostContendedDNs(10).get(0).getWaitTime(TimeUnit.MILLISECONDS)).isGreaterThan(0);
+  }
+
+  @Test
+  public void testMostContendedDNsAreKeptWhenTrackingTooManyDNs() throws Exception
+  {
+    final LockManager lockManager = new LockManager();
+    for (int i = 0; i < 10; i++)
+    {
+      lockManager.recordContention(dnABC, 1000, true);
+    }
+    for (int i = 0; i < 1500; i++)
+    {
+      lockManager.recordContention(dn(i), 1000, true);
+    }
+
+    final List<LockContention> contentions = lockManager.getMostContendedDNs(Integer.MAX_VALUE);
+    assertThat(contentions.size()).isLessThanOrEqualTo(1000);
+    assertThat(contentions.get(0).getDN().equals(dnABC)).isTrue();
+    assertThat(contentions.get(0).getContendedCount()).isEqualTo(10);
+    assertThat(lockManager.getContendedLockCount()).isEqualTo(1510);
+  }
+
+  @Test
+  public void testSubtreeWriteLockWaitsForManyConcurrentChildLocks() throws Exception
+  {
+    final LockManager lockManager = new LockManager(100, TimeUnit.MILLISECONDS);
+    final DN parentDN = DN.valueOf("ou=people,dc=example,dc=com");
+    final ExecutorService[] threads = new ExecutorService[16];
+    try
+    {
+      // Lock children of the same parent concurrently so that its subtree lock has concurrent readers.
+      final Future<?>[] futures = new Future<?>[threads.length];
+      for (int i = 0; i < threads.length; i++)
+      {
+        threads[i] = Executors.newSingleThreadExecutor();
+        futures[i] = lockUsingThread(threads[i], lockManager, LockType.WRITE_ENTRY, dn(i));
+      }
+      final DNLock[] locks = new DNLock[threads.length];
+      for (int i = 0; i < threads.length; i++)
+      {
+        locks[i] = (DNLock) futures[i].get();
+        assertThat(locks[i]).isNotNull();
+      }
+      assertThat(lockUsingThread(thread1, lockManager, LockType.WRITE_SUBTREE, parentDN).get()).isNull();
+
+      for (int i = 0; i < threads.length; i++)
+      {
+        unlockUsingThread(threads[i], locks[i]);
+      }
+      final DNLock parentLock = lockUsingThread(thread1, lockManager, LockType.WRITE_SUBTREE, parentDN).get();
+      assertThat(parentLock).isNotNull();
+
+      // New children cannot be locked while the parent subtree is write locked.
+      assertThat(lockUsingThread(thread2, lockManager, LockType.WRITE_ENTRY, dn(0)).get()).isNull();
+      unlockUsingThread(thread1, parentLock);
+      final DNLock childLock = lockUsingThread(thread2, lockManager, LockType.WRITE_ENTRY, dn(0)).get();
+      assertThat(childLock).isNotNull();
+      unlockUsingThread(thread2, childLock);
+    }
+    finally
+    {
+      for (ExecutorService thread : threads)
+      {
+        if (thread != null)
+        {
+          thread.shutdown();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSubtreeWriteLockIsNotStarvedByContinuousChildLocks() throws Exception
+  {
+    final LockManager lockManager = new LockManager(5, TimeUnit.SECONDS);
+    final DN parentDN = DN.valueOf("ou=people,dc=example,dc=com");
+    final AtomicBoolean stop = new AtomicBoolean();
+    final ExecutorService threadPool = Executors.newFixedThreadPool(4);
+    try
+    {
+      // Overlapping child locks keep the parent subtree lock read locked all the time.
+      for (int i = 0; i < 4; i++)
+      {
+        final DN childDN = dn(i);
+        threadPool.submit(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            while (!stop.get())
+            {
+              final DNLock lock = lockManager.tryReadLockEntry(childDN);
+              if (lock != null)
+              {
+                lock.unlock();
+              }
+            }
+          }
+        });
+      }
+      final DNLock parentLock = lockUsingThread(thread1, lockManager, LockType.WRITE_SUBTREE, parentDN).get();
+      assertThat(parentLock).isNotNull();
+      unlockUsingThread(thread1, parentLock);
+    }
+    finally
+    {
+      stop.set(true);
+      threadPool.shutdown();
+      assertThat(threadPool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+
   @Test(description = "OPENDJ-1984")
   public void stressTestForDeadlocks() throws Exception
   {
@@ -418,6 +418,26 @@ public class SearchFilterTests extends DirectoryServerTestCase {
     runMatchTest(ldifEntry, filterStr, expectMatch);
   }
 
+  @Test
+  public void testMatchesWithAssertionCache() throws Exception {
+    TestCaseUtils.dsconfig("set-global-configuration-prop", "--set", "assertion-cache-size:4");
+    try
+    {
+      // evaluate each filter twice to also use the cached assertions
+      for (int i = 0; i < 2; i++)
+      {
+        for (Object[] params : matchesParams())
+        {
+          runMatchTest((String) params[0], (String) params[1], (Boolean) params[2]);
+        }
+      }
+    }
+    finally
+    {
+      TestCaseUtils.dsconfig("set-global-configuration-prop", "--reset", "assertion-cache-size");
+    }
+  }
+
   private void runMatchTest(String ldifEntry, String filterStr, boolean expectMatch) throws Exception {
     Entry entry = TestCaseUtils.entryFromLdifString(ldifEntry);
 